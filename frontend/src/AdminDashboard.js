@@ -21,6 +21,7 @@ const AdminDashboard = ({
   selectedWorkers, // New prop: array of selected worker IDs
   allVendors, // New prop: list of all available vendors
   setSelectedWorkers, // New prop: function to update selected workers
+  stats, // Server-side request and user counts from /admin/stats
 }) => {
   const mapRef = useRef(null);
 
@@ -75,8 +76,26 @@ const AdminDashboard = ({
     setSelectedWorkers(selectedIds);
   };
 
+  const hourlyTotals = (stats?.hourly || []).reduce((totals, bucket) => ({
+    created: totals.created + bucket.created,
+    assigned: totals.assigned + bucket.assigned,
+    completed: totals.completed + bucket.completed,
+  }), { created: 0, assigned: 0, completed: 0 });
+
   return (
     <div className="admin-dashboard">
+      {stats && (
+        <div className="admin-stats">
+          <div className="admin-stat"><span>Open</span><strong>{stats.byStatus.OPEN || 0}</strong></div>
+          <div className="admin-stat"><span>Assigned</span><strong>{stats.byStatus.ASSIGNED || 0}</strong></div>
+          <div className="admin-stat"><span>Completed</span><strong>{stats.byStatus.COMPLETED || 0}</strong></div>
+          <div className="admin-stat"><span>Created (24h)</span><strong>{hourlyTotals.created}</strong></div>
+          <div className="admin-stat"><span>Completed (24h)</span><strong>{hourlyTotals.completed}</strong></div>
+          {Object.entries(stats.usersByRole).map(([role, count]) => (
+            <div className="admin-stat" key={role}><span>{role}</span><strong>{count}</strong></div>
+          ))}
+        </div>
+      )}
       <div className="admin-form-container">
         <div className="form-header">
           <h2>{editingUser ? 'Edit User' : 'Create New User'}</h2>
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useCallback, useRef } from 'react';
 import { useJsApiLoader } from '@react-google-maps/api';
 import './App.css'; 
 import UserHomepage from './UserHomepage';
@@ -13,6 +13,7 @@ import VehicleSelection from './VehicleSelection';
 
 function App() {
   const [users, setUsers] = useState([]);
+  const [adminStats, setAdminStats] = useState(null);
   const [vendors, setVendors] = useState([]);
   const [newUser, setNewUser] = useState({ username: '', password: '', email: '', role: 'USER', latitude: '', longitude: '', address: '', name: '' });
   const [signUpFormState, setSignUpFormState] = useState({ username: '', password: '', email: '', role: 'USER', latitude: '', longitude: '', address: '' });
@@ -39,6 +40,8 @@ function App() {
   const [selectedVehicle, setSelectedVehicle] = useState(null);
 
   const [requestFile, setRequestFile] = useState(null);
+  // Kept until the submission succeeds, so a repeated submit can't create a second request
+  const requestIdempotencyKey = useRef(null);
   // Use the hook to safely load the map. Since the script is in index.html,
   // we just need to specify the libraries.
   const { isLoaded, loadError } = useJsApiLoader({
@@ -101,6 +104,7 @@ function App() {
           // Admin needs the full user list
           setUserView('vehicleSelection'); // Reset user view
           fetch('/users', { headers: authHeaders }).then(res => res.json()).then(setUsers);
+          fetch('/admin/stats', { headers: authHeaders }).then(res => res.json()).then(setAdminStats);
         } else if (currentUser.roles.includes('USER')) {
           // Check for any of the user's requests to restore state
           fetch('/requests/my-requests', { headers: authHeaders })
@@ -303,9 +307,25 @@ function App() {
     }
   };
 
+  // Long-polls the vendor's inbox for requests added or removed since the given version
+  const fetchRequestChanges = (since) => {
+    const authHeaders = createAuthHeaders(loggedInUser.username, credentials.password);
+    return fetch(`/requests/changes?since=${since}`, { headers: authHeaders })
+      .then(res => {
+        if (!res.ok) throw new Error(`Polling failed with status ${res.status}`);
+        return res.json();
+      });
+  };
+
   const handleRequestSubmit = () => {
     const authHeaders = createAuthHeaders(loggedInUser.username, credentials.password);
-    const multiPartAuthHeaders = { 'Authorization': authHeaders.Authorization };
+    if (!requestIdempotencyKey.current) {
+      requestIdempotencyKey.current = crypto.randomUUID();
+    }
+    const multiPartAuthHeaders = {
+      'Authorization': authHeaders.Authorization,
+      'Idempotency-Key': requestIdempotencyKey.current,
+    };
 
     let problem = newRequest.problemDescription;
     if (problem === 'Other' && newRequest.otherProblem) {
@@ -329,10 +349,14 @@ function App() {
       body: formData,
     })
     .then(res => {
+        if (res.status === 422) {
+            requestIdempotencyKey.current = null; // The form was changed since the key was used
+        }
         if (!res.ok) throw new Error('Failed to submit request.');
         return res.json();
     })
     .then(createdRequest => {
+        requestIdempotencyKey.current = null;
         setActiveRequest(createdRequest); // Start tracking the request
         setNewRequest({ problemDescription: '', vehicleNumber: '', name: loggedInUser.username, email: loggedInUser.email, phoneNumber: '', otherProblem: '' });
         setRequestFile(null); // Clear the file after submission
@@ -492,6 +516,14 @@ function App() {
       });
   };
 
+  // Resolves to null when the document has no thumbnail (yet).
+  const fetchThumbnail = useCallback((url) => {
+    const authHeaders = createAuthHeaders(loggedInUser.username, credentials.password);
+    return fetch(url, { headers: { 'Authorization': authHeaders.Authorization } })
+      .then(response => (response.ok ? response.blob() : null))
+      .catch(() => null);
+  }, [loggedInUser, credentials.password]);
+
   const handleLogout = () => {
     setLoggedInUser(null);
     setCredentials({ username: '', password: '' });
@@ -513,6 +545,10 @@ function App() {
         .then(res => res.json())
         .then(setUsers)
         .catch(err => console.error("Failed to refresh users:", err)); // Silently handle errors in background
+      fetch('/admin/stats', { headers: authHeaders })
+        .then(res => res.json())
+        .then(setAdminStats)
+        .catch(err => console.error("Failed to refresh stats:", err));
     }
   };
   if (!loggedInUser) {
@@ -611,6 +647,7 @@ function App() {
               allVendors={users.filter(u => u.roles.includes('VENDOR'))}
               selectedWorkers={selectedWorkers}
               setSelectedWorkers={setSelectedWorkers}
+              stats={adminStats}
             />
         )}
         {loggedInUser.roles.includes('ADMIN') && adminView === 'viewUsers' && (
@@ -621,6 +658,7 @@ function App() {
               onDeleteUser={handleDeleteUser}
               onRefreshUsers={refreshUsers} // Pass the refresh function here
               onDownload={handleDownload}
+              onFetchThumbnail={fetchThumbnail}
             />
         )}
         {loggedInUser.roles.includes('VENDOR') && 
@@ -630,6 +668,7 @@ function App() {
               workers={vendorWorkers} 
               onAssignWorker={handleAssignWorkerToRequest} 
               onRefreshRequests={refreshServiceRequests} // Pass the refresh function
+              onFetchRequestChanges={fetchRequestChanges}
             />}
         {loggedInUser.roles.includes('USER') && userView === 'vehicleSelection' && (
           <VehicleSelection onVehicleSelect={handleVehicleSelect} />
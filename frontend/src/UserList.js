@@ -24,7 +24,29 @@ const userIcon = new L.Icon({
   shadowSize: [41, 41]
 });
 
-const UserList = ({ users, onShowCreateUser, onEditUser, onDeleteUser, onRefreshUsers, onDownload }) => {
+// Small preview of an uploaded document; renders nothing until the server has made one.
+const DocumentThumbnail = ({ url, onFetch }) => {
+  const [src, setSrc] = useState(null);
+
+  useEffect(() => {
+    let objectUrl = null;
+    let cancelled = false;
+    onFetch(url).then(blob => {
+      if (blob && !cancelled) {
+        objectUrl = URL.createObjectURL(blob);
+        setSrc(objectUrl);
+      }
+    });
+    return () => {
+      cancelled = true;
+      if (objectUrl) URL.revokeObjectURL(objectUrl);
+    };
+  }, [url, onFetch]);
+
+  return src ? <img src={src} alt="" className="document-thumbnail" loading="lazy" /> : null;
+};
+
+const UserList = ({ users, onShowCreateUser, onEditUser, onDeleteUser, onRefreshUsers, onDownload, onFetchThumbnail }) => {
   const [view, setView] = useState('table'); // 'table' or 'map'
 
   useEffect(() => {
@@ -148,13 +170,13 @@ const UserList = ({ users, onShowCreateUser, onEditUser, onDeleteUser, onRefresh
                     <button onClick={() => onDeleteUser(user.id)} className="action-button delete-button">Delete</button>
                   </td>
                   <td className="document-links">
-                    {user.hasPhoto && <div><a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/photo`, `photo_${user.username}.jpg`); }}>Photo</a></div>}
-                    {user.panCard && <div><a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/pancard`, `pancard_${user.username}.pdf`); }}>PAN Card</a></div>}
-                    {user.adhaarCard && <div><a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/adhaarcard`, `adhaarcard_${user.username}.pdf`); }}>Aadhaar Card</a></div>}
-                    {user.voterId && <div><a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/voterid`, `voterid_${user.username}.pdf`); }}>Voter ID</a></div>}
-                    {user.digitalSignature && <div><a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/digitalsignature`, `digitalsignature_${user.username}.pdf`); }}>Digital Signature</a></div>}
-                    {user.shopRegistration && <div><a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/shopregistration`, `shopregistration_${user.username}.pdf`); }}>Shop Registration</a></div>}
-                    {user.userAgreement && <div><a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/useragreement`, `useragreement_${user.username}.pdf`); }}>User Agreement</a></div>}
+                    {user.hasPhoto && <div>{onFetchThumbnail && <DocumentThumbnail url={`/users/${user.id}/documents/photo/thumbnail`} onFetch={onFetchThumbnail} />}<a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/photo`, `photo_${user.username}.jpg`); }}>Photo</a></div>}
+                    {user.panCard && <div>{onFetchThumbnail && <DocumentThumbnail url={`/users/${user.id}/documents/pancard/thumbnail`} onFetch={onFetchThumbnail} />}<a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/pancard`, `pancard_${user.username}.pdf`); }}>PAN Card</a></div>}
+                    {user.adhaarCard && <div>{onFetchThumbnail && <DocumentThumbnail url={`/users/${user.id}/documents/adhaarcard/thumbnail`} onFetch={onFetchThumbnail} />}<a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/adhaarcard`, `adhaarcard_${user.username}.pdf`); }}>Aadhaar Card</a></div>}
+                    {user.voterId && <div>{onFetchThumbnail && <DocumentThumbnail url={`/users/${user.id}/documents/voterid/thumbnail`} onFetch={onFetchThumbnail} />}<a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/voterid`, `voterid_${user.username}.pdf`); }}>Voter ID</a></div>}
+                    {user.digitalSignature && <div>{onFetchThumbnail && <DocumentThumbnail url={`/users/${user.id}/documents/digitalsignature/thumbnail`} onFetch={onFetchThumbnail} />}<a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/digitalsignature`, `digitalsignature_${user.username}.pdf`); }}>Digital Signature</a></div>}
+                    {user.shopRegistration && <div>{onFetchThumbnail && <DocumentThumbnail url={`/users/${user.id}/documents/shopregistration/thumbnail`} onFetch={onFetchThumbnail} />}<a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/shopregistration`, `shopregistration_${user.username}.pdf`); }}>Shop Registration</a></div>}
+                    {user.userAgreement && <div>{onFetchThumbnail && <DocumentThumbnail url={`/users/${user.id}/documents/useragreement/thumbnail`} onFetch={onFetchThumbnail} />}<a href="#" onClick={(e) => { e.preventDefault(); onDownload(`/users/${user.id}/documents/useragreement`, `useragreement_${user.username}.pdf`); }}>User Agreement</a></div>}
                   </td>
                 </tr>
               ))}
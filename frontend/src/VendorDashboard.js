@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { MapContainer, TileLayer, Marker, Popup } from 'react-leaflet';
 import 'leaflet/dist/leaflet.css';
 import L from 'leaflet';
@@ -20,21 +20,46 @@ const userIcon = new L.Icon({
 });
 
 
-const VendorDashboard = ({ requests, workers, onAssignWorker, onRefreshRequests, loggedInUser }) => {
+const VendorDashboard = ({ requests, workers, onAssignWorker, onRefreshRequests, onFetchRequestChanges, loggedInUser }) => {
   const [selectedWorkers, setSelectedWorkers] = useState({}); // State to hold { requestId: workerId }
 
+  // Keep the latest callbacks in refs so the long-poll loop isn't restarted on every render
+  const refreshRef = useRef(onRefreshRequests);
+  const fetchChangesRef = useRef(onFetchRequestChanges);
+  refreshRef.current = onRefreshRequests;
+  fetchChangesRef.current = onFetchRequestChanges;
+
   useEffect(() => {
-    // Set up an interval to refresh the service requests every 2 seconds
-    const intervalId = setInterval(() => {
-      if (onRefreshRequests) {
-        onRefreshRequests();
+    // Long-poll the vendor's inbox and only reload the request list when it actually changed
+    let cancelled = false;
+    let since = 0;
+
+    const poll = async () => {
+      while (!cancelled) {
+        try {
+          const changes = await fetchChangesRef.current(since);
+          if (cancelled) break;
+          const changed = changes.reset || changes.added.length > 0 || changes.removed.length > 0;
+          since = changes.version;
+          if (changed && refreshRef.current) {
+            refreshRef.current();
+          }
+        } catch (err) {
+          console.error("Failed to poll request changes:", err);
+          // Back off before retrying so a down server isn't hammered
+          await new Promise(resolve => setTimeout(resolve, 5000));
+        }
       }
-    }, 2000); // 2 seconds
+    };
+
+    if (fetchChangesRef.current) {
+      poll();
+    }
+
+    // Stop the loop when the component unmounts
+    return () => { cancelled = true; };
+  }, []);
 
-    // Clean up the interval when the component unmounts
-    return () => clearInterval(intervalId);
-  }, [onRefreshRequests]);
-  
   const handleWorkerSelection = (requestId, workerId) => {
     setSelectedWorkers(prev => ({
       ...prev,
@@ -52,10 +77,10 @@ const VendorDashboard = ({ requests, workers, onAssignWorker, onRefreshRequests,
     });
   };
 
-  // Filter for requests that are OPEN and intended for the currently logged-in vendor.
+  // Filter for requests that are OPEN and intended for, or offered to, the currently logged-in vendor.
   const openRequests = requests.filter(req => 
     req.status === 'OPEN' && 
-    req.intendedVendor?.id === loggedInUser.id
+    (req.intendedVendor?.id === loggedInUser.id || req.offeredVendorIds?.includes(loggedInUser.id))
   );
 
   return (
@@ -0,0 +1,53 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request: wall-clock time from launching the JVM until the
+# application answers an HTTP request (any status counts, 401 included).
+#
+# Usage: scripts/startup-benchmark.sh [runs] [mode]
+#   mode "jar"  - plain executable jar from target/ (default)
+#   mode "fast" - AOT + CDS build from target/fast-startup (mvn -Pfast-startup package)
+#
+# Extra JVM or application arguments can be passed via JAVA_OPTS / APP_ARGS.
+set -euo pipefail
+
+RUNS="${1:-5}"
+MODE="${2:-jar}"
+PORT="${PORT:-8089}"
+BASE_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+
+case "$MODE" in
+  jar)
+    JAR="$(ls "$BASE_DIR"/target/quickfix-*.jar | grep -v original | head -1)"
+    CMD=(java ${JAVA_OPTS:-} -jar "$JAR")
+    WORK_DIR="$BASE_DIR"
+    ;;
+  fast)
+    WORK_DIR="$BASE_DIR/target/fast-startup"
+    CMD=(java ${JAVA_OPTS:-} -XX:SharedArchiveFile=app-cds.jsa -Dspring.aot.enabled=true -jar quickfix.jar)
+    ;;
+  *)
+    echo "Unknown mode: $MODE" >&2
+    exit 1
+    ;;
+esac
+
+total=0
+for run in $(seq 1 "$RUNS"); do
+  start=$(date +%s%N)
+  (cd "$WORK_DIR" && "${CMD[@]}" --server.port="$PORT" --gemini.models.discovery.enabled=false ${APP_ARGS:-} \
+    > "/tmp/quickfix-startup-$run.log" 2>&1) &
+  pid=$!
+  until curl -s -o /dev/null "http://localhost:$PORT/metrics"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "Run $run: application exited, see /tmp/quickfix-startup-$run.log" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  total=$(( total + elapsed ))
+  echo "Run $run: first request answered after ${elapsed} ms"
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+done
+
+echo "Mode $MODE: mean time-to-first-request $(( total / RUNS )) ms over $RUNS runs"
@@ -0,0 +1,27 @@
+package com.innovation.config;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * AOT processing (the fast-startup build profile) evaluates the condition on
+ * {@link ReadReplicaDataSourceConfig} at build time. An AOT build made without
+ * {@code datasource.replica.urls} has no replica routing, and would silently send
+ * everything to the primary if replicas were configured only at runtime; startup
+ * fails instead.
+ */
+@Component
+public class AotReplicaGuard {
+
+    public AotReplicaGuard(Environment environment, ObjectProvider<ReplicaLagMonitor> replicaLagMonitor) {
+        String replicaUrls = environment.getProperty("datasource.replica.urls", "");
+        if (AotDetector.useGeneratedArtifacts() && !replicaUrls.isBlank()
+                && replicaLagMonitor.getIfAvailable() == null) {
+            throw new IllegalStateException("datasource.replica.urls is set, but this AOT build was processed"
+                    + " without it, so replica routing is not included. Rebuild with replica URLs set"
+                    + " (see the fast-startup profile in pom.xml) or run with -Dspring.aot.enabled=false.");
+        }
+    }
+}
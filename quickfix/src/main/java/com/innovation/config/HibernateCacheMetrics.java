@@ -0,0 +1,27 @@
+package com.innovation.config;
+
+import com.innovation.service.ServiceMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes Hibernate second-level and query cache statistics on /metrics.
+ * Counts are only collected when {@code hibernate.generate_statistics} is on.
+ */
+@Component
+public class HibernateCacheMetrics {
+
+    public HibernateCacheMetrics(EntityManagerFactory entityManagerFactory, ServiceMetrics metrics) {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        metrics.gauge("hibernate.l2.hits", stats::getSecondLevelCacheHitCount);
+        metrics.gauge("hibernate.l2.misses", stats::getSecondLevelCacheMissCount);
+        metrics.gauge("hibernate.l2.puts", stats::getSecondLevelCachePutCount);
+        metrics.gauge("hibernate.query-cache.hits", stats::getQueryCacheHitCount);
+        metrics.gauge("hibernate.query-cache.misses", stats::getQueryCacheMissCount);
+        metrics.gauge("hibernate.query-cache.puts", stats::getQueryCachePutCount);
+        metrics.gauge("hibernate.l2.entries",
+                () -> LocalCacheRegionFactory.regionSizes().values().stream().mapToInt(Integer::intValue).sum());
+    }
+}
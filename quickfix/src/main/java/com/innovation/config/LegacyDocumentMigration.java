@@ -0,0 +1,129 @@
+package com.innovation.config;
+
+import com.innovation.model.DocumentType;
+import com.innovation.service.UserDocumentService;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies documents stored in the old blob columns of {@code users} into
+ * {@code user_documents} and sets the matching document-mask bits. Documents
+ * are only read from {@code user_documents}, so the copy is on by default
+ * ({@code users.documents.migrate-legacy}). It runs once per database: it is
+ * recorded in {@code applied_migrations} in the same transaction, so a
+ * document deleted afterwards is not copied back by a later start. The old
+ * columns are only read; clearing or dropping them is a separate step, to be
+ * done once the copy has been verified. Documents stored before their content
+ * type and length were recorded get them filled in on every start.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LegacyDocumentMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyDocumentMigration.class);
+
+    private static final String MIGRATION_NAME = "copy-legacy-user-documents";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean enabled;
+
+    public LegacyDocumentMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${users.documents.migrate-legacy:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (enabled) {
+            copyLegacyDocuments();
+        }
+        describeDocuments();
+    }
+
+    private void copyLegacyDocuments() {
+        List<DocumentType> types = new ArrayList<>();
+        for (DocumentType type : DocumentType.values()) {
+            Integer exists = jdbcTemplate.queryForObject(
+                    "select count(*) from information_schema.columns"
+                            + " where table_schema = database() and table_name = 'users' and column_name = ?",
+                    Integer.class, type.getLegacyColumn());
+            if (exists != null && exists > 0) {
+                types.add(type);
+            }
+        }
+        if (types.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("create table if not exists applied_migrations"
+                + " (name varchar(100) primary key, applied_at datetime not null)");
+        Integer migrated = transactionTemplate.execute(status -> {
+            try {
+                // Another node starting at the same time waits on this row, then skips
+                jdbcTemplate.update("insert into applied_migrations (name, applied_at) values (?, now())",
+                        MIGRATION_NAME);
+            } catch (DuplicateKeyException e) {
+                return null;
+            }
+            int rows = 0;
+            for (DocumentType type : types) {
+                // Column names come from the enum, never from input.
+                String column = type.getLegacyColumn();
+                rows += jdbcTemplate.update("insert into user_documents (user_id, doc_type, content)"
+                        + " select u.id, ?, u." + column + " from users u"
+                        + " where u." + column + " is not null and length(u." + column + ") > 0"
+                        + " and not exists (select 1 from user_documents d"
+                        + " where d.user_id = u.id and d.doc_type = ?)", type.name(), type.name());
+                jdbcTemplate.update("update users u set u.document_mask = u.document_mask | ?"
+                        + " where exists (select 1 from user_documents d"
+                        + " where d.user_id = u.id and d.doc_type = ?)", type.bit(), type.name());
+            }
+            // The document flags of these users changed: new ETags, and other nodes evict them
+            jdbcTemplate.update("insert into resource_versions (resource_key, version, changed_at)"
+                    + " select concat('user:', u.id), 1, now(6) from users u where u.document_mask <> 0"
+                    + " on duplicate key update version = version + 1, changed_at = now(6)");
+            return rows;
+        });
+        if (migrated == null) {
+            logger.debug("Legacy user documents were already copied");
+            return;
+        }
+        // The updates bypassed Hibernate, so drop any users it has cached.
+        entityManagerFactory.getCache().evictAll();
+        logger.info("Copied {} legacy user documents into user_documents; the old columns on users are"
+                + " unchanged and can be dropped once the copy is verified", migrated);
+    }
+
+    // Documents stored before their type and length were recorded; only the first bytes are read.
+    private void describeDocuments() {
+        jdbcTemplate.update("update user_documents set content_length = length(content)"
+                + " where content_length is null");
+        List<Object[]> types = new ArrayList<>();
+        jdbcTemplate.query("select id, substring(content, 1, 16) from user_documents where content_type is null",
+                rs -> {
+                    types.add(new Object[] { UserDocumentService.detectContentType(rs.getBytes(2)),
+                            rs.getLong(1) });
+                });
+        if (!types.isEmpty()) {
+            jdbcTemplate.batchUpdate("update user_documents set content_type = ? where id = ?", types);
+            logger.info("Detected the content type of {} stored documents", types.size());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.innovation.config;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate second-level cache provider that keeps every region in the local
+ * heap, bounded by {@code hibernate.cache.local.max-entries} and
+ * {@code hibernate.cache.local.ttl-seconds}. Each node has its own regions;
+ * Hibernate invalidates them for this node's writes, and {@link UserCacheEviction}
+ * for users changed on other nodes. Hibernate instantiates this class itself,
+ * so region sizes are published through a static registry.
+ */
+public class LocalCacheRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAX_ENTRIES = "hibernate.cache.local.max-entries";
+    public static final String TTL_SECONDS = "hibernate.cache.local.ttl-seconds";
+
+    private static final Map<String, LocalCacheStorage> REGIONS = new ConcurrentHashMap<>();
+
+    private int maxEntries;
+    private long ttlSeconds;
+
+    /** Current number of entries per region name. */
+    public static Map<String, Integer> regionSizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        REGIONS.forEach((name, storage) -> sizes.put(name, storage.size()));
+        return sizes;
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        maxEntries = Integer.parseInt(String.valueOf(configValues.getOrDefault(MAX_ENTRIES, "10000")));
+        ttlSeconds = Long.parseLong(String.valueOf(configValues.getOrDefault(TTL_SECONDS, "600")));
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        REGIONS.values().forEach(LocalCacheStorage::release);
+        REGIONS.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+            DomainDataRegionBuildingContext buildingContext) {
+        return region(regionConfig.getRegionName(), maxEntries, ttlSeconds);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        return region(regionName, maxEntries, ttlSeconds);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        // Never evict update timestamps: a missing one would let stale query results through.
+        return region(regionName, 0, 0);
+    }
+
+    private static LocalCacheStorage region(String name, int maxEntries, long ttlSeconds) {
+        return REGIONS.computeIfAbsent(name, n -> new LocalCacheStorage(maxEntries, ttlSeconds));
+    }
+}
@@ -0,0 +1,75 @@
+package com.innovation.config;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One in-heap cache region: an access-ordered map that evicts the least recently
+ * used entry beyond {@code maxEntries} and treats entries older than the TTL as
+ * absent. Either bound is disabled when it is zero or negative.
+ */
+public class LocalCacheStorage implements DomainDataStorageAccess {
+
+    private record Entry(Object value, long expiresAtNanos) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Object, Entry> entries;
+
+    public LocalCacheStorage(int maxEntries, long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return LocalCacheStorage.this.maxEntries > 0 && size() > LocalCacheStorage.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - entry.expiresAtNanos() > 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    @Override
+    public synchronized void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return getFromCache(key, null) != null;
+    }
+
+    @Override
+    public synchronized void evictData() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized void evictData(Object key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public void release() {
+        evictData();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
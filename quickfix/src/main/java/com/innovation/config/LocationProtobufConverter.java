@@ -0,0 +1,260 @@
+package com.innovation.config;
+
+import com.innovation.model.LocationPing;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes {@link LocationPing}s as {@code application/x-protobuf}, for
+ * clients that ask for it with {@code Accept} or {@code Content-Type}. The
+ * encoding follows the protobuf wire format of this schema, written by hand to
+ * avoid a code generator for two messages:
+ *
+ * <pre>
+ * message LocationPing {
+ *   int64 user_id = 1;
+ *   sint64 latitude_e7 = 2;   // degrees * 10^7
+ *   sint64 longitude_e7 = 3;
+ * }
+ * message LocationBatch {
+ *   repeated LocationPing pings = 1;  // each field a delta from the previous ping
+ * }
+ * </pre>
+ *
+ * Fixed-point coordinates are exact to about a centimetre. Within a batch the
+ * pings are sorted by user and delta-encoded, so nearby users cost a few bytes
+ * each; zero fields are omitted as in proto3. Registered after the default
+ * converters by {@link WebMvcConfig}, so it is only chosen when asked for.
+ */
+public class LocationProtobufConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final String PROTOBUF_VALUE = "application/x-protobuf";
+    public static final MediaType PROTOBUF = MediaType.parseMediaType(PROTOBUF_VALUE);
+
+    private static final double SCALE = 1e7;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    public LocationProtobufConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == LocationPing.class || clazz == LocationPing.Batch.class;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        byte[] body = readBody(inputMessage.getBody(), inputMessage);
+        try {
+            return clazz == LocationPing.class ? decodePing(body) : decodeBatch(body);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new HttpMessageNotReadableException("Malformed location message", e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, HttpOutputMessage outputMessage) throws IOException {
+        byte[] encoded = value instanceof LocationPing ping ? encodePing(ping) : encodeBatch((LocationPing.Batch) value);
+        outputMessage.getHeaders().setContentLength(encoded.length);
+        outputMessage.getBody().write(encoded);
+    }
+
+    public static byte[] encodePing(LocationPing ping) {
+        Writer out = new Writer(32);
+        writeFields(out, ping.userId(), fixed(ping.latitude()), fixed(ping.longitude()));
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeBatch(LocationPing.Batch batch) {
+        List<LocationPing> sorted = new ArrayList<>(batch.pings());
+        sorted.sort((a, b) -> Long.compare(a.userId(), b.userId()));
+        Writer out = new Writer(16 + 16 * sorted.size());
+        Writer message = new Writer(32);
+        long userId = 0;
+        long latitude = 0;
+        long longitude = 0;
+        for (LocationPing ping : sorted) {
+            long lat = fixed(ping.latitude());
+            long lng = fixed(ping.longitude());
+            message.position = 0;
+            writeFields(message, ping.userId() - userId, lat - latitude, lng - longitude);
+            out.varint((1 << 3) | 2);
+            out.varint(message.position);
+            out.bytes(message.buffer, message.position);
+            userId = ping.userId();
+            latitude = lat;
+            longitude = lng;
+        }
+        return out.toByteArray();
+    }
+
+    public static LocationPing decodePing(byte[] bytes) {
+        long[] fields = readFields(new Reader(bytes, 0, bytes.length));
+        return new LocationPing(fields[0], fields[1] / SCALE, fields[2] / SCALE);
+    }
+
+    public static LocationPing.Batch decodeBatch(byte[] bytes) {
+        Reader reader = new Reader(bytes, 0, bytes.length);
+        List<LocationPing> pings = new ArrayList<>();
+        long userId = 0;
+        long latitude = 0;
+        long longitude = 0;
+        while (reader.hasMore()) {
+            long tag = reader.varint();
+            if (tag != ((1 << 3) | 2)) {
+                reader.skip((int) tag & 7);
+                continue;
+            }
+            int length = (int) reader.varint();
+            long[] fields = readFields(reader.slice(length));
+            userId += fields[0];
+            latitude += fields[1];
+            longitude += fields[2];
+            pings.add(new LocationPing(userId, latitude / SCALE, longitude / SCALE));
+        }
+        return new LocationPing.Batch(pings);
+    }
+
+    private static byte[] readBody(InputStream body, HttpInputMessage inputMessage) throws IOException {
+        byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new HttpMessageNotReadableException("Location message too large", inputMessage);
+        }
+        return bytes;
+    }
+
+    private static long fixed(double degrees) {
+        return Math.round(degrees * SCALE);
+    }
+
+    private static void writeFields(Writer out, long userId, long latitude, long longitude) {
+        if (userId != 0) {
+            out.varint(1 << 3);
+            out.varint(userId);
+        }
+        if (latitude != 0) {
+            out.varint(2 << 3);
+            out.varint(zigZag(latitude));
+        }
+        if (longitude != 0) {
+            out.varint(3 << 3);
+            out.varint(zigZag(longitude));
+        }
+    }
+
+    // user_id, latitude_e7, longitude_e7; unknown fields are skipped
+    private static long[] readFields(Reader reader) {
+        long[] fields = new long[3];
+        while (reader.hasMore()) {
+            long tag = reader.varint();
+            int field = (int) (tag >>> 3);
+            int wireType = (int) tag & 7;
+            if (wireType != 0 || field < 1 || field > 3) {
+                reader.skip(wireType);
+                continue;
+            }
+            long value = reader.varint();
+            fields[field - 1] = field == 1 ? value : (value >>> 1) ^ -(value & 1);
+        }
+        return fields;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    // Unsynchronized, unlike ByteArrayOutputStream; encoding runs per request.
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void bytes(byte[] source, int length) {
+            ensure(length);
+            System.arraycopy(source, 0, buffer, position, length);
+            position += length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+        private final int end;
+
+        Reader(byte[] bytes, int position, int end) {
+            this.bytes = bytes;
+            this.position = position;
+            this.end = end;
+        }
+
+        boolean hasMore() {
+            return position < end;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= end) {
+                    throw new IllegalArgumentException("Truncated varint");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint too long");
+        }
+
+        Reader slice(int length) {
+            if (length < 0 || position + length > end) {
+                throw new IllegalArgumentException("Truncated message");
+            }
+            Reader slice = new Reader(bytes, position, position + length);
+            position += length;
+            return slice;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case 0 -> varint();
+                case 1 -> slice(8);
+                case 2 -> slice((int) varint());
+                case 5 -> slice(4);
+                default -> throw new IllegalArgumentException("Unsupported wire type " + wireType);
+            }
+        }
+    }
+}
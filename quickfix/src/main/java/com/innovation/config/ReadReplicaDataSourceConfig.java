@@ -0,0 +1,77 @@
+package com.innovation.config;
+
+import com.innovation.service.ServiceMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single auto-configured datasource with a primary/replica router
+ * when {@code datasource.replica.urls} is set. Replicas share the primary's
+ * credentials unless {@code datasource.replica.username}/{@code password} are given.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.urls")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties properties, ServiceMetrics metrics,
+            @Value("${datasource.replica.urls}") List<String> replicaUrls,
+            @Value("${datasource.replica.username:}") String username,
+            @Value("${datasource.replica.password:}") String password,
+            @Value("${datasource.replica.pool-size:10}") int poolSize,
+            @Value("${datasource.replica.max-lag-seconds:2}") long maxLagSeconds,
+            @Value("${datasource.replica.require-replication:true}") boolean requireReplication) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i).trim())
+                    .username(username.isBlank() ? properties.determineUsername() : username)
+                    .password(password.isBlank() ? properties.determinePassword() : password)
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(poolSize);
+            replicas.put("replica-" + i, replica);
+        }
+        return new ReplicaLagMonitor(replicas, maxLagSeconds, requireReplication, metrics);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ReplicaLagMonitor replicaLagMonitor,
+            ServiceMetrics metrics,
+            @Value("${datasource.read-your-writes-ms:10000}") long readYourWritesMillis,
+            @Value("${datasource.read-your-writes-max-users:100000}") int maxTrackedUsers) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        Map<Object, Object> targets = new HashMap<>(replicaLagMonitor.getReplicas());
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primary);
+
+        ReadWriteRoutingDataSource router = new ReadWriteRoutingDataSource(replicaLagMonitor, readYourWritesMillis,
+                maxTrackedUsers, metrics);
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(primary);
+        router.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(router);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${datasource.read-your-writes-ms:10000}") long readYourWritesMillis) {
+        return new ReadYourWritesFilter(readYourWritesMillis);
+    }
+}
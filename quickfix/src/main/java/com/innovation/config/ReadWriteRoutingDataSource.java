@@ -0,0 +1,115 @@
+package com.innovation.config;
+
+import com.innovation.service.PrimaryReads;
+import com.innovation.service.ServiceMetrics;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy read replica (round robin) and
+ * everything else to the primary. For a short window after a client's last
+ * write, its reads only go to replicas that have caught up with that write, or
+ * else to the primary, so its own changes are never hidden by replication lag.
+ * The last write comes from the client ({@link ReadYourWritesFilter}), so this
+ * holds across nodes, or else from a bounded per-node record of each user's
+ * last write. Reads inside
+ * {@link PrimaryReads#run} also go to the primary, without counting as writes.
+ * Must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so
+ * the connection is only chosen once the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final long stickyMillis;
+    private final int maxTrackedUsers;
+    private final ServiceMetrics metrics;
+    private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor, long stickyMillis, int maxTrackedUsers,
+            ServiceMetrics metrics) {
+        this.lagMonitor = lagMonitor;
+        this.stickyMillis = stickyMillis;
+        this.maxTrackedUsers = maxTrackedUsers;
+        this.metrics = metrics;
+        metrics.gauge("datasource.read-your-writes.tracked-users", lastWriteByUser::size);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String username = currentUsername();
+        long now = System.currentTimeMillis();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWritesFilter.recordWrite(now);
+                if (username != null) {
+                    rememberWrite(username, now);
+                }
+            }
+            return PRIMARY;
+        }
+        if (PrimaryReads.isActive()) {
+            metrics.increment("datasource.read.required-primary");
+            return PRIMARY;
+        }
+        long lastWrite = Math.max(ReadYourWritesFilter.lastWrite(), rememberedWrite(username, now));
+        if (now - lastWrite < stickyMillis) {
+            List<String> caughtUp = lagMonitor.replicasCaughtUpTo(lastWrite);
+            if (caughtUp.isEmpty()) {
+                metrics.increment("datasource.read.sticky-primary");
+                return PRIMARY;
+            }
+            metrics.increment("datasource.read.replica");
+            return caughtUp.get(Math.floorMod(nextReplica.getAndIncrement(), caughtUp.size()));
+        }
+        List<String> healthy = lagMonitor.healthyReplicas();
+        if (healthy.isEmpty()) {
+            metrics.increment("datasource.read.fallback-primary");
+            return PRIMARY;
+        }
+        metrics.increment("datasource.read.replica");
+        return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+    }
+
+    int trackedUsers() {
+        return lastWriteByUser.size();
+    }
+
+    private void rememberWrite(String username, long now) {
+        if (lastWriteByUser.size() >= maxTrackedUsers && !lastWriteByUser.containsKey(username)) {
+            lastWriteByUser.values().removeIf(time -> now - time >= stickyMillis);
+            if (lastWriteByUser.size() >= maxTrackedUsers) {
+                // Clients that return the last-write cookie or header are not affected
+                lastWriteByUser.clear();
+            }
+        }
+        lastWriteByUser.put(username, now);
+    }
+
+    private long rememberedWrite(String username, long now) {
+        Long lastWrite = username == null ? null : lastWriteByUser.get(username);
+        if (lastWrite == null) {
+            return 0;
+        }
+        if (now - lastWrite >= stickyMillis) {
+            lastWriteByUser.remove(username, lastWrite);
+            return 0;
+        }
+        return lastWrite;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+}
@@ -0,0 +1,131 @@
+package com.innovation.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Carries a client's last write from one request to the next, so read-your-writes
+ * holds on whichever node serves it. A response to a request that wrote gets the
+ * write time (epoch milliseconds) in the {@code last-write} cookie and the
+ * {@code X-Last-Write} header; when the client sends either back,
+ * {@link ReadWriteRoutingDataSource} only reads from replicas that have caught up
+ * with that time. Writes made after the response was committed, such as during a
+ * streamed body, are not carried. Times come from the clocks of the nodes, which
+ * must be kept in sync.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "last-write";
+    public static final String HEADER = "X-Last-Write";
+
+    // Allowed lead of a presented time over this node's clock
+    private static final long MAX_CLOCK_SKEW_MILLIS = 1000;
+
+    private static final ThreadLocal<Client> CLIENT = new ThreadLocal<>();
+
+    private static final class Client {
+        long lastWrite;
+        boolean wrote;
+
+        Client(long lastWrite) {
+            this.lastWrite = lastWrite;
+        }
+    }
+
+    private final long stickyMillis;
+
+    public ReadYourWritesFilter(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    /** The current client's last write, or 0 if it sent none or this is not a request thread. */
+    public static long lastWrite() {
+        Client client = CLIENT.get();
+        return client == null ? 0 : client.lastWrite;
+    }
+
+    /** Records a write by the current client, to be returned with the response. */
+    public static void recordWrite(long epochMillis) {
+        Client client = CLIENT.get();
+        if (client != null) {
+            client.lastWrite = Math.max(client.lastWrite, epochMillis);
+            client.wrote = true;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Client client = new Client(presentedLastWrite(request));
+        LastWriteResponse wrapped = new LastWriteResponse(response, client);
+        CLIENT.set(client);
+        try {
+            chain.doFilter(request, wrapped);
+        } finally {
+            CLIENT.remove();
+            if (!response.isCommitted()) {
+                wrapped.addLastWrite();
+            }
+        }
+    }
+
+    private long presentedLastWrite(HttpServletRequest request) {
+        String value = request.getHeader(HEADER);
+        if (value == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (COOKIE.equals(cookie.getName())) {
+                    value = cookie.getValue();
+                }
+            }
+        }
+        if (value == null) {
+            return 0;
+        }
+        try {
+            long lastWrite = Long.parseLong(value.trim());
+            long now = System.currentTimeMillis();
+            // Outside the sticky window it no longer matters; far in the future it is not ours
+            return lastWrite > now - stickyMillis && lastWrite <= now + MAX_CLOCK_SKEW_MILLIS ? lastWrite : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private final class LastWriteResponse extends OnCommittedResponseWrapper {
+
+        private final Client client;
+
+        LastWriteResponse(HttpServletResponse response, Client client) {
+            super(response);
+            this.client = client;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            if (client.wrote) {
+                String value = Long.toString(client.lastWrite);
+                Cookie cookie = new Cookie(COOKIE, value);
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, (stickyMillis + 999) / 1000));
+                cookie.setAttribute("SameSite", "Lax");
+                addCookie(cookie);
+                setHeader(HEADER, value);
+            }
+        }
+
+        void addLastWrite() {
+            if (!isDisableOnResponseCommitted()) {
+                onResponseCommitted();
+                disableOnResponseCommitted();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.innovation.config;
+
+import com.innovation.service.ServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodically asks each read replica how far behind the primary it is and
+ * keeps the list of replicas that may serve reads. A replica is taken out of
+ * rotation when it is unreachable, replication is stopped, or the lag exceeds
+ * the limit. Until the first check completes no replica is used.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final Map<String, DataSource> replicas;
+    private final long maxLagSeconds;
+    private final boolean requireReplication;
+    private final Map<String, Long> lagSeconds = new ConcurrentHashMap<>();
+    // Epoch millis up to which each replica had applied the primary's writes at its last check
+    private final Map<String, Long> caughtUpTo = new ConcurrentHashMap<>();
+    private volatile List<String> healthy = List.of();
+
+    /**
+     * @param requireReplication when false, a server that is not replicating at all
+     *                           counts as healthy; lets a single local MySQL stand in
+     *                           for a replica
+     */
+    public ReplicaLagMonitor(Map<String, DataSource> replicas, long maxLagSeconds, boolean requireReplication,
+            ServiceMetrics metrics) {
+        this.replicas = replicas;
+        this.maxLagSeconds = maxLagSeconds;
+        this.requireReplication = requireReplication;
+        metrics.gauge("datasource.replicas.healthy", () -> healthy.size());
+        replicas.keySet().forEach(key -> metrics.gauge("datasource.replica-lag-seconds." + key,
+                () -> lagSeconds.getOrDefault(key, -1L)));
+    }
+
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /** Replicas currently fit to serve reads. */
+    public List<String> healthyReplicas() {
+        return healthy;
+    }
+
+    /** Healthy replicas that had applied every write committed up to {@code epochMillis}. */
+    public List<String> replicasCaughtUpTo(long epochMillis) {
+        return healthy.stream().filter(key -> caughtUpTo.getOrDefault(key, Long.MIN_VALUE) >= epochMillis).toList();
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.check-interval-ms:5000}")
+    public void check() {
+        List<String> fit = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            long checkedAt = System.currentTimeMillis();
+            long lag = measureLag(replica.getKey(), replica.getValue());
+            lagSeconds.put(replica.getKey(), lag);
+            if (lag >= 0 && lag <= maxLagSeconds) {
+                // The lag is reported in whole seconds, rounded down
+                caughtUpTo.put(replica.getKey(), checkedAt - (lag + 1) * 1000);
+                fit.add(replica.getKey());
+            }
+        }
+        if (!fit.equals(healthy)) {
+            logger.info("Read replicas in rotation: {} (of {})", fit, replicas.keySet());
+        }
+        healthy = List.copyOf(fit);
+    }
+
+    /** Returns the replication lag in seconds, or -1 if the replica must not be used. */
+    private long measureLag(String key, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            ResultSet status;
+            String lagColumn;
+            try {
+                status = statement.executeQuery("SHOW REPLICA STATUS");
+                lagColumn = "Seconds_Behind_Source";
+            } catch (SQLSyntaxErrorException e) {
+                // MySQL before 8.0.22
+                status = statement.executeQuery("SHOW SLAVE STATUS");
+                lagColumn = "Seconds_Behind_Master";
+            }
+            try (ResultSet rs = status) {
+                if (!rs.next()) {
+                    return requireReplication ? -1 : 0;
+                }
+                long lag = rs.getLong(lagColumn);
+                // NULL means the replication threads are not running.
+                return rs.wasNull() ? -1 : lag;
+            }
+        } catch (SQLException e) {
+            logger.warn("Replica {} unavailable: {}", key, e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.innovation.config;
+
+import com.innovation.service.KeyedRateLimiter;
+import com.innovation.service.ServiceMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits writes to {@code /requests} per account: request creation per
+ * user, and every other write per vendor or worker account. Calls over the
+ * limit are answered 429 with a Retry-After header. Admins are not limited.
+ * The buckets are per node: behind a load balancer an account can make up to
+ * the configured rate on each node.
+ */
+@Component
+public class RequestRateLimitInterceptor implements HandlerInterceptor {
+
+    private final KeyedRateLimiter createLimiter;
+    private final KeyedRateLimiter vendorLimiter;
+    private final ServiceMetrics metrics;
+
+    public RequestRateLimitInterceptor(ServiceMetrics metrics,
+            @Value("${requests.rate-limit.create.per-minute:6}") double createPerMinute,
+            @Value("${requests.rate-limit.create.burst:3}") double createBurst,
+            @Value("${requests.rate-limit.vendor.per-minute:120}") double vendorPerMinute,
+            @Value("${requests.rate-limit.vendor.burst:30}") double vendorBurst) {
+        this.createLimiter = new KeyedRateLimiter(createPerMinute / 60, createBurst);
+        this.vendorLimiter = new KeyedRateLimiter(vendorPerMinute / 60, vendorBurst);
+        this.metrics = metrics;
+        metrics.gauge("requests.rate-limit.keys", () -> createLimiter.size() + vendorLimiter.size());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!HttpMethod.POST.matches(request.getMethod()) || authentication == null
+                || hasAuthority(authentication, "ADMIN")) {
+            return true;
+        }
+        String limit;
+        KeyedRateLimiter limiter;
+        if ("/requests".equals(request.getServletPath())) {
+            limit = "create";
+            limiter = createLimiter;
+        } else if (hasAuthority(authentication, "VENDOR") || hasAuthority(authentication, "WORKER")) {
+            limit = "vendor";
+            limiter = vendorLimiter;
+        } else {
+            return true;
+        }
+        long waitNanos = limiter.tryAcquire(authentication.getName());
+        if (waitNanos == 0) {
+            return true;
+        }
+        metrics.increment("requests.rate-limit.rejected." + limit);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        return false;
+    }
+
+    private static boolean hasAuthority(Authentication authentication, String authority) {
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
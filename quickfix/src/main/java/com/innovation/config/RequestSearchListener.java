@@ -0,0 +1,81 @@
+package com.innovation.config;
+
+import com.innovation.model.ServiceRequest;
+import com.innovation.service.RequestSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds every Hibernate write of a service request, including its offer list,
+ * to the {@link RequestSearchIndex}. Bulk JPQL updates bypass these events and
+ * must pass the reloaded request to the index themselves.
+ */
+@Component
+public class RequestSearchListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PostCollectionUpdateEventListener, PostCollectionRecreateEventListener {
+
+    private final RequestSearchIndex searchIndex;
+
+    public RequestSearchListener(EntityManagerFactory entityManagerFactory, RequestSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        saved(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        saved(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof ServiceRequest request) {
+            searchIndex.onRequestDeleted(request.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        saved(event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        saved(event.getAffectedOwnerOrNull());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false; // The index defers the update to after commit itself
+    }
+
+    private void saved(Object entity) {
+        if (entity instanceof ServiceRequest request) {
+            searchIndex.onRequestSaved(request);
+        }
+    }
+}
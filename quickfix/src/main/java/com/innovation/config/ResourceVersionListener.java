@@ -0,0 +1,83 @@
+package com.innovation.config;
+
+import com.innovation.model.ServiceRequest;
+import com.innovation.model.User;
+import com.innovation.service.ResourceVersions;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bumps {@link ResourceVersions} whenever Hibernate writes a user or a service
+ * request, including changes to their element collections, so ETags follow
+ * every ORM update without touching each service method. Bulk JPQL updates
+ * bypass these events and must call {@link ResourceVersions#changed} themselves.
+ */
+@Component
+public class ResourceVersionListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PostCollectionUpdateEventListener, PostCollectionRecreateEventListener {
+
+    private final ResourceVersions resourceVersions;
+
+    public ResourceVersionListener(EntityManagerFactory entityManagerFactory, ResourceVersions resourceVersions) {
+        this.resourceVersions = resourceVersions;
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getEntity(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getEntity(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getEntity(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        changed(event.getAffectedOwnerOrNull(), event.getAffectedOwnerIdOrNull());
+    }
+
+    @Override
+    public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+        changed(event.getAffectedOwnerOrNull(), event.getAffectedOwnerIdOrNull());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false; // The bump belongs in the transaction of the change
+    }
+
+    private void changed(Object entity, Object id) {
+        if (entity instanceof User) {
+            resourceVersions.changed(ResourceVersions.USER, id);
+        } else if (entity instanceof ServiceRequest) {
+            resourceVersions.changed(ResourceVersions.REQUEST, id);
+        }
+    }
+}
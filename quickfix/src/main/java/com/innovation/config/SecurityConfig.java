@@ -54,12 +54,20 @@ public class SecurityConfig {
                                                                                                                       // specific
                                                 .requestMatchers(HttpMethod.DELETE, "/users/{id}").hasAuthority("ADMIN") // More
                                                                                                                          // specific
+                                                .requestMatchers(HttpMethod.GET, "/metrics").hasAuthority("ADMIN")
+                                                .requestMatchers("/admin/**").hasAuthority("ADMIN")
+                                                .requestMatchers(HttpMethod.GET, "/requests/views/admin")
+                                                .hasAuthority("ADMIN")
                                                 // Vendor-specific routes
                                                 .requestMatchers(HttpMethod.POST, "/requests/{id}/accept")
                                                 .hasAuthority("VENDOR")
                                                 .requestMatchers(HttpMethod.POST, "/requests/*/deny")
                                                 .hasAuthority("VENDOR")
                                                 .requestMatchers(HttpMethod.GET, "/requests").hasAuthority("VENDOR")
+                                                .requestMatchers(HttpMethod.GET, "/requests/changes")
+                                                .hasAuthority("VENDOR")
+                                                .requestMatchers(HttpMethod.GET, "/requests/views/vendor")
+                                                .hasAuthority("VENDOR")
                                                 // User-specific routes
                                                 .requestMatchers(HttpMethod.POST, "/requests").hasAuthority("USER") // For
                                                                                                                     // creating
@@ -0,0 +1,60 @@
+package com.innovation.config;
+
+import com.innovation.service.ServiceMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records how long after JVM start the application became ready and served its
+ * first request, so autoscaling can be tuned against real startup numbers.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StartupTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimingFilter.class);
+
+    private final ServiceMetrics metrics;
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+    private volatile long readyMillis = -1;
+    private volatile long firstRequestMillis = -1;
+
+    public StartupTimingFilter(ServiceMetrics metrics) {
+        this.metrics = metrics;
+        metrics.gauge("startup.ready-ms", () -> readyMillis);
+        metrics.gauge("startup.first-request-ms", () -> firstRequestMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        logger.info("Application ready {} ms after JVM start", readyMillis);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (firstRequestMillis < 0 && firstRequestSeen.compareAndSet(false, true)) {
+                firstRequestMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+                logger.info("First request served {} ms after JVM start", firstRequestMillis);
+            }
+        }
+    }
+}
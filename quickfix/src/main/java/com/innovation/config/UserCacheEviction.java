@@ -0,0 +1,49 @@
+package com.innovation.config;
+
+import com.innovation.model.User;
+import com.innovation.service.ResourceChangeFeed;
+import com.innovation.service.ResourceVersions;
+import com.innovation.service.ServiceMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the second-level cache of users (see {@link LocalCacheRegionFactory})
+ * coherent across nodes. Hibernate only invalidates the cache of the node that
+ * made a change, so every user the {@link ResourceChangeFeed} reports changed,
+ * on any node, is evicted here with its collections, and cached user queries
+ * are dropped. Another node's write is therefore seen within
+ * {@code resource-changes.poll-interval-ms}. A read that races the eviction
+ * can put the old state back, for at most {@code hibernate.cache.local.ttl-seconds}.
+ */
+@Component
+public class UserCacheEviction {
+
+    private static final List<String> COLLECTIONS = List.of("roles", "requestTypes", "workers");
+
+    private final Cache cache;
+    private final ServiceMetrics metrics;
+
+    public UserCacheEviction(EntityManagerFactory entityManagerFactory, ResourceChangeFeed changeFeed,
+            ServiceMetrics metrics) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.metrics = metrics;
+        changeFeed.subscribe(ResourceVersions.USER, this::evict);
+    }
+
+    void evict(Map<Long, Long> changed) {
+        for (Long id : changed.keySet()) {
+            cache.evictEntityData(User.class, id);
+            for (String collection : COLLECTIONS) {
+                cache.evictCollectionData(User.class.getName() + "." + collection, id);
+            }
+        }
+        cache.evictDefaultQueryRegion();
+        metrics.increment("hibernate.l2.remote-evictions", changed.size());
+    }
+}
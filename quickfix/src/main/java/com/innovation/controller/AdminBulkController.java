@@ -0,0 +1,94 @@
+package com.innovation.controller;
+
+import com.innovation.service.BulkExportService;
+import com.innovation.service.BulkFormat;
+import com.innovation.service.UserImportService;
+import com.innovation.service.UserImportService.ImportReport;
+import com.innovation.service.UserImportService.RowError;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/** Bulk user import, and streaming exports of users and requests, as CSV or NDJSON. */
+@RestController
+@RequestMapping("/admin")
+public class AdminBulkController {
+
+    // Earliest MySQL DATETIME
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1000, 1, 1, 0, 0);
+
+    private final UserImportService importService;
+    private final BulkExportService exportService;
+
+    public AdminBulkController(UserImportService importService, BulkExportService exportService) {
+        this.importService = importService;
+        this.exportService = exportService;
+    }
+
+    /**
+     * Creates the users in the body ({@code text/csv} with a header row, or
+     * {@code application/x-ndjson}) and reports the rows that were rejected.
+     */
+    @PostMapping(path = "/users/import", consumes = { "text/csv", "application/x-ndjson", "application/json" })
+    public ResponseEntity<ImportReport> importUsers(InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType) {
+        try {
+            return ResponseEntity.ok(importService.importUsers(body, BulkFormat.fromContentType(contentType)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ImportReport(0, 0, List.of(new RowError(0, null,
+                    e.getMessage()))));
+        }
+    }
+
+    @GetMapping("/users/export")
+    public void exportUsers(@RequestParam(name = "format", defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        BulkFormat bulkFormat = prepare(response, format, "users");
+        if (bulkFormat != null) {
+            exportService.exportUsers(bulkFormat, response.getOutputStream());
+        }
+    }
+
+    /** Requests created at or after {@code since} (ISO date-time), or all of them. */
+    @GetMapping("/requests/export")
+    public void exportRequests(@RequestParam(name = "format", defaultValue = "csv") String format,
+            @RequestParam(name = "since", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            HttpServletResponse response) throws IOException {
+        BulkFormat bulkFormat = prepare(response, format, "requests");
+        if (bulkFormat != null) {
+            exportService.exportRequests(since == null ? BEGINNING : since, bulkFormat, response.getOutputStream());
+        }
+    }
+
+    // Sets the download headers, or answers 400 and returns null for an unknown format.
+    private static BulkFormat prepare(HttpServletResponse response, String formatName, String name)
+            throws IOException {
+        BulkFormat format;
+        try {
+            format = BulkFormat.fromName(formatName);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return null;
+        }
+        response.setContentType(format.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(name + "." + format.name().toLowerCase(Locale.ROOT)).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        return format;
+    }
+}
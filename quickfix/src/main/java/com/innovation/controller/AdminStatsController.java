@@ -0,0 +1,24 @@
+package com.innovation.controller;
+
+import com.innovation.service.RequestStatsService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin/stats")
+public class AdminStatsController {
+
+    private final RequestStatsService statsService;
+
+    public AdminStatsController(RequestStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    /** Request counts per status, request type and vendor, hourly flow for the last {@code hours}, and users per role. */
+    @GetMapping
+    public RequestStatsService.AdminStats getStats(@RequestParam(name = "hours", defaultValue = "24") int hours) {
+        return statsService.getStats(Math.min(Math.max(hours, 1), 24 * 7));
+    }
+}
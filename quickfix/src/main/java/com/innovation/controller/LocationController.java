@@ -1,20 +1,29 @@
 package com.innovation.controller;
 
+import com.innovation.config.LocationProtobufConverter;
+import com.innovation.model.LocationPing;
 import com.innovation.model.User;
+import com.innovation.service.LocationGridIndex;
 import com.innovation.service.UserService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/locations")
 public class LocationController {
 
     private final UserService userService;
+    private final LocationGridIndex locationGrid;
 
-    public LocationController(UserService userService) {
+    public LocationController(UserService userService, LocationGridIndex locationGrid) {
         this.userService = userService;
+        this.locationGrid = locationGrid;
     }
 
     @GetMapping
@@ -22,13 +31,45 @@ public class LocationController {
         return userService.getUsersByRole(role.toUpperCase());
     }
 
+    // With Accept: application/x-protobuf, only the positions of users that have one
     @GetMapping("/live")
-    public List<User> getLiveLocationsByRole(@RequestParam("role") String role,
-            @RequestParam(name = "requestType", required = false) String requestType) {
+    public ResponseEntity<?> getLiveLocationsByRole(@RequestParam("role") String role,
+            @RequestParam(name = "requestType", required = false) String requestType,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<User> users;
         if ("VENDOR".equalsIgnoreCase(role) && requestType != null && !requestType.isEmpty()) {
-            return userService.getVendorsByRequestType(requestType.toUpperCase());
+            users = userService.getVendorsByRequestType(requestType.toUpperCase());
+        } else {
+            users = userService.getUsersByRole(role.toUpperCase());
         }
-        return userService.getUsersByRole(role.toUpperCase());
+        if (!wantsProtobuf(accept)) {
+            return ResponseEntity.ok(users);
+        }
+        return ResponseEntity.ok(new LocationPing.Batch(users.stream()
+                .filter(user -> user.getLatitude() != null && user.getLongitude() != null)
+                .map(LocationController::ping)
+                .toList()));
+    }
+
+    /**
+     * Users of a role in the bounding box, clustered for the map zoom level:
+     * a count and centroid per cluster, and individual points where users are sparse.
+     */
+    @GetMapping("/clusters")
+    public ResponseEntity<LocationGridIndex.Tile> getClusters(@RequestParam("role") String role,
+            @RequestParam(name = "requestType", required = false) String requestType,
+            @RequestParam("south") double south, @RequestParam("west") double west,
+            @RequestParam("north") double north, @RequestParam("east") double east,
+            @RequestParam("zoom") int zoom) {
+        if (!locationGrid.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (south > north) {
+            return ResponseEntity.badRequest().build();
+        }
+        String type = requestType == null || requestType.isEmpty() ? null : requestType.toUpperCase();
+        return ResponseEntity.ok(locationGrid.query(LocationGridIndex.layer(role.toUpperCase(), type),
+                south, west, north, east, zoom));
     }
 
     @PutMapping("/users/{id}")
@@ -38,10 +79,42 @@ public class LocationController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PutMapping(path = "/users/{id}", consumes = LocationProtobufConverter.PROTOBUF_VALUE)
+    public ResponseEntity<Void> updateUserLocationCompact(@PathVariable Long id, @RequestBody LocationPing ping) {
+        return userService.updateUserLocations(List.of(new LocationPing(id, ping.latitude(), ping.longitude()))) > 0
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /** Position updates for several users at once, as JSON or protobuf. */
+    @PutMapping("/users")
+    public ResponseEntity<Void> updateUserLocations(@RequestBody LocationPing.Batch batch) {
+        userService.updateUserLocations(batch.pings() == null ? List.of() : batch.pings());
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/users/{id}/live")
-    public ResponseEntity<User> getLiveUserLocation(@PathVariable Long id) {
-        return userService.getUserById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getLiveUserLocation(@PathVariable Long id,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        Optional<User> user = userService.getUserById(id);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!wantsProtobuf(accept)) {
+            return ResponseEntity.ok(user.get());
+        }
+        return user.get().getLatitude() == null || user.get().getLongitude() == null
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.ok(ping(user.get()));
+    }
+
+    // Only an explicit request; clients accepting anything keep getting JSON.
+    private static boolean wantsProtobuf(String accept) {
+        return accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(LocationProtobufConverter.PROTOBUF));
+    }
+
+    private static LocationPing ping(User user) {
+        return new LocationPing(user.getId(), user.getLatitude(), user.getLongitude());
     }
 }
\ No newline at end of file
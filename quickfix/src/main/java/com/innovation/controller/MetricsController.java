@@ -0,0 +1,24 @@
+package com.innovation.controller;
+
+import com.innovation.service.ServiceMetrics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    private final ServiceMetrics serviceMetrics;
+
+    public MetricsController(ServiceMetrics serviceMetrics) {
+        this.serviceMetrics = serviceMetrics;
+    }
+
+    @GetMapping
+    public Map<String, Object> getMetrics() {
+        return serviceMetrics.snapshot();
+    }
+}
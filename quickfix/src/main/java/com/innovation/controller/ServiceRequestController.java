@@ -1,14 +1,27 @@
 package com.innovation.controller;
 
+import com.innovation.model.RequestEvent;
 import com.innovation.model.ServiceRequest;
+import com.innovation.service.IdempotencyException;
+import com.innovation.service.IdempotencyService;
+import com.innovation.service.RequestProjector;
+import com.innovation.service.RequestSearchIndex;
+import com.innovation.service.RequestView;
 import com.innovation.service.ServiceRequestService;
+import com.innovation.service.VendorInboxService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/requests")
@@ -20,12 +33,35 @@ public class ServiceRequestController {
         this.requestService = requestService;
     }
 
+    /**
+     * Creates a request. With an {@code Idempotency-Key} header, retries of the
+     * same submission return the original response (marked
+     * {@code Idempotent-Replayed}) instead of creating another request.
+     */
     @PostMapping(consumes = { MediaType.MULTIPART_FORM_DATA_VALUE })
-    @ResponseStatus(HttpStatus.CREATED)
-    public ServiceRequest createRequest(
+    public ResponseEntity<?> createRequest(
             @RequestPart("request") ServiceRequest request,
-            @RequestPart(value = "image", required = false) MultipartFile image) {
-        return requestService.createRequest(request, image);
+            @RequestPart(value = "image", required = false) MultipartFile image,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(requestService.createRequest(request, image));
+        }
+        IdempotencyService.Outcome<ServiceRequest> outcome;
+        try {
+            outcome = requestService.createRequest(idempotencyKey, request, image);
+        } catch (IdempotencyException e) {
+            HttpStatus status = switch (e.getReason()) {
+                case INVALID_KEY -> HttpStatus.BAD_REQUEST;
+                case MISMATCH -> HttpStatus.UNPROCESSABLE_ENTITY;
+                case IN_PROGRESS -> HttpStatus.CONFLICT;
+            };
+            return ResponseEntity.status(status).body(Map.of("error", e.getMessage()));
+        }
+        if (outcome.isReplay()) {
+            return ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON)
+                    .header("Idempotent-Replayed", "true").body(outcome.replayedBody());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(outcome.value());
     }
 
     @GetMapping
@@ -33,15 +69,100 @@ public class ServiceRequestController {
         return requestService.getOpenRequests();
     }
 
+    /**
+     * Long-polls the vendor's inbox: returns the request IDs added to or removed
+     * from their open requests since {@code since}, waiting for a change if there
+     * is none yet. Pass the returned version as {@code since} on the next call.
+     */
+    @GetMapping("/changes")
+    public DeferredResult<VendorInboxService.InboxChanges> getOpenRequestChanges(
+            @RequestParam(name = "since", defaultValue = "0") long since) {
+        return requestService.awaitOpenRequestChanges(since);
+    }
+
+    // Read models projected from the request event log; 503 until the startup replay is done.
+    @GetMapping("/views/mine")
+    public ResponseEntity<List<RequestView>> getMyRequestViews() {
+        return viewsReady(() -> requestService.getMyRequestViews());
+    }
+
+    @GetMapping("/views/vendor")
+    public ResponseEntity<List<RequestView>> getVendorRequestViews() {
+        return viewsReady(() -> requestService.getVendorRequestViews());
+    }
+
+    @GetMapping("/views/admin")
+    public ResponseEntity<RequestProjector.AdminDashboard> getAdminDashboard(
+            @RequestParam(name = "recent", defaultValue = "50") int recent) {
+        return viewsReady(() -> requestService.getAdminDashboard(recent));
+    }
+
+    private <T> ResponseEntity<T> viewsReady(Supplier<T> views) {
+        if (!requestService.areViewsReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(views.get());
+    }
+
+    /**
+     * Full-text search over plate, make and model, damage text, problem and
+     * severity, newest first, with counts per status, type, vehicle type and
+     * severity. 503 until the index is built.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<RequestSearchIndex.Result> searchRequests(
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "type", required = false) String type,
+            @RequestParam(name = "vehicleType", required = false) String vehicleType,
+            @RequestParam(name = "severity", required = false) String severity,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (!requestService.isSearchReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (page < 0 || size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, String> filters = new HashMap<>();
+        putIfPresent(filters, "status", status);
+        putIfPresent(filters, "type", type);
+        putIfPresent(filters, "vehicleType", vehicleType);
+        putIfPresent(filters, "severity", severity);
+        return ResponseEntity.ok(requestService.searchRequests(query, filters, page, Math.min(size, 100)));
+    }
+
+    private static void putIfPresent(Map<String, String> filters, String facet, String value) {
+        if (value != null && !value.isBlank()) {
+            filters.put(facet, value);
+        }
+    }
+
+    // 403 unless the caller is a party to the request or an admin
+    @GetMapping("/{id}/events")
+    public ResponseEntity<List<RequestEvent>> getRequestHistory(@PathVariable Long id) {
+        return requestService.getRequestHistory(id).map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.FORBIDDEN).build());
+    }
+
     @GetMapping("/my-requests")
     public List<ServiceRequest> getMyRequests() {
         return requestService.getMyRequests();
     }
 
+    /**
+     * Supports conditional polling: answers 304 from the in-memory version when
+     * the client's {@code If-None-Match} is current, without loading the request.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<ServiceRequest> getRequestById(@PathVariable Long id) {
+    public ResponseEntity<ServiceRequest> getRequestById(@PathVariable Long id, WebRequest webRequest) {
+        String etag = requestService.getRequestETag(id); // Before loading; see ResourceVersions
+        if (!requestService.isRerouteCheckDue(id) && webRequest.checkNotModified(etag)) {
+            return null;
+        }
         return requestService.getRequestById(id)
-                .map(ResponseEntity::ok)
+                .map(request -> ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(request))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -1,17 +1,29 @@
 package com.innovation.controller;
 
+import com.innovation.model.DocumentType;
 import com.innovation.model.UserActivityStatus;
 import com.innovation.model.User;
+import com.innovation.repository.UserDocumentRepository.DocumentInfo;
+import com.innovation.service.ResourceVersions;
+import com.innovation.service.UserDocumentService;
 import com.innovation.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,9 +32,14 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final ResourceVersions resourceVersions;
+    private final UserDocumentService documentService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ResourceVersions resourceVersions,
+            UserDocumentService documentService) {
         this.userService = userService;
+        this.resourceVersions = resourceVersions;
+        this.documentService = documentService;
     }
 
     @GetMapping("/me")
@@ -48,10 +65,16 @@ public class UserController {
         return userService.getUsersByRole("WORKER");
     }
 
+    /** Polled by dashboards; answers 304 without loading the user when {@code If-None-Match} is current. */
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        return userService.getUserById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<User> getUserById(@PathVariable Long id, WebRequest webRequest) {
+        String etag = resourceVersions.etag(ResourceVersions.USER, id); // Before loading; see ResourceVersions
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return userService.getVersionedUserById(id)
+                .map(user -> ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(user))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -71,28 +94,8 @@ public class UserController {
         // The user request did not include 'photo' here, but it should be added for
         // consistency. I will add it.
 
-        if (panCard != null && !panCard.isEmpty()) {
-            user.setPanCard(panCard.getBytes());
-        }
-        if (digitalSignature != null && !digitalSignature.isEmpty()) {
-            user.setDigitalSignature(digitalSignature.getBytes());
-        }
-        if (adhaarCard != null && !adhaarCard.isEmpty()) {
-            user.setAdhaarCard(adhaarCard.getBytes());
-        }
-        if (voterId != null && !voterId.isEmpty()) {
-            user.setVoterId(voterId.getBytes());
-        }
-        if (shopRegistration != null && !shopRegistration.isEmpty()) {
-            user.setShopRegistration(shopRegistration.getBytes());
-        }
-        if (userAgreement != null && !userAgreement.isEmpty()) {
-            user.setUserAgreement(userAgreement.getBytes());
-        }
-        if (photo != null && !photo.isEmpty()) {
-            user.setPhoto(photo.getBytes());
-        }
-        return userService.addUser(user);
+        return userService.addUser(user, documentFiles(panCard, digitalSignature, adhaarCard, voterId,
+                shopRegistration, userAgreement, photo));
     }
 
     @PostMapping("/register")
@@ -117,30 +120,8 @@ public class UserController {
         // The user request did not include 'photo' here, but it should be added for
         // consistency. I will add it.
 
-        // Manually set the byte[] data on the user object from the MultipartFile
-        if (panCard != null && !panCard.isEmpty()) {
-            user.setPanCard(panCard.getBytes());
-        }
-        if (digitalSignature != null && !digitalSignature.isEmpty()) {
-            user.setDigitalSignature(digitalSignature.getBytes());
-        }
-        if (adhaarCard != null && !adhaarCard.isEmpty()) {
-            user.setAdhaarCard(adhaarCard.getBytes());
-        }
-        if (voterId != null && !voterId.isEmpty()) {
-            user.setVoterId(voterId.getBytes());
-        }
-        if (shopRegistration != null && !shopRegistration.isEmpty()) {
-            user.setShopRegistration(shopRegistration.getBytes());
-        }
-        if (userAgreement != null && !userAgreement.isEmpty()) {
-            user.setUserAgreement(userAgreement.getBytes());
-        }
-        if (photo != null && !photo.isEmpty()) {
-            user.setPhoto(photo.getBytes());
-        }
-
-        return userService.updateUser(id, user)
+        return userService.updateUser(id, user, documentFiles(panCard, digitalSignature, adhaarCard, voterId,
+                shopRegistration, userAgreement, photo))
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -162,56 +143,106 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Streams a document straight from the database, so memory use does not grow
+     * with its size. Supports a single byte range (honouring {@code If-Range}) for
+     * resumed downloads, and {@code If-None-Match}; multiple ranges get the whole
+     * document.
+     */
     @GetMapping("/{id}/documents/{docType}")
-    public ResponseEntity<byte[]> getDocument(@PathVariable Long id, @PathVariable String docType) {
-        User user = userService.getUserById(id).orElse(null);
-        if (user == null) {
-            return ResponseEntity.notFound().build();
-        }
+    public void getDocument(@PathVariable Long id, @PathVariable String docType, ServletWebRequest webRequest,
+            HttpServletResponse response) throws IOException {
+        DocumentType type = DocumentType.fromPathName(docType).orElse(null);
+        if (type == null) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        DocumentInfo document = documentService.describe(id, type).orElse(null);
+        if (document == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String etag = "\"" + document.getId() + "-" + document.getRevision() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return;
+        }
+        long length = documentService.length(document);
+        String contentType = document.getContentType() == null ? UserDocumentService.OCTET_STREAM
+                : document.getContentType();
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(docType + "." + UserDocumentService.extension(contentType)).build().toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = webRequest.getHeader(HttpHeaders.RANGE);
+        String ifRange = webRequest.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start >= length || start > end) {
+                        throw new IllegalArgumentException("Range starts beyond the document");
+                    }
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+        }
+        response.setContentLengthLong(end - start + 1);
+        if (webRequest.getHttpMethod() == HttpMethod.HEAD) {
+            return;
+        }
+        documentService.copy(document, start, end - start + 1, response.getOutputStream());
+    }
 
-        byte[] documentData;
-        String filename = docType + ".pdf"; // Default filename
-
-        switch (docType.toLowerCase()) {
-            case "pancard":
-                documentData = user.getPanCard();
-                break;
-            case "adhaarcard":
-                documentData = user.getAdhaarCard();
-                break;
-            case "digitalsignature":
-                documentData = user.getDigitalSignature();
-                break;
-            case "voterid":
-                documentData = user.getVoterId();
-                break;
-            case "shopregistration":
-                documentData = user.getShopRegistration();
-                break;
-            case "useragreement":
-                documentData = user.getUserAgreement();
-                break;
-            case "photo":
-                documentData = user.getPhoto();
-                filename = "photo.jpg"; // Set correct filename for photo
-                break;
-            default:
-                return ResponseEntity.badRequest().build();
-        }
+    /** Small JPEG preview of a document, for listing documents without downloading them. */
+    @GetMapping("/{id}/documents/{docType}/thumbnail")
+    public ResponseEntity<byte[]> getDocumentThumbnail(@PathVariable Long id, @PathVariable String docType,
+            WebRequest webRequest) {
+        DocumentType type = DocumentType.fromPathName(docType).orElse(null);
+        if (type == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return documentService.thumbnail(id, type)
+                .map(thumbnail -> {
+                    String etag = "\"" + thumbnail.documentId() + "-" + thumbnail.revision() + "-thumbnail\"";
+                    if (webRequest.checkNotModified(etag)) {
+                        return null;
+                    }
+                    return ResponseEntity.ok().contentType(MediaType.IMAGE_JPEG).eTag(etag)
+                            .cacheControl(CacheControl.noCache().cachePrivate())
+                            .body(thumbnail.content());
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-        if (documentData == null || documentData.length == 0) {
-            return ResponseEntity.notFound().build();
-        }
+    // Non-empty uploads by document type
+    private static Map<DocumentType, MultipartFile> documentFiles(MultipartFile panCard,
+            MultipartFile digitalSignature, MultipartFile adhaarCard, MultipartFile voterId,
+            MultipartFile shopRegistration, MultipartFile userAgreement, MultipartFile photo) {
+        Map<DocumentType, MultipartFile> files = new EnumMap<>(DocumentType.class);
+        putIfPresent(files, DocumentType.PAN_CARD, panCard);
+        putIfPresent(files, DocumentType.DIGITAL_SIGNATURE, digitalSignature);
+        putIfPresent(files, DocumentType.ADHAAR_CARD, adhaarCard);
+        putIfPresent(files, DocumentType.VOTER_ID, voterId);
+        putIfPresent(files, DocumentType.SHOP_REGISTRATION, shopRegistration);
+        putIfPresent(files, DocumentType.USER_AGREEMENT, userAgreement);
+        putIfPresent(files, DocumentType.PHOTO, photo);
+        return files;
+    }
 
-        MediaType contentType = MediaType.APPLICATION_PDF;
-        if (docType.equalsIgnoreCase("photo")) {
-            // Assuming photos are JPEGs. You could make this more robust
-            // by storing the content type in the database.
-            contentType = MediaType.IMAGE_JPEG;
+    private static void putIfPresent(Map<DocumentType, MultipartFile> files, DocumentType type, MultipartFile file) {
+        if (file != null && !file.isEmpty()) {
+            files.put(type, file);
         }
-
-        return ResponseEntity.ok().contentType(contentType)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .body(documentData);
     }
-}
\ No newline at end of file
+}
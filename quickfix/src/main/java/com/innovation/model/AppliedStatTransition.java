@@ -0,0 +1,33 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a {@code request.transition} outbox message as counted in the request
+ * statistics, either by its delta or by a reconciliation that saw the change.
+ * Kept while the message is still in the outbox, so a redelivery is skipped.
+ */
+@Entity
+@Table(name = "request_stats_applied")
+public class AppliedStatTransition {
+
+    @Id
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Column(nullable = false)
+    private LocalDateTime appliedAt;
+
+    protected AppliedStatTransition() {
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public LocalDateTime getAppliedAt() {
+        return appliedAt;
+    }
+}
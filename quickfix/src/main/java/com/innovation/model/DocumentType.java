@@ -0,0 +1,45 @@
+package com.innovation.model;
+
+import java.util.Optional;
+
+/** KYC documents a user can upload; each has a bit in {@link User#getDocumentMask()}. */
+public enum DocumentType {
+    PAN_CARD("pancard", "pan_card"),
+    ADHAAR_CARD("adhaarcard", "adhaar_card"),
+    DIGITAL_SIGNATURE("digitalsignature", "digital_signature"),
+    VOTER_ID("voterid", "voter_id"),
+    SHOP_REGISTRATION("shopregistration", "shop_registration"),
+    USER_AGREEMENT("useragreement", "user_agreement"),
+    PHOTO("photo", "photo");
+
+    private final String pathName;
+    private final String legacyColumn;
+
+    DocumentType(String pathName, String legacyColumn) {
+        this.pathName = pathName;
+        this.legacyColumn = legacyColumn;
+    }
+
+    /** Name used in {@code /users/{id}/documents/{docType}}. */
+    public String getPathName() {
+        return pathName;
+    }
+
+    /** Column that held this document on the users table before documents were split out. */
+    public String getLegacyColumn() {
+        return legacyColumn;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public static Optional<DocumentType> fromPathName(String pathName) {
+        for (DocumentType type : values()) {
+            if (type.pathName.equalsIgnoreCase(pathName)) {
+                return Optional.of(type);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,92 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The outcome of a write submitted with an {@code Idempotency-Key}, shared by
+ * all nodes. A record is IN_PROGRESS while {@code owner} runs the write, with
+ * {@code leaseUntil} bounding how long others wait on a node that died, and
+ * COMPLETED with the response body once the write has committed. Records are
+ * deleted when they expire.
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_expires", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED
+    }
+
+    // SHA-256 of the username and key, so keys of any length fit the primary key
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(nullable = false)
+    private String username;
+
+    // SHA-256 of the request, to reject a key reused for a different request
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(length = 36)
+    private String owner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Lob
+    @Column(name = "response_body", columnDefinition = "MEDIUMTEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    protected IdempotencyRecord() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.innovation.model;
+
+import java.util.List;
+
+/** Position of a user: the whole body of a location update or read, without the rest of {@link User}. */
+public record LocationPing(long userId, double latitude, double longitude) {
+
+    /** Several users' positions in one message. */
+    public record Batch(List<LocationPing> pings) {
+    }
+}
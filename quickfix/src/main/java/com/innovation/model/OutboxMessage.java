@@ -0,0 +1,89 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A domain event written in the same transaction as the change that caused it
+ * and delivered to in-process subscribers after commit. {@code publishedAt}
+ * stays null until every subscriber of the topic has handled it; a message
+ * that keeps failing gets {@code deadLetteredAt} instead and is no longer
+ * delivered.
+ */
+@Entity
+@Table(name = "outbox", indexes = @Index(name = "idx_outbox_pending", columnList = "published_at, id"))
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String topic;
+
+    private Long aggregateId;
+
+    @Column(length = 4000)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    private int attempts;
+
+    @Column(name = "dead_lettered_at")
+    private LocalDateTime deadLetteredAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    protected OutboxMessage() {
+    }
+
+    public OutboxMessage(String topic, Long aggregateId, String payload) {
+        this.topic = topic;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getPublishedAt() {
+        return publishedAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public LocalDateTime getDeadLetteredAt() {
+        return deadLetteredAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
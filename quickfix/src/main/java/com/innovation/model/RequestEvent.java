@@ -0,0 +1,74 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only request lifecycle log. Events are never updated;
+ * their IDs give the global order in which projections apply them. Details that
+ * differ per event type travel in a small JSON payload.
+ */
+@Entity
+@Immutable
+@Table(name = "request_events", indexes = {
+        @Index(name = "idx_request_events_request", columnList = "request_id, id"),
+        @Index(name = "idx_request_events_occurred", columnList = "occurred_at") })
+public class RequestEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "request_id", nullable = false)
+    private Long requestId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RequestEventType type;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    // User who caused the event; null for routing decisions
+    private Long actorId;
+
+    @Column(length = 4000)
+    private String payload;
+
+    protected RequestEvent() {
+    }
+
+    public RequestEvent(Long requestId, RequestEventType type, Long actorId, String payload) {
+        this.requestId = requestId;
+        this.type = type;
+        this.actorId = actorId;
+        this.payload = payload;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public RequestEventType getType() {
+        return type;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public Long getActorId() {
+        return actorId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,7 @@
+package com.innovation.model;
+
+public enum RequestEventType {
+    CREATED, ENRICHED, ROUTED, REROUTED, ACCEPTED, ASSIGNED, COMPLETED,
+    // Snapshot of a request that predates the event log
+    IMPORTED
+}
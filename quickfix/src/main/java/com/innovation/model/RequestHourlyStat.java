@@ -0,0 +1,70 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/** Requests created, assigned and completed per hour and request type. */
+@Entity
+@Table(name = "request_hourly_stats")
+@IdClass(RequestHourlyStat.Key.class)
+public class RequestHourlyStat {
+
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private String requestType;
+
+        public Key() {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(bucketStart, other.bucketStart)
+                    && Objects.equals(requestType, other.requestType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketStart, requestType);
+        }
+    }
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    // Empty for requests without a type
+    @Id
+    @Column(length = 64)
+    private String requestType;
+
+    private long created;
+
+    private long assigned;
+
+    private long completed;
+
+    protected RequestHourlyStat() {
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public String getRequestType() {
+        return requestType;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getAssigned() {
+        return assigned;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+}
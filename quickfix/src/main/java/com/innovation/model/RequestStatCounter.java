@@ -0,0 +1,62 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Number of requests currently in a status within a scope: {@code all},
+ * {@code type:<request type>} or {@code vendor:<vendor id>}. Maintained
+ * incrementally by {@code RequestStatsService} and rebuilt by its
+ * reconciliation job.
+ */
+@Entity
+@Table(name = "request_stat_counters")
+@IdClass(RequestStatCounter.Key.class)
+public class RequestStatCounter {
+
+    public static class Key implements Serializable {
+        private String scope;
+        private RequestStatus status;
+
+        public Key() {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(scope, other.scope) && status == other.status;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scope, status);
+        }
+    }
+
+    @Id
+    @Column(length = 80)
+    private String scope;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private RequestStatus status;
+
+    private long total;
+
+    protected RequestStatCounter() {
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public RequestStatus getStatus() {
+        return status;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+}
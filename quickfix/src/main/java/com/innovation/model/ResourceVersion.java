@@ -0,0 +1,40 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version of a polled resource, keyed {@code <kind>:<id>}, bumped in the
+ * transaction of every change to it. Backs the ETags of {@code ResourceVersions}
+ * and, through {@code changedAt}, the cross-node {@code ResourceChangeFeed}.
+ */
+@Entity
+@Table(name = "resource_versions", indexes = @Index(name = "idx_resource_versions_changed", columnList = "changed_at"))
+public class ResourceVersion {
+
+    @Id
+    @Column(name = "resource_key", length = 80)
+    private String resourceKey;
+
+    private long version;
+
+    // Database time of the last bump; null for rows bumped before the column existed
+    @Column(name = "changed_at", columnDefinition = "datetime(6)")
+    private LocalDateTime changedAt;
+
+    protected ResourceVersion() {
+    }
+
+    public String getResourceKey() {
+        return resourceKey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+}
@@ -1,10 +1,14 @@
 package com.innovation.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_request_reroute_due", columnList = "status, reroute_due_at"))
 public class ServiceRequest {
 
     @Id
@@ -40,6 +44,35 @@ public class ServiceRequest {
 
     private LocalDateTime lastRoutedAt;
 
+    private LocalDateTime assignedAt;
+
+    private LocalDateTime completedAt;
+
+    // When an unanswered offer times out and the request is rerouted; null if nobody was offered it
+    @Column(name = "reroute_due_at")
+    private LocalDateTime rerouteDueAt;
+
+    // Virtual deadline that orders open requests for dispatch; see DispatchPriority
+    @JsonIgnore
+    @Column(name = "priority_at")
+    private LocalDateTime priorityAt;
+
+    // Node currently rerouting the request, and until when; see RerouteSweeper
+    @JsonIgnore
+    private String leaseOwner;
+
+    @JsonIgnore
+    private LocalDateTime leaseUntil;
+
+    // Vendors the request is currently offered to in fan-out dispatch
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "service_request_offers", joinColumns = @JoinColumn(name = "request_id"))
+    @Column(name = "vendor_id")
+    private Set<Long> offeredVendorIds = new HashSet<>();
+
+    // Number of fan-out waves already sent; each wave widens the search radius
+    private int dispatchWave;
+
     private String makeModel;
 
     private String damageDetection;
@@ -135,6 +168,74 @@ public class ServiceRequest {
         this.lastRoutedAt = lastRoutedAt;
     }
 
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getAssignedAt() {
+        return assignedAt;
+    }
+
+    public void setAssignedAt(LocalDateTime assignedAt) {
+        this.assignedAt = assignedAt;
+    }
+
+    public LocalDateTime getRerouteDueAt() {
+        return rerouteDueAt;
+    }
+
+    public void setRerouteDueAt(LocalDateTime rerouteDueAt) {
+        this.rerouteDueAt = rerouteDueAt;
+    }
+
+    public LocalDateTime getPriorityAt() {
+        return priorityAt;
+    }
+
+    public void setPriorityAt(LocalDateTime priorityAt) {
+        this.priorityAt = priorityAt;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Set<Long> getOfferedVendorIds() {
+        return offeredVendorIds;
+    }
+
+    public void setOfferedVendorIds(Set<Long> offeredVendorIds) {
+        this.offeredVendorIds = offeredVendorIds;
+    }
+
+    public int getDispatchWave() {
+        return dispatchWave;
+    }
+
+    public void setDispatchWave(int dispatchWave) {
+        this.dispatchWave = dispatchWave;
+    }
+
     public String getMakeModel() {
         return makeModel;
     }
@@ -4,11 +4,15 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "users") // Renaming table to avoid conflict with reserved keyword 'user' in some DBs
 public class User {
 
@@ -30,29 +34,26 @@ public class User {
     @Enumerated(EnumType.STRING)
     private UserActivityStatus status = UserActivityStatus.IDLE;
 
-    @Lob
-    @Column(columnDefinition = "MEDIUMBLOB")
+    // Uploaded document content waiting to be stored as UserDocument rows; never persisted
+    // on the user itself, so cached and listed users stay small.
+    @Transient
     private byte[] digitalSignature;
-    @Lob
-    @Column(columnDefinition = "MEDIUMBLOB")
+    @Transient
     private byte[] adhaarCard;
-    @Lob
-    @Column(columnDefinition = "MEDIUMBLOB")
+    @Transient
     private byte[] voterId;
-    @Lob
-    @Column(columnDefinition = "MEDIUMBLOB")
+    @Transient
     private byte[] panCard;
-    @Lob
-    @Column(columnDefinition = "MEDIUMBLOB")
+    @Transient
     private byte[] shopRegistration;
-    @Lob
-    @Column(columnDefinition = "MEDIUMBLOB")
+    @Transient
     private byte[] userAgreement;
-
-    @Lob
-    @Column(columnDefinition = "MEDIUMBLOB")
+    @Transient
     private byte[] photo;
 
+    // One bit per stored DocumentType
+    private int documentMask;
+
     public User() {
     }
 
@@ -62,16 +63,19 @@ public class User {
     }
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "roles")
     private Set<String> roles = new HashSet<>();
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "user_request_types", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "request_type")
     private Set<String> requestTypes = new HashSet<>();
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "vendor_workers", joinColumns = @JoinColumn(name = "vendor_id"))
     @Column(name = "worker_id")
     private Set<Long> workers = new HashSet<>();
@@ -224,6 +228,32 @@ public class User {
         this.photo = photo;
     }
 
+    /** Returns the uploaded, not yet stored, content for the document type, or null. */
+    public byte[] getUploadedDocument(DocumentType type) {
+        return switch (type) {
+            case PAN_CARD -> panCard;
+            case ADHAAR_CARD -> adhaarCard;
+            case DIGITAL_SIGNATURE -> digitalSignature;
+            case VOTER_ID -> voterId;
+            case SHOP_REGISTRATION -> shopRegistration;
+            case USER_AGREEMENT -> userAgreement;
+            case PHOTO -> photo;
+        };
+    }
+
+    @JsonIgnore
+    public int getDocumentMask() {
+        return documentMask;
+    }
+
+    public void setDocumentMask(int documentMask) {
+        this.documentMask = documentMask;
+    }
+
+    public boolean hasDocument(DocumentType type) {
+        return (documentMask & type.bit()) != 0;
+    }
+
     public Set<Long> getWorkers() {
         return workers;
     }
@@ -241,36 +271,36 @@ public class User {
     }
 
     // --- Transient properties for JSON serialization ---
-    // These methods are not stored in the DB but are included in JSON responses.
+    // These methods are derived from documentMask and are included in JSON responses.
 
     @JsonProperty("panCard")
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Boolean hasPanCard() {
-        return this.panCard != null && this.panCard.length > 0;
+        return hasDocument(DocumentType.PAN_CARD);
     }
 
     @JsonProperty("adhaarCard")
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Boolean hasAdhaarCard() {
-        return this.adhaarCard != null && this.adhaarCard.length > 0;
+        return hasDocument(DocumentType.ADHAAR_CARD);
     }
 
     @JsonProperty("digitalSignature")
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Boolean hasDigitalSignature() {
-        return this.digitalSignature != null && this.digitalSignature.length > 0;
+        return hasDocument(DocumentType.DIGITAL_SIGNATURE);
     }
 
     @JsonProperty("voterId")
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Boolean hasVoterId() {
-        return this.voterId != null && this.voterId.length > 0;
+        return hasDocument(DocumentType.VOTER_ID);
     }
 
     @JsonProperty("shopRegistration")
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Boolean hasShopRegistration() {
-        return this.shopRegistration != null && this.shopRegistration.length > 0;
+        return hasDocument(DocumentType.SHOP_REGISTRATION);
     }
 
     @JsonProperty("hasDocuments")
@@ -282,13 +312,13 @@ public class User {
     @JsonProperty("userAgreement")
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Boolean hasUserAgreement() {
-        return this.userAgreement != null && this.userAgreement.length > 0;
+        return hasDocument(DocumentType.USER_AGREEMENT);
     }
 
     @JsonProperty("hasPhoto")
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Boolean isHasPhoto() {
-        return this.photo != null && this.photo.length > 0;
+        return hasDocument(DocumentType.PHOTO);
     }
 
 }
\ No newline at end of file
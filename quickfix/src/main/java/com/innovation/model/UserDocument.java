@@ -0,0 +1,93 @@
+package com.innovation.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Binary content of one uploaded user document. Kept out of {@link User} so
+ * users can be cached and listed without loading megabytes of blobs.
+ */
+@Entity
+@Table(name = "user_documents", uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "doc_type" }))
+public class UserDocument {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "doc_type", nullable = false)
+    private DocumentType docType;
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] content;
+
+    // Detected from the content when stored
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "content_length")
+    private Long contentLength;
+
+    // Bumped on every change to the content: by Hibernate for entity writes, and by the SQL
+    // writes of UserDocumentService and DocumentProcessor themselves. Part of the ETag, and
+    // pins downloads and processing to one version.
+    @Version
+    @Column(nullable = false)
+    private int revision;
+
+    // Small JPEG preview made by DocumentProcessor; null until processed, or if none can be made
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] thumbnail;
+
+    @Column(nullable = false)
+    private boolean processed;
+
+    public UserDocument() {
+    }
+
+    public UserDocument(Long userId, DocumentType docType) {
+        this.userId = userId;
+        this.docType = docType;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public DocumentType getDocType() {
+        return docType;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Long getContentLength() {
+        return contentLength;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public byte[] getThumbnail() {
+        return thumbnail;
+    }
+
+    public boolean isProcessed() {
+        return processed;
+    }
+}
@@ -0,0 +1,76 @@
+package com.innovation.repository;
+
+import com.innovation.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /** Scalar view of a record; unlike an entity it is never served stale from the persistence context. */
+    interface Snapshot {
+        IdempotencyRecord.Status getStatus();
+
+        String getFingerprint();
+
+        String getResponseBody();
+    }
+
+    @Query("select r.status as status, r.fingerprint as fingerprint, r.responseBody as responseBody"
+            + " from IdempotencyRecord r where r.id = :id")
+    Optional<Snapshot> findSnapshot(@Param("id") String id);
+
+    /** Creates an IN_PROGRESS record; fails with a duplicate key if the key is taken. */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into idempotency_record (id, username, fingerprint, status, owner, lease_until,"
+            + " created_at, expires_at) values (:id, :username, :fingerprint, 'IN_PROGRESS', :owner, :leaseUntil,"
+            + " :now, :expiresAt)", nativeQuery = true)
+    int insertInProgress(@Param("id") String id, @Param("username") String username,
+            @Param("fingerprint") String fingerprint, @Param("owner") String owner,
+            @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    /** Restarts a record whose owner's lease ran out, or that has expired; 1 on success. */
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyRecord r set r.status = com.innovation.model.IdempotencyRecord.Status.IN_PROGRESS,"
+            + " r.fingerprint = :fingerprint, r.owner = :owner, r.leaseUntil = :leaseUntil, r.responseBody = null,"
+            + " r.createdAt = :now, r.expiresAt = :expiresAt where r.id = :id and (r.expiresAt < :now"
+            + " or (r.status = com.innovation.model.IdempotencyRecord.Status.IN_PROGRESS and r.leaseUntil < :now))")
+    int takeOver(@Param("id") String id, @Param("fingerprint") String fingerprint, @Param("owner") String owner,
+            @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    /** Stores the response if {@code owner} still holds the record; call in the transaction of the write. */
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyRecord r set r.status = com.innovation.model.IdempotencyRecord.Status.COMPLETED,"
+            + " r.responseBody = :body, r.leaseUntil = null where r.id = :id and r.owner = :owner"
+            + " and r.status = com.innovation.model.IdempotencyRecord.Status.IN_PROGRESS")
+    int complete(@Param("id") String id, @Param("owner") String owner, @Param("body") String body);
+
+    /** Frees the key after the write failed, so the client can retry it. */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.owner = :owner"
+            + " and r.status = com.innovation.model.IdempotencyRecord.Status.IN_PROGRESS")
+    int release(@Param("id") String id, @Param("owner") String owner);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    /** Deletes the {@code count} completed records closest to expiry. */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from idempotency_record where status = 'COMPLETED' order by expires_at limit :count",
+            nativeQuery = true)
+    int deleteOldestCompleted(@Param("count") int count);
+}
@@ -0,0 +1,47 @@
+package com.innovation.repository;
+
+import com.innovation.model.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * Locks the oldest pending messages; call inside a transaction. Messages
+     * locked by another node are skipped rather than waited for.
+     */
+    @Query(value = "select * from outbox where published_at is null and dead_lettered_at is null"
+            + " order by id limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxMessage> lockPending(@Param("limit") int limit);
+
+    @Query("select min(m.id) from OutboxMessage m where m.publishedAt is null and m.deadLetteredAt is null")
+    Long findFirstPendingId();
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxMessage m set m.publishedAt = :at where m.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("at") LocalDateTime at);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxMessage m set m.attempts = m.attempts + 1, m.lastError = :error where m.id = :id")
+    int recordFailedAttempt(@Param("id") Long id, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxMessage m set m.attempts = m.attempts + 1, m.lastError = :error, m.deadLetteredAt = :at"
+            + " where m.id = :id")
+    int markDeadLettered(@Param("id") Long id, @Param("error") String error, @Param("at") LocalDateTime at);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxMessage m where m.publishedAt < :cutoff")
+    int deletePublishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
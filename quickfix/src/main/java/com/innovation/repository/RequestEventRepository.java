@@ -0,0 +1,29 @@
+package com.innovation.repository;
+
+import com.innovation.model.RequestEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface RequestEventRepository extends JpaRepository<RequestEvent, Long> {
+    List<RequestEvent> findByRequestIdOrderByIdAsc(Long requestId);
+
+    // Tail in pages: pass the last ID seen and PageRequest.of(0, batchSize)
+    List<RequestEvent> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable page);
+
+    List<RequestEvent> findByRequestIdInAndIdLessThanOrderByIdAsc(Collection<Long> requestIds, Long beforeId);
+
+    Optional<RequestEvent> findFirstByOccurredAtGreaterThanEqualOrderByIdAsc(LocalDateTime since);
+
+    @Query("select max(e.id) from RequestEvent e")
+    Long findMaxId();
+
+    @Query("select distinct e.requestId from RequestEvent e where e.id >= :fromId")
+    List<Long> findRequestIdsFrom(@Param("fromId") Long fromId);
+}
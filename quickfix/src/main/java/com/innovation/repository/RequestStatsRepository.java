@@ -0,0 +1,15 @@
+package com.innovation.repository;
+
+import com.innovation.model.RequestHourlyStat;
+import com.innovation.model.RequestStatCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RequestStatsRepository extends JpaRepository<RequestStatCounter, RequestStatCounter.Key> {
+    @Query("select h from RequestHourlyStat h where h.bucketStart >= :from order by h.bucketStart, h.requestType")
+    List<RequestHourlyStat> findHourlySince(@Param("from") LocalDateTime from);
+}
@@ -3,14 +3,141 @@ package com.innovation.repository;
 import com.innovation.model.RequestStatus;
 import com.innovation.model.ServiceRequest;
 import com.innovation.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ServiceRequestRepository extends JpaRepository<ServiceRequest, Long> {
     List<ServiceRequest> findByStatus(RequestStatus status);
 
     List<ServiceRequest> findByStatusAndIntendedVendorId(RequestStatus open, Long id);
 
+    // Requests intended for the vendor, or offered to it by fan-out dispatch, in dispatch priority order
+    @Query("select distinct r from ServiceRequest r where r.status = :status"
+            + " and (r.intendedVendor.id = :vendorId or :vendorId member of r.offeredVendorIds)"
+            + " order by r.priorityAt, r.id")
+    List<ServiceRequest> findOfferedToVendor(@Param("status") RequestStatus status,
+            @Param("vendorId") Long vendorId);
+
+    interface Offer {
+        Long getId();
+
+        LocalDateTime getPriorityAt();
+    }
+
+    @Query("select distinct r.id as id, r.priorityAt as priorityAt from ServiceRequest r where r.status = :status"
+            + " and (r.intendedVendor.id = :vendorId or :vendorId member of r.offeredVendorIds)")
+    List<Offer> findOffersToVendor(@Param("status") RequestStatus status, @Param("vendorId") Long vendorId);
+
+    interface OfferTarget {
+        Long getId();
+
+        LocalDateTime getPriorityAt();
+
+        Long getIntendedVendorId();
+
+        Long getOfferedVendorId();
+    }
+
+    // One row per offer of each of the given requests that has the status; vendor IDs may be null
+    @Query("select r.id as id, r.priorityAt as priorityAt, iv.id as intendedVendorId, ov as offeredVendorId"
+            + " from ServiceRequest r left join r.intendedVendor iv left join r.offeredVendorIds ov"
+            + " where r.status = :status and r.id in :ids")
+    List<OfferTarget> findOfferTargets(@Param("status") RequestStatus status, @Param("ids") Collection<Long> ids);
+
+    interface OpenBySeverity {
+        String getSeverity();
+
+        long getDepth();
+
+        LocalDateTime getOldestCreatedAt();
+    }
+
+    @Query("select r.damageSeverity as severity, count(r) as depth, min(r.createdAt) as oldestCreatedAt"
+            + " from ServiceRequest r where r.status = com.innovation.model.RequestStatus.OPEN"
+            + " group by r.damageSeverity")
+    List<OpenBySeverity> countOpenBySeverity();
+
+    /** Sets priority_at as {@link com.innovation.service.DispatchPriority} would where it is missing. */
+    @Transactional
+    @Modifying
+    @Query(value = "update service_request set priority_at = created_at + interval (case lower(trim(damage_severity))"
+            + " when 'critical' then 0 when 'high' then 1 when 'low' then 3 else 2 end) * :stepSeconds second"
+            + " where priority_at is null and created_at is not null", nativeQuery = true)
+    int backfillPriorityAt(@Param("stepSeconds") long stepSeconds);
+
+    /**
+     * Assigns an open request in a single conditional update, so that when several
+     * vendors accept concurrently exactly one of them wins. Returns 1 if this caller
+     * claimed the request, 0 if it was no longer open.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ServiceRequest r set r.status = com.innovation.model.RequestStatus.ASSIGNED,"
+            + " r.assignedVendor = :vendor, r.assignedWorker = :worker, r.assignedAt = :assignedAt"
+            + " where r.id = :id and r.status = com.innovation.model.RequestStatus.OPEN")
+    int claimOpenRequest(@Param("id") Long id, @Param("vendor") User vendor, @Param("worker") User worker,
+            @Param("assignedAt") LocalDateTime assignedAt);
+
+    /**
+     * Locks up to {@code limit} open requests due for a reroute and not leased; call inside a
+     * transaction. Locked rows are skipped, so concurrent sweepers on several nodes each get a
+     * disjoint batch without waiting on one another. When more requests are due than fit a
+     * batch, the most urgent are rerouted first.
+     */
+    @Query(value = "select id from service_request where status = 'OPEN'"
+            + " and reroute_due_at <= :now and (lease_until is null or lease_until < :now)"
+            + " order by priority_at, reroute_due_at limit :limit for update skip locked", nativeQuery = true)
+    List<Long> lockDueForReroute(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "update service_request set lease_owner = :owner, lease_until = :until where id in (:ids)",
+            nativeQuery = true)
+    int lease(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    /** Leases a single request if it is due for a reroute and nobody holds it; 1 on success. */
+    @Transactional
+    @Modifying
+    @Query("update ServiceRequest r set r.leaseOwner = :owner, r.leaseUntil = :until"
+            + " where r.id = :id and r.status = com.innovation.model.RequestStatus.OPEN"
+            + " and r.rerouteDueAt <= :now and (r.leaseUntil is null or r.leaseUntil < :now)")
+    int tryLeaseDue(@Param("id") Long id, @Param("owner") String owner, @Param("until") LocalDateTime until,
+            @Param("now") LocalDateTime now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from ServiceRequest r where r.id = :id")
+    Optional<ServiceRequest> findByIdForUpdate(@Param("id") Long id);
+
+    // Requests routed before reroute_due_at existed
+    @Transactional
+    @Modifying
+    @Query(value = "update service_request set reroute_due_at = last_routed_at + interval :seconds second"
+            + " where status = 'OPEN' and intended_vendor_id is not null and last_routed_at is not null"
+            + " and reroute_due_at is null", nativeQuery = true)
+    int backfillRerouteDueAt(@Param("seconds") int seconds);
+
+    // Requests created before the event log existed (or seeded directly)
+    @Query("select r from ServiceRequest r where not exists"
+            + " (select e.id from RequestEvent e where e.requestId = r.id)")
+    List<ServiceRequest> findWithoutEvents();
+
+    @Query("select r.id from ServiceRequest r where r.status <> :status")
+    List<Long> findIdsByStatusNot(@Param("status") RequestStatus status);
+
+    // Requests in the given status with no event at or after fromEventId
+    @Query("select count(r) from ServiceRequest r where r.status = :status and not exists"
+            + " (select e.id from RequestEvent e where e.requestId = r.id and e.id >= :fromEventId)")
+    long countByStatusWithoutEventsFrom(@Param("status") RequestStatus status,
+            @Param("fromEventId") Long fromEventId);
+
     List<ServiceRequest> findByRequestingUser(User user);
 
     List<ServiceRequest> findByAssignedWorker(User worker);
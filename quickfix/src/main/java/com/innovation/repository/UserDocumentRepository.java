@@ -0,0 +1,26 @@
+package com.innovation.repository;
+
+import com.innovation.model.DocumentType;
+import com.innovation.model.UserDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface UserDocumentRepository extends JpaRepository<UserDocument, Long> {
+    Optional<UserDocument> findByUserIdAndDocType(Long userId, DocumentType docType);
+
+    /** A document without its content; only these columns are selected. */
+    interface DocumentInfo {
+        Long getId();
+
+        String getContentType();
+
+        Long getContentLength();
+
+        int getRevision();
+    }
+
+    Optional<DocumentInfo> findInfoByUserIdAndDocType(Long userId, DocumentType docType);
+
+    void deleteByUserId(Long userId);
+}
@@ -1,14 +1,36 @@
 package com.innovation.repository;
 
 import com.innovation.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+// Finders run on every authenticated request and on every routing decision, so their
+// results are kept in the query cache; Hibernate invalidates them when users change.
 public interface UserRepository extends JpaRepository<User, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<User> findByRolesContaining(String role);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<User> findByRolesContainingAndRequestTypesContaining(String role, String requestType);
+
+    // Past the second-level cache, for reloads after another node changed the users
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"))
+    @Query("select u from User u where u.id in :ids")
+    List<User> findUncachedByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Rows of (role, number of users)
+    @Query("select r, count(u) from User u join u.roles r group by r")
+    List<Object[]> countByRole();
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams users and service requests out as CSV or NDJSON straight from a
+ * database cursor: MySQL sends the rows as they are read (fetch size
+ * {@link Integer#MIN_VALUE}), and each row is written to the response before
+ * the next one is read, so memory use does not grow with the table. Runs in a
+ * read-only transaction, i.e. on a replica when one is configured. User rows
+ * use the columns of {@link UserImportService}, minus the password, so an
+ * export can be edited and imported elsewhere.
+ */
+@Service
+public class BulkExportService {
+
+    private record Column(String name, boolean list) {
+    }
+
+    private static final List<Column> USER_COLUMNS = List.of(new Column("id", false),
+            new Column("username", false), new Column("email", false), new Column("name", false),
+            new Column("roles", true), new Column("requestTypes", true), new Column("vendor", false),
+            new Column("latitude", false), new Column("longitude", false), new Column("address", false),
+            new Column("status", false));
+
+    // One value per column above; lists are ';'-separated
+    private static final String USERS = "select u.id, u.username, u.email, u.name,"
+            + " (select group_concat(r.roles order by r.roles separator ';')"
+            + " from user_roles r where r.user_id = u.id),"
+            + " (select group_concat(t.request_type order by t.request_type separator ';')"
+            + " from user_request_types t where t.user_id = u.id),"
+            + " v.username, u.latitude, u.longitude, u.address, u.status"
+            + " from users u left join users v on v.id = u.assigned_vendor_id order by u.id";
+
+    private static final List<Column> REQUEST_COLUMNS = List.of(new Column("id", false),
+            new Column("status", false), new Column("vehicleType", false), new Column("vehicleNumber", false),
+            new Column("makeModel", false), new Column("problemDescription", false), new Column("requester", false),
+            new Column("vendor", false), new Column("worker", false), new Column("createdAt", false),
+            new Column("assignedAt", false), new Column("completedAt", false), new Column("damageSeverity", false),
+            new Column("estimatedCostRange", false));
+
+    private static final String REQUESTS = "select r.id, r.status, r.vehicle_type, r.vehicle_number,"
+            + " r.make_model, r.problem_description, q.username, v.username, w.username, r.created_at,"
+            + " r.assigned_at, r.completed_at, r.damage_severity, r.estimated_cost_range"
+            + " from service_request r join users q on q.id = r.requester_id"
+            + " left join users v on v.id = r.vendor_id left join users w on w.id = r.worker_id"
+            + " where r.created_at >= ? order by r.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final ServiceMetrics metrics;
+
+    public BulkExportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, ServiceMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    /** Writes every user, in id order. Returns the number of rows written. */
+    public long exportUsers(BulkFormat format, OutputStream out) {
+        return export("users", USERS, List.of(), USER_COLUMNS, format, out);
+    }
+
+    /** Writes the requests created at or after {@code since}, in id order. Returns the number of rows written. */
+    public long exportRequests(LocalDateTime since, BulkFormat format, OutputStream out) {
+        return export("requests", REQUESTS, List.of(since), REQUEST_COLUMNS, format, out);
+    }
+
+    private long export(String kind, String sql, List<Object> parameters, List<Column> columns, BulkFormat format,
+            OutputStream out) {
+        long start = System.nanoTime();
+        try {
+            RowWriter writer = format == BulkFormat.CSV ? new CsvRowWriter(out, columns)
+                    : new NdjsonRowWriter(objectMapper.getFactory().createGenerator(out)
+                            .setRootValueSeparator(null), columns);
+            long[] rows = new long[1];
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                return statement;
+            }, rs -> {
+                try {
+                    writer.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }));
+            writer.close();
+            metrics.increment("export." + kind + ".rows", rows[0]);
+            metrics.recordNanos("export." + kind, System.nanoTime() - start);
+            return rows[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the " + kind + " export", e);
+        }
+    }
+
+    private interface RowWriter {
+        void write(ResultSet row) throws IOException, SQLException;
+
+        void close() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer out;
+        private final List<Column> columns;
+        private final List<String> fields;
+
+        CsvRowWriter(OutputStream out, List<Column> columns) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            this.columns = columns;
+            this.fields = new ArrayList<>(columns.size());
+            CsvRecords.write(this.out, columns.stream().map(Column::name).toList());
+        }
+
+        @Override
+        public void write(ResultSet row) throws IOException, SQLException {
+            fields.clear();
+            for (int i = 0; i < columns.size(); i++) {
+                Object value = row.getObject(i + 1);
+                fields.add(value == null ? null : value.toString());
+            }
+            CsvRecords.write(out, fields);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator json;
+        private final List<Column> columns;
+
+        NdjsonRowWriter(JsonGenerator json, List<Column> columns) {
+            this.json = json;
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(ResultSet row) throws IOException, SQLException {
+            json.writeStartObject();
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                Object value = row.getObject(i + 1);
+                json.writeFieldName(column.name());
+                if (value == null) {
+                    json.writeNull();
+                } else if (column.list()) {
+                    json.writeStartArray();
+                    for (String element : value.toString().split(";")) {
+                        json.writeString(element);
+                    }
+                    json.writeEndArray();
+                } else {
+                    json.writeObject(value);
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.flush();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.innovation.service;
+
+import org.springframework.http.MediaType;
+
+/** Wire formats of the bulk import and export endpoints. */
+public enum BulkFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final MediaType mediaType;
+
+    BulkFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /** The format named by a {@code format} parameter ("csv" or "ndjson"). */
+    public static BulkFormat fromName(String name) {
+        for (BulkFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported format: " + name);
+    }
+
+    /** The format of a request body; NDJSON for {@code application/x-ndjson} or JSON, CSV otherwise. */
+    public static BulkFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType type = MediaType.parseMediaType(contentType);
+            if (NDJSON.mediaType.includes(type) || MediaType.APPLICATION_JSON.includes(type)) {
+                return NDJSON;
+            }
+        }
+        return CSV;
+    }
+}
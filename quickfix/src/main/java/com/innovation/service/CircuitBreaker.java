@@ -0,0 +1,133 @@
+package com.innovation.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. The last {@code windowSize} call outcomes are
+ * kept in a ring; once at least {@code minimumCalls} have been recorded and the
+ * failure rate reaches the threshold the breaker opens and rejects calls until
+ * {@code openDuration} has elapsed. It then lets {@code halfOpenCalls} trial
+ * calls through and closes only if all of them succeed.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] outcomes;
+    private int recorded;
+    private int next;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+            int halfOpenCalls) {
+        this(windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+            int halfOpenCalls, LongSupplier nanoClock) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAtNanos < openDurationNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    /** Returns a permission that was acquired but not used for an actual call. */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                reset(State.CLOSED);
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openedAtNanos = nanoClock.getAsLong();
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        Arrays.fill(outcomes, false);
+    }
+}
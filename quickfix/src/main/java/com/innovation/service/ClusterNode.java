@@ -0,0 +1,34 @@
+package com.innovation.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/** Identity of this application instance, recorded as the owner of the leases it takes. */
+@Component
+public class ClusterNode {
+
+    private final String id;
+
+    public ClusterNode(@Value("${cluster.node-id:}") String configuredId) {
+        this.id = configuredId.isBlank() ? defaultId() : configuredId.trim();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // host-pid-random, so two instances on one machine (or a restarted one) never share an ID
+    private static String defaultId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        String id = host + "-" + ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return id.length() > 64 ? id.substring(id.length() - 64) : id;
+    }
+}
@@ -0,0 +1,88 @@
+package com.innovation.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reading and writing: comma separated, fields optionally in
+ * double quotes, quotes doubled inside them, and line breaks allowed in quoted
+ * fields. Records are read one at a time from the stream.
+ */
+final class CsvRecords {
+
+    private CsvRecords() {
+    }
+
+    /** The next record's fields, or null at the end of the input. Blank lines are skipped. */
+    static List<String> read(BufferedReader in) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                    continue;
+                }
+                in.mark(1);
+                if (in.read() == '"') {
+                    field.append('"');
+                } else {
+                    in.reset();
+                    quoted = false;
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    in.mark(1);
+                    if (in.read() != '\n') {
+                        in.reset();
+                    }
+                }
+                if (fields.isEmpty() && field.isEmpty()) {
+                    any = false;
+                    continue;
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static void write(Writer out, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String value = fields.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write("\r\n");
+    }
+}
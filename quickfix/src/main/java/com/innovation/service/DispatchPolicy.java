@@ -0,0 +1,94 @@
+package com.innovation.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Decides how a request is offered to vendors. In {@code sequential} mode (the
+ * default) a request goes to one vendor at a time, the nearest however far away;
+ * in {@code fanout} mode each dispatch wave offers it to the K nearest qualified
+ * vendors within a search radius that widens with every wave, and vendors beyond
+ * {@code dispatch.max-radius-km} are never offered the request.
+ * <p>
+ * K and the initial radius can be tuned per request type and damage severity,
+ * looked up most-specific first:
+ * {@code dispatch.fanout.k.<type>.<severity>}, {@code dispatch.fanout.k.<type>},
+ * {@code dispatch.fanout.k.any.<severity>}, then {@code dispatch.fanout.k.default}
+ * (and likewise for {@code dispatch.radius-km.*}).
+ */
+@Component
+public class DispatchPolicy {
+
+    public enum Mode {
+        SEQUENTIAL, FANOUT
+    }
+
+    /** What routing does with vendors that have no idle worker for the request type. */
+    public enum Availability {
+        IGNORE, DOWNRANK, SKIP
+    }
+
+    private final Environment environment;
+    private final Mode mode;
+    private final Availability availability;
+    private final double radiusGrowth;
+    private final double maxRadiusKm;
+
+    public DispatchPolicy(Environment environment,
+            @Value("${dispatch.mode:sequential}") String mode,
+            @Value("${dispatch.availability:downrank}") String availability,
+            @Value("${dispatch.radius-growth:2.0}") double radiusGrowth,
+            @Value("${dispatch.max-radius-km:100}") double maxRadiusKm) {
+        this.environment = environment;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.availability = Availability.valueOf(availability.trim().toUpperCase(Locale.ROOT));
+        this.radiusGrowth = Math.max(1.0, radiusGrowth);
+        this.maxRadiusKm = maxRadiusKm;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Availability getAvailability() {
+        return availability;
+    }
+
+    public boolean isFanOut() {
+        return mode == Mode.FANOUT;
+    }
+
+    /** Number of vendors to offer the request to in each wave. */
+    public int fanOut(String requestType, String severity) {
+        return Math.max(1, lookup("dispatch.fanout.k", requestType, severity, Integer.class, 3));
+    }
+
+    /** Search radius for the given wave (0 for the first), capped at the maximum radius. */
+    public double radiusKm(String requestType, String severity, int wave) {
+        double initial = lookup("dispatch.radius-km", requestType, severity, Double.class, 5.0);
+        return Math.min(maxRadiusKm, initial * Math.pow(radiusGrowth, wave));
+    }
+
+    /** Distance beyond which vendors are not offered the request; unlimited in sequential mode. */
+    public double getMaxRadiusKm() {
+        return isFanOut() ? maxRadiusKm : Double.POSITIVE_INFINITY;
+    }
+
+    private <T> T lookup(String prefix, String requestType, String severity, Class<T> type, T fallback) {
+        String sev = severity == null ? null : severity.trim().toLowerCase(Locale.ROOT);
+        T value = null;
+        if (requestType != null && sev != null) {
+            value = environment.getProperty(prefix + "." + requestType + "." + sev, type);
+        }
+        if (value == null && requestType != null) {
+            value = environment.getProperty(prefix + "." + requestType, type);
+        }
+        if (value == null && sev != null) {
+            value = environment.getProperty(prefix + ".any." + sev, type);
+        }
+        return value != null ? value : environment.getProperty(prefix + ".default", type, fallback);
+    }
+}
@@ -0,0 +1,132 @@
+package com.innovation.service;
+
+import com.innovation.model.ServiceRequest;
+import com.innovation.repository.ServiceRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Dispatch order of open requests by damage severity, with aging. Each request
+ * gets a virtual deadline, {@code priorityAt}: its creation time plus
+ * {@code promote-after-seconds} per level below CRITICAL. Open requests are
+ * served in {@code priorityAt} order, so a request waiting that long ranks
+ * with one a level above it that was created just now. Even a LOW request
+ * ranks ahead of every request created more than three steps after it, so it
+ * cannot starve. Because the key is fixed at creation, the order needs no
+ * periodic re-sorting; changing the step only affects new requests.
+ */
+@Component
+public class DispatchPriority {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchPriority.class);
+
+    public enum Level {
+        CRITICAL, HIGH, MEDIUM, LOW;
+
+        /** The level of a damage severity from the vision model; unknown (e.g. not enriched) is MEDIUM. */
+        public static Level of(String severity) {
+            if (severity != null) {
+                switch (severity.trim().toLowerCase(Locale.ROOT)) {
+                    case "critical":
+                        return CRITICAL;
+                    case "high":
+                        return HIGH;
+                    case "low":
+                        return LOW;
+                    default:
+                        break;
+                }
+            }
+            return MEDIUM;
+        }
+    }
+
+    private record LevelStats(long depth, long oldestWaitMillis) {
+    }
+
+    private final ServiceRequestRepository requestRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ServiceMetrics metrics;
+    private final Duration promoteAfter;
+    private volatile Map<Level, LevelStats> stats = new EnumMap<>(Level.class);
+
+    public DispatchPriority(ServiceRequestRepository requestRepository, TransactionTemplate transactionTemplate,
+            ServiceMetrics metrics,
+            @Value("${dispatch.priority.promote-after-seconds:300}") long promoteAfterSeconds) {
+        this.requestRepository = requestRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.metrics = metrics;
+        this.promoteAfter = Duration.ofSeconds(promoteAfterSeconds);
+        for (Level level : Level.values()) {
+            String name = level.name().toLowerCase(Locale.ROOT);
+            metrics.gauge("dispatch.queue.depth." + name, () -> statsOf(level).depth());
+            metrics.gauge("dispatch.queue.oldest-wait-ms." + name, () -> statsOf(level).oldestWaitMillis());
+        }
+    }
+
+    public LocalDateTime priorityAt(LocalDateTime createdAt, String severity) {
+        return createdAt.plus(promoteAfter.multipliedBy(Level.of(severity).ordinal()));
+    }
+
+    /** Records how long an open request waited for a vendor, per level. */
+    public void recordAccepted(ServiceRequest request, LocalDateTime acceptedAt) {
+        metrics.recordNanos("dispatch.queue.wait." + Level.of(request.getDamageSeverity()).name()
+                .toLowerCase(Locale.ROOT), Duration.between(request.getCreatedAt(), acceptedAt).toNanos());
+    }
+
+    // Requests created before priority_at existed would otherwise sort first.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            int updated = requestRepository.backfillPriorityAt(promoteAfter.getSeconds());
+            if (updated > 0) {
+                logger.info("Set the dispatch priority of {} requests", updated);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not backfill dispatch priorities", e);
+        }
+        refreshStats();
+    }
+
+    // Depth and oldest wait per level across all nodes, read from the database
+    @Scheduled(fixedDelayString = "${dispatch.priority.stats-interval-ms:15000}")
+    public void refreshStats() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Map<Level, LevelStats> fresh = new EnumMap<>(Level.class);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                for (ServiceRequestRepository.OpenBySeverity row : requestRepository.countOpenBySeverity()) {
+                    if (row.getOldestCreatedAt() == null) {
+                        continue;
+                    }
+                    Level level = Level.of(row.getSeverity());
+                    LevelStats previous = fresh.get(level);
+                    long depth = row.getDepth() + (previous == null ? 0 : previous.depth());
+                    long waitMillis = Math.max(previous == null ? 0 : previous.oldestWaitMillis(),
+                            Duration.between(row.getOldestCreatedAt(), now).toMillis());
+                    fresh.put(level, new LevelStats(depth, waitMillis));
+                }
+            });
+            stats = fresh;
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh dispatch queue stats: {}", e.getMessage());
+        }
+    }
+
+    private LevelStats statsOf(Level level) {
+        return stats.getOrDefault(level, new LevelStats(0, 0));
+    }
+}
@@ -0,0 +1,378 @@
+package com.innovation.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Post-processes stored user documents on a bounded worker pool: PNGs are
+ * re-encoded at maximum compression, with their metadata, when that is smaller
+ * and decodes to the same pixels, and every image gets a small JPEG thumbnail. PDFs have no
+ * renderer here, so their preview is made from the first embedded JPEG, which
+ * for scanned documents is the scan of the first page. Documents are queued
+ * after they commit; anything the full queue turned away, or left behind by a
+ * restart, is picked up by a periodic sweep of unprocessed rows.
+ */
+@Service
+public class DocumentProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentProcessor.class);
+
+    // Larger images are left alone rather than decoded in full
+    private static final long MAX_PIXELS = 50_000_000L;
+
+    private record Stored(byte[] content, String contentType, int revision) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ServiceMetrics metrics;
+    private final int thumbnailSize;
+    private final ThreadPoolExecutor workers;
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    public DocumentProcessor(JdbcTemplate jdbcTemplate, ServiceMetrics metrics,
+            @Value("${users.documents.thumbnail-px:240}") int thumbnailSize,
+            @Value("${users.documents.process-threads:2}") int threads,
+            @Value("${users.documents.process-queue:100}") int queueSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        this.thumbnailSize = thumbnailSize;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "document-processor-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        metrics.gauge("documents.process-backlog", () -> workers.getQueue().size());
+    }
+
+    /** Queues the document for processing; if the queue is full the sweep gets to it later. */
+    public void submit(long documentId) {
+        if (!queued.add(documentId)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                queued.remove(documentId);
+                process(documentId);
+            });
+        } catch (RejectedExecutionException e) {
+            queued.remove(documentId);
+            metrics.increment("documents.process-deferred");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${users.documents.process-interval-ms:60000}")
+    public void sweep() {
+        int room = workers.getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        jdbcTemplate.queryForList("select id from user_documents where processed = false order by id limit ?",
+                Long.class, room).forEach(this::submit);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void process(long documentId) {
+        long start = System.nanoTime();
+        int revision = -1;
+        try {
+            List<Stored> rows = jdbcTemplate.query("select content, content_type, revision from user_documents"
+                    + " where id = ? and processed = false",
+                    (rs, rowNum) -> new Stored(rs.getBytes(1), rs.getString(2), rs.getInt(3)), documentId);
+            if (rows.isEmpty()) {
+                return;
+            }
+            Stored stored = rows.get(0);
+            revision = stored.revision();
+            byte[] content = stored.content() == null ? new byte[0] : stored.content();
+            byte[] recompressed = "image/png".equals(stored.contentType()) ? recompressPng(content) : null;
+            byte[] thumbnail = thumbnail(content, stored.contentType());
+
+            int updated;
+            if (recompressed != null) {
+                updated = jdbcTemplate.update("update user_documents set content = ?, content_length = ?,"
+                        + " revision = revision + 1, thumbnail = ?, processed = true where id = ? and revision = ?",
+                        recompressed, recompressed.length, thumbnail, documentId, stored.revision());
+                if (updated == 1) {
+                    metrics.increment("documents.bytes-saved", content.length - recompressed.length);
+                }
+            } else {
+                updated = jdbcTemplate.update("update user_documents set thumbnail = ?, processed = true"
+                        + " where id = ? and revision = ?", thumbnail, documentId, stored.revision());
+            }
+            // 0 rows: replaced meanwhile, and the new revision is queued on its own
+            metrics.increment(updated == 1 ? "documents.processed" : "documents.process-superseded");
+            metrics.recordNanos("documents.process", System.nanoTime() - start);
+        } catch (RuntimeException | IOException e) {
+            metrics.increment("documents.process-failures");
+            logger.warn("Could not process document {}; it is served as uploaded", documentId, e);
+            if (revision < 0) {
+                return; // Not even loaded; the sweep retries it
+            }
+            try {
+                jdbcTemplate.update("update user_documents set processed = true where id = ? and revision = ?",
+                        documentId, revision);
+            } catch (RuntimeException markFailure) {
+                logger.warn("Could not mark document {} as processed", documentId, markFailure);
+            }
+        }
+    }
+
+    /**
+     * The PNG at maximum compression, if smaller, pixel-identical and keeping
+     * every chunk type of the original (colour profile, gamma, text and so on);
+     * otherwise null.
+     */
+    static byte[] recompressPng(byte[] content) throws IOException {
+        IIOImage decoded = decodeWithMetadata(content);
+        if (decoded == null) {
+            return null;
+        }
+        BufferedImage image = (BufferedImage) decoded.getRenderedImage();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0f); // Highest deflate level
+            writer.write(null, new IIOImage(image, null, decoded.getMetadata()), param);
+        } finally {
+            writer.dispose();
+        }
+        byte[] recompressed = out.toByteArray();
+        // The writer only carries over the chunks it understands
+        if (recompressed.length >= content.length
+                || !pngChunkTypes(recompressed).containsAll(pngChunkTypes(content))) {
+            return null;
+        }
+        BufferedImage check = decode(recompressed, 1);
+        return check != null && samePixels(image, check) ? recompressed : null;
+    }
+
+    // Types of the chunks in a PNG, e.g. IHDR, iCCP, IDAT; stops at the first malformed one.
+    static Set<String> pngChunkTypes(byte[] png) {
+        Set<String> types = new LinkedHashSet<>();
+        int position = 8; // Signature
+        while (position + 8 <= png.length) {
+            long length = ((png[position] & 0xFFL) << 24) | ((png[position + 1] & 0xFF) << 16)
+                    | ((png[position + 2] & 0xFF) << 8) | (png[position + 3] & 0xFF);
+            types.add(new String(png, position + 4, 4, StandardCharsets.US_ASCII));
+            long next = position + 12 + length;
+            if (next > png.length) {
+                break;
+            }
+            position = (int) next;
+        }
+        return types;
+    }
+
+    private byte[] thumbnail(byte[] content, String contentType) throws IOException {
+        if (contentType == null || !(contentType.startsWith("image/") || contentType.equals("application/pdf"))) {
+            return null;
+        }
+        byte[] source = contentType.equals("application/pdf") ? firstEmbeddedJpeg(content) : content;
+        if (source == null) {
+            return null;
+        }
+        BufferedImage image = decodeForThumbnail(source);
+        if (image == null) {
+            return null;
+        }
+        double scale = Math.min(1.0, (double) thumbnailSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE); // Background for transparent images
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.8f);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Decodes at roughly twice the thumbnail size by skipping source pixels, so a large
+    // photo never needs its full-resolution raster.
+    private BufferedImage decodeForThumbnail(byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            ImageReader reader = reader(input);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                return read(reader, Math.max(1, longest / (2 * thumbnailSize)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static IIOImage decodeWithMetadata(byte[] content) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            ImageReader reader = reader(input, false);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    return null;
+                }
+                return reader.readAll(0, reader.getDefaultReadParam());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage decode(byte[] content, int subsampling) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            ImageReader reader = reader(input);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                return read(reader, subsampling);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader reader(ImageInputStream input) {
+        return reader(input, true);
+    }
+
+    private static ImageReader reader(ImageInputStream input, boolean ignoreMetadata) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, ignoreMetadata);
+        return reader;
+    }
+
+    private static BufferedImage read(ImageReader reader, int subsampling) throws IOException {
+        long pixels = (long) reader.getWidth(0) * reader.getHeight(0) / ((long) subsampling * subsampling);
+        if (pixels > MAX_PIXELS) {
+            return null;
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return reader.read(0, param);
+    }
+
+    private static boolean samePixels(BufferedImage a, BufferedImage b) {
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()
+                || a.getColorModel().getClass() != b.getColorModel().getClass()) {
+            return false;
+        }
+        Raster rasterA = a.getRaster();
+        Raster rasterB = b.getRaster();
+        if (rasterA.getNumBands() != rasterB.getNumBands()) {
+            return false;
+        }
+        int[] rowA = null;
+        int[] rowB = null;
+        for (int y = 0; y < a.getHeight(); y++) {
+            rowA = rasterA.getPixels(0, y, a.getWidth(), 1, rowA);
+            rowB = rasterB.getPixels(0, y, b.getWidth(), 1, rowB);
+            if (!Arrays.equals(rowA, rowB)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The data of the first DCTDecode (JPEG) stream in the file, or null.
+    static byte[] firstEmbeddedJpeg(byte[] pdf) {
+        int filter = indexOf(pdf, "/DCTDecode".getBytes(StandardCharsets.US_ASCII), 0);
+        if (filter < 0) {
+            return null;
+        }
+        int stream = indexOf(pdf, "stream".getBytes(StandardCharsets.US_ASCII), filter);
+        if (stream < 0) {
+            return null;
+        }
+        int start = stream + "stream".length();
+        if (start < pdf.length && pdf[start] == '\r') {
+            start++;
+        }
+        if (start < pdf.length && pdf[start] == '\n') {
+            start++;
+        }
+        int end = indexOf(pdf, "endstream".getBytes(StandardCharsets.US_ASCII), start);
+        if (end < 0 || end - start < 4 || (pdf[start] & 0xFF) != 0xFF || (pdf[start + 1] & 0xFF) != 0xD8) {
+            return null;
+        }
+        return Arrays.copyOfRange(pdf, start, end);
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle, int from) {
+        outer:
+        for (int i = from; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
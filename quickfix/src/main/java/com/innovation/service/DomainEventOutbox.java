@@ -0,0 +1,213 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.OutboxMessage;
+import com.innovation.repository.OutboxRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transactional outbox with an in-process publisher. {@link #record} inserts
+ * the event in the caller's transaction, so it exists exactly when the change
+ * does. Delivery happens later on a single publisher thread, woken right after
+ * commit and by a periodic poll that picks up anything left behind (a crash,
+ * a failed handler). Messages are delivered in ID order, one batch at a time,
+ * and marked published only after every subscriber handled them: delivery is
+ * at-least-once, so handlers must be idempotent.
+ * <p>
+ * Each batch is claimed with {@code FOR UPDATE SKIP LOCKED} and published in
+ * the claiming transaction, so only one node delivers a message. A node only
+ * publishes the batch at the head of the queue; if another node holds earlier
+ * messages it leaves its batch alone, so later messages never overtake them.
+ * A failing message stops its batch for the same reason. After
+ * {@code outbox.max-attempts} it is dead-lettered: kept with its last error,
+ * but no longer delivered.
+ */
+@Service
+public class DomainEventOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(DomainEventOutbox.class);
+
+    /**
+     * Receives a message by ID and JSON payload; runs inside its own transaction.
+     * The ID is the same on every redelivery, so handlers can use it to skip them.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(long messageId, JsonNode payload);
+    }
+
+    private final OutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate handlerTransaction;
+    private final ObjectMapper objectMapper;
+    private final ServiceMetrics metrics;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retention;
+    private final Map<String, List<Handler>> handlers = new ConcurrentHashMap<>();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    public DomainEventOutbox(OutboxRepository outboxRepository, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, ServiceMetrics metrics,
+            @Value("${outbox.batch-size:100}") int batchSize,
+            @Value("${outbox.max-attempts:10}") int maxAttempts,
+            @Value("${outbox.retention-hours:24}") long retentionHours) {
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        // Handlers commit on their own, so a failing one can't roll back the claim
+        this.handlerTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.handlerTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    public void subscribe(String topic, Handler handler) {
+        handlers.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /** Writes an event to the outbox in the current transaction and publishes it once that commits. */
+    public void record(String topic, Long aggregateId, Map<String, ?> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox event " + topic, e);
+        }
+        outboxRepository.save(new OutboxMessage(topic, aggregateId, json));
+        metrics.increment("outbox.recorded");
+        TransactionCallbacks.afterCommit(this::wake);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:5000}")
+    public void poll() {
+        wake();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.cleanup-interval-ms:3600000}")
+    public void deletePublished() {
+        int deleted = outboxRepository.deletePublishedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            logger.debug("Deleted {} published outbox messages", deleted);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        publisher.shutdown();
+    }
+
+    // Commits in quick succession share one drain.
+    private void wake() {
+        if (drainQueued.compareAndSet(false, true)) {
+            publisher.execute(() -> {
+                drainQueued.set(false);
+                drain();
+            });
+        }
+    }
+
+    private void drain() {
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> publishHead()))) {
+                // Full batch published; there may be more
+            }
+        } catch (RuntimeException e) {
+            logger.error("Outbox publisher failed", e);
+        }
+    }
+
+    // Returns whether a full batch was published, so the caller should continue
+    private boolean publishHead() {
+        List<OutboxMessage> batch = outboxRepository.lockPending(batchSize);
+        if (batch.isEmpty()) {
+            return false;
+        }
+        Long head = outboxRepository.findFirstPendingId();
+        if (head != null && head < batch.get(0).getId()) {
+            // Another node is publishing earlier messages; it continues with these after
+            metrics.increment("outbox.claim-deferred");
+            return false;
+        }
+        return publish(batch) && batch.size() == batchSize;
+    }
+
+    private boolean publish(List<OutboxMessage> batch) {
+        List<Long> delivered = new ArrayList<>();
+        boolean complete = true;
+        for (OutboxMessage message : batch) {
+            try {
+                deliver(message);
+                delivered.add(message.getId());
+                metrics.recordNanos("outbox.delivery-lag",
+                        Duration.between(message.getCreatedAt(), LocalDateTime.now()).toNanos());
+            } catch (RuntimeException e) {
+                metrics.increment("outbox.failures");
+                String error = describe(e);
+                if (message.getAttempts() + 1 >= maxAttempts) {
+                    metrics.increment("outbox.dead-lettered");
+                    outboxRepository.markDeadLettered(message.getId(), error, LocalDateTime.now());
+                    logger.error("Dead-lettered outbox message {} ({}) after {} attempts: {}", message.getId(),
+                            message.getTopic(), maxAttempts, message.getPayload(), e);
+                    continue;
+                }
+                complete = false;
+                outboxRepository.recordFailedAttempt(message.getId(), error);
+                logger.warn("Outbox message {} ({}) failed on attempt {}; retrying later", message.getId(),
+                        message.getTopic(), message.getAttempts() + 1, e);
+                break;
+            }
+        }
+        if (!delivered.isEmpty()) {
+            outboxRepository.markPublished(delivered, LocalDateTime.now());
+            metrics.increment("outbox.published", delivered.size());
+        }
+        return complete;
+    }
+
+    private static String describe(RuntimeException e) {
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    private void deliver(OutboxMessage message) {
+        List<Handler> subscribers = handlers.getOrDefault(message.getTopic(), List.of());
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(message.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+        handlerTransaction.executeWithoutResult(status -> subscribers.forEach(h -> h.handle(message.getId(), payload)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.innovation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether a new service request gets AI enrichment (image analysis and
+ * age lookup) or is accepted without it. Enrichment is skipped while the Gemini
+ * circuit is open, while {@code max-backlog} enrichments are already running,
+ * and for {@code slow-cooldown-ms} after the average enrichment time has
+ * exceeded {@code max-latency-ms}, so that new requests never queue behind a
+ * slow or saturated API. The backlog and latency are this node's own, so the
+ * cluster as a whole may run {@code max-backlog} enrichments per node.
+ */
+@Component
+public class EnrichmentAdmission {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnrichmentAdmission.class);
+
+    // Weight of the newest sample in the moving average
+    private static final double ALPHA = 0.3;
+
+    private final GeminiClient geminiClient;
+    private final ServiceMetrics metrics;
+    private final int maxBacklog;
+    private final long maxLatencyNanos;
+    private final long cooldownNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double averageNanos;
+    private volatile long slowUntilNanos = System.nanoTime();
+
+    public EnrichmentAdmission(GeminiClient geminiClient, ServiceMetrics metrics,
+            @Value("${requests.admission.max-backlog:16}") int maxBacklog,
+            @Value("${requests.admission.max-latency-ms:15000}") long maxLatencyMillis,
+            @Value("${requests.admission.slow-cooldown-ms:30000}") long cooldownMillis) {
+        this.geminiClient = geminiClient;
+        this.metrics = metrics;
+        this.maxBacklog = maxBacklog;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+        metrics.gauge("requests.admission.backlog", inFlight::get);
+        metrics.gauge("requests.admission.shedding", () -> isSlow() ? 1 : 0);
+    }
+
+    /**
+     * Whether the next request may be enriched. If so, the caller must report
+     * {@link #finished} when the enrichment completes, successfully or not.
+     */
+    public boolean tryAdmit() {
+        if (geminiClient.getCircuitState() == CircuitBreaker.State.OPEN) {
+            metrics.increment("requests.admission.shed.circuit");
+            return false;
+        }
+        if (isSlow()) {
+            metrics.increment("requests.admission.shed.latency");
+            return false;
+        }
+        if (inFlight.incrementAndGet() > maxBacklog) {
+            inFlight.decrementAndGet();
+            metrics.increment("requests.admission.shed.backlog");
+            return false;
+        }
+        return true;
+    }
+
+    public void finished(long elapsedNanos) {
+        inFlight.decrementAndGet();
+        double average;
+        synchronized (this) {
+            averageNanos = averageNanos == 0 ? elapsedNanos : ALPHA * elapsedNanos + (1 - ALPHA) * averageNanos;
+            average = averageNanos;
+            if (average > maxLatencyNanos) {
+                averageNanos = 0; // Start over once the cooldown has passed
+                slowUntilNanos = System.nanoTime() + cooldownNanos;
+            }
+        }
+        if (average > maxLatencyNanos) {
+            logger.warn("Enrichment averaging {} ms; accepting new requests without it for {} ms",
+                    TimeUnit.NANOSECONDS.toMillis((long) average), TimeUnit.NANOSECONDS.toMillis(cooldownNanos));
+        }
+    }
+
+    private boolean isSlow() {
+        return System.nanoTime() - slowUntilNanos < 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.innovation.service;
+
+/**
+ * Raised by {@link GeminiClient} when a call is rejected by a resilience policy
+ * or fails after retries. Callers are expected to fall back to a degraded
+ * result rather than propagate it to the client.
+ */
+public class GeminiCallException extends RuntimeException {
+
+    public enum Reason {
+        CIRCUIT_OPEN, RATE_LIMITED, BULKHEAD_FULL, TIMEOUT, FAILED
+    }
+
+    private final Reason reason;
+
+    public GeminiCallException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public GeminiCallException(Reason reason, String message) {
+        this(reason, message, null);
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,334 @@
+package com.innovation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resilient gateway to the Gemini REST API. Every generateContent call passes a
+ * circuit breaker, a token-bucket rate limiter and a bulkhead sized to the API
+ * quota, is bounded by a per-model timeout and retried on transient errors.
+ * Optionally a hedged duplicate is sent when the first attempt is slow.
+ * Rejections surface as {@link GeminiCallException} so callers can degrade.
+ */
+@Component
+public class GeminiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
+
+    private final WebClient webClient;
+    private final String apiKey;
+    private final Environment environment;
+    private final ServiceMetrics metrics;
+
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMillis;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final long rateLimitWaitMillis;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final boolean hedgingEnabled;
+
+    public GeminiClient(WebClient.Builder webClientBuilder, Environment environment, ServiceMetrics metrics,
+            @Value("${gemini.api.key}") String apiKey,
+            @Value("${gemini.client.max-concurrent-calls:8}") int maxConcurrentCalls,
+            @Value("${gemini.client.bulkhead-wait-ms:2000}") long bulkheadWaitMillis,
+            @Value("${gemini.client.rate-limit-per-second:5}") double permitsPerSecond,
+            @Value("${gemini.client.rate-limit-wait-ms:1000}") long rateLimitWaitMillis,
+            @Value("${gemini.client.max-retries:1}") int maxRetries,
+            @Value("${gemini.client.retry-backoff-ms:500}") long retryBackoffMillis,
+            @Value("${gemini.client.circuit.window-size:20}") int circuitWindowSize,
+            @Value("${gemini.client.circuit.minimum-calls:5}") int circuitMinimumCalls,
+            @Value("${gemini.client.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${gemini.client.circuit.open-duration-ms:30000}") long openDurationMillis,
+            @Value("${gemini.client.circuit.half-open-calls:2}") int halfOpenCalls,
+            @Value("${gemini.client.hedge.enabled:false}") boolean hedgingEnabled) {
+        // Point to the Google Gemini API endpoint
+        this.webClient = webClientBuilder
+                .baseUrl("https://generativelanguage.googleapis.com")
+                .build();
+        this.apiKey = apiKey;
+        this.environment = environment;
+        this.metrics = metrics;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.rateLimiter = new TokenBucketRateLimiter(permitsPerSecond, Math.max(1, permitsPerSecond));
+        this.rateLimitWaitMillis = rateLimitWaitMillis;
+        this.circuitBreaker = new CircuitBreaker(circuitWindowSize, circuitMinimumCalls, failureRateThreshold,
+                Duration.ofMillis(openDurationMillis), halfOpenCalls);
+        this.maxRetries = maxRetries;
+        this.retryBackoff = Duration.ofMillis(retryBackoffMillis);
+        this.hedgingEnabled = hedgingEnabled;
+
+        metrics.gauge("gemini.bulkhead.available", bulkhead::availablePermits);
+        metrics.gauge("gemini.bulkhead.in-flight", () -> maxConcurrentCalls - bulkhead.availablePermits());
+        metrics.gauge("gemini.circuit.state", () -> circuitBreaker.getState().ordinal());
+    }
+
+    /**
+     * Calls {@code models/{model}:generateContent} and blocks for the result.
+     *
+     * @throws GeminiCallException if the call is rejected by a policy or fails
+     */
+    public <T> T generateContent(String model, Object request, Class<T> responseType) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            metrics.increment("gemini.circuit.rejected");
+            throw new GeminiCallException(GeminiCallException.Reason.CIRCUIT_OPEN,
+                    "Circuit breaker is open for Gemini calls");
+        }
+        acquirePermits(model);
+
+        Duration timeout = timeoutFor(model);
+        long start = System.nanoTime();
+        try {
+            T response = execute(model, request, responseType, timeout)
+                    .block(timeout.multipliedBy(maxRetries + 1L).plusSeconds(5));
+            circuitBreaker.onSuccess();
+            metrics.increment("gemini.call.success");
+            return response;
+        } catch (RuntimeException e) {
+            Throwable cause = unwrap(e);
+            // Both the per-attempt timeout and the blocking read's deadline carry a TimeoutException
+            boolean timedOut = recordFailure(e, cause);
+            metrics.increment(timedOut ? "gemini.call.timeout" : "gemini.call.failure");
+            throw new GeminiCallException(
+                    timedOut ? GeminiCallException.Reason.TIMEOUT : GeminiCallException.Reason.FAILED,
+                    "Gemini call to " + model + " failed: " + cause.getMessage(), cause);
+        } finally {
+            bulkhead.release();
+            metrics.recordNanos("gemini.call.latency." + model, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Calls {@code models/{model}:streamGenerateContent} over server-sent events.
+     * Permits are taken when the returned flux is subscribed and released when it
+     * terminates; the model's timeout applies between chunks. Streams are not
+     * retried because chunks may already have been consumed.
+     */
+    public <T> Flux<T> streamGenerateContent(String model, Object request, Class<T> chunkType) {
+        return Flux.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                metrics.increment("gemini.circuit.rejected");
+                return Flux.error(new GeminiCallException(GeminiCallException.Reason.CIRCUIT_OPEN,
+                        "Circuit breaker is open for Gemini calls"));
+            }
+            try {
+                acquirePermits(model);
+            } catch (GeminiCallException e) {
+                return Flux.error(e);
+            }
+            long start = System.nanoTime();
+            return webClient.post()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/v1beta/models/{model}:streamGenerateContent")
+                            .queryParam("alt", "sse")
+                            .queryParam("key", apiKey)
+                            .build(model))
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(request)
+                    .retrieve()
+                    .bodyToFlux(chunkType)
+                    .timeout(timeoutFor(model))
+                    .doOnComplete(() -> {
+                        circuitBreaker.onSuccess();
+                        metrics.increment("gemini.stream.success");
+                    })
+                    .onErrorMap(e -> !(e instanceof GeminiCallException), e -> {
+                        boolean timedOut = recordFailure(e, e);
+                        metrics.increment(timedOut ? "gemini.stream.timeout" : "gemini.stream.failure");
+                        return new GeminiCallException(
+                                timedOut ? GeminiCallException.Reason.TIMEOUT : GeminiCallException.Reason.FAILED,
+                                "Gemini stream from " + model + " failed: " + e.getMessage(), e);
+                    })
+                    .doOnCancel(circuitBreaker::releasePermission)
+                    .doFinally(signal -> {
+                        bulkhead.release();
+                        metrics.recordNanos("gemini.stream.latency." + model, System.nanoTime() - start);
+                    });
+        });
+    }
+
+    /**
+     * Lists models available to the configured key. Diagnostic only, so it is not
+     * subject to the call policies.
+     */
+    public <T> Mono<T> listModels(Class<T> responseType) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1beta/models")
+                        .queryParam("key", apiKey)
+                        .build())
+                .retrieve()
+                .bodyToMono(responseType);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // Bulkhead first: a call it rejects must not have spent a rate-limit token.
+    private void acquirePermits(String model) {
+        boolean holdsBulkhead = false;
+        try {
+            if (!bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS)) {
+                circuitBreaker.releasePermission();
+                metrics.increment("gemini.bulkhead.rejected");
+                throw new GeminiCallException(GeminiCallException.Reason.BULKHEAD_FULL,
+                        "Too many concurrent Gemini calls for " + model);
+            }
+            holdsBulkhead = true;
+            if (!rateLimiter.tryAcquire(rateLimitWaitMillis)) {
+                bulkhead.release();
+                circuitBreaker.releasePermission();
+                metrics.increment("gemini.ratelimit.rejected");
+                throw new GeminiCallException(GeminiCallException.Reason.RATE_LIMITED,
+                        "Gemini rate limit exceeded for " + model);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (holdsBulkhead) {
+                bulkhead.release();
+            }
+            circuitBreaker.releasePermission();
+            throw new GeminiCallException(GeminiCallException.Reason.FAILED, "Interrupted waiting for Gemini permit",
+                    e);
+        }
+    }
+
+    private <T> Mono<T> execute(String model, Object request, Class<T> responseType, Duration timeout) {
+        Mono<T> attempt = Mono.defer(() -> post(model, request, responseType, timeout));
+        if (hedgingEnabled) {
+            attempt = withHedge(model, attempt, post(model, request, responseType, timeout));
+        }
+        return attempt.retryWhen(Retry.backoff(maxRetries, retryBackoff)
+                .filter(this::isTransient)
+                .doBeforeRetry(signal -> {
+                    metrics.increment("gemini.call.retry");
+                    logger.warn("Retrying Gemini call to {} after: {}", model, signal.failure().getMessage());
+                })
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private <T> Mono<T> post(String model, Object request, Class<T> responseType, Duration timeout) {
+        return webClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/v1beta/models/{model}:generateContent")
+                        .queryParam("key", apiKey)
+                        .build(model))
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(responseType)
+                .timeout(timeout);
+    }
+
+    /**
+     * Races the primary attempt against a duplicate fired after the model's hedge
+     * delay. The hedge passes the circuit breaker, bulkhead and rate limiter like
+     * any call, but never waits for them: it only fires while the circuit is closed
+     * and a slot and quota are free right away. Its outcome counts towards the
+     * circuit, and a failing hedge never cancels the primary.
+     */
+    private <T> Mono<T> withHedge(String model, Mono<T> primary, Mono<T> backup) {
+        Mono<T> hedge = Mono.delay(hedgeDelayFor(model))
+                .then(Mono.defer(() -> {
+                    // Half-open trial calls are for the primary alone
+                    if (circuitBreaker.getState() != CircuitBreaker.State.CLOSED
+                            || !circuitBreaker.tryAcquirePermission()) {
+                        metrics.increment("gemini.hedge.skipped");
+                        return Mono.<T>never();
+                    }
+                    if (!bulkhead.tryAcquire()) {
+                        circuitBreaker.releasePermission();
+                        metrics.increment("gemini.hedge.skipped");
+                        return Mono.<T>never();
+                    }
+                    if (!rateLimiter.tryAcquire()) {
+                        bulkhead.release();
+                        circuitBreaker.releasePermission();
+                        metrics.increment("gemini.hedge.skipped");
+                        return Mono.<T>never();
+                    }
+                    metrics.increment("gemini.hedge.fired");
+                    return backup
+                            // Lost the race before it finished: its outcome is unknown
+                            .doOnCancel(circuitBreaker::releasePermission)
+                            .doOnNext(value -> {
+                                circuitBreaker.onSuccess();
+                                metrics.increment("gemini.hedge.won");
+                            })
+                            .onErrorResume(e -> {
+                                recordFailure(e, e);
+                                metrics.increment("gemini.hedge.failure");
+                                return Mono.never();
+                            })
+                            .doFinally(signal -> bulkhead.release());
+                }));
+        return Mono.firstWithSignal(primary, hedge);
+    }
+
+    private Duration timeoutFor(String model) {
+        long defaultMillis = environment.getProperty("gemini.client.timeout-ms.default", Long.class, 20000L);
+        return Duration.ofMillis(
+                environment.getProperty("gemini.client.timeout-ms." + model, Long.class, defaultMillis));
+    }
+
+    private Duration hedgeDelayFor(String model) {
+        long defaultMillis = environment.getProperty("gemini.client.hedge.delay-ms.default", Long.class, 3000L);
+        return Duration.ofMillis(
+                environment.getProperty("gemini.client.hedge.delay-ms." + model, Long.class, defaultMillis));
+    }
+
+    /**
+     * Records a failed call with the circuit breaker and returns whether it timed out.
+     * Client errors say nothing about the health of the API, so they count as successes.
+     */
+    private boolean recordFailure(Throwable error, Throwable cause) {
+        boolean timedOut = hasCause(error, TimeoutException.class);
+        if (timedOut || isTransient(cause)) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        return timedOut;
+    }
+
+    private boolean isTransient(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return error instanceof TimeoutException || error instanceof WebClientRequestException;
+    }
+
+    private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Throwable unwrap(RuntimeException e) {
+        if (e instanceof WebClientResponseException || e instanceof WebClientRequestException) {
+            return e;
+        }
+        return e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,21 @@
+package com.innovation.service;
+
+/** Great-circle distance helpers shared by routing and location features. */
+public final class GeoDistance {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    private GeoDistance() {
+    }
+
+    // Haversine formula to calculate distance between two lat/lon points in km
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+}
@@ -0,0 +1,25 @@
+package com.innovation.service;
+
+/**
+ * Raised by {@link IdempotencyService} when a write cannot be run or replayed
+ * for its {@code Idempotency-Key}.
+ */
+public class IdempotencyException extends RuntimeException {
+
+    public enum Reason {
+        INVALID_KEY, // Blank or too long
+        MISMATCH, // The key was used for a different request
+        IN_PROGRESS // The original is still running after the wait
+    }
+
+    private final Reason reason;
+
+    public IdempotencyException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
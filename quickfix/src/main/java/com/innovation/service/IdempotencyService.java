@@ -0,0 +1,240 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.IdempotencyRecord;
+import com.innovation.repository.IdempotencyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a write at most once per user and {@code Idempotency-Key}. The first
+ * submission inserts an IN_PROGRESS {@link IdempotencyRecord}; the write and
+ * its serialized response are then committed together, so a key never maps to
+ * a write that was rolled back or to a committed write without a response.
+ * Duplicates, on any node, wait for the original and replay its response. A
+ * failed write frees the key, and a node that dies mid-write loses its lease
+ * after {@code lease-ms}. Records expire after {@code ttl-hours}, and at most
+ * {@code max-records} completed ones are kept.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long MAX_POLL_MILLIS = 250;
+
+    /** Either the value of a write that ran now, or the response of the one it duplicates. */
+    public record Outcome<T>(T value, String replayedBody) {
+        public boolean isReplay() {
+            return replayedBody != null;
+        }
+    }
+
+    private final IdempotencyRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ServiceMetrics metrics;
+    private final Duration ttl;
+    private final Duration lease;
+    private final long waitMillis;
+    private final int maxRecords;
+
+    // Writes running on this node, so local duplicates are woken instead of polling
+    private final Map<String, CompletableFuture<Void>> running = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRepository repository, TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper, ServiceMetrics metrics,
+            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${idempotency.lease-ms:120000}") long leaseMillis,
+            @Value("${idempotency.wait-ms:60000}") long waitMillis,
+            @Value("${idempotency.max-records:100000}") int maxRecords) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.waitMillis = waitMillis;
+        this.maxRecords = maxRecords;
+        metrics.gauge("idempotency.running", running::size);
+    }
+
+    /**
+     * Runs {@code write} in a transaction unless {@code username} already
+     * submitted {@code key}, in which case the original's response is replayed,
+     * waiting up to {@code wait-ms} for it to finish.
+     *
+     * @param fingerprint identifies the request, see {@link #fingerprint}
+     * @throws IdempotencyException if the key is invalid, was used for another
+     *                              request, or the original is still running
+     */
+    public <T> Outcome<T> execute(String username, String key, String fingerprint, Supplier<T> write) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyException(IdempotencyException.Reason.INVALID_KEY,
+                    "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = sha256Hex((username + '\n' + key).getBytes(StandardCharsets.UTF_8));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        boolean waited = false;
+        while (true) {
+            String owner = UUID.randomUUID().toString();
+            if (claim(id, username, fingerprint, owner)) {
+                return new Outcome<>(run(id, owner, write), null);
+            }
+            IdempotencyRepository.Snapshot snapshot = repository.findSnapshot(id).orElse(null);
+            if (snapshot == null) {
+                continue; // Released or expired in between; claim it again
+            }
+            if (!snapshot.getFingerprint().equals(fingerprint)) {
+                metrics.increment("idempotency.mismatch");
+                throw new IdempotencyException(IdempotencyException.Reason.MISMATCH,
+                        "Idempotency-Key was already used for a different request");
+            }
+            if (snapshot.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                metrics.increment(waited ? "idempotency.replayed-after-wait" : "idempotency.replayed");
+                return new Outcome<>(null, snapshot.getResponseBody());
+            }
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                metrics.increment("idempotency.wait-timeout");
+                throw new IdempotencyException(IdempotencyException.Reason.IN_PROGRESS,
+                        "The original request is still being processed");
+            }
+            await(id, remainingNanos);
+            waited = true;
+        }
+    }
+
+    /** SHA-256 over the JSON of {@code body} and the bytes of {@code file}, if any. */
+    public String fingerprint(Object body, MultipartFile file) {
+        MessageDigest digest = sha256();
+        try {
+            digest.update(objectMapper.writeValueAsBytes(body));
+            if (file != null && !file.isEmpty()) {
+                digest.update((byte) 0);
+                try (InputStream in = file.getInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, n);
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not fingerprint the request", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the upload to fingerprint it", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:600000}")
+    public void deleteExpired() {
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        long excess = repository.count() - maxRecords;
+        if (excess > 0) {
+            deleted += repository.deleteOldestCompleted((int) Math.min(excess, Integer.MAX_VALUE));
+        }
+        if (deleted > 0) {
+            logger.debug("Deleted {} idempotency records", deleted);
+        }
+    }
+
+    private boolean claim(String id, String username, String fingerprint, String owner) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            repository.insertInProgress(id, username, fingerprint, owner, now.plus(lease), now, now.plus(ttl));
+            metrics.increment("idempotency.claimed");
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (repository.takeOver(id, fingerprint, owner, now.plus(lease), now, now.plus(ttl)) == 1) {
+                metrics.increment("idempotency.taken-over");
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private <T> T run(String id, String owner, Supplier<T> write) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        running.put(id, done);
+        try {
+            return transactionTemplate.execute(status -> {
+                T value = write.get();
+                String body;
+                try {
+                    body = objectMapper.writeValueAsString(value);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Could not serialize the response to store it", e);
+                }
+                if (repository.complete(id, owner, body) != 1) {
+                    // Ran past the lease and another attempt took over; it will do the write
+                    throw new IllegalStateException("Lost the idempotency lease; the write was rolled back");
+                }
+                return value;
+            });
+        } catch (RuntimeException e) {
+            repository.release(id, owner);
+            throw e;
+        } finally {
+            running.remove(id, done);
+            done.complete(null);
+        }
+    }
+
+    // Waits for a local original to finish; a remote one is polled.
+    private void await(String id, long remainingNanos) {
+        CompletableFuture<Void> local = running.get(id);
+        try {
+            if (local != null) {
+                local.get(remainingNanos, TimeUnit.NANOSECONDS);
+            } else {
+                Thread.sleep(Math.min(MAX_POLL_MILLIS, TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyException(IdempotencyException.Reason.IN_PROGRESS,
+                    "Interrupted waiting for the original request");
+        } catch (ExecutionException | TimeoutException e) {
+            // Re-read the record either way
+        }
+    }
+
+    private static String sha256Hex(byte[] input) {
+        return HexFormat.of().formatHex(sha256().digest(input));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
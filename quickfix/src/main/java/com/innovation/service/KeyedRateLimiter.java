@@ -0,0 +1,92 @@
+package com.innovation.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One token bucket per key (e.g. a username), refilled like
+ * {@link TokenBucketRateLimiter}. Keys are spread over lock stripes so callers
+ * with different keys rarely contend. A bucket is created full on first use
+ * and dropped once it has been idle long enough to be full again, so memory
+ * is bounded by the number of recently active keys.
+ */
+public class KeyedRateLimiter {
+
+    private static final int STRIPES = 64; // Power of two
+
+    private static final class Bucket {
+        double tokens;
+        long lastRefillNanos;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefillNanos = now;
+        }
+    }
+
+    private static final class Stripe {
+        final Map<Object, Bucket> buckets = new HashMap<>();
+        long lastSweepNanos;
+    }
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final long refillNanos; // Time for an empty bucket to fill up
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public KeyedRateLimiter(double permitsPerSecond, double capacity) {
+        if (permitsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.refillNanos = (long) Math.ceil(capacity / refillPerNano);
+        long now = System.nanoTime();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+            stripes[i].lastSweepNanos = now;
+        }
+    }
+
+    /**
+     * Takes a token from the key's bucket. Returns 0 if one was taken, otherwise
+     * the nanoseconds until the next token will be available.
+     */
+    public long tryAcquire(Object key) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            long now = System.nanoTime();
+            if (now - stripe.lastSweepNanos > refillNanos) {
+                // Idle buckets are full, i.e. indistinguishable from new ones
+                stripe.buckets.values().removeIf(bucket -> now - bucket.lastRefillNanos > refillNanos);
+                stripe.lastSweepNanos = now;
+            }
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.buckets.put(key, bucket);
+            } else if (now > bucket.lastRefillNanos) {
+                bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.lastRefillNanos) * refillPerNano);
+                bucket.lastRefillNanos = now;
+            }
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / refillPerNano);
+        }
+    }
+
+    /** Number of keys currently holding a bucket. */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,326 @@
+package com.innovation.service;
+
+import com.innovation.model.User;
+import com.innovation.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spatial grid of user locations for map clustering. For each layer (a role,
+ * or a role and request type such as {@code VENDOR:TOWING}) it keeps, at every
+ * Web Mercator tile level from {@link #MIN_LEVEL} to {@link #MAX_LEVEL}, the
+ * count and coordinate sums of the users in each non-empty tile; only the
+ * finest level lists the users themselves. A location update touches one tile
+ * per level, and a query reads only the tiles covering the viewport, so the
+ * response size depends on the screen and not on how many users there are.
+ * Built once the application is ready and kept current after commits.
+ */
+@Service
+public class LocationGridIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationGridIndex.class);
+
+    static final int MIN_LEVEL = 2;
+    static final int MAX_LEVEL = 20;
+    // Cluster tiles are 2^2 = 4 times finer than map tiles, i.e. about 64 pixels wide.
+    private static final int CLUSTER_LEVEL_OFFSET = 2;
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    public record Cluster(double latitude, double longitude, int count) {
+    }
+
+    public record Point(long id, String name, double latitude, double longitude) {
+    }
+
+    public record Tile(int zoom, List<Cluster> clusters, List<Point> points) {
+    }
+
+    private record Located(long id, String name, double latitude, double longitude, Set<String> layers) {
+    }
+
+    private static final class Cell {
+        int count;
+        double latitudeSum;
+        double longitudeSum;
+        Set<Long> members; // Finest level only
+    }
+
+    private final UserRepository userRepository;
+    private final int clusterMinSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final Map<Long, Located> users = new HashMap<>();
+    private final Map<String, List<Map<Long, Cell>>> layers = new HashMap<>();
+    // Writes committed while the grid is being built, applied after it in order
+    private final List<Runnable> pending = new ArrayList<>();
+    private volatile boolean loaded;
+
+    public LocationGridIndex(UserRepository userRepository, ServiceMetrics metrics,
+            @Value("${locations.cluster-min-size:3}") int clusterMinSize) {
+        this.userRepository = userRepository;
+        this.clusterMinSize = clusterMinSize;
+        metrics.gauge("locations.indexed", this::size);
+    }
+
+    /** Loads every user, then applies the writes committed meanwhile. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<User> all = userRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            users.clear();
+            layers.clear();
+            all.forEach(this::put);
+            pending.forEach(Runnable::run);
+            pending.clear();
+            loaded = true;
+            logger.info("Location grid built for {} users in {} layers", users.size(), layers.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Call after a user's location, roles or request types were saved. */
+    public void onUserSaved(User user) {
+        if (user == null) {
+            return;
+        }
+        Located located = locate(user);
+        long id = user.getId();
+        TransactionCallbacks.afterCommit(() -> apply(() -> {
+            remove(id);
+            if (located != null) {
+                add(located);
+            }
+        }));
+    }
+
+    public void onUserDeleted(long userId) {
+        TransactionCallbacks.afterCommit(() -> apply(() -> remove(userId)));
+    }
+
+    /**
+     * Clusters of the layer's users in the bounding box at the map zoom level.
+     * Tiles holding fewer than {@code locations.cluster-min-size} users are
+     * returned as individual points. A box crossing the antimeridian has
+     * {@code west > east}.
+     */
+    public Tile query(String layer, double south, double west, double north, double east, int zoom) {
+        if (south > north) {
+            throw new IllegalArgumentException("south must not be greater than north");
+        }
+        int level = Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, zoom + CLUSTER_LEVEL_OFFSET));
+        List<Cluster> clusters = new ArrayList<>();
+        List<Point> points = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Cell>> levels = layers.get(layer);
+            if (levels != null) {
+                int top = tileY(north, level);
+                int bottom = tileY(south, level);
+                if (west <= east) {
+                    collect(levels, level, tileX(west, level), tileX(east, level), top, bottom, clusters, points);
+                } else {
+                    collect(levels, level, tileX(west, level), (1 << level) - 1, top, bottom, clusters, points);
+                    collect(levels, level, 0, tileX(east, level), top, bottom, clusters, points);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new Tile(zoom, clusters, points);
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return users.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Runnable write) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                write.run();
+            } else {
+                pending.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void collect(List<Map<Long, Cell>> levels, int level, int minX, int maxX, int minY, int maxY,
+            List<Cluster> clusters, List<Point> points) {
+        Map<Long, Cell> cells = levels.get(level - MIN_LEVEL);
+        long area = (long) (maxX - minX + 1) * (maxY - minY + 1);
+        // Probe the viewport's tiles, or scan the occupied ones if there are fewer of those.
+        if (area <= cells.size()) {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    Cell cell = cells.get(key(x, y));
+                    if (cell != null) {
+                        emit(levels, level, x, y, cell, clusters, points);
+                    }
+                }
+            }
+        } else {
+            for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                int x = (int) (entry.getKey() >>> 32);
+                int y = (int) (long) entry.getKey();
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    emit(levels, level, x, y, entry.getValue(), clusters, points);
+                }
+            }
+        }
+    }
+
+    private void emit(List<Map<Long, Cell>> levels, int level, int x, int y, Cell cell, List<Cluster> clusters,
+            List<Point> points) {
+        if (cell.count >= clusterMinSize) {
+            clusters.add(new Cluster(cell.latitudeSum / cell.count, cell.longitudeSum / cell.count, cell.count));
+        } else {
+            collectMembers(levels, level, x, y, points);
+        }
+    }
+
+    // Walks down the occupied child tiles to the finest level, where the users are listed.
+    private void collectMembers(List<Map<Long, Cell>> levels, int level, int x, int y, List<Point> points) {
+        Cell cell = levels.get(level - MIN_LEVEL).get(key(x, y));
+        if (cell == null) {
+            return;
+        }
+        if (level == MAX_LEVEL) {
+            for (Long id : cell.members) {
+                Located user = users.get(id);
+                points.add(new Point(user.id(), user.name(), user.latitude(), user.longitude()));
+            }
+            return;
+        }
+        for (int dx = 0; dx < 2; dx++) {
+            for (int dy = 0; dy < 2; dy++) {
+                collectMembers(levels, level + 1, 2 * x + dx, 2 * y + dy, points);
+            }
+        }
+    }
+
+    private void put(User user) {
+        Located located = locate(user);
+        if (located != null) {
+            add(located);
+        }
+    }
+
+    private void add(Located user) {
+        users.put(user.id(), user);
+        for (String layer : user.layers()) {
+            List<Map<Long, Cell>> levels = layers.computeIfAbsent(layer, k -> {
+                List<Map<Long, Cell>> created = new ArrayList<>();
+                for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+                    created.add(new HashMap<>());
+                }
+                return created;
+            });
+            for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+                Cell cell = levels.get(level - MIN_LEVEL).computeIfAbsent(
+                        key(tileX(user.longitude(), level), tileY(user.latitude(), level)), k -> new Cell());
+                cell.count++;
+                cell.latitudeSum += user.latitude();
+                cell.longitudeSum += user.longitude();
+                if (level == MAX_LEVEL) {
+                    if (cell.members == null) {
+                        cell.members = new HashSet<>();
+                    }
+                    cell.members.add(user.id());
+                }
+            }
+        }
+    }
+
+    private void remove(long userId) {
+        Located user = users.remove(userId);
+        if (user == null) {
+            return;
+        }
+        for (String layer : user.layers()) {
+            List<Map<Long, Cell>> levels = layers.get(layer);
+            for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+                Map<Long, Cell> cells = levels.get(level - MIN_LEVEL);
+                long key = key(tileX(user.longitude(), level), tileY(user.latitude(), level));
+                Cell cell = cells.get(key);
+                if (--cell.count == 0) {
+                    cells.remove(key);
+                    continue;
+                }
+                cell.latitudeSum -= user.latitude();
+                cell.longitudeSum -= user.longitude();
+                if (cell.members != null) {
+                    cell.members.remove(userId);
+                }
+            }
+        }
+    }
+
+    // Snapshot of what the index needs, taken before the entity can change again; null if unplaced.
+    private static Located locate(User user) {
+        if (user.getLatitude() == null || user.getLongitude() == null) {
+            return null;
+        }
+        Set<String> userLayers = new HashSet<>();
+        for (String role : user.getRoles()) {
+            userLayers.add(role);
+            user.getRequestTypes().forEach(type -> userLayers.add(layer(role, type)));
+        }
+        return new Located(user.getId(), user.getName(), user.getLatitude(), user.getLongitude(),
+                Set.copyOf(userLayers));
+    }
+
+    /** Layer name for users of a role, optionally narrowed to a request type. */
+    public static String layer(String role, String requestType) {
+        return requestType == null ? role : role + ":" + requestType;
+    }
+
+    static int tileX(double longitude, int level) {
+        int n = 1 << level;
+        int x = (int) Math.floor((longitude + 180) / 360 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    static int tileY(double latitude, int level) {
+        int n = 1 << level;
+        double radians = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        double y = (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor(y * n)));
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
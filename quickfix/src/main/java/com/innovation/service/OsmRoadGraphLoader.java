@@ -0,0 +1,248 @@
+package com.innovation.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a {@link RoadGraph} from an OpenStreetMap XML extract ({@code .osm}).
+ * Only drivable {@code highway=*} ways are kept. Edge weights are travel times
+ * from the way's {@code maxspeed} tag, or a default speed per road class
+ * (assumed city speeds, not free-flow limits). {@code oneway} and roundabouts
+ * produce a single direction.
+ */
+public final class OsmRoadGraphLoader {
+
+    // km/h; roads not listed here (footways, cycleways, ...) are skipped
+    private static final Map<String, Double> DEFAULT_SPEEDS = Map.ofEntries(
+            Map.entry("motorway", 60.0), Map.entry("motorway_link", 40.0),
+            Map.entry("trunk", 45.0), Map.entry("trunk_link", 30.0),
+            Map.entry("primary", 35.0), Map.entry("primary_link", 25.0),
+            Map.entry("secondary", 30.0), Map.entry("secondary_link", 20.0),
+            Map.entry("tertiary", 25.0), Map.entry("tertiary_link", 20.0),
+            Map.entry("unclassified", 20.0), Map.entry("residential", 18.0),
+            Map.entry("living_street", 10.0), Map.entry("service", 12.0));
+
+    private OsmRoadGraphLoader() {
+    }
+
+    public static RoadGraph load(InputStream osmXml) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(osmXml);
+
+        // All nodes of the extract, by OSM id; only those on roads survive into the graph.
+        Map<Long, Integer> nodeIndex = new HashMap<>();
+        DoubleList nodeLat = new DoubleList();
+        DoubleList nodeLon = new DoubleList();
+
+        IntList tails = new IntList();
+        IntList heads = new IntList();
+        IntList weights = new IntList();
+
+        LongList wayNodes = new LongList();
+        String highway = null;
+        String oneway = null;
+        String junction = null;
+        String maxspeed = null;
+        boolean inWay = false;
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "node" -> {
+                            nodeIndex.put(Long.parseLong(reader.getAttributeValue(null, "id")), nodeLat.size());
+                            nodeLat.add(Double.parseDouble(reader.getAttributeValue(null, "lat")));
+                            nodeLon.add(Double.parseDouble(reader.getAttributeValue(null, "lon")));
+                        }
+                        case "way" -> {
+                            inWay = true;
+                            wayNodes.clear();
+                            highway = oneway = junction = maxspeed = null;
+                        }
+                        case "nd" -> {
+                            if (inWay) {
+                                wayNodes.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+                            }
+                        }
+                        case "tag" -> {
+                            if (inWay) {
+                                String value = reader.getAttributeValue(null, "v");
+                                switch (reader.getAttributeValue(null, "k")) {
+                                    case "highway" -> highway = value;
+                                    case "oneway" -> oneway = value;
+                                    case "junction" -> junction = value;
+                                    case "maxspeed" -> maxspeed = value;
+                                    default -> {
+                                    }
+                                }
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(reader.getLocalName())) {
+                    inWay = false;
+                    Double speed = highway == null ? null : DEFAULT_SPEEDS.get(highway);
+                    if (speed == null) {
+                        continue;
+                    }
+                    double kmh = parseMaxspeed(maxspeed, speed);
+                    boolean forward = !"-1".equals(oneway);
+                    boolean backward = "-1".equals(oneway)
+                            || !("yes".equals(oneway) || "1".equals(oneway) || "true".equals(oneway)
+                                    || "roundabout".equals(junction)
+                                    || (oneway == null && highway.startsWith("motorway")));
+                    for (int i = 0; i + 1 < wayNodes.size(); i++) {
+                        Integer a = nodeIndex.get(wayNodes.get(i));
+                        Integer b = nodeIndex.get(wayNodes.get(i + 1));
+                        if (a == null || b == null) {
+                            continue; // Way leaves the extract
+                        }
+                        double km = GeoDistance.haversineKm(nodeLat.get(a), nodeLon.get(a),
+                                nodeLat.get(b), nodeLon.get(b));
+                        int tenths = Math.max(1, (int) Math.round(km / kmh * 36000));
+                        if (forward) {
+                            tails.add(a);
+                            heads.add(b);
+                            weights.add(tenths);
+                        }
+                        if (backward) {
+                            tails.add(b);
+                            heads.add(a);
+                            weights.add(tenths);
+                        }
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        // Renumber so that only nodes touched by a road edge are kept.
+        int[] remap = new int[nodeLat.size()];
+        Arrays.fill(remap, -1);
+        int nodeCount = 0;
+        for (int e = 0; e < tails.size(); e++) {
+            if (remap[tails.get(e)] < 0) {
+                remap[tails.get(e)] = nodeCount++;
+            }
+            if (remap[heads.get(e)] < 0) {
+                remap[heads.get(e)] = nodeCount++;
+            }
+        }
+        double[] lat = new double[nodeCount];
+        double[] lon = new double[nodeCount];
+        for (int node = 0; node < remap.length; node++) {
+            if (remap[node] >= 0) {
+                lat[remap[node]] = nodeLat.get(node);
+                lon[remap[node]] = nodeLon.get(node);
+            }
+        }
+        int[] t = new int[tails.size()];
+        int[] h = new int[tails.size()];
+        for (int e = 0; e < t.length; e++) {
+            t[e] = remap[tails.get(e)];
+            h[e] = remap[heads.get(e)];
+        }
+        return RoadGraph.fromEdges(lat, lon, t, h, weights.toArray(), t.length);
+    }
+
+    /** Parses "40", "40 km/h" or "25 mph"; anything else falls back to the road-class default. */
+    static double parseMaxspeed(String maxspeed, double fallback) {
+        if (maxspeed == null) {
+            return fallback;
+        }
+        String value = maxspeed.trim().toLowerCase();
+        double factor = 1.0;
+        if (value.endsWith("mph")) {
+            factor = 1.609;
+            value = value.substring(0, value.length() - 3).trim();
+        } else if (value.endsWith("km/h")) {
+            value = value.substring(0, value.length() - 4).trim();
+        }
+        try {
+            double kmh = Double.parseDouble(value) * factor;
+            // Posted limits overstate urban speeds; never exceed the class default by more than half.
+            return kmh > 0 ? Math.min(kmh, fallback * 1.5) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    private static final class DoubleList {
+        private double[] values = new double[1024];
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.innovation.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks reads that must see the latest committed data, such as a response
+ * tagged with the current ETag. The routing data source sends read-only
+ * transactions started inside {@link #run} to the primary instead of a
+ * replica, without treating them as writes.
+ */
+public final class PrimaryReads {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    /** Runs {@code read} with its transactions routed to the primary. */
+    public static <T> T run(Supplier<T> read) {
+        if (ACTIVE.get() != null) {
+            return read.get();
+        }
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    public static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+}
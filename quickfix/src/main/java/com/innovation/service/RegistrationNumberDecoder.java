@@ -0,0 +1,165 @@
+package com.innovation.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates a vehicle's registration date from its Indian registration number
+ * without any network call.
+ * <ul>
+ * <li>BH-series numbers (e.g. {@code 22BH1234AA}) encode the registration year
+ * directly.</li>
+ * <li>State-series numbers (e.g. {@code KA01AB1234}) are resolved from a table of
+ * per-RTO series ranges and the months in which they were issued, interpolating
+ * linearly inside a range.</li>
+ * </ul>
+ * Numbers the table does not cover are left unresolved. The table is not yet
+ * verified, so the decoder is only compared against Gemini in shadow mode.
+ */
+@Component
+public class RegistrationNumberDecoder {
+
+    private static final String SERIES_TABLE = "rto-series.csv";
+
+    private static final Pattern BH_SERIES = Pattern.compile("^(\\d{2})BH(\\d{4})([A-Z]{1,2})$");
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s-]");
+    private static final Pattern STATE_SERIES = Pattern.compile("^([A-Z]{2})(\\d{1,2})([A-Z]{1,3})(\\d{1,4})$");
+
+    private final Map<String, List<SeriesRange>> rangesByRto;
+    private final Clock clock;
+
+    public RegistrationNumberDecoder() {
+        this(RegistrationNumberDecoder.class.getClassLoader().getResourceAsStream(SERIES_TABLE),
+                Clock.systemDefaultZone());
+    }
+
+    RegistrationNumberDecoder(InputStream seriesTable, Clock clock) {
+        this.rangesByRto = load(seriesTable);
+        this.clock = clock;
+    }
+
+    /** Returns the estimated registration month, or empty if the number can't be resolved. */
+    public Optional<YearMonth> estimateRegistration(String vehicleNumber) {
+        if (vehicleNumber == null) {
+            return Optional.empty();
+        }
+        String plate = normalize(vehicleNumber);
+
+        Matcher bh = BH_SERIES.matcher(plate);
+        if (bh.matches()) {
+            // BH numbers only carry the year; assume mid-year.
+            return Optional.of(YearMonth.of(2000 + Integer.parseInt(bh.group(1)), 6));
+        }
+
+        Matcher state = STATE_SERIES.matcher(plate);
+        if (!state.matches()) {
+            return Optional.empty();
+        }
+        String district = state.group(2);
+        String rto = state.group(1) + (district.length() == 1 ? "0" + district : district);
+        List<SeriesRange> ranges = rangesByRto.get(rto);
+        if (ranges == null) {
+            return Optional.empty();
+        }
+        String series = state.group(3);
+        int ordinal = seriesOrdinal(series);
+        for (SeriesRange range : ranges) {
+            if (range.contains(series.length(), ordinal)) {
+                return Optional.of(range.interpolate(ordinal));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the age in the same wording the Gemini prompt asks for, or empty if
+     * the number can't be resolved locally.
+     */
+    public Optional<String> estimateAge(String vehicleNumber) {
+        return estimateRegistration(vehicleNumber).map(this::describeAge);
+    }
+
+    String describeAge(YearMonth registered) {
+        YearMonth now = YearMonth.now(clock);
+        long months = Math.max(0, registered.until(now, ChronoUnit.MONTHS));
+        long years = months / 12;
+        return years < 1 ? "less than a year old" : years + " year(s) old";
+    }
+
+    static String normalize(String vehicleNumber) {
+        return SEPARATORS.matcher(vehicleNumber).replaceAll("").toUpperCase();
+    }
+
+    /** Orders series within one length: A < B < ... < Z, AA < AB < ... < ZZ. */
+    static int seriesOrdinal(String series) {
+        int ordinal = 0;
+        for (char c : series.toCharArray()) {
+            ordinal = ordinal * 26 + (c - 'A');
+        }
+        return ordinal;
+    }
+
+    private static Map<String, List<SeriesRange>> load(InputStream in) {
+        if (in == null) {
+            throw new IllegalStateException("Missing RTO series table " + SERIES_TABLE);
+        }
+        Map<String, List<SeriesRange>> ranges = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                // RTO,FIRST_SERIES,LAST_SERIES,FIRST_ISSUED,LAST_ISSUED
+                String[] cols = line.split(",");
+                String first = cols[1].trim();
+                String last = cols[2].trim();
+                if (first.length() != last.length()) {
+                    throw new IllegalStateException("Series range must not span lengths: " + line);
+                }
+                ranges.computeIfAbsent(cols[0].trim(), k -> new ArrayList<>())
+                        .add(new SeriesRange(first.length(), seriesOrdinal(first), seriesOrdinal(last),
+                                YearMonth.parse(cols[3].trim()), YearMonth.parse(cols[4].trim())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ranges.values().forEach(list -> list.sort(Comparator.comparingInt(SeriesRange::firstOrdinal)));
+        return ranges;
+    }
+
+    private record SeriesRange(int length, int firstOrdinal, int lastOrdinal, YearMonth firstIssued,
+            YearMonth lastIssued) {
+
+        boolean contains(int seriesLength, int ordinal) {
+            return seriesLength == length && ordinal >= firstOrdinal && ordinal <= lastOrdinal;
+        }
+
+        YearMonth interpolate(int ordinal) {
+            if (lastOrdinal == firstOrdinal) {
+                return firstIssued;
+            }
+            long span = firstIssued.until(lastIssued, ChronoUnit.MONTHS);
+            long offset = Math.round((double) (ordinal - firstOrdinal) * span / (lastOrdinal - firstOrdinal));
+            return firstIssued.plusMonths(offset);
+        }
+    }
+}
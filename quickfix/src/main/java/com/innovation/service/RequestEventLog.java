@@ -0,0 +1,146 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.RequestEvent;
+import com.innovation.model.RequestEventType;
+import com.innovation.model.RequestStatus;
+import com.innovation.model.ServiceRequest;
+import com.innovation.model.User;
+import com.innovation.repository.RequestEventRepository;
+import com.innovation.repository.ServiceRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends request lifecycle events in the caller's transaction and pokes the
+ * {@link RequestProjector}, which tails the log, once it commits. At startup,
+ * requests that have no events yet (created before the log existed, or seeded
+ * directly) get an {@code IMPORTED} snapshot, then the projections are rebuilt.
+ */
+@Service
+public class RequestEventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestEventLog.class);
+
+    private final RequestEventRepository eventRepository;
+    private final ServiceRequestRepository requestRepository;
+    private final RequestProjector projector;
+    private final ObjectMapper objectMapper;
+    private final ServiceMetrics metrics;
+
+    public RequestEventLog(RequestEventRepository eventRepository, ServiceRequestRepository requestRepository,
+            RequestProjector projector, ObjectMapper objectMapper, ServiceMetrics metrics) {
+        this.eventRepository = eventRepository;
+        this.requestRepository = requestRepository;
+        this.projector = projector;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAndReplay() {
+        try {
+            List<ServiceRequest> missing = requestRepository.findWithoutEvents();
+            if (!missing.isEmpty()) {
+                eventRepository.saveAll(missing.stream().map(this::snapshot).toList());
+                logger.info("Imported {} requests into the request event log", missing.size());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not import existing requests into the event log", e);
+        }
+        projector.rebuild();
+    }
+
+    public List<RequestEvent> history(Long requestId) {
+        return eventRepository.findByRequestIdOrderByIdAsc(requestId);
+    }
+
+    public void created(ServiceRequest request) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("problemDescription", request.getProblemDescription());
+        payload.put("vehicleNumber", request.getVehicleNumber());
+        append(request, RequestEventType.CREATED, request.getRequestingUser().getId(), payload);
+    }
+
+    /** Records the result of the vehicle analysis. */
+    public void enriched(ServiceRequest request) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("vehicleNumber", request.getVehicleNumber());
+        payload.put("vehicleType", request.getVehicleType());
+        payload.put("makeModel", request.getMakeModel());
+        payload.put("damageSeverity", request.getDamageSeverity());
+        payload.put("estimatedCostRange", request.getEstimatedCostRange());
+        append(request, RequestEventType.ENRICHED, null, payload);
+    }
+
+    /**
+     * Records a routing decision: the vendors the request was newly offered to
+     * and, when rerouting away from a vendor, the one it was withdrawn from.
+     */
+    public void routed(ServiceRequest request, Collection<Long> offeredTo, Long withdrawnVendorId, boolean reroute) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("intendedVendorId", request.getIntendedVendor() == null ? null
+                : request.getIntendedVendor().getId());
+        payload.put("offeredVendorIds", offeredTo);
+        payload.put("withdrawnVendorId", withdrawnVendorId);
+        payload.put("wave", request.getDispatchWave());
+        append(request, reroute ? RequestEventType.REROUTED : RequestEventType.ROUTED, null, payload);
+    }
+
+    /** Records a vendor claiming the request, with a worker ({@code ASSIGNED}) or without ({@code ACCEPTED}). */
+    public void claimed(ServiceRequest request, User vendor, User worker) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("vendorId", vendor.getId());
+        payload.put("workerId", worker == null ? null : worker.getId());
+        append(request, worker == null ? RequestEventType.ACCEPTED : RequestEventType.ASSIGNED, vendor.getId(),
+                payload);
+    }
+
+    public void completed(ServiceRequest request, User completedBy) {
+        append(request, RequestEventType.COMPLETED, completedBy.getId(), Map.of());
+    }
+
+    private void append(ServiceRequest request, RequestEventType type, Long actorId, Map<String, Object> payload) {
+        eventRepository.save(new RequestEvent(request.getId(), type, actorId, json(payload)));
+        metrics.increment("events.appended");
+        TransactionCallbacks.afterCommit(projector::poke);
+    }
+
+    private RequestEvent snapshot(ServiceRequest request) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("status", (request.getStatus() == null ? RequestStatus.OPEN : request.getStatus()).name());
+        payload.put("problemDescription", request.getProblemDescription());
+        payload.put("vehicleNumber", request.getVehicleNumber());
+        payload.put("vehicleType", request.getVehicleType());
+        payload.put("makeModel", request.getMakeModel());
+        payload.put("damageSeverity", request.getDamageSeverity());
+        payload.put("estimatedCostRange", request.getEstimatedCostRange());
+        payload.put("intendedVendorId", request.getIntendedVendor() == null ? null
+                : request.getIntendedVendor().getId());
+        payload.put("offeredVendorIds", request.getOfferedVendorIds());
+        payload.put("assignedVendorId", request.getAssignedVendor() == null ? null
+                : request.getAssignedVendor().getId());
+        payload.put("assignedWorkerId", request.getAssignedWorker() == null ? null
+                : request.getAssignedWorker().getId());
+        payload.put("createdAt", request.getCreatedAt() == null ? null : request.getCreatedAt().toString());
+        return new RequestEvent(request.getId(), RequestEventType.IMPORTED, request.getRequestingUser().getId(),
+                json(payload));
+    }
+
+    private String json(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize request event", e);
+        }
+    }
+}
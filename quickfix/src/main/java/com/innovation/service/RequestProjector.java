@@ -0,0 +1,488 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.RequestEvent;
+import com.innovation.model.RequestStatus;
+import com.innovation.repository.RequestEventRepository;
+import com.innovation.repository.ServiceRequestRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Builds the dashboard read models from the request event log. A single
+ * background thread tails {@code request_events} by ID, so events written by
+ * any node are applied in log order, and writers only pay for an append.
+ * Readers get single-key map lookups: requests by requester, by vendor, and
+ * per-status counts and the most recently changed requests for admins.
+ * <p>
+ * Views cover requests that are not completed, plus completed ones changed
+ * within {@code events.view-retention-days}; older completed requests are
+ * evicted but stay in the status counts. At startup only the events of those
+ * requests are replayed, not the whole log. An ID skipped while tailing may
+ * belong to a transaction that has not committed yet, so it is re-checked
+ * until {@code events.gap-timeout-ms} has passed. Other in-memory indexes can
+ * {@link #subscribe} to learn which requests changed on any node.
+ */
+@Service
+public class RequestProjector {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestProjector.class);
+
+    // Larger jumps in the ID sequence (e.g. after a restart of the database) are not tracked as gaps
+    private static final int MAX_TRACKED_GAP = 1000;
+
+    public record AdminDashboard(Map<RequestStatus, Long> countsByStatus, List<RequestView> recent) {
+    }
+
+    private final RequestEventRepository eventRepository;
+    private final ServiceRequestRepository requestRepository;
+    private final ObjectMapper objectMapper;
+    private final ServiceMetrics metrics;
+    private final int replayBatchSize;
+    private final Duration retention;
+    private final long gapTimeoutNanos;
+    private final ThreadPoolExecutor executor;
+
+    // Written only by the projector thread
+    private final Map<Long, RequestView> requests = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> byRequester = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> byVendor = new ConcurrentHashMap<>();
+    private final Map<RequestStatus, AtomicLong> statusCounts = new EnumMap<>(RequestStatus.class);
+    // Last event ID to request ID, so the dashboard reads the newest changes without sorting
+    private final ConcurrentSkipListMap<Long, Long> byLastEvent = new ConcurrentSkipListMap<>();
+    // The same for completed requests only, oldest first for eviction
+    private final ConcurrentSkipListMap<Long, Long> completedByLastEvent = new ConcurrentSkipListMap<>();
+    private volatile long lastSeenId;
+    private final Map<Long, Long> gaps = new HashMap<>(); // Event ID to the nanoTime it is given up at
+
+    private final List<Consumer<Set<Long>>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean tailQueued = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile boolean replayFailed;
+
+    public RequestProjector(RequestEventRepository eventRepository, ServiceRequestRepository requestRepository,
+            ObjectMapper objectMapper, ServiceMetrics metrics,
+            @Value("${events.replay-batch-size:1000}") int replayBatchSize,
+            @Value("${events.view-retention-days:30}") long retentionDays,
+            @Value("${events.gap-timeout-ms:60000}") long gapTimeoutMillis) {
+        this.eventRepository = eventRepository;
+        this.requestRepository = requestRepository;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.replayBatchSize = replayBatchSize;
+        this.retention = Duration.ofDays(retentionDays);
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMillis);
+        for (RequestStatus status : RequestStatus.values()) {
+            statusCounts.put(status, new AtomicLong());
+        }
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "request-projector");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        metrics.gauge("projection.requests", requests::size);
+        metrics.gauge("projection.backlog", () -> executor.getQueue().size());
+        metrics.gauge("projection.gaps", gaps::size);
+    }
+
+    /** Whether the initial replay has finished; until then views may be incomplete. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Calls {@code listener} on the projector thread with the IDs of the
+     * requests whose events were just read, after each read of the log. This
+     * includes the events the startup replay reads by tailing, i.e. those in
+     * the retention window.
+     */
+    public void subscribe(Consumer<Set<Long>> listener) {
+        listeners.add(listener);
+    }
+
+    /** ID of the newest event read so far; listeners see it include the events they are called for. */
+    public long lastEventId() {
+        return lastSeenId;
+    }
+
+    /** Reads newly committed events soon, instead of at the next poll. */
+    public void poke() {
+        if (ready && tailQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                tailQueued.set(false);
+                tailSafely();
+            });
+        }
+    }
+
+    // Picks up events from other nodes, and from this one if a poke was missed
+    @Scheduled(fixedDelayString = "${events.tail-interval-ms:1000}")
+    public void poll() {
+        if (replayFailed) {
+            replayFailed = false;
+            rebuild();
+        } else {
+            poke();
+        }
+    }
+
+    /** Discards all views and rebuilds them from the log, in the background. */
+    public void rebuild() {
+        executor.execute(this::replay);
+    }
+
+    public List<RequestView> findByRequester(long userId) {
+        return lookup(byRequester.get(userId));
+    }
+
+    /** Requests currently offered to the vendor or assigned to it. */
+    public List<RequestView> findByVendor(long vendorId) {
+        return lookup(byVendor.get(vendorId));
+    }
+
+    public AdminDashboard adminDashboard(int recentLimit) {
+        Map<RequestStatus, Long> counts = new EnumMap<>(RequestStatus.class);
+        statusCounts.forEach((status, count) -> counts.put(status, count.get()));
+        List<RequestView> recent = new ArrayList<>();
+        Iterator<Long> newestFirst = byLastEvent.descendingMap().values().iterator();
+        while (recent.size() < recentLimit && newestFirst.hasNext()) {
+            RequestView view = requests.get(newestFirst.next());
+            if (view != null) {
+                recent.add(view);
+            }
+        }
+        return new AdminDashboard(counts, recent);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<RequestView> lookup(Set<Long> ids) {
+        if (ids == null) {
+            return List.of();
+        }
+        return ids.stream()
+                .map(requests::get)
+                .filter(view -> view != null)
+                .sorted(Comparator.comparing(RequestView::getCreatedAt,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .toList();
+    }
+
+    /**
+     * Loads the requests the views keep: first the events before the retention
+     * window of requests that are still open or changed inside it, then the
+     * window itself by tailing. Completed requests outside the window are only
+     * counted.
+     */
+    private void replay() {
+        long start = System.nanoTime();
+        ready = false;
+        requests.clear();
+        byRequester.clear();
+        byVendor.clear();
+        byLastEvent.clear();
+        completedByLastEvent.clear();
+        gaps.clear();
+        statusCounts.values().forEach(count -> count.set(0));
+        long replayed = 0;
+        try {
+            LocalDateTime windowStart = LocalDateTime.now().minus(retention);
+            Long maxId = eventRepository.findMaxId();
+            long fromId = eventRepository.findFirstByOccurredAtGreaterThanEqualOrderByIdAsc(windowStart)
+                    .map(RequestEvent::getId)
+                    .orElse(maxId == null ? 1 : maxId + 1);
+
+            Set<Long> kept = new HashSet<>(requestRepository.findIdsByStatusNot(RequestStatus.COMPLETED));
+            kept.addAll(eventRepository.findRequestIdsFrom(fromId));
+            List<Long> keptIds = new ArrayList<>(kept);
+            for (int i = 0; i < keptIds.size(); i += replayBatchSize) {
+                List<RequestEvent> events = eventRepository.findByRequestIdInAndIdLessThanOrderByIdAsc(
+                        keptIds.subList(i, Math.min(keptIds.size(), i + replayBatchSize)), fromId);
+                events.forEach(this::applySafely);
+                replayed += events.size();
+            }
+            statusCounts.get(RequestStatus.COMPLETED).addAndGet(
+                    requestRepository.countByStatusWithoutEventsFrom(RequestStatus.COMPLETED, fromId));
+
+            lastSeenId = fromId - 1;
+            replayed += tail();
+            ready = true;
+            logger.info("Replayed {} request events into {} views in {} ms", replayed, requests.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            replayFailed = true;
+            logger.error("Replaying the request event log failed after {} events; retrying", replayed, e);
+        }
+    }
+
+    private void tailSafely() {
+        try {
+            tail();
+        } catch (RuntimeException e) {
+            metrics.increment("projection.tail-errors");
+            logger.warn("Could not read new request events: {}", e.getMessage());
+        }
+    }
+
+    // Applies events after lastSeenId, then any skipped IDs that have committed since. Returns the count read.
+    private long tail() {
+        long read = 0;
+        Set<Long> changed = new HashSet<>();
+        while (true) {
+            List<RequestEvent> batch = eventRepository.findByIdGreaterThanOrderByIdAsc(lastSeenId,
+                    PageRequest.of(0, replayBatchSize));
+            long giveUpAt = System.nanoTime() + gapTimeoutNanos;
+            for (RequestEvent event : batch) {
+                long skipped = event.getId() - lastSeenId - 1;
+                if (skipped > MAX_TRACKED_GAP) {
+                    metrics.increment("projection.gaps-untracked", skipped);
+                } else {
+                    for (long id = lastSeenId + 1; id < event.getId(); id++) {
+                        gaps.put(id, giveUpAt);
+                    }
+                }
+                applySafely(event);
+                changed.add(event.getRequestId());
+                lastSeenId = event.getId();
+            }
+            read += batch.size();
+            if (batch.size() < replayBatchSize) {
+                break;
+            }
+        }
+        if (!gaps.isEmpty()) {
+            List<RequestEvent> late = new ArrayList<>(eventRepository.findAllById(gaps.keySet()));
+            late.sort(Comparator.comparing(RequestEvent::getId));
+            for (RequestEvent event : late) {
+                gaps.remove(event.getId());
+                metrics.increment("projection.late-events");
+                applySafely(event);
+                changed.add(event.getRequestId());
+            }
+            read += late.size();
+            long now = System.nanoTime();
+            // Rolled back, or committed too late to be applied
+            gaps.values().removeIf(giveUpAt -> now - giveUpAt > 0);
+        }
+        evictExpired();
+        if (!changed.isEmpty()) {
+            for (Consumer<Set<Long>> listener : listeners) {
+                try {
+                    listener.accept(changed);
+                } catch (RuntimeException e) {
+                    metrics.increment("projection.listener-errors");
+                    logger.warn("A request change listener failed: {}", e.getMessage());
+                }
+            }
+        }
+        return read;
+    }
+
+    private void evictExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        Iterator<Map.Entry<Long, Long>> oldestFirst = completedByLastEvent.entrySet().iterator();
+        while (oldestFirst.hasNext()) {
+            RequestView view = requests.get(oldestFirst.next().getValue());
+            if (view != null && view.getUpdatedAt() != null && !view.getUpdatedAt().isBefore(cutoff)) {
+                break;
+            }
+            oldestFirst.remove();
+            if (view != null) {
+                // Stays in the status counts as a completed request
+                requests.remove(view.getRequestId());
+                byLastEvent.remove(view.getLastEventId());
+                if (view.getRequesterId() != null) {
+                    removeFrom(byRequester, view.getRequesterId(), view.getRequestId());
+                }
+                vendorsOf(view).forEach(vendorId -> removeFrom(byVendor, vendorId, view.getRequestId()));
+                metrics.increment("projection.evicted");
+            }
+        }
+    }
+
+    private void applySafely(RequestEvent event) {
+        try {
+            apply(event);
+        } catch (RuntimeException e) {
+            metrics.increment("projection.errors");
+            logger.warn("Could not project event {} ({}) of request {}", event.getId(), event.getType(),
+                    event.getRequestId(), e);
+        }
+    }
+
+    private void apply(RequestEvent event) {
+        RequestView current = requests.get(event.getRequestId());
+        if (current != null && event.getId() <= current.getLastEventId()) {
+            return; // Already applied
+        }
+        JsonNode payload = readPayload(event);
+        RequestView view;
+        switch (event.getType()) {
+            case CREATED -> {
+                view = new RequestView(event.getRequestId());
+                view.setStatus(RequestStatus.OPEN);
+                view.setRequesterId(event.getActorId());
+                view.setProblemDescription(text(payload, "problemDescription"));
+                view.setVehicleNumber(text(payload, "vehicleNumber"));
+                view.setCreatedAt(event.getOccurredAt());
+            }
+            case IMPORTED -> {
+                view = new RequestView(event.getRequestId());
+                view.setStatus(RequestStatus.valueOf(text(payload, "status")));
+                view.setRequesterId(event.getActorId());
+                view.setProblemDescription(text(payload, "problemDescription"));
+                view.setVehicleNumber(text(payload, "vehicleNumber"));
+                applyEnrichment(view, payload);
+                view.setIntendedVendorId(number(payload, "intendedVendorId"));
+                view.offeredVendorIds().addAll(numbers(payload, "offeredVendorIds"));
+                view.setAssignedVendorId(number(payload, "assignedVendorId"));
+                view.setAssignedWorkerId(number(payload, "assignedWorkerId"));
+                String createdAt = text(payload, "createdAt");
+                view.setCreatedAt(createdAt != null ? LocalDateTime.parse(createdAt)
+                        : event.getOccurredAt());
+            }
+            default -> {
+                if (current == null) {
+                    metrics.increment("projection.orphan-events");
+                    return;
+                }
+                view = current.copy();
+                switch (event.getType()) {
+                    case ENRICHED -> applyEnrichment(view, payload);
+                    case ROUTED, REROUTED -> {
+                        Long withdrawn = number(payload, "withdrawnVendorId");
+                        if (withdrawn != null) {
+                            view.offeredVendorIds().remove(withdrawn);
+                        }
+                        if (payload.has("intendedVendorId")) {
+                            view.setIntendedVendorId(number(payload, "intendedVendorId"));
+                        }
+                        view.offeredVendorIds().addAll(numbers(payload, "offeredVendorIds"));
+                    }
+                    case ACCEPTED, ASSIGNED -> {
+                        view.setStatus(RequestStatus.ASSIGNED);
+                        view.setAssignedVendorId(number(payload, "vendorId"));
+                        view.setAssignedWorkerId(number(payload, "workerId"));
+                    }
+                    case COMPLETED -> view.setStatus(RequestStatus.COMPLETED);
+                    default -> throw new IllegalStateException("Unhandled event type " + event.getType());
+                }
+            }
+        }
+        view.setUpdatedAt(event.getOccurredAt());
+        view.setLastEventId(event.getId());
+        publish(current, view);
+        metrics.increment("projection.events-applied");
+    }
+
+    private void publish(RequestView previous, RequestView view) {
+        long id = view.getRequestId();
+        if (previous != null) {
+            statusCounts.get(previous.getStatus()).decrementAndGet();
+            vendorsOf(previous).forEach(vendorId -> removeFrom(byVendor, vendorId, id));
+            byLastEvent.remove(previous.getLastEventId());
+            completedByLastEvent.remove(previous.getLastEventId());
+        }
+        requests.put(id, view);
+        byLastEvent.put(view.getLastEventId(), id);
+        if (view.getStatus() == RequestStatus.COMPLETED) {
+            completedByLastEvent.put(view.getLastEventId(), id);
+        }
+        statusCounts.get(view.getStatus()).incrementAndGet();
+        if (view.getRequesterId() != null) {
+            byRequester.computeIfAbsent(view.getRequesterId(), k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        vendorsOf(view).forEach(vendorId -> byVendor
+                .computeIfAbsent(vendorId, k -> ConcurrentHashMap.newKeySet()).add(id));
+    }
+
+    // Open requests belong to every vendor they are offered to; later only to the assignee.
+    private static Set<Long> vendorsOf(RequestView view) {
+        Set<Long> vendors = new HashSet<>();
+        if (view.getStatus() == RequestStatus.OPEN) {
+            vendors.addAll(view.offeredVendorIds());
+            if (view.getIntendedVendorId() != null) {
+                vendors.add(view.getIntendedVendorId());
+            }
+        } else if (view.getAssignedVendorId() != null) {
+            vendors.add(view.getAssignedVendorId());
+        }
+        return vendors;
+    }
+
+    private static void removeFrom(Map<Long, Set<Long>> index, Long key, long requestId) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(requestId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static void applyEnrichment(RequestView view, JsonNode payload) {
+        if (text(payload, "vehicleNumber") != null) {
+            view.setVehicleNumber(text(payload, "vehicleNumber"));
+        }
+        view.setVehicleType(text(payload, "vehicleType"));
+        view.setMakeModel(text(payload, "makeModel"));
+        view.setDamageSeverity(text(payload, "damageSeverity"));
+        view.setEstimatedCostRange(text(payload, "estimatedCostRange"));
+    }
+
+    private JsonNode readPayload(RequestEvent event) {
+        try {
+            return event.getPayload() == null ? objectMapper.createObjectNode()
+                    : objectMapper.readTree(event.getPayload());
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable payload", e);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Long number(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asLong();
+    }
+
+    private static Set<Long> numbers(JsonNode node, String field) {
+        Set<Long> values = new HashSet<>();
+        JsonNode array = node.get(field);
+        if (array != null) {
+            array.forEach(value -> values.add(value.asLong()));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,553 @@
+package com.innovation.service;
+
+import com.innovation.model.RequestStatus;
+import com.innovation.model.ServiceRequest;
+import com.innovation.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index over service requests: plate, make and model,
+ * damage text, problem description and severity. Each word maps to the ids of
+ * the requests containing it, in a sorted dictionary so that words of three or
+ * more letters also match as prefixes (partial plates, "hon civ"). Query words
+ * must all match; results can be filtered by the {@link #FACETS}, come with
+ * per-facet counts, and are ordered newest first.
+ * <p>
+ * Requests are numbered in id order and every list of matches is a sorted
+ * array of those numbers, so a query intersects arrays and reads the newest
+ * page from the end of the result, and facet counts come from per-request
+ * value ordinals. Built from the database once the application is ready.
+ * Writes on this node are applied once they commit, see
+ * {@code RequestSearchListener}; for writes on any node, the requests the
+ * {@link RequestProjector} reads events of are reloaded from the database.
+ * Non-admins only find requests they are a party to.
+ */
+@Service
+public class RequestSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestSearchIndex.class);
+
+    public static final List<String> FACETS = List.of("status", "type", "vehicleType", "severity");
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int RELOAD_BATCH_SIZE = 500;
+
+    // One row per request; completed by an order or a filter on r.id
+    private static final String SELECT = "select r.id, r.status, r.problem_description, r.vehicle_number,"
+            + " r.vehicle_type, r.make_model, r.damage_severity, r.created_at, r.damage_detection, r.requester_id,"
+            + " r.vendor_id, r.intended_vendor_id, r.worker_id,"
+            + " (select group_concat(o.vendor_id) from service_request_offers o where o.request_id = r.id)"
+            + " from service_request r";
+
+    public record Hit(long id, RequestStatus status, String problemDescription, String vehicleNumber,
+            String vehicleType, String makeModel, String damageSeverity, LocalDateTime createdAt) {
+    }
+
+    public record Result(int total, int page, int size, List<Hit> hits, Map<String, Map<String, Integer>> facets) {
+    }
+
+    private record Indexed(Hit hit, Set<String> terms, String[] facets, Set<Long> parties) {
+
+        static Indexed of(Hit hit, String damageDetection, Set<Long> parties) {
+            Set<String> terms = new HashSet<>();
+            for (String text : Arrays.asList(hit.vehicleNumber(), hit.makeModel(), damageDetection,
+                    hit.problemDescription(), hit.damageSeverity(), hit.vehicleType())) {
+                terms.addAll(tokens(text));
+            }
+            // Plates are also searchable without their spaces and dashes.
+            if (hit.vehicleNumber() != null) {
+                StringBuilder plate = new StringBuilder();
+                hit.vehicleNumber().chars().filter(Character::isLetterOrDigit)
+                        .forEach(c -> plate.append(Character.toLowerCase((char) c)));
+                if (!plate.isEmpty()) {
+                    terms.add(plate.toString());
+                }
+            }
+            // One value, or null, per entry of FACETS
+            String[] facets = { hit.status() == null ? null : hit.status().name(), hit.problemDescription(),
+                    hit.vehicleType(), hit.damageSeverity() };
+            for (int i = 0; i < facets.length; i++) {
+                if (facets[i] != null && facets[i].isBlank()) {
+                    facets[i] = null;
+                }
+            }
+            return new Indexed(hit, terms, facets, parties);
+        }
+    }
+
+    /** Ascending document numbers; appends are O(1), as new requests get the highest numbers. */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc) {
+            int at = size == 0 || docs[size - 1] < doc ? size : Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0 && at < size) {
+                return; // Already present
+            }
+            at = at < 0 ? -at - 1 : at;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            docs[at] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    private static final Postings NONE = new Postings();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ServiceMetrics metrics;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock. Requests are numbered densely in id order, so document order is age order.
+    private final Map<Long, Integer> docByRequest = new HashMap<>();
+    private Indexed[] docs = new Indexed[1024];
+    private int[][] facetOrdinals = new int[1024][];
+    private int nextDoc;
+    private final BitSet live = new BitSet();
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final List<Map<String, Postings>> facetPostings = new ArrayList<>();
+    private final List<Map<String, Integer>> facetOrdinalByValue = new ArrayList<>();
+    private final List<List<String>> facetValues = new ArrayList<>();
+    private final Map<Long, Postings> byParty = new HashMap<>();
+    // Requests written while the index is being built, or whose reload failed; reloaded when it is ready
+    private final Set<Long> stale = new HashSet<>();
+    private volatile boolean ready;
+
+    public RequestSearchIndex(JdbcTemplate jdbcTemplate, RequestProjector projector, ServiceMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.metrics = metrics;
+        for (int i = 0; i < FACETS.size(); i++) {
+            facetPostings.add(new HashMap<>());
+            facetOrdinalByValue.add(new HashMap<>());
+            facetValues.add(new ArrayList<>());
+        }
+        metrics.gauge("search.indexed", this::size);
+        projector.subscribe(this::onRequestsChanged);
+    }
+
+    /** Loads every request with a streaming query, then reloads the ones written meanwhile. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Indexed> loaded = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(SELECT + " order by r.id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            return statement;
+        }, rs -> {
+            loaded.add(indexed(rs));
+        });
+        Set<Long> written;
+        lock.writeLock().lock();
+        try {
+            loaded.forEach(this::put);
+            ready = true;
+            written = drainStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reload(written);
+        logger.info("Search index built for {} requests in {} ms", loaded.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Call when a request was written; the index follows once the transaction commits. */
+    public void onRequestSaved(ServiceRequest request) {
+        if (request == null || request.getId() == null) {
+            return;
+        }
+        Indexed indexed = snapshot(request);
+        TransactionCallbacks.afterCommit(() -> apply(request.getId(), () -> put(indexed)));
+    }
+
+    public void onRequestDeleted(long requestId) {
+        TransactionCallbacks.afterCommit(() -> apply(requestId, () -> delete(requestId)));
+    }
+
+    /**
+     * Requests matching every word of {@code query} and every facet filter,
+     * newest first. With a {@code partyId}, only requests that user made, was
+     * offered, or is assigned to are searched. Blank queries match everything.
+     */
+    public Result search(String query, Map<String, String> filters, Long partyId, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("page must not be negative and size must be positive");
+        }
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            List<Postings> required = new ArrayList<>();
+            for (String token : tokens(query)) {
+                required.add(matching(token));
+            }
+            filters.forEach((facet, value) -> {
+                int index = FACETS.indexOf(facet);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Unknown facet " + facet);
+                }
+                required.add(facetPostings.get(index).getOrDefault(value, NONE));
+            });
+            if (partyId != null) {
+                required.add(byParty.getOrDefault(partyId, NONE));
+            }
+            int[] matches = intersect(required);
+
+            int[][] counts = new int[FACETS.size()][];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new int[facetValues.get(i).size()];
+            }
+            for (int doc : matches) {
+                int[] ordinals = facetOrdinals[doc];
+                for (int i = 0; i < ordinals.length; i++) {
+                    if (ordinals[i] >= 0) {
+                        counts[i][ordinals[i]]++;
+                    }
+                }
+            }
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                Map<String, Integer> values = new LinkedHashMap<>();
+                for (int ordinal = 0; ordinal < counts[i].length; ordinal++) {
+                    if (counts[i][ordinal] > 0) {
+                        values.put(facetValues.get(i).get(ordinal), counts[i][ordinal]);
+                    }
+                }
+                facets.put(FACETS.get(i), values);
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            for (long i = matches.length - 1L - (long) page * size; i >= 0 && hits.size() < size; i--) {
+                hits.add(docs[matches[(int) i]].hit());
+            }
+            return new Result(matches.length, page, size, hits, facets);
+        } finally {
+            lock.readLock().unlock();
+            metrics.recordNanos("search.query", System.nanoTime() - start);
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return docByRequest.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(long requestId, Runnable write) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                write.run();
+            } else {
+                stale.add(requestId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called by the projector for writes on any node. A reload that overtakes a newer local
+    // write is corrected when that write's own event is read.
+    private void onRequestsChanged(Set<Long> requestIds) {
+        Set<Long> changed;
+        lock.writeLock().lock();
+        try {
+            stale.addAll(requestIds);
+            if (!ready) {
+                return;
+            }
+            changed = drainStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        reload(changed);
+    }
+
+    // Re-reads the requests from the database; those that no longer exist are removed.
+    private void reload(Set<Long> requestIds) {
+        List<Long> ids = new ArrayList<>(requestIds);
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + RELOAD_BATCH_SIZE));
+            List<Indexed> loaded = new ArrayList<>();
+            try {
+                namedJdbcTemplate.query(SELECT + " where r.id in (:ids)", Map.of("ids", chunk), rs -> {
+                    loaded.add(indexed(rs));
+                });
+            } catch (RuntimeException e) {
+                metrics.increment("search.reload-errors");
+                logger.warn("Could not reload {} requests into the search index: {}", ids.size() - from,
+                        e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    stale.addAll(ids.subList(from, ids.size())); // Retried with the next change
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return;
+            }
+            Set<Long> deleted = new HashSet<>(chunk);
+            lock.writeLock().lock();
+            try {
+                for (Indexed request : loaded) {
+                    put(request);
+                    deleted.remove(request.hit().id());
+                }
+                deleted.forEach(this::delete);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            metrics.increment("search.reloaded", chunk.size());
+        }
+    }
+
+    // Caller holds the write lock.
+    private Set<Long> drainStale() {
+        Set<Long> ids = new HashSet<>(stale);
+        stale.clear();
+        return ids;
+    }
+
+    // Exact word, or every word it is the start of once it is long enough.
+    private Postings matching(String token) {
+        if (token.length() < MIN_PREFIX_LENGTH) {
+            return postings.getOrDefault(token, NONE);
+        }
+        Collection<Postings> words = postings.subMap(token, true, token + Character.MAX_VALUE, false).values();
+        if (words.size() <= 1) {
+            return words.isEmpty() ? NONE : words.iterator().next();
+        }
+        BitSet union = new BitSet();
+        for (Postings word : words) {
+            for (int i = 0; i < word.size; i++) {
+                union.set(word.docs[i]);
+            }
+        }
+        Postings merged = new Postings();
+        merged.docs = union.stream().toArray();
+        merged.size = merged.docs.length;
+        return merged;
+    }
+
+    // Walks the shortest list and gallops forward through the others; ascending, like the lists.
+    private int[] intersect(List<Postings> lists) {
+        if (lists.isEmpty()) {
+            return live.stream().toArray();
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        Postings shortest = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        int[] result = new int[shortest.size];
+        int count = 0;
+        outer:
+        for (int i = 0; i < shortest.size; i++) {
+            int doc = shortest.docs[i];
+            for (int j = 1; j < lists.size(); j++) {
+                Postings list = lists.get(j);
+                int at = advance(list, cursors[j], doc);
+                if (at == list.size) {
+                    break outer;
+                }
+                cursors[j] = at;
+                if (list.docs[at] != doc) {
+                    continue outer;
+                }
+            }
+            result[count++] = doc;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Index of the first entry at or after from that is >= doc, or size if there is none.
+    private static int advance(Postings list, int from, int doc) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < list.size && list.docs[high] < doc) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int at = Arrays.binarySearch(list.docs, low, Math.min(high + 1, list.size), doc);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    // Adds the request, or updates only the postings that changed if it is already indexed.
+    private void put(Indexed request) {
+        long id = request.hit().id();
+        Integer existing = docByRequest.get(id);
+        Indexed old;
+        int doc;
+        if (existing == null) {
+            doc = nextDoc++;
+            if (doc == docs.length) {
+                docs = Arrays.copyOf(docs, doc * 2);
+                facetOrdinals = Arrays.copyOf(facetOrdinals, doc * 2);
+            }
+            docByRequest.put(id, doc);
+            live.set(doc);
+            old = new Indexed(null, Set.of(), new String[FACETS.size()], Set.of());
+        } else {
+            doc = existing;
+            old = docs[doc];
+        }
+        docs[doc] = request;
+        update(postings, old.terms(), request.terms(), doc);
+        update(byParty, old.parties(), request.parties(), doc);
+        int[] ordinals = new int[FACETS.size()];
+        for (int i = 0; i < FACETS.size(); i++) {
+            String before = old.facets()[i];
+            String after = request.facets()[i];
+            if (!Objects.equals(before, after)) {
+                update(facetPostings.get(i), before == null ? Set.of() : Set.of(before),
+                        after == null ? Set.of() : Set.of(after), doc);
+            }
+            ordinals[i] = after == null ? -1 : ordinal(i, after);
+        }
+        facetOrdinals[doc] = ordinals;
+    }
+
+    private void delete(long requestId) {
+        Integer doc = docByRequest.remove(requestId);
+        if (doc == null) {
+            return;
+        }
+        Indexed old = docs[doc];
+        update(postings, old.terms(), Set.of(), doc);
+        update(byParty, old.parties(), Set.of(), doc);
+        for (int i = 0; i < FACETS.size(); i++) {
+            if (old.facets()[i] != null) {
+                update(facetPostings.get(i), Set.of(old.facets()[i]), Set.of(), doc);
+            }
+        }
+        docs[doc] = null;
+        facetOrdinals[doc] = null;
+        live.clear(doc);
+    }
+
+    private static <K> void update(Map<K, Postings> index, Set<K> before, Set<K> after, int doc) {
+        for (K key : before) {
+            if (!after.contains(key)) {
+                Postings list = index.get(key);
+                list.remove(doc);
+                if (list.size == 0) {
+                    index.remove(key);
+                }
+            }
+        }
+        for (K key : after) {
+            if (!before.contains(key)) {
+                index.computeIfAbsent(key, k -> new Postings()).add(doc);
+            }
+        }
+    }
+
+    private int ordinal(int facet, String value) {
+        return facetOrdinalByValue.get(facet).computeIfAbsent(value, k -> {
+            facetValues.get(facet).add(k);
+            return facetValues.get(facet).size() - 1;
+        });
+    }
+
+    // A row of SELECT
+    private static Indexed indexed(ResultSet rs) throws SQLException {
+        String status = rs.getString(2);
+        Timestamp createdAt = rs.getTimestamp(8);
+        Set<Long> parties = new HashSet<>();
+        for (int column = 10; column <= 13; column++) {
+            long id = rs.getLong(column);
+            if (!rs.wasNull()) {
+                parties.add(id);
+            }
+        }
+        String offers = rs.getString(14);
+        if (offers != null) {
+            Arrays.stream(offers.split(",")).map(Long::valueOf).forEach(parties::add);
+        }
+        return Indexed.of(new Hit(rs.getLong(1), status == null ? null : RequestStatus.valueOf(status),
+                rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7),
+                createdAt == null ? null : createdAt.toLocalDateTime()), rs.getString(9), parties);
+    }
+
+    // Taken when the entity is written, before it can change again.
+    private static Indexed snapshot(ServiceRequest request) {
+        Set<Long> parties = new HashSet<>(request.getOfferedVendorIds());
+        for (User user : Arrays.asList(request.getRequestingUser(), request.getAssignedVendor(),
+                request.getIntendedVendor(), request.getAssignedWorker())) {
+            if (user != null) {
+                parties.add(user.getId());
+            }
+        }
+        return Indexed.of(new Hit(request.getId(), request.getStatus(), request.getProblemDescription(),
+                request.getVehicleNumber(), request.getVehicleType(), request.getMakeModel(),
+                request.getDamageSeverity(), request.getCreatedAt()), request.getDamageDetection(), parties);
+    }
+
+    /** Lower-cased runs of letters and digits, each once. */
+    static List<String> tokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (!token.isEmpty()) {
+                String word = token.toString();
+                if (!tokens.contains(word)) {
+                    tokens.add(word);
+                }
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+}
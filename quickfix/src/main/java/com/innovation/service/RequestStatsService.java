@@ -0,0 +1,265 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.innovation.model.RequestHourlyStat;
+import com.innovation.model.RequestStatCounter;
+import com.innovation.model.RequestStatus;
+import com.innovation.model.ServiceRequest;
+import com.innovation.repository.RequestStatsRepository;
+import com.innovation.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Request statistics for the admin dashboard, kept in two small rollup tables
+ * so reads cost the same however long the request history is: current counts
+ * per status (overall, per request type, per vendor) and hourly
+ * created/assigned/completed buckets. Each status transition is sent through
+ * the outbox and applied as counter deltas after the request commits. A delta
+ * records its outbox message ID in {@code request_stats_applied} in the same
+ * transaction, so a redelivery is skipped. A scheduled reconciliation
+ * recomputes the counters (and recent buckets) from {@code service_request},
+ * logs any drift, and marks the transitions it counted as applied; it holds
+ * the applied table locked meanwhile, so no delta lands during a rebuild.
+ */
+@Service
+public class RequestStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestStatsService.class);
+
+    public static final String TOPIC_REQUEST_TRANSITION = "request.transition";
+
+    public record HourlyBucket(LocalDateTime hour, String requestType, long created, long assigned,
+            long completed) {
+    }
+
+    public record AdminStats(Map<RequestStatus, Long> byStatus, Map<String, Map<RequestStatus, Long>> byRequestType,
+            Map<Long, Map<RequestStatus, Long>> byVendor, List<HourlyBucket> hourly, Map<String, Long> usersByRole) {
+    }
+
+    private static final String UPSERT_COUNTER = "insert into request_stat_counters (scope, status, total)"
+            + " values (?, ?, ?) on duplicate key update total = total + values(total)";
+    private static final String UPSERT_HOURLY = "insert into request_hourly_stats"
+            + " (bucket_start, request_type, created, assigned, completed) values (?, ?, ?, ?, ?)"
+            + " on duplicate key update created = created + values(created),"
+            + " assigned = assigned + values(assigned), completed = completed + values(completed)";
+    private static final String MARK_APPLIED = "insert ignore into request_stats_applied (message_id, applied_at)"
+            + " values (?, ?)";
+
+    private final DomainEventOutbox outbox;
+    private final RequestStatsRepository statsRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ServiceMetrics metrics;
+    private final int reconcileHours;
+
+    public RequestStatsService(DomainEventOutbox outbox, RequestStatsRepository statsRepository,
+            UserRepository userRepository, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            ServiceMetrics metrics, @Value("${stats.reconcile-hours:48}") int reconcileHours) {
+        this.outbox = outbox;
+        this.statsRepository = statsRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.reconcileHours = reconcileHours;
+        outbox.subscribe(TOPIC_REQUEST_TRANSITION, this::applyTransition);
+    }
+
+    /**
+     * Records a status change of the request in the current transaction.
+     * {@code from} is null for a new request; the vendor is the assigned one, if any.
+     */
+    public void recordTransition(ServiceRequest request, RequestStatus from, RequestStatus to, Long vendorId) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("requestType", request.getProblemDescription());
+        payload.put("vendorId", vendorId);
+        payload.put("from", from == null ? null : from.name());
+        payload.put("to", to.name());
+        payload.put("at", LocalDateTime.now().toString());
+        outbox.record(TOPIC_REQUEST_TRANSITION, request.getId(), payload);
+    }
+
+    @Transactional(readOnly = true)
+    public AdminStats getStats(int hours) {
+        Map<RequestStatus, Long> byStatus = new EnumMap<>(RequestStatus.class);
+        Map<String, Map<RequestStatus, Long>> byType = new TreeMap<>();
+        Map<Long, Map<RequestStatus, Long>> byVendor = new TreeMap<>();
+        for (RequestStatCounter counter : statsRepository.findAll()) {
+            String scope = counter.getScope();
+            if (scope.equals("all")) {
+                byStatus.put(counter.getStatus(), counter.getTotal());
+            } else if (scope.startsWith("type:")) {
+                byType.computeIfAbsent(scope.substring(5), k -> new EnumMap<>(RequestStatus.class))
+                        .put(counter.getStatus(), counter.getTotal());
+            } else if (scope.startsWith("vendor:")) {
+                byVendor.computeIfAbsent(Long.valueOf(scope.substring(7)), k -> new EnumMap<>(RequestStatus.class))
+                        .put(counter.getStatus(), counter.getTotal());
+            }
+        }
+        LocalDateTime from = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(Math.max(0, hours - 1));
+        List<HourlyBucket> hourly = statsRepository.findHourlySince(from).stream()
+                .map(h -> new HourlyBucket(h.getBucketStart(), h.getRequestType(), h.getCreated(),
+                        h.getAssigned(), h.getCompleted()))
+                .toList();
+        Map<String, Long> usersByRole = new TreeMap<>();
+        for (Object[] row : userRepository.countByRole()) {
+            usersByRole.put((String) row[0], (Long) row[1]);
+        }
+        return new AdminStats(byStatus, byType, byVendor, hourly, usersByRole);
+    }
+
+    private void applyTransition(long messageId, JsonNode payload) {
+        // Waits while a reconciliation runs; nothing inserted means already applied
+        if (jdbcTemplate.update(MARK_APPLIED, messageId, LocalDateTime.now()) == 0) {
+            metrics.increment("stats.transitions.duplicate");
+            return;
+        }
+        String requestType = text(payload, "requestType");
+        Long vendorId = payload.hasNonNull("vendorId") ? payload.get("vendorId").asLong() : null;
+        String from = text(payload, "from");
+        RequestStatus to = RequestStatus.valueOf(text(payload, "to"));
+        if (from != null) {
+            adjust(RequestStatus.valueOf(from), requestType, vendorId, -1);
+        }
+        adjust(to, requestType, vendorId, 1);
+
+        LocalDateTime hour = LocalDateTime.parse(text(payload, "at")).truncatedTo(ChronoUnit.HOURS);
+        jdbcTemplate.update(UPSERT_HOURLY, hour, requestType == null ? "" : requestType,
+                to == RequestStatus.OPEN ? 1 : 0, to == RequestStatus.ASSIGNED ? 1 : 0,
+                to == RequestStatus.COMPLETED ? 1 : 0);
+        metrics.increment("stats.transitions");
+    }
+
+    private void adjust(RequestStatus status, String requestType, Long vendorId, int delta) {
+        jdbcTemplate.update(UPSERT_COUNTER, "all", status.name(), delta);
+        if (requestType != null) {
+            jdbcTemplate.update(UPSERT_COUNTER, "type:" + requestType, status.name(), delta);
+        }
+        // Open requests belong to no vendor yet.
+        if (vendorId != null && status != RequestStatus.OPEN) {
+            jdbcTemplate.update(UPSERT_COUNTER, "vendor:" + vendorId, status.name(), delta);
+        }
+    }
+
+    /**
+     * Rebuilds the counters from the request table, and the hourly buckets of the
+     * last {@code stats.reconcile-hours}, in one transaction. Also runs at startup,
+     * which seeds the tables for existing data.
+     */
+    @Scheduled(fixedDelayString = "${stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        long start = System.nanoTime();
+        try {
+            Long drift = transactionTemplate.execute(status -> {
+                // Only locking reads until service_request is counted: the first plain read
+                // fixes the snapshot the applied markers are derived from
+                Set<Long> applied = new HashSet<>(jdbcTemplate.queryForList(
+                        "select message_id from request_stats_applied for update", Long.class));
+                Map<String, Long> before = new HashMap<>();
+                jdbcTemplate.query("select scope, status, total from request_stat_counters for update",
+                        rs -> {
+                            before.put(rs.getString(1) + "/" + rs.getString(2), rs.getLong(3));
+                        });
+                jdbcTemplate.update("delete from request_stat_counters");
+                jdbcTemplate.update("insert into request_stat_counters (scope, status, total)"
+                        + " select 'all', status, count(*) from service_request where status is not null"
+                        + " group by status");
+                jdbcTemplate.update("insert into request_stat_counters (scope, status, total)"
+                        + " select concat('type:', problem_description), status, count(*) from service_request"
+                        + " where status is not null and problem_description is not null"
+                        + " group by problem_description, status");
+                jdbcTemplate.update("insert into request_stat_counters (scope, status, total)"
+                        + " select concat('vendor:', vendor_id), status, count(*) from service_request"
+                        + " where status is not null and status <> 'OPEN' and vendor_id is not null"
+                        + " group by vendor_id, status");
+
+                long difference = 0;
+                Map<String, Long> after = new HashMap<>();
+                jdbcTemplate.query("select scope, status, total from request_stat_counters",
+                        rs -> {
+                            after.put(rs.getString(1) + "/" + rs.getString(2), rs.getLong(3));
+                        });
+                for (Map.Entry<String, Long> entry : after.entrySet()) {
+                    difference += Math.abs(entry.getValue() - before.getOrDefault(entry.getKey(), 0L));
+                }
+                for (Map.Entry<String, Long> entry : before.entrySet()) {
+                    if (!after.containsKey(entry.getKey())) {
+                        difference += Math.abs(entry.getValue());
+                    }
+                }
+
+                LocalDateTime windowStart = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS)
+                        .minusHours(reconcileHours);
+                jdbcTemplate.update("delete from request_hourly_stats where bucket_start >= ?", windowStart);
+                rebuildHourly("created_at", "created", windowStart);
+                rebuildHourly("assigned_at", "assigned", windowStart);
+                rebuildHourly("completed_at", "completed", windowStart);
+                markCounted(applied);
+                return difference;
+            });
+            metrics.increment("stats.reconcile.runs");
+            if (drift != null && drift > 0) {
+                metrics.increment("stats.reconcile.drift", drift);
+                logger.warn("Request stat counters had drifted by {} and were corrected", drift);
+            }
+            metrics.recordNanos("stats.reconcile", System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            logger.error("Reconciling request statistics failed", e);
+        }
+    }
+
+    /**
+     * Marks the pending transitions whose change the rebuild counted, and drops
+     * markers of published messages, which are never delivered again. Runs after
+     * the rebuild's locking reads, so requests changed since are still blocked and
+     * their transitions are not yet visible here.
+     */
+    private void markCounted(Set<Long> applied) {
+        List<Long> pending = jdbcTemplate.queryForList("select id from outbox where topic = ?"
+                + " and published_at is null", Long.class, TOPIC_REQUEST_TRANSITION);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> counted = pending.stream().filter(id -> !applied.contains(id))
+                .map(id -> new Object[] {id, now}).toList();
+        jdbcTemplate.batchUpdate(MARK_APPLIED, counted);
+        applied.removeAll(pending);
+        jdbcTemplate.batchUpdate("delete from request_stats_applied where message_id = ?",
+                applied.stream().map(id -> new Object[] {id}).toList());
+    }
+
+    // Column names are constants from reconcile(), never from input.
+    private void rebuildHourly(String timestampColumn, String countColumn, LocalDateTime windowStart) {
+        jdbcTemplate.update("insert into request_hourly_stats"
+                + " (bucket_start, request_type, created, assigned, completed)"
+                + " select b.bucket, b.request_type,"
+                + (countColumn.equals("created") ? " b.n" : " 0") + ","
+                + (countColumn.equals("assigned") ? " b.n" : " 0") + ","
+                + (countColumn.equals("completed") ? " b.n" : " 0")
+                + " from (select date_format(" + timestampColumn + ", '%Y-%m-%d %H:00:00') as bucket,"
+                + " coalesce(problem_description, '') as request_type, count(*) as n from service_request"
+                + " where " + timestampColumn + " >= ? group by bucket, request_type) b"
+                + " on duplicate key update " + countColumn + " = values(" + countColumn + ")", windowStart);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+}
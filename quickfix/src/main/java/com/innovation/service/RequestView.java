@@ -0,0 +1,181 @@
+package com.innovation.service;
+
+import com.innovation.model.RequestStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Denormalized read model of one service request, built by
+ * {@link RequestProjector} from the event log. A published view is never
+ * modified; the projector replaces it with an updated copy.
+ */
+public final class RequestView {
+
+    private final long requestId;
+    private RequestStatus status;
+    private Long requesterId;
+    private String problemDescription;
+    private String vehicleNumber;
+    private String vehicleType;
+    private String makeModel;
+    private String damageSeverity;
+    private String estimatedCostRange;
+    private Long intendedVendorId;
+    private Set<Long> offeredVendorIds = new HashSet<>();
+    private Long assignedVendorId;
+    private Long assignedWorkerId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private long lastEventId;
+
+    RequestView(long requestId) {
+        this.requestId = requestId;
+    }
+
+    RequestView copy() {
+        RequestView copy = new RequestView(requestId);
+        copy.status = status;
+        copy.requesterId = requesterId;
+        copy.problemDescription = problemDescription;
+        copy.vehicleNumber = vehicleNumber;
+        copy.vehicleType = vehicleType;
+        copy.makeModel = makeModel;
+        copy.damageSeverity = damageSeverity;
+        copy.estimatedCostRange = estimatedCostRange;
+        copy.intendedVendorId = intendedVendorId;
+        copy.offeredVendorIds = new HashSet<>(offeredVendorIds);
+        copy.assignedVendorId = assignedVendorId;
+        copy.assignedWorkerId = assignedWorkerId;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        copy.lastEventId = lastEventId;
+        return copy;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public RequestStatus getStatus() {
+        return status;
+    }
+
+    void setStatus(RequestStatus status) {
+        this.status = status;
+    }
+
+    public Long getRequesterId() {
+        return requesterId;
+    }
+
+    void setRequesterId(Long requesterId) {
+        this.requesterId = requesterId;
+    }
+
+    public String getProblemDescription() {
+        return problemDescription;
+    }
+
+    void setProblemDescription(String problemDescription) {
+        this.problemDescription = problemDescription;
+    }
+
+    public String getVehicleNumber() {
+        return vehicleNumber;
+    }
+
+    void setVehicleNumber(String vehicleNumber) {
+        this.vehicleNumber = vehicleNumber;
+    }
+
+    public String getVehicleType() {
+        return vehicleType;
+    }
+
+    void setVehicleType(String vehicleType) {
+        this.vehicleType = vehicleType;
+    }
+
+    public String getMakeModel() {
+        return makeModel;
+    }
+
+    void setMakeModel(String makeModel) {
+        this.makeModel = makeModel;
+    }
+
+    public String getDamageSeverity() {
+        return damageSeverity;
+    }
+
+    void setDamageSeverity(String damageSeverity) {
+        this.damageSeverity = damageSeverity;
+    }
+
+    public String getEstimatedCostRange() {
+        return estimatedCostRange;
+    }
+
+    void setEstimatedCostRange(String estimatedCostRange) {
+        this.estimatedCostRange = estimatedCostRange;
+    }
+
+    public Long getIntendedVendorId() {
+        return intendedVendorId;
+    }
+
+    void setIntendedVendorId(Long intendedVendorId) {
+        this.intendedVendorId = intendedVendorId;
+    }
+
+    public Set<Long> getOfferedVendorIds() {
+        return Collections.unmodifiableSet(offeredVendorIds);
+    }
+
+    Set<Long> offeredVendorIds() {
+        return offeredVendorIds;
+    }
+
+    public Long getAssignedVendorId() {
+        return assignedVendorId;
+    }
+
+    void setAssignedVendorId(Long assignedVendorId) {
+        this.assignedVendorId = assignedVendorId;
+    }
+
+    public Long getAssignedWorkerId() {
+        return assignedWorkerId;
+    }
+
+    void setAssignedWorkerId(Long assignedWorkerId) {
+        this.assignedWorkerId = assignedWorkerId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long getLastEventId() {
+        return lastEventId;
+    }
+
+    void setLastEventId(long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+}
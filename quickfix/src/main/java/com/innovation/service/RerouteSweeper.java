@@ -0,0 +1,127 @@
+package com.innovation.service;
+
+import com.innovation.repository.ServiceRequestRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reroutes requests whose vendor did not accept in time, without waiting for
+ * the requester to poll. Safe to run on every node: each sweep locks a batch of
+ * due rows with {@code FOR UPDATE SKIP LOCKED}, so concurrent sweepers get
+ * disjoint batches, and leases them to this node before processing. A lease
+ * outlives a crashed node only until {@code lease_until}, after which the
+ * request is picked up again.
+ */
+@Service
+public class RerouteSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(RerouteSweeper.class);
+
+    private final ServiceRequestRepository requestRepository;
+    private final ServiceRequestService requestService;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterNode clusterNode;
+    private final ServiceMetrics metrics;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int leaseSeconds;
+    private final ExecutorService workers;
+
+    public RerouteSweeper(ServiceRequestRepository requestRepository, ServiceRequestService requestService,
+            TransactionTemplate transactionTemplate, ClusterNode clusterNode, ServiceMetrics metrics,
+            @Value("${reroute.sweep-enabled:true}") boolean enabled,
+            @Value("${reroute.sweep-batch-size:50}") int batchSize,
+            @Value("${reroute.sweep-threads:4}") int threads,
+            @Value("${reroute.lease-seconds:30}") int leaseSeconds) {
+        this.requestRepository = requestRepository;
+        this.requestService = requestService;
+        this.transactionTemplate = transactionTemplate;
+        this.clusterNode = clusterNode;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "reroute-sweeper-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Requests routed before reroute_due_at existed would otherwise never be swept.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            int updated = requestRepository.backfillRerouteDueAt(ServiceRequestService.VENDOR_ACCEPT_TIMEOUT_SECONDS);
+            if (updated > 0) {
+                logger.info("Set the reroute deadline of {} open requests", updated);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not backfill reroute deadlines", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${reroute.sweep-interval-ms:5000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            List<Long> leased;
+            do {
+                leased = leaseDue();
+                if (!leased.isEmpty()) {
+                    CompletableFuture.allOf(leased.stream()
+                            .map(id -> CompletableFuture.runAsync(() -> reroute(id), workers))
+                            .toArray(CompletableFuture[]::new)).join();
+                    metrics.increment("reroute.swept", leased.size());
+                }
+            } while (leased.size() == batchSize);
+            metrics.recordNanos("reroute.sweep", System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            logger.error("Reroute sweep failed", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // The row locks are held only for this short transaction; the lease keeps other nodes off afterwards.
+    private List<Long> leaseDue() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = requestRepository.lockDueForReroute(now, batchSize);
+            if (!ids.isEmpty()) {
+                requestRepository.lease(ids, clusterNode.getId(), now.plusSeconds(leaseSeconds));
+            }
+            return ids;
+        });
+    }
+
+    private void reroute(Long id) {
+        try {
+            requestService.rerouteLeased(id);
+        } catch (RuntimeException e) {
+            metrics.increment("reroute.failures");
+            logger.warn("Rerouting request {} failed; it will be retried once its lease expires", id, e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.innovation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Tells in-memory state on every node which users and service requests changed
+ * on any node, by polling {@code resource_versions} for rows bumped since the
+ * last poll (see {@link ResourceVersions}). A row is stamped with the database
+ * time of the write but only becomes visible when its transaction commits, so
+ * each poll re-reads {@code resource-changes.overlap-ms} before the newest stamp
+ * seen, and a change already reported at its version is not reported again. A
+ * transaction that commits more than that after its write is missed.
+ * Listeners run on the scheduler thread and must be idempotent.
+ */
+@Component
+public class ResourceChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceChangeFeed.class);
+
+    private record Row(String resourceKey, long version, Timestamp changedAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ServiceMetrics metrics;
+    private final long overlapMillis;
+    private final Map<String, List<Consumer<Map<Long, Long>>>> listeners = new ConcurrentHashMap<>();
+    // Guarded by "this"
+    private Timestamp newestSeen;
+    private final Map<String, Row> reported = new HashMap<>();
+
+    public ResourceChangeFeed(JdbcTemplate jdbcTemplate, ServiceMetrics metrics,
+            @Value("${resource-changes.overlap-ms:10000}") long overlapMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        this.overlapMillis = overlapMillis;
+    }
+
+    /**
+     * Calls {@code listener} with the IDs of the resources of the kind that
+     * changed, mapped to their new version.
+     */
+    public void subscribe(String kind, Consumer<Map<Long, Long>> listener) {
+        listeners.computeIfAbsent(kind, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${resource-changes.poll-interval-ms:1000}")
+    public void poll() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        try {
+            pollOnce();
+        } catch (RuntimeException e) {
+            metrics.increment("resource-changes.errors");
+            logger.warn("Could not read resource changes: {}", e.getMessage());
+        }
+    }
+
+    synchronized void pollOnce() {
+        if (newestSeen == null) {
+            // Changes before the first poll are in the state each subscriber loaded at startup
+            newestSeen = PrimaryReads.run(() -> jdbcTemplate.queryForObject("select now(6)", Timestamp.class));
+        }
+        Timestamp from = new Timestamp(newestSeen.getTime() - overlapMillis);
+        List<Row> rows = PrimaryReads.run(() -> jdbcTemplate.query(
+                "select resource_key, version, changed_at from resource_versions where changed_at >= ?",
+                (rs, rowNum) -> new Row(rs.getString(1), rs.getLong(2), rs.getTimestamp(3)), from));
+
+        Map<String, Map<Long, Long>> changed = new HashMap<>();
+        for (Row row : rows) {
+            if (row.changedAt().after(newestSeen)) {
+                newestSeen = row.changedAt();
+            }
+            Row previous = reported.get(row.resourceKey());
+            if (previous != null && previous.version() >= row.version()) {
+                continue;
+            }
+            reported.put(row.resourceKey(), row);
+            String kind = row.resourceKey().substring(0, row.resourceKey().indexOf(':'));
+            changed.computeIfAbsent(kind, k -> new HashMap<>())
+                    .put(ResourceVersions.idOf(row.resourceKey()), row.version());
+        }
+        // The next poll no longer reads these again
+        Timestamp nextFrom = new Timestamp(newestSeen.getTime() - overlapMillis);
+        reported.values().removeIf(row -> row.changedAt().before(nextFrom));
+
+        changed.forEach((kind, versions) -> {
+            metrics.increment("resource-changes.reported", versions.size());
+            for (Consumer<Map<Long, Long>> listener : listeners.getOrDefault(kind, List.of())) {
+                try {
+                    listener.accept(versions);
+                } catch (RuntimeException e) {
+                    metrics.increment("resource-changes.listener-errors");
+                    logger.warn("A {} change listener failed: {}", kind, e.getMessage());
+                }
+            }
+        });
+    }
+}
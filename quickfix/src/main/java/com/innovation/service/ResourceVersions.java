@@ -0,0 +1,117 @@
+package com.innovation.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Version numbers for polled resources, used as strong ETags so an unchanged
+ * poll can be answered with 304 without loading the entity. Versions are kept
+ * in {@code resource_versions} and bumped in the transaction of every change,
+ * so all nodes tag a resource alike; one that never changed has version 0.
+ * They are read from the primary, since a replica may not have the change yet.
+ * Callers must read the version <em>before</em> loading the entity: a change
+ * committed in between then bumps the version and the client's next poll
+ * refetches, instead of caching stale data under a new tag.
+ */
+@Component
+public class ResourceVersions {
+
+    public static final String USER = "user";
+    public static final String REQUEST = "request";
+
+    private static final String BUMP = "insert into resource_versions (resource_key, version, changed_at)"
+            + " values (?, 1, now(6)) on duplicate key update version = version + 1, changed_at = now(6)";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Representations that change with time alone (e.g. a reroute on read) must be reloaded after this.
+    // Per node: a poll answered elsewhere is rerouted by the sweeper instead.
+    private final Map<String, Instant> revalidateAfter = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public ResourceVersions(JdbcTemplate jdbcTemplate, ServiceMetrics metrics,
+            @Value("${etag.max-entries:100000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEntries = maxEntries;
+        metrics.gauge("etag.revalidate-tracked", revalidateAfter::size);
+    }
+
+    /** Returns the current ETag of the resource. */
+    public String etag(String kind, Object id) {
+        List<Long> version = PrimaryReads.run(() -> jdbcTemplate.queryForList(
+                "select version from resource_versions where resource_key = ?", Long.class, kind + ":" + id));
+        return "\"" + (version.isEmpty() ? 0 : version.get(0)) + "\"";
+    }
+
+    /**
+     * Current versions of the given resources of one kind, by ID; resources that
+     * never changed are missing. Read them before loading the resources, as for ETags.
+     */
+    public Map<Long, Long> versions(String kind, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return versions("select resource_key, version from resource_versions where resource_key in ("
+                + placeholders + ")", ids.stream().map(id -> kind + ":" + id).toArray());
+    }
+
+    /** Current versions of every resource of the kind that has changed, by ID. */
+    public Map<Long, Long> versions(String kind) {
+        return versions("select resource_key, version from resource_versions where resource_key like ?",
+                kind + ":%");
+    }
+
+    private Map<Long, Long> versions(String sql, Object... args) {
+        Map<Long, Long> versions = new HashMap<>();
+        PrimaryReads.run(() -> {
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                versions.put(idOf(rs.getString(1)), rs.getLong(2));
+            }, args);
+            return null;
+        });
+        return versions;
+    }
+
+    static long idOf(String resourceKey) {
+        return Long.parseLong(resourceKey.substring(resourceKey.indexOf(':') + 1));
+    }
+
+    /** Bumps the version of the resource in the current transaction. */
+    public void changed(String kind, Object id) {
+        jdbcTemplate.update(BUMP, kind + ":" + id);
+    }
+
+    /** Bumps the versions of several resources of one kind in the current transaction. */
+    public void changed(String kind, Collection<?> ids) {
+        jdbcTemplate.batchUpdate(BUMP, ids.stream().map(id -> new Object[] {kind + ":" + id}).toList());
+    }
+
+    /** Whether the resource must be loaded even if the client's ETag is current. */
+    public boolean mustRevalidate(String kind, Object id) {
+        Instant deadline = revalidateAfter.get(kind + ":" + id);
+        return deadline != null && !Instant.now().isBefore(deadline);
+    }
+
+    /** Sets (or with null clears) the time after which the resource must be reloaded regardless of its version. */
+    public void revalidateAfter(String kind, Object id, Instant deadline) {
+        String key = kind + ":" + id;
+        if (deadline == null) {
+            revalidateAfter.remove(key);
+        } else {
+            if (revalidateAfter.size() >= maxEntries && !revalidateAfter.containsKey(key)) {
+                revalidateAfter.clear(); // Only costs some polls their reroute-on-read
+            }
+            revalidateAfter.put(key, deadline);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.innovation.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable directed road graph in compressed sparse row form: the outgoing
+ * edges of node {@code v} are {@code firstOut[v] .. firstOut[v + 1] - 1}, each
+ * with a target node and a travel time in tenths of a second. Nodes are indexed
+ * by a coarse lat/lon grid so a coordinate can be snapped to the nearest node.
+ */
+public final class RoadGraph {
+
+    private static final int MAGIC = 0x51465247; // "QFRG"
+    private static final int FORMAT_VERSION = 1;
+    private static final double CELL_DEGREES = 0.01; // ~1.1 km
+    private static final int MAX_SNAP_RINGS = 3;
+
+    final double[] lat;
+    final double[] lon;
+    final int[] firstOut;
+    final int[] head;
+    final int[] weight;
+    private final Map<Long, int[]> grid;
+
+    RoadGraph(double[] lat, double[] lon, int[] firstOut, int[] head, int[] weight) {
+        this.lat = lat;
+        this.lon = lon;
+        this.firstOut = firstOut;
+        this.head = head;
+        this.weight = weight;
+        this.grid = buildGrid(lat, lon);
+    }
+
+    /** Builds the graph from parallel edge arrays (tail, head, weight) of length {@code edgeCount}. */
+    static RoadGraph fromEdges(double[] lat, double[] lon, int[] tails, int[] heads, int[] weights, int edgeCount) {
+        int nodeCount = lat.length;
+        int[] firstOut = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            firstOut[tails[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            firstOut[v + 1] += firstOut[v];
+        }
+        int[] next = Arrays.copyOf(firstOut, nodeCount);
+        int[] head = new int[edgeCount];
+        int[] weight = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int slot = next[tails[e]]++;
+            head[slot] = heads[e];
+            weight[slot] = weights[e];
+        }
+        return new RoadGraph(lat, lon, firstOut, head, weight);
+    }
+
+    public int nodeCount() {
+        return lat.length;
+    }
+
+    public int edgeCount() {
+        return head.length;
+    }
+
+    /** Returns the graph with every edge reversed, for searches that run backwards from a target. */
+    public RoadGraph reverse() {
+        int edgeCount = head.length;
+        int[] tails = new int[edgeCount];
+        int[] heads = new int[edgeCount];
+        for (int v = 0; v < lat.length; v++) {
+            for (int e = firstOut[v]; e < firstOut[v + 1]; e++) {
+                tails[e] = head[e];
+                heads[e] = v;
+            }
+        }
+        return fromEdges(lat, lon, tails, heads, weight, edgeCount);
+    }
+
+    /** Returns the node nearest to the coordinate within a few grid cells, or -1 if there is none. */
+    public int nearestNode(double latitude, double longitude) {
+        long cellLat = cell(latitude);
+        long cellLon = cell(longitude);
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        // Distance from the point to the edges of its own cell, in degrees of latitude
+        double latOffset = latitude / CELL_DEGREES - cellLat;
+        double lonOffset = longitude / CELL_DEGREES - cellLon;
+        double latMargin = Math.min(latOffset, 1 - latOffset) * CELL_DEGREES;
+        double lonMargin = Math.min(lonOffset, 1 - lonOffset) * CELL_DEGREES * cosLat;
+
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        // Scan rings of cells around the point. A node found in one ring can still be
+        // farther than a node in the next, so keep going while the next ring could be
+        // closer than the best so far.
+        for (int radius = 0; ; radius++) {
+            if (best < 0 && radius > MAX_SNAP_RINGS) {
+                break;
+            }
+            if (best >= 0) {
+                double ringGap = Math.min(latMargin + (radius - 1) * CELL_DEGREES,
+                        lonMargin + (radius - 1) * CELL_DEGREES * cosLat);
+                if (ringGap * ringGap >= bestDistance) {
+                    break;
+                }
+            }
+            for (long dLat = -radius; dLat <= radius; dLat++) {
+                boolean edgeRow = dLat == -radius || dLat == radius;
+                for (long dLon = -radius; dLon <= radius; dLon += edgeRow ? 1 : 2L * radius) {
+                    int[] nodes = grid.get(key(cellLat + dLat, cellLon + dLon));
+                    if (nodes != null) {
+                        for (int node : nodes) {
+                            double distance = squaredDegrees(latitude, longitude, lat[node], lon[node]);
+                            if (distance < bestDistance) {
+                                bestDistance = distance;
+                                best = node;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(lat.length);
+            out.writeInt(head.length);
+            for (int v = 0; v < lat.length; v++) {
+                out.writeDouble(lat[v]);
+                out.writeDouble(lon[v]);
+            }
+            for (int value : firstOut) {
+                out.writeInt(value);
+            }
+            for (int e = 0; e < head.length; e++) {
+                out.writeInt(head[e]);
+                out.writeInt(weight[e]);
+            }
+        }
+    }
+
+    public static RoadGraph read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a road graph cache (or an older format): " + file);
+            }
+            int nodeCount = in.readInt();
+            int edgeCount = in.readInt();
+            double[] lat = new double[nodeCount];
+            double[] lon = new double[nodeCount];
+            for (int v = 0; v < nodeCount; v++) {
+                lat[v] = in.readDouble();
+                lon[v] = in.readDouble();
+            }
+            int[] firstOut = new int[nodeCount + 1];
+            for (int v = 0; v <= nodeCount; v++) {
+                firstOut[v] = in.readInt();
+            }
+            int[] head = new int[edgeCount];
+            int[] weight = new int[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                head[e] = in.readInt();
+                weight[e] = in.readInt();
+            }
+            return new RoadGraph(lat, lon, firstOut, head, weight);
+        }
+    }
+
+    private static Map<Long, int[]> buildGrid(double[] lat, double[] lon) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int v = 0; v < lat.length; v++) {
+            counts.merge(key(cell(lat[v]), cell(lon[v])), 1, Integer::sum);
+        }
+        Map<Long, int[]> grid = new HashMap<>(counts.size() * 2);
+        Map<Long, Integer> filled = new HashMap<>(counts.size() * 2);
+        for (int v = 0; v < lat.length; v++) {
+            long key = key(cell(lat[v]), cell(lon[v]));
+            int[] nodes = grid.computeIfAbsent(key, k -> new int[counts.get(k)]);
+            int index = filled.merge(key, 1, Integer::sum) - 1;
+            nodes[index] = v;
+        }
+        return grid;
+    }
+
+    private static long cell(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long key(long cellLat, long cellLon) {
+        return (cellLat << 32) ^ (cellLon & 0xffffffffL);
+    }
+
+    private static double squaredDegrees(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = lat1 - lat2;
+        double dLon = (lon1 - lon2) * Math.cos(Math.toRadians(lat1));
+        return dLat * dLat + dLon * dLon;
+    }
+}
@@ -0,0 +1,264 @@
+package com.innovation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Road-network travel times from an offline OpenStreetMap extract. The graph is
+ * parsed once, stored reversed in a binary cache, and loaded in the background
+ * when the application is ready. A query runs one Dijkstra search backwards
+ * from the customer and stops as soon as every vendor is settled, so ranking K
+ * vendors costs one search, not K. Until the graph is loaded (or if no
+ * extract is configured) callers fall back to straight-line distance.
+ */
+@Service
+public class RoadRoutingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoadRoutingService.class);
+
+    private final ServiceMetrics metrics;
+    private final boolean etaRanking;
+    private final String osmFile;
+    private final String graphCache;
+    private final int maxEtaTenths;
+    private final double accessSpeedKmh;
+
+    private volatile RoadGraph reverseGraph;
+    private final ThreadLocal<SearchSpace> searchSpaces = new ThreadLocal<>();
+
+    public RoadRoutingService(ServiceMetrics metrics,
+            @Value("${routing.ranking:distance}") String ranking,
+            @Value("${routing.osm-file:}") String osmFile,
+            @Value("${routing.graph-cache:}") String graphCache,
+            @Value("${routing.max-eta-seconds:7200}") int maxEtaSeconds,
+            @Value("${routing.access-speed-kmh:15}") double accessSpeedKmh) {
+        this.metrics = metrics;
+        this.etaRanking = "eta".equalsIgnoreCase(ranking.trim());
+        this.osmFile = osmFile;
+        this.graphCache = graphCache;
+        this.maxEtaTenths = maxEtaSeconds * 10;
+        this.accessSpeedKmh = accessSpeedKmh;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadGraphInBackground() {
+        if (!etaRanking || (osmFile.isBlank() && graphCache.isBlank())) {
+            logger.info("Road routing disabled; vendors are ranked by straight-line distance");
+            return;
+        }
+        Thread loader = new Thread(this::loadGraph, "road-graph-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /** Whether vendor ranking should use {@link #etaSecondsTo}. */
+    public boolean ranksByEta() {
+        return etaRanking && reverseGraph != null;
+    }
+
+    /**
+     * Returns the driving time in seconds from each origin to the destination,
+     * including the approach from each point to its nearest road node. Entries
+     * are NaN when the graph isn't loaded, a point can't be snapped, or the trip
+     * exceeds {@code routing.max-eta-seconds}.
+     */
+    public double[] etaSecondsTo(double destinationLat, double destinationLon, double[] originLats,
+            double[] originLons) {
+        double[] eta = new double[originLats.length];
+        Arrays.fill(eta, Double.NaN);
+        RoadGraph graph = reverseGraph;
+        if (graph == null) {
+            return eta;
+        }
+        long start = System.nanoTime();
+        int source = graph.nearestNode(destinationLat, destinationLon);
+        if (source < 0) {
+            metrics.increment("routing.eta.unsnapped");
+            return eta;
+        }
+        double destinationAccess = accessSeconds(graph, source, destinationLat, destinationLon);
+
+        Map<Integer, List<Integer>> pending = new HashMap<>();
+        double[] originAccess = new double[originLats.length];
+        for (int i = 0; i < originLats.length; i++) {
+            int node = graph.nearestNode(originLats[i], originLons[i]);
+            if (node >= 0) {
+                originAccess[i] = accessSeconds(graph, node, originLats[i], originLons[i]);
+                pending.computeIfAbsent(node, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        SearchSpace space = searchSpace(graph);
+        space.reset();
+        space.relax(source, 0);
+        while (!pending.isEmpty() && !space.heap.isEmpty()) {
+            long entry = space.heap.poll();
+            int dist = (int) (entry >>> 32);
+            int node = (int) entry;
+            if (dist > space.distance(node)) {
+                continue; // Stale heap entry
+            }
+            if (dist > maxEtaTenths) {
+                break;
+            }
+            List<Integer> origins = pending.remove(node);
+            if (origins != null) {
+                for (int i : origins) {
+                    eta[i] = dist / 10.0 + originAccess[i] + destinationAccess;
+                }
+            }
+            for (int e = graph.firstOut[node]; e < graph.firstOut[node + 1]; e++) {
+                space.relax(graph.head[e], dist + graph.weight[e]);
+            }
+        }
+        metrics.recordNanos("routing.eta.query", System.nanoTime() - start);
+        return eta;
+    }
+
+    void loadGraph() {
+        long start = System.nanoTime();
+        try {
+            Path cache = graphCache.isBlank() ? null : Path.of(graphCache);
+            Path osm = osmFile.isBlank() ? null : Path.of(osmFile);
+            RoadGraph graph;
+            if (cache != null && Files.exists(cache)
+                    && (osm == null || !Files.exists(osm)
+                            || !Files.getLastModifiedTime(cache).toInstant()
+                                    .isBefore(Files.getLastModifiedTime(osm).toInstant()))) {
+                graph = RoadGraph.read(cache);
+            } else if (osm != null) {
+                try (InputStream in = osm.toString().endsWith(".gz")
+                        ? new GZIPInputStream(Files.newInputStream(osm))
+                        : Files.newInputStream(osm)) {
+                    graph = OsmRoadGraphLoader.load(in).reverse();
+                }
+                if (cache != null) {
+                    graph.write(cache);
+                }
+            } else {
+                logger.warn("Road graph cache {} not found and no OSM extract configured", graphCache);
+                return;
+            }
+            reverseGraph = graph;
+            metrics.gauge("routing.graph.nodes", graph::nodeCount);
+            metrics.gauge("routing.graph.edges", graph::edgeCount);
+            logger.info("Road graph loaded in {} ms: {} nodes, {} edges", (System.nanoTime() - start) / 1_000_000,
+                    graph.nodeCount(), graph.edgeCount());
+        } catch (Exception e) {
+            logger.error("Could not load road graph; ranking vendors by distance instead", e);
+        }
+    }
+
+    private double accessSeconds(RoadGraph graph, int node, double lat, double lon) {
+        return GeoDistance.haversineKm(lat, lon, graph.lat[node], graph.lon[node]) / accessSpeedKmh * 3600;
+    }
+
+    private SearchSpace searchSpace(RoadGraph graph) {
+        SearchSpace space = searchSpaces.get();
+        if (space == null || space.stamp.length != graph.nodeCount()) {
+            space = new SearchSpace(graph.nodeCount());
+            searchSpaces.set(space);
+        }
+        return space;
+    }
+
+    /**
+     * Per-thread Dijkstra state. Distances are invalidated by bumping a generation
+     * counter instead of clearing the arrays, so a search costs only what it visits.
+     */
+    private static final class SearchSpace {
+        private final int[] dist;
+        private final int[] stamp;
+        private int generation;
+        private final LongHeap heap = new LongHeap();
+
+        SearchSpace(int nodeCount) {
+            this.dist = new int[nodeCount];
+            this.stamp = new int[nodeCount];
+        }
+
+        void reset() {
+            heap.clear();
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                generation = 1;
+            }
+        }
+
+        int distance(int node) {
+            return stamp[node] == generation ? dist[node] : Integer.MAX_VALUE;
+        }
+
+        void relax(int node, int candidate) {
+            if (candidate < distance(node)) {
+                dist[node] = candidate;
+                stamp[node] = generation;
+                heap.add(((long) candidate << 32) | node);
+            }
+        }
+    }
+
+    /** Binary min-heap of primitive longs; entries pack (distance, node). */
+    private static final class LongHeap {
+        private long[] values = new long[1024];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (values[parent] <= value) {
+                    break;
+                }
+                values[i] = values[parent];
+                i = parent;
+            }
+            values[i] = value;
+        }
+
+        long poll() {
+            long top = values[0];
+            long last = values[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && values[child + 1] < values[child]) {
+                    child++;
+                }
+                if (last <= values[child]) {
+                    break;
+                }
+                values[i] = values[child];
+                i = child;
+            }
+            values[i] = last;
+            return top;
+        }
+    }
+}
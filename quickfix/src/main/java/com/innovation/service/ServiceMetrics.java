@@ -0,0 +1,76 @@
+package com.innovation.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lightweight in-process metrics registry. Counters, timers and gauges are
+ * identified by dotted names (e.g. "gemini.call.success") and exposed as a flat
+ * snapshot through the /metrics endpoint.
+ */
+@Component
+public class ServiceMetrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+    public void increment(String name) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).increment();
+    }
+
+    public void increment(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public void recordNanos(String name, long nanos) {
+        timers.computeIfAbsent(name, k -> new Timer()).record(nanos);
+    }
+
+    public void gauge(String name, Supplier<? extends Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public long count(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        timers.forEach((name, timer) -> snapshot.put(name, timer.toMap()));
+        gauges.forEach((name, supplier) -> snapshot.put(name, supplier.get()));
+        return snapshot;
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> values = new TreeMap<>();
+            values.put("count", n);
+            values.put("totalMs", TimeUnit.NANOSECONDS.toMillis(total));
+            values.put("meanMs", n == 0 ? 0.0 : total / (double) n / 1_000_000.0);
+            values.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            return values;
+        }
+    }
+}
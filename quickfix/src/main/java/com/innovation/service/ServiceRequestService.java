@@ -1,5 +1,6 @@
 package com.innovation.service;
 
+import com.innovation.model.RequestEvent;
 import com.innovation.model.RequestStatus;
 import com.innovation.model.ServiceRequest;
 import com.innovation.model.User;
@@ -9,121 +10,336 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ServiceRequestService {
 
     private final ServiceRequestRepository requestRepository;
     private final UserRepository userRepository;
-    private final UserStatusService userStatusService;
+    private final DomainEventOutbox outbox;
     private final UserService userService;
     private final VehicleEstimationService vehicleEstimationService;
-
-    private static final int VENDOR_ACCEPT_TIMEOUT_SECONDS = 60;
+    private final EnrichmentAdmission enrichmentAdmission;
+    private final IdempotencyService idempotencyService;
+    private final VendorInboxService vendorInboxService;
+    private final DispatchPolicy dispatchPolicy;
+    private final DispatchPriority dispatchPriority;
+    private final WorkerAvailabilityIndex availabilityIndex;
+    private final RoadRoutingService roadRoutingService;
+    private final RequestEventLog eventLog;
+    private final RequestProjector projector;
+    private final RequestStatsService statsService;
+    private final RequestSearchIndex searchIndex;
+    private final ResourceVersions resourceVersions;
+    private final ServiceMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterNode clusterNode;
+    private final int rerouteLeaseSeconds;
+
+    static final int VENDOR_ACCEPT_TIMEOUT_SECONDS = 60;
+    static final int MAX_EMPTY_WAVE_BACKOFF_SECONDS = 3600;
 
     @Autowired
     public ServiceRequestService(ServiceRequestRepository requestRepository, UserRepository userRepository,
             UserService userService,
-            UserStatusService userStatusService, VehicleEstimationService vehicleEstimationService) {
+            DomainEventOutbox outbox, VehicleEstimationService vehicleEstimationService,
+            EnrichmentAdmission enrichmentAdmission, IdempotencyService idempotencyService,
+            VendorInboxService vendorInboxService, DispatchPolicy dispatchPolicy, DispatchPriority dispatchPriority,
+            ServiceMetrics metrics,
+            WorkerAvailabilityIndex availabilityIndex, RoadRoutingService roadRoutingService,
+            RequestEventLog eventLog, RequestProjector projector, RequestStatsService statsService,
+            RequestSearchIndex searchIndex, ResourceVersions resourceVersions, TransactionTemplate transactionTemplate, ClusterNode clusterNode,
+            @Value("${reroute.lease-seconds:30}") int rerouteLeaseSeconds) {
         this.requestRepository = requestRepository;
         this.userRepository = userRepository;
         this.userService = userService;
-        this.userStatusService = userStatusService;
+        this.outbox = outbox;
         this.vehicleEstimationService = vehicleEstimationService;
+        this.enrichmentAdmission = enrichmentAdmission;
+        this.idempotencyService = idempotencyService;
+        this.vendorInboxService = vendorInboxService;
+        this.dispatchPolicy = dispatchPolicy;
+        this.dispatchPriority = dispatchPriority;
+        this.metrics = metrics;
+        this.availabilityIndex = availabilityIndex;
+        this.roadRoutingService = roadRoutingService;
+        this.eventLog = eventLog;
+        this.projector = projector;
+        this.statsService = statsService;
+        this.searchIndex = searchIndex;
+        this.resourceVersions = resourceVersions;
+        this.transactionTemplate = transactionTemplate;
+        this.clusterNode = clusterNode;
+        this.rerouteLeaseSeconds = rerouteLeaseSeconds;
     }
 
     @Transactional
     public ServiceRequest createRequest(ServiceRequest request, MultipartFile image) {
-        VehicleEstimationService.VehicleInfoResult infoResult = vehicleEstimationService
-                .computeVehicleInfo(request.getVehicleNumber(), image);
+        // Start the vehicle analysis first so routing below runs concurrently; its
+        // fields are applied on this thread as they become available. While Gemini is
+        // slow or saturated the request is accepted without it.
+        VehicleEstimationService.VehicleAnalysis vehicleAnalysis = null;
+        if (enrichmentAdmission.tryAdmit()) {
+            long enrichStart = System.nanoTime();
+            vehicleAnalysis = vehicleEstimationService.analyzeVehicleAsync(request.getVehicleNumber(), image);
+            vehicleAnalysis.info()
+                    .whenComplete((info, e) -> enrichmentAdmission.finished(System.nanoTime() - enrichStart));
+        }
 
-        if (infoResult != null) {
-            request.setVehicleType(infoResult.vehicleType());
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        User requestingUser = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        request.setRequestingUser(requestingUser);
+        request.setStatus(RequestStatus.OPEN);
+        // --- Rank qualified vendors by distance while the analysis runs ---
+        List<RankedVendor> candidates = rankVendors(request, requestingUser);
+
+        // Dispatch needs only the triage fields, which are streamed first; the rest of
+        // the analysis (make, tyres, cost, age) is still being generated meanwhile.
+        VehicleEstimationService.VehicleTriage triage = vehicleAnalysis != null
+                ? vehicleAnalysis.triage().join()
+                : null;
+        if (triage != null) {
+            request.setVehicleType(triage.vehicleType());
             // If the user didn't provide a number, but we got one from the image, save it.
             if ((request.getVehicleNumber() == null || request.getVehicleNumber().isBlank())
-                    && infoResult.vehicleNumber() != null) {
-                request.setVehicleNumber(infoResult.vehicleNumber());
+                    && triage.vehicleNumber() != null) {
+                request.setVehicleNumber(triage.vehicleNumber());
+            }
+            request.setDamageSeverity(triage.damageSeverity());
+        }
+        request.setPriorityAt(dispatchPriority.priorityAt(request.getCreatedAt(), request.getDamageSeverity()));
+
+        // Fan-out K and radius depend on the severity, so dispatch once the triage is in.
+        List<Long> offeredTo;
+        if (dispatchPolicy.isFanOut()) {
+            offeredTo = dispatchNextWave(request, candidates);
+        } else {
+            offeredTo = new ArrayList<>();
+            if (!candidates.isEmpty()) {
+                User nearestVendor = candidates.get(0).vendor();
+                request.setIntendedVendor(nearestVendor);
+                markRouted(request);
+                offeredTo.add(nearestVendor.getId());
             }
+        }
+
+        VehicleEstimationService.VehicleInfoResult infoResult = vehicleAnalysis != null
+                ? vehicleAnalysis.info().join()
+                : null;
+        if (infoResult != null) {
             request.setEstimatedVehicleAge(infoResult.estimatedAge());
             request.setMakeModel(infoResult.makeModel());
             request.setDamageDetection(infoResult.damageDetection());
             request.setTireWear(infoResult.tireWear());
-            request.setDamageSeverity(infoResult.damageSeverity());
             request.setEstimatedCostRange(infoResult.estimatedCostRange());
         }
 
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User requestingUser = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        request.setRequestingUser(requestingUser);
-        request.setStatus(RequestStatus.OPEN);
-        // --- Find the nearest vendor ---
-        findAndSetNearestVendor(request, requestingUser);
-
         ServiceRequest savedRequest = requestRepository.save(request);
+        eventLog.created(savedRequest);
+        statsService.recordTransition(savedRequest, null, RequestStatus.OPEN, null);
+        if (infoResult != null) {
+            eventLog.enriched(savedRequest);
+        }
+        if (!offeredTo.isEmpty()) {
+            eventLog.routed(savedRequest, offeredTo, null, false);
+        }
         return savedRequest;
     }
 
-    private void findAndSetNearestVendor(ServiceRequest request, User requestingUser) {
+    /**
+     * Creates the request at most once per {@code idempotencyKey} of the current
+     * user; a retry gets the response of the original instead, see
+     * {@link IdempotencyService}.
+     */
+    public IdempotencyService.Outcome<ServiceRequest> createRequest(String idempotencyKey, ServiceRequest request,
+            MultipartFile image) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return idempotencyService.execute(username, idempotencyKey, idempotencyService.fingerprint(request, image),
+                () -> createRequest(request, image));
+    }
+
+    // etaSeconds is NaN when road routing is off or the vendor can't be routed
+    private record RankedVendor(User vendor, double distanceKm, double etaSeconds) {
+    }
+
+    // By road ETA when known (vendors without one after those with one), then by distance
+    private static final Comparator<RankedVendor> RANK_ORDER = Comparator
+            .comparingDouble((RankedVendor v) -> Double.isNaN(v.etaSeconds()) ? Double.MAX_VALUE : v.etaSeconds())
+            .thenComparingDouble(RankedVendor::distanceKm);
+
+    /**
+     * Returns the vendors qualified for the request within the maximum dispatch
+     * radius (if any, see {@link DispatchPolicy}), nearest first (by road ETA when {@code routing.ranking=eta} and the
+     * road graph is loaded). Vendors with
+     * no idle qualified worker are dropped or moved to the end, depending on the
+     * dispatch policy. Empty if the requester has no location, in which case the
+     * request is not routed.
+     */
+    private List<RankedVendor> rankVendors(ServiceRequest request, User requestingUser) {
         Double userLat = requestingUser.getLatitude();
         Double userLon = requestingUser.getLongitude();
 
         if (userLat == null || userLon == null) {
             // Cannot find nearest vendor without user's location.
-            // The request will be open to all, which is the old behavior.
-            return;
+            return List.of();
         }
 
         // Get vendors who can handle this specific request type
         List<User> qualifiedVendors = userService.getVendorsByRequestType(request.getProblemDescription());
 
-        User nearestVendor = null;
-        double minDistance = Double.MAX_VALUE;
-
+        // In fan-out mode vendors beyond the maximum radius are never offered the request
+        List<User> locatedVendors = new ArrayList<>();
+        List<Double> distancesKm = new ArrayList<>();
         for (User vendor : qualifiedVendors) {
-            if (vendor.getLatitude() != null && vendor.getLongitude() != null) {
-                double distance = haversine(userLat, userLon, vendor.getLatitude(), vendor.getLongitude());
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearestVendor = vendor;
-                }
+            if (vendor.getLatitude() == null || vendor.getLongitude() == null) {
+                continue;
+            }
+            double distanceKm = GeoDistance.haversineKm(userLat, userLon, vendor.getLatitude(), vendor.getLongitude());
+            if (distanceKm <= dispatchPolicy.getMaxRadiusKm()) {
+                locatedVendors.add(vendor);
+                distancesKm.add(distanceKm);
+            }
+        }
+        double[] etaSeconds = estimateEtas(userLat, userLon, locatedVendors);
+
+        DispatchPolicy.Availability availability = dispatchPolicy.getAvailability();
+        List<RankedVendor> ranked = new ArrayList<>();
+        List<RankedVendor> busy = new ArrayList<>();
+        for (int i = 0; i < locatedVendors.size(); i++) {
+            User vendor = locatedVendors.get(i);
+            RankedVendor candidate = new RankedVendor(vendor, distancesKm.get(i), etaSeconds[i]);
+            if (availability == DispatchPolicy.Availability.IGNORE
+                    || availabilityIndex.hasCapacity(vendor.getId(), request.getProblemDescription())) {
+                ranked.add(candidate);
+            } else {
+                busy.add(candidate);
+            }
+        }
+        ranked.sort(RANK_ORDER);
+        if (!busy.isEmpty()) {
+            metrics.increment("dispatch.vendors-without-capacity", busy.size());
+            if (availability == DispatchPolicy.Availability.DOWNRANK) {
+                busy.sort(RANK_ORDER);
+                ranked.addAll(busy);
             }
         }
+        return ranked;
+    }
 
-        if (nearestVendor != null) {
-            request.setIntendedVendor(nearestVendor);
-            request.setLastRoutedAt(LocalDateTime.now());
+    private double[] estimateEtas(double userLat, double userLon, List<User> vendors) {
+        if (vendors.isEmpty() || !roadRoutingService.ranksByEta()) {
+            double[] unknown = new double[vendors.size()];
+            Arrays.fill(unknown, Double.NaN);
+            return unknown;
         }
+        double[] vendorLats = new double[vendors.size()];
+        double[] vendorLons = new double[vendors.size()];
+        for (int i = 0; i < vendors.size(); i++) {
+            vendorLats[i] = vendors.get(i).getLatitude();
+            vendorLons[i] = vendors.get(i).getLongitude();
+        }
+        return roadRoutingService.etaSecondsTo(userLat, userLon, vendorLats, vendorLons);
     }
 
-    // Haversine formula to calculate distance between two lat/lon points in km
-    private double haversine(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371; // Radius of the Earth in km
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+    /**
+     * Offers the request to up to K vendors it has not been offered to yet, nearest
+     * first, within the radius of the current wave. If nobody new is inside the
+     * radius it widens straight away, up to the policy's maximum; if nobody new is
+     * left even there, the next check backs off. Returns the IDs of the newly
+     * offered vendors.
+     */
+    private List<Long> dispatchNextWave(ServiceRequest request, List<RankedVendor> candidates) {
+        String requestType = request.getProblemDescription();
+        String severity = request.getDamageSeverity();
+        int fanOut = dispatchPolicy.fanOut(requestType, severity);
+        Set<Long> offered = request.getOfferedVendorIds();
+
+        List<User> wave = new ArrayList<>();
+        int waveNumber = request.getDispatchWave();
+        while (true) {
+            double radiusKm = dispatchPolicy.radiusKm(requestType, severity, waveNumber);
+            // Candidates are not strictly by distance once busy vendors are down-ranked.
+            for (RankedVendor candidate : candidates) {
+                if (wave.size() >= fanOut) {
+                    break;
+                }
+                if (candidate.distanceKm() <= radiusKm && !offered.contains(candidate.vendor().getId())) {
+                    wave.add(candidate.vendor());
+                }
+            }
+            if (!wave.isEmpty() || radiusKm >= dispatchPolicy.getMaxRadiusKm()) {
+                break;
+            }
+            waveNumber++;
+        }
+
+        List<Long> newlyOffered = new ArrayList<>();
+        for (User vendor : wave) {
+            offered.add(vendor.getId());
+            newlyOffered.add(vendor.getId());
+        }
+        if (wave.isEmpty()) {
+            // Nobody new even at the maximum radius; stay on the last wave, keep the earlier
+            // offers open and look again later for vendors who became available
+            request.setDispatchWave(waveNumber);
+            if (request.getIntendedVendor() == null) {
+                markRouted(request);
+            } else {
+                request.setRerouteDueAt(emptyWaveRetryAt(request));
+            }
+            metrics.increment("dispatch.waves.empty");
+            return newlyOffered;
+        }
+        if (request.getIntendedVendor() == null) {
+            // The nearest offered vendor stays the one shown to the requester.
+            request.setIntendedVendor(wave.get(0));
+        }
+        request.setDispatchWave(waveNumber + 1);
+        markRouted(request);
+        metrics.increment("dispatch.waves");
+        metrics.increment("dispatch.offers", newlyOffered.size());
+        return newlyOffered;
     }
 
+    @Transactional(readOnly = true)
     public List<ServiceRequest> getOpenRequests() {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User vendor = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Vendor not found"));
 
-        // Return requests that are OPEN and intended for this specific vendor
-        return requestRepository.findByStatusAndIntendedVendorId(RequestStatus.OPEN, vendor.getId());
+        // Return requests that are OPEN and intended for, or offered to, this specific vendor
+        return requestRepository.findOfferedToVendor(RequestStatus.OPEN, vendor.getId());
+    }
+
+    public DeferredResult<VendorInboxService.InboxChanges> awaitOpenRequestChanges(long since) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        User vendor = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Vendor not found"));
+
+        return vendorInboxService.awaitChanges(vendor.getId(), since);
     }
 
+    @Transactional(readOnly = true)
     public List<ServiceRequest> getMyRequests() {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User user = userRepository.findByUsername(username)
@@ -132,31 +348,161 @@ public class ServiceRequestService {
         return requestRepository.findByRequestingUser(user);
     }
 
-    public Optional<ServiceRequest> getRequestById(Long id) {
-        Optional<ServiceRequest> requestOpt = requestRepository.findById(id);
+    /** The current user's requests, from the event-sourced read model. */
+    public List<RequestView> getMyRequestViews() {
+        return projector.findByRequester(currentUser().getId());
+    }
 
-        // Set the transient vehicle age property on fetch
-        requestOpt.ifPresent(this::setVehicleAge);
+    /** Requests offered or assigned to the current vendor, from the event-sourced read model. */
+    public List<RequestView> getVendorRequestViews() {
+        return projector.findByVendor(currentUser().getId());
+    }
+
+    public RequestProjector.AdminDashboard getAdminDashboard(int recentLimit) {
+        return projector.adminDashboard(recentLimit);
+    }
+
+    public boolean areViewsReady() {
+        return projector.isReady();
+    }
+
+    /** Full-text search; admins search every request, everyone else the requests they are part of. */
+    public RequestSearchIndex.Result searchRequests(String query, Map<String, String> filters, int page, int size) {
+        User user = currentUser();
+        Long partyId = user.getRoles().contains("ADMIN") ? null : user.getId();
+        return searchIndex.search(query, filters, partyId, page, size);
+    }
+
+    public boolean isSearchReady() {
+        return searchIndex.isReady();
+    }
+
+    /**
+     * The request's event history, or empty if the current user may not see it.
+     * Like the per-user views, it is open to the requester, the vendors an open
+     * request is offered to, the assigned vendor and worker, and admins.
+     */
+    public Optional<List<RequestEvent>> getRequestHistory(Long requestId) {
+        User user = currentUser();
+        if (!user.getRoles().contains("ADMIN")) {
+            Optional<ServiceRequest> request = requestRepository.findById(requestId);
+            if (request.isEmpty() || !isParty(request.get(), user.getId())) {
+                metrics.increment("requests.history.denied");
+                return Optional.empty();
+            }
+        }
+        return Optional.of(eventLog.history(requestId));
+    }
+
+    // Vendors follow RequestProjector's vendor view: offered while open, then only the assignee.
+    private static boolean isParty(ServiceRequest request, long userId) {
+        if (isUser(request.getRequestingUser(), userId) || isUser(request.getAssignedWorker(), userId)) {
+            return true;
+        }
+        if (request.getStatus() == RequestStatus.OPEN) {
+            return request.getOfferedVendorIds().contains(userId) || isUser(request.getIntendedVendor(), userId);
+        }
+        return isUser(request.getAssignedVendor(), userId);
+    }
+
+    private static boolean isUser(User user, long userId) {
+        return user != null && user.getId() == userId;
+    }
+
+    private User currentUser() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    public Optional<ServiceRequest> getRequestById(Long id) {
+        // Tagged with the current ETag, so it must not come from a replica that is behind it
+        Optional<ServiceRequest> requestOpt = PrimaryReads.run(() -> requestRepository.findById(id));
 
         if (requestOpt.isPresent()) {
             ServiceRequest request = requestOpt.get();
             // Check for timeout only for the user who requested it
             Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
             String username = ((UserDetails) principal).getUsername();
+            LocalDateTime now = LocalDateTime.now();
 
+            // Only the holder of the lease reroutes, so a sweeper or another node polling the
+            // same request at the same moment can't reroute it twice.
             if (request.getStatus() == RequestStatus.OPEN &&
-                    request.getIntendedVendor() != null &&
                     request.getRequestingUser().getUsername().equals(username) &&
-                    request.getLastRoutedAt() != null &&
-                    request.getLastRoutedAt().plusSeconds(VENDOR_ACCEPT_TIMEOUT_SECONDS)
-                            .isBefore(LocalDateTime.now())) {
-                return Optional.of(rerouteRequest(request));
+                    request.getRerouteDueAt() != null &&
+                    !request.getRerouteDueAt().isAfter(now) &&
+                    requestRepository.tryLeaseDue(id, clusterNode.getId(), now.plusSeconds(rerouteLeaseSeconds),
+                            now) == 1) {
+                metrics.increment("reroute.on-read");
+                requestOpt = rerouteLeased(id);
             }
         }
 
+        // Set the transient vehicle age property on fetch
+        requestOpt.ifPresent(this::setVehicleAge);
+        requestOpt.ifPresent(request -> resourceVersions.revalidateAfter(ResourceVersions.REQUEST, request.getId(),
+                rerouteDeadline(request)));
         return requestOpt;
     }
 
+    /**
+     * Reroutes a request this node holds the lease for, if it is still open, and
+     * releases the lease. The row is locked meanwhile, so a concurrent claim
+     * either lands first (and the reroute is skipped) or waits for it. Returns
+     * empty if the request is gone.
+     */
+    public Optional<ServiceRequest> rerouteLeased(Long id) {
+        return transactionTemplate.execute(status -> requestRepository.findByIdForUpdate(id).map(request -> {
+            if (!clusterNode.getId().equals(request.getLeaseOwner())) {
+                metrics.increment("reroute.lease-lost");
+                return request; // Our lease expired and another node took over
+            }
+            request.setLeaseOwner(null);
+            request.setLeaseUntil(null);
+            if (request.getStatus() != RequestStatus.OPEN) {
+                return requestRepository.save(request);
+            }
+            metrics.increment("reroute.done");
+            return rerouteRequest(request);
+        }));
+    }
+
+    // Records a routing decision and when it times out if no vendor accepts it.
+    private static void markRouted(ServiceRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        request.setLastRoutedAt(now);
+        request.setRerouteDueAt(request.getIntendedVendor() == null ? null
+                : now.plusSeconds(VENDOR_ACCEPT_TIMEOUT_SECONDS));
+    }
+
+    // Waits as long as it has been since the last wave that offered someone, so the checks
+    // back off exponentially from the accept timeout, up to MAX_EMPTY_WAVE_BACKOFF_SECONDS.
+    private static LocalDateTime emptyWaveRetryAt(ServiceRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        long sinceLastWave = request.getLastRoutedAt() == null ? 0
+                : Duration.between(request.getLastRoutedAt(), now).getSeconds();
+        return now.plusSeconds(Math.min(MAX_EMPTY_WAVE_BACKOFF_SECONDS,
+                Math.max(VENDOR_ACCEPT_TIMEOUT_SECONDS, sinceLastWave)));
+    }
+
+    public String getRequestETag(Long id) {
+        return resourceVersions.etag(ResourceVersions.REQUEST, id);
+    }
+
+    /** Whether a poll must load the request because it may be due for a reroute. */
+    public boolean isRerouteCheckDue(Long id) {
+        return resourceVersions.mustRevalidate(ResourceVersions.REQUEST, id);
+    }
+
+    // When a poll by the requester would reroute the request; null if it can't.
+    private static Instant rerouteDeadline(ServiceRequest request) {
+        if (request.getStatus() != RequestStatus.OPEN || request.getRerouteDueAt() == null) {
+            return null;
+        }
+        return request.getRerouteDueAt().atZone(ZoneId.systemDefault()).toInstant();
+    }
+
     private void setVehicleAge(ServiceRequest request) {
         // We don't have an image here, so we pass null.
         VehicleEstimationService.VehicleInfoResult infoResult = vehicleEstimationService
@@ -166,28 +512,75 @@ public class ServiceRequestService {
         }
     }
 
-    @Transactional
-    public ServiceRequest rerouteRequest(ServiceRequest request) {
+    // Runs inside rerouteLeased's transaction.
+    private ServiceRequest rerouteRequest(ServiceRequest request) {
+        List<RankedVendor> candidates = rankVendors(request, request.getRequestingUser());
+
+        if (dispatchPolicy.isFanOut()) {
+            // Earlier offers stay open; the next wave adds vendors from a wider radius.
+            List<Long> offeredTo = dispatchNextWave(request, candidates);
+            ServiceRequest reroutedRequest = requestRepository.save(request);
+            eventLog.routed(reroutedRequest, offeredTo, null, true);
+            return reroutedRequest;
+        }
+
         User currentIntendedVendor = request.getIntendedVendor();
-        List<User> qualifiedVendors = userService.getVendorsByRequestType(request.getProblemDescription());
 
         // Find the next closest vendor who is not the current one
-        User nextNearestVendor = qualifiedVendors.stream()
+        User nextNearestVendor = candidates.stream()
+                .map(RankedVendor::vendor)
                 .filter(v -> v.getId() != currentIntendedVendor.getId())
-                .min((v1, v2) -> Double.compare(
-                        haversine(request.getRequestingUser().getLatitude(), request.getRequestingUser().getLongitude(),
-                                v1.getLatitude(), v1.getLongitude()),
-                        haversine(request.getRequestingUser().getLatitude(), request.getRequestingUser().getLongitude(),
-                                v2.getLatitude(), v2.getLongitude())))
+                .findFirst()
                 .orElse(null);
 
         request.setIntendedVendor(nextNearestVendor); // This could be null if no other vendors are found
-        request.setLastRoutedAt(LocalDateTime.now());
+        markRouted(request);
         ServiceRequest reroutedRequest = requestRepository.save(request);
-        setVehicleAge(reroutedRequest);
+        eventLog.routed(reroutedRequest, nextNearestVendor == null ? List.of() : List.of(nextNearestVendor.getId()),
+                currentIntendedVendor.getId(), true);
         return reroutedRequest;
     }
 
+    /**
+     * Atomically assigns an open request to the vendor (and optionally a worker).
+     * Exactly one of several concurrent accepts succeeds; the others get an
+     * IllegalStateException. On success the offer is withdrawn from every vendor.
+     */
+    private ServiceRequest claimRequest(ServiceRequest request, User vendor, User worker) {
+        if (!isOfferedTo(request, vendor)) {
+            throw new IllegalStateException("This request was not offered to you.");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (requestRepository.claimOpenRequest(request.getId(), vendor, worker, now) == 0) {
+            metrics.increment("dispatch.claim.lost");
+            throw new IllegalStateException("Request is not open for assignment.");
+        }
+        metrics.increment("dispatch.claim.won");
+        // The conditional update skips Hibernate's entity events.
+        resourceVersions.changed(ResourceVersions.REQUEST, request.getId());
+        metrics.recordNanos("dispatch.time-to-assignment",
+                Duration.between(request.getCreatedAt(), now).toNanos());
+        dispatchPriority.recordAccepted(request, now);
+
+        eventLog.claimed(request, vendor, worker);
+        statsService.recordTransition(request, RequestStatus.OPEN, RequestStatus.ASSIGNED, vendor.getId());
+
+        // The conditional update bypassed the persistence context; reload the winner's view.
+        ServiceRequest claimed = requestRepository.findById(request.getId())
+                .orElseThrow(() -> new IllegalStateException("Request disappeared while assigning it."));
+        searchIndex.onRequestSaved(claimed);
+        return claimed;
+    }
+
+    private boolean isOfferedTo(ServiceRequest request, User vendor) {
+        if (request.getIntendedVendor() == null && request.getOfferedVendorIds().isEmpty()) {
+            return true; // Never routed (requester without location): open to any vendor
+        }
+        return request.getOfferedVendorIds().contains(vendor.getId())
+                || (request.getIntendedVendor() != null && request.getIntendedVendor().getId() == vendor.getId());
+    }
+
+    @Transactional
     public Optional<ServiceRequest> updateRequestStatus(Long requestId, String status) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User vendor = userRepository.findByUsername(username)
@@ -200,9 +593,9 @@ public class ServiceRequestService {
                             if (request.getStatus() != RequestStatus.OPEN) {
                                 throw new IllegalStateException("Request is not open for assignment.");
                             }
-                            request.setAssignedVendor(vendor);
-                            request.setStatus(RequestStatus.ASSIGNED);
-                            break;
+                            ServiceRequest acceptedRequest = claimRequest(request, vendor, null);
+                            setVehicleAge(acceptedRequest);
+                            return acceptedRequest;
                         }
                         case "deny": {
                             // This case can be expanded later if needed.
@@ -234,16 +627,29 @@ public class ServiceRequestService {
                         throw new IllegalStateException("Request cannot be completed by this user at this time.");
                     }
                     request.setStatus(RequestStatus.COMPLETED);
+                    request.setCompletedAt(LocalDateTime.now());
 
-                    // --- Update User and Worker Statuses to COMPLETED ---
-                    userStatusService.transitionToCompleted(request.getRequestingUser(), request.getAssignedWorker());
+                    // --- User and worker statuses move to COMPLETED after commit ---
+                    outbox.record(UserStatusService.TOPIC_REQUEST_COMPLETED, request.getId(),
+                            statusPayload(request.getRequestingUser(), request.getAssignedWorker()));
 
                     ServiceRequest completedRequest = requestRepository.save(request);
+                    eventLog.completed(completedRequest, user);
+                    statsService.recordTransition(completedRequest, RequestStatus.ASSIGNED, RequestStatus.COMPLETED,
+                            completedRequest.getAssignedVendor() == null ? null
+                                    : completedRequest.getAssignedVendor().getId());
                     setVehicleAge(completedRequest);
                     return completedRequest;
                 });
     }
 
+    private static Map<String, Object> statusPayload(User requester, User worker) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("requesterId", requester == null ? null : requester.getId());
+        payload.put("workerId", worker == null ? null : worker.getId());
+        return payload;
+    }
+
     @Transactional
     public Optional<ServiceRequest> assignWorkerToRequest(Long requestId, Long workerId) {
         // Get the currently authenticated vendor
@@ -273,14 +679,12 @@ public class ServiceRequestService {
                                 "This worker is not qualified for the service: " + request.getProblemDescription());
                     }
 
-                    request.setAssignedVendor(vendor);
-                    request.setAssignedWorker(worker); // You will need to add this field to your ServiceRequest model
-                    request.setStatus(RequestStatus.ASSIGNED);
+                    ServiceRequest assignedRequest = claimRequest(request, vendor, worker);
 
-                    // --- Update User and Worker Statuses ---
-                    userStatusService.transitionToAssigned(request.getRequestingUser(), worker);
+                    // --- User and worker statuses move to ASSIGNED after commit ---
+                    outbox.record(UserStatusService.TOPIC_REQUEST_ASSIGNED, assignedRequest.getId(),
+                            statusPayload(assignedRequest.getRequestingUser(), worker));
 
-                    ServiceRequest assignedRequest = requestRepository.save(request);
                     setVehicleAge(assignedRequest);
                     return assignedRequest;
                 });
@@ -0,0 +1,84 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * Incrementally parses a JSON object that arrives in arbitrary text fragments
+ * and reports each top-level scalar field as soon as its value is complete.
+ * Nested objects and arrays are skipped. Not thread-safe; feed fragments in order.
+ */
+public class StreamingJsonFieldParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final BiConsumer<String, String> fieldListener;
+    private int depth;
+    private String currentField;
+
+    public StreamingJsonFieldParser(BiConsumer<String, String> fieldListener) {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.fieldListener = fieldListener;
+    }
+
+    /**
+     * Feeds the next fragment of the document.
+     *
+     * @throws IllegalStateException if the text so far is not valid JSON
+     */
+    public void feed(String fragment) {
+        byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed JSON in streamed response: " + e.getMessage(), e);
+        }
+    }
+
+    /** Signals the end of the document and reports any remaining field. */
+    public void finish() {
+        feeder.endOfInput();
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed JSON in streamed response: " + e.getMessage(), e);
+        }
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> depth++;
+                case END_OBJECT, END_ARRAY -> depth--;
+                case FIELD_NAME -> {
+                    if (depth == 1) {
+                        currentField = parser.currentName();
+                    }
+                }
+                case VALUE_NULL -> currentField = null;
+                default -> {
+                    if (depth == 1 && currentField != null && token.isScalarValue()) {
+                        fieldListener.accept(currentField, parser.getText());
+                        currentField = null;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.innovation.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe token bucket. Tokens refill continuously at {@code permitsPerSecond}
+ * up to {@code capacity}; callers may wait a bounded time for a token.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, double capacity) {
+        this(permitsPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, double capacity, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    public boolean tryAcquire() {
+        synchronized (this) {
+            refill(nanoClock.getAsLong());
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reserves a token if one becomes available within {@code maxWaitMillis},
+     * sleeping for the reservation outside the lock.
+     */
+    public boolean tryAcquire(long maxWaitMillis) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            waitNanos = (long) Math.ceil((1 - tokens) / refillPerNano);
+            if (waitNanos > TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)) {
+                return false;
+            }
+            // Reserve the token now; it is paid back by the refill while we sleep.
+            tokens -= 1;
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.innovation.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** Hooks for updating in-memory state only once the database change is durable. */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /** Runs {@code action} after the current transaction commits, or right away if there is none. */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.innovation.service;
+
+import com.innovation.model.DocumentType;
+import com.innovation.repository.UserDocumentRepository;
+import com.innovation.repository.UserDocumentRepository.DocumentInfo;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Stores and serves user documents. Uploads are streamed from the (disk-backed)
+ * multipart part into the database, one at a time, and handed to the
+ * {@link DocumentProcessor} after commit. A download reads the requested range
+ * with one streaming query pinned to the revision it started with, and writes
+ * it to the client after the connection is released. The MySQL driver reads a
+ * whole BLOB value into memory even from a streaming result set, so a download
+ * holds up to one document (at most the upload limit) on the heap meanwhile.
+ */
+@Service
+public class UserDocumentService {
+
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    /** A document's preview and the revision it was made from. */
+    public record Thumbnail(long documentId, int revision, byte[] content) {
+    }
+
+    private static final String UPSERT = "insert into user_documents"
+            + " (user_id, doc_type, content, content_type, content_length, revision, processed)"
+            + " values (?, ?, ?, ?, ?, 1, false) on duplicate key update content = values(content),"
+            + " content_type = values(content_type), content_length = values(content_length),"
+            + " revision = revision + 1, thumbnail = null, processed = false";
+
+    private final UserDocumentRepository documentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DocumentProcessor processor;
+    private final ServiceMetrics metrics;
+
+    public UserDocumentService(UserDocumentRepository documentRepository, JdbcTemplate jdbcTemplate,
+            DocumentProcessor processor, ServiceMetrics metrics) {
+        this.documentRepository = documentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.processor = processor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Stores the document in the current transaction, replacing any earlier
+     * version, and queues it for thumbnailing and recompression once that commits.
+     */
+    public void store(long userId, DocumentType type, InputStream content, long length) {
+        try (BufferedInputStream in = new BufferedInputStream(content)) {
+            in.mark(16);
+            String contentType = detectContentType(in.readNBytes(16));
+            in.reset();
+            jdbcTemplate.update(UPSERT, ps -> {
+                ps.setLong(1, userId);
+                ps.setString(2, type.name());
+                ps.setBinaryStream(3, in, length);
+                ps.setString(4, contentType);
+                ps.setLong(5, length);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read uploaded " + type.getPathName(), e);
+        }
+        Long id = jdbcTemplate.queryForObject("select id from user_documents where user_id = ? and doc_type = ?",
+                Long.class, userId, type.name());
+        metrics.increment("documents.stored");
+        TransactionCallbacks.afterCommit(() -> processor.submit(id));
+    }
+
+    public Optional<Thumbnail> thumbnail(Long userId, DocumentType type) {
+        return jdbcTemplate.query("select id, revision, thumbnail from user_documents"
+                + " where user_id = ? and doc_type = ? and thumbnail is not null",
+                (rs, rowNum) -> new Thumbnail(rs.getLong(1), rs.getInt(2), rs.getBytes(3)), userId, type.name())
+                .stream().findFirst();
+    }
+
+    /** The document's metadata, or empty if the user has none of this type. */
+    public Optional<DocumentInfo> describe(Long userId, DocumentType type) {
+        return documentRepository.findInfoByUserIdAndDocType(userId, type)
+                .filter(info -> info.getContentLength() == null || info.getContentLength() > 0);
+    }
+
+    /** Length in bytes; measured in the database for rows stored before lengths were recorded. */
+    public long length(DocumentInfo document) {
+        if (document.getContentLength() != null) {
+            return document.getContentLength();
+        }
+        Long length = jdbcTemplate.queryForObject("select length(content) from user_documents where id = ?",
+                Long.class, document.getId());
+        return length == null ? 0 : length;
+    }
+
+    /**
+     * Writes {@code length} bytes of the document starting at {@code offset}.
+     * Fails with IllegalStateException if the document was replaced since it
+     * was described.
+     */
+    public void copy(DocumentInfo document, long offset, long length, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        byte[] range = jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement("select content from user_documents"
+                    + " where id = ? and revision = ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setLong(1, document.getId());
+            statement.setInt(2, document.getRevision());
+            return statement;
+        }, rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            try (InputStream in = rs.getBinaryStream(1)) {
+                if (in == null) {
+                    return null;
+                }
+                in.skipNBytes(offset);
+                return in.readNBytes((int) length);
+            } catch (EOFException e) {
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read document " + document.getId(), e);
+            }
+        });
+        if (range == null || range.length < length) {
+            throw new IllegalStateException("Document " + document.getId() + " changed during download");
+        }
+        out.write(range);
+        out.flush();
+        metrics.increment("documents.bytes-served", length);
+        metrics.recordNanos("documents.download", System.nanoTime() - start);
+    }
+
+    /** Identifies the content by its leading bytes; the client's declared type is not trusted. */
+    public static String detectContentType(byte[] content) {
+        if (startsWith(content, 0x25, 0x50, 0x44, 0x46)) {
+            return "application/pdf";
+        }
+        if (startsWith(content, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(content, 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(content, 0x47, 0x49, 0x46, 0x38)) {
+            return "image/gif";
+        }
+        if (startsWith(content, 0x52, 0x49, 0x46, 0x46) && content.length >= 12
+                && Arrays.equals(content, 8, 12, new byte[] { 0x57, 0x45, 0x42, 0x50 }, 0, 4)) {
+            return "image/webp";
+        }
+        return OCTET_STREAM;
+    }
+
+    /** File name extension for a detected content type. */
+    public static String extension(String contentType) {
+        if (contentType == null) {
+            return "bin";
+        }
+        return switch (contentType) {
+            case "application/pdf" -> "pdf";
+            case "image/jpeg" -> "jpg";
+            case "image/png" -> "png";
+            case "image/gif" -> "gif";
+            case "image/webp" -> "webp";
+            default -> "bin";
+        };
+    }
+
+    private static boolean startsWith(byte[] content, int... prefix) {
+        if (content == null || content.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((content[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
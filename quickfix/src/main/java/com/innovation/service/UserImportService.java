@@ -0,0 +1,495 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.User;
+import com.innovation.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users in bulk from CSV or NDJSON, for onboarding the vendors and
+ * workers of a new city. The columns (or JSON fields) are {@code username,
+ * password, email, name, roles, requestTypes, vendor, latitude, longitude,
+ * address}; roles and request types are separated by {@code ;} (or given as
+ * JSON arrays) and {@code vendor} names the username of a worker's vendor,
+ * either an existing one or one created by the same import.
+ * <p>
+ * All rows are validated in one pass, with one query for usernames that are
+ * taken and one for the vendors referenced, and invalid rows are reported
+ * rather than failing the import. Passwords are hashed on a bounded pool
+ * before the transaction starts, and the valid rows are then written with
+ * batched JDBC inserts in a single transaction. Vendors' request types are
+ * derived from their workers, as in {@link UserService#addUser}.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    public static final List<String> COLUMNS = List.of("username", "password", "email", "name", "roles",
+            "requestTypes", "vendor", "latitude", "longitude", "address");
+    private static final Set<String> ROLES = Set.of("ADMIN", "USER", "VENDOR", "WORKER");
+
+    /** A rejected row: the CSV record after the header, or the NDJSON line, counting from 1. */
+    public record RowError(int row, String username, String message) {
+    }
+
+    public record ImportReport(int rows, int created, List<RowError> errors) {
+    }
+
+    private static final class Row {
+        final int number;
+        String username;
+        String password;
+        String email;
+        String name;
+        String address;
+        String vendor;
+        Double latitude;
+        Double longitude;
+        Set<String> roles;
+        Set<String> requestTypes;
+        Long existingVendorId;
+        String error;
+        String passwordHash;
+        long id;
+
+        Row(int number) {
+            this.number = number;
+        }
+
+        boolean is(String role) {
+            return roles.contains(role);
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectMapper objectMapper;
+    private final WorkerAvailabilityIndex availabilityIndex;
+    private final LocationGridIndex locationGrid;
+    private final ResourceVersions resourceVersions;
+    private final ServiceMetrics metrics;
+    private final int batchSize;
+    private final int maxRows;
+    private final ExecutorService hashers;
+
+    public UserImportService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+            JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            EntityManagerFactory entityManagerFactory, ObjectMapper objectMapper,
+            WorkerAvailabilityIndex availabilityIndex, LocationGridIndex locationGrid,
+            ResourceVersions resourceVersions, ServiceMetrics metrics,
+            @Value("${users.import.batch-size:500}") int batchSize,
+            @Value("${users.import.max-rows:10000}") int maxRows,
+            @Value("${users.import.hash-threads:4}") int hashThreads) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.entityManagerFactory = entityManagerFactory;
+        this.objectMapper = objectMapper;
+        this.availabilityIndex = availabilityIndex;
+        this.locationGrid = locationGrid;
+        this.resourceVersions = resourceVersions;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+        AtomicInteger counter = new AtomicInteger();
+        this.hashers = Executors.newFixedThreadPool(hashThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashers.shutdownNow();
+    }
+
+    /**
+     * Creates the valid rows of {@code body} and reports the others. Fails with
+     * IllegalArgumentException if the input has more than
+     * {@code users.import.max-rows} rows or a CSV header without username and
+     * password.
+     */
+    public ImportReport importUsers(InputStream body, BulkFormat format) {
+        long start = System.nanoTime();
+        List<RowError> errors = new ArrayList<>();
+        List<Row> rows;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            rows = format == BulkFormat.CSV ? readCsv(reader, errors) : readNdjson(reader, errors);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the import", e);
+        }
+        int rejectedUnparsed = errors.size();
+        validate(rows);
+        List<Row> valid = new ArrayList<>();
+        for (Row row : rows) {
+            if (row.error == null) {
+                valid.add(row);
+            } else {
+                errors.add(new RowError(row.number, row.username, row.error));
+            }
+        }
+        errors.sort(Comparator.comparingInt(RowError::row));
+
+        if (!valid.isEmpty()) {
+            hashPasswords(valid);
+            Set<Long> updatedVendors = transactionTemplate.execute(status -> {
+                Set<Long> vendors = insert(valid);
+                // Other nodes evict their cached users and finder results from these versions
+                Set<Long> changed = new HashSet<>(vendors);
+                valid.forEach(row -> changed.add(row.id));
+                resourceVersions.changed(ResourceVersions.USER, changed);
+                return vendors;
+            });
+            refresh(valid, updatedVendors);
+        }
+        metrics.increment("users.import.created", valid.size());
+        metrics.increment("users.import.rejected", errors.size());
+        metrics.recordNanos("users.import", System.nanoTime() - start);
+        logger.info("Imported {} users, rejected {} rows", valid.size(), errors.size());
+        return new ImportReport(rows.size() + rejectedUnparsed, valid.size(), errors);
+    }
+
+    private List<Row> readCsv(BufferedReader reader, List<RowError> errors) throws IOException {
+        List<String> header = CsvRecords.read(reader);
+        if (header == null) {
+            return List.of();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).replace("\uFEFF", "").trim(), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("password")) {
+            throw new IllegalArgumentException("The CSV header must name at least the username and password columns");
+        }
+        List<Row> rows = new ArrayList<>();
+        List<String> fields;
+        int number = 0;
+        while ((fields = CsvRecords.read(reader)) != null) {
+            checkLimit(++number);
+            List<String> record = fields;
+            Function<String, String> value = column -> {
+                Integer index = columns.get(column);
+                return index == null || index >= record.size() ? null : record.get(index);
+            };
+            parse(number, value, rows, errors);
+        }
+        return rows;
+    }
+
+    private List<Row> readNdjson(BufferedReader reader, List<RowError> errors) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                number++;
+                continue;
+            }
+            checkLimit(++number);
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                errors.add(new RowError(number, null, "Malformed JSON"));
+                continue;
+            }
+            if (!node.isObject()) {
+                errors.add(new RowError(number, null, "Each line must be a JSON object"));
+                continue;
+            }
+            parse(number, column -> {
+                JsonNode field = node.get(column);
+                if (field == null || field.isNull()) {
+                    return null;
+                }
+                if (field.isArray()) {
+                    List<String> values = new ArrayList<>();
+                    field.forEach(element -> values.add(element.asText()));
+                    return String.join(";", values);
+                }
+                return field.asText();
+            }, rows, errors);
+        }
+        return rows;
+    }
+
+    private void checkLimit(int rows) {
+        if (rows > maxRows) {
+            throw new IllegalArgumentException("At most " + maxRows + " users can be imported at once");
+        }
+    }
+
+    private static void parse(int number, Function<String, String> value, List<Row> rows, List<RowError> errors) {
+        Row row = new Row(number);
+        row.username = trimToNull(value.apply("username"));
+        try {
+            String password = value.apply("password");
+            row.password = password == null || password.isEmpty() ? null : password;
+            row.email = trimToNull(value.apply("email"));
+            row.name = trimToNull(value.apply("name"));
+            row.address = trimToNull(value.apply("address"));
+            row.vendor = trimToNull(value.apply("vendor"));
+            row.roles = split(value.apply("roles"));
+            row.requestTypes = split(value.apply("requestTypes"));
+            row.latitude = coordinate(value.apply("latitude"), 90, "latitude");
+            row.longitude = coordinate(value.apply("longitude"), 180, "longitude");
+            if ((row.latitude == null) != (row.longitude == null)) {
+                throw new IllegalArgumentException("latitude and longitude must be given together");
+            }
+            rows.add(row);
+        } catch (IllegalArgumentException e) {
+            errors.add(new RowError(number, row.username, e.getMessage()));
+        }
+    }
+
+    // Usernames compare case-insensitively, as they do in MySQL.
+    private void validate(List<Row> rows) {
+        Map<String, Row> byUsername = new HashMap<>();
+        for (Row row : rows) {
+            Row first = row.username == null ? null : byUsername.putIfAbsent(key(row.username), row);
+            if (row.username == null) {
+                row.error = "username is required";
+            } else if (first != null) {
+                row.error = "username repeats row " + first.number;
+            } else if (row.password == null) {
+                row.error = "password is required";
+            } else if (row.roles.isEmpty()) {
+                row.error = "at least one role is required";
+            } else if (!ROLES.containsAll(row.roles)) {
+                Set<String> unknown = new LinkedHashSet<>(row.roles);
+                unknown.removeAll(ROLES);
+                row.error = "unknown role " + String.join(", ", unknown);
+            } else if (row.vendor != null && !row.is("WORKER")) {
+                row.error = "only workers can have a vendor";
+            }
+        }
+        Set<String> candidates = rows.stream().filter(row -> row.error == null).map(row -> row.username)
+                .collect(Collectors.toSet());
+        if (candidates.isEmpty()) {
+            return;
+        }
+        query("select username from users where username in (:names)", candidates,
+                (rs, rowNum) -> byUsername.get(key(rs.getString(1)))).forEach(row -> {
+                    if (row != null && row.error == null) {
+                        row.error = "username is already taken";
+                    }
+                });
+
+        // Workers' vendors: rows of this import, or existing vendors looked up together.
+        Set<String> external = rows.stream()
+                .filter(row -> row.error == null && row.vendor != null && !byUsername.containsKey(key(row.vendor)))
+                .map(row -> row.vendor)
+                .collect(Collectors.toSet());
+        Map<String, Long> existingVendors = new HashMap<>();
+        if (!external.isEmpty()) {
+            query("select u.username, u.id from users u join user_roles r on r.user_id = u.id"
+                    + " where r.roles = 'VENDOR' and u.username in (:names)", external,
+                    (rs, rowNum) -> existingVendors.put(key(rs.getString(1)), rs.getLong(2)));
+        }
+        for (Row row : rows) {
+            if (row.error != null || row.vendor == null) {
+                continue;
+            }
+            Row vendor = byUsername.get(key(row.vendor));
+            if (vendor == null) {
+                row.existingVendorId = existingVendors.get(key(row.vendor));
+                if (row.existingVendorId == null) {
+                    row.error = "vendor " + row.vendor + " does not exist";
+                }
+            } else if (vendor.error != null) {
+                row.error = "vendor " + row.vendor + " was rejected in row " + vendor.number;
+            } else if (!vendor.is("VENDOR")) {
+                row.error = "vendor " + row.vendor + " does not have the VENDOR role";
+            }
+        }
+    }
+
+    // BCrypt is deliberately slow, so the hashes are computed in parallel and outside the transaction.
+    private void hashPasswords(List<Row> rows) {
+        long start = System.nanoTime();
+        CompletableFuture.allOf(rows.stream()
+                .map(row -> CompletableFuture.runAsync(() -> {
+                    row.passwordHash = passwordEncoder.encode(row.password);
+                    row.password = null;
+                }, hashers))
+                .toArray(CompletableFuture[]::new)).join();
+        metrics.recordNanos("users.import.hashing", System.nanoTime() - start);
+    }
+
+    /** Writes the rows and returns the existing vendors that gained workers. */
+    private Set<Long> insert(List<Row> rows) {
+        jdbcTemplate.batchUpdate("insert into users (username, password, email, name, address, latitude,"
+                + " longitude, status, document_mask) values (?, ?, ?, ?, ?, ?, ?, 'IDLE', 0)", rows, batchSize,
+                (ps, row) -> {
+                    ps.setString(1, row.username);
+                    ps.setString(2, row.passwordHash);
+                    ps.setString(3, row.email);
+                    ps.setString(4, row.name);
+                    ps.setString(5, row.address);
+                    ps.setObject(6, row.latitude, Types.DOUBLE);
+                    ps.setObject(7, row.longitude, Types.DOUBLE);
+                });
+        Map<String, Row> byUsername = rows.stream().collect(Collectors.toMap(row -> key(row.username), row -> row));
+        query("select username, id from users where username in (:names)",
+                rows.stream().map(row -> row.username).collect(Collectors.toSet()),
+                (rs, rowNum) -> byUsername.get(key(rs.getString(1))).id = rs.getLong(2));
+
+        List<Object[]> roles = new ArrayList<>();
+        List<Object[]> links = new ArrayList<>();
+        Map<Long, Set<String>> requestTypes = new HashMap<>();
+        Map<Long, Set<String>> vendorRequestTypes = new HashMap<>();
+        for (Row row : rows) {
+            row.roles.forEach(role -> roles.add(new Object[] { row.id, role }));
+            if (row.is("WORKER")) {
+                requestTypes.computeIfAbsent(row.id, id -> new HashSet<>()).addAll(row.requestTypes);
+                if (row.vendor != null) {
+                    long vendorId = row.existingVendorId != null ? row.existingVendorId
+                            : byUsername.get(key(row.vendor)).id;
+                    links.add(new Object[] { vendorId, row.id });
+                    vendorRequestTypes.computeIfAbsent(vendorId, id -> new HashSet<>()).addAll(row.requestTypes);
+                }
+            }
+        }
+        // New vendors get exactly their workers' types; existing ones keep theirs and gain the new workers'.
+        Set<Long> updatedVendors = rows.stream().map(row -> row.existingVendorId).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        List<Object[]> newTypes = new ArrayList<>();
+        List<Object[]> addedTypes = new ArrayList<>();
+        requestTypes.forEach((id, types) -> types.forEach(type -> newTypes.add(new Object[] { id, type })));
+        vendorRequestTypes.forEach((id, types) -> types.forEach(type -> {
+            if (updatedVendors.contains(id)) {
+                addedTypes.add(new Object[] { id, type, id, type });
+            } else if (!requestTypes.containsKey(id) || !requestTypes.get(id).contains(type)) {
+                newTypes.add(new Object[] { id, type });
+            }
+        }));
+
+        jdbcTemplate.batchUpdate("insert into user_roles (user_id, roles) values (?, ?)", roles);
+        jdbcTemplate.batchUpdate("insert into user_request_types (user_id, request_type) values (?, ?)", newTypes);
+        jdbcTemplate.batchUpdate("insert into user_request_types (user_id, request_type) select ?, ? from dual"
+                + " where not exists (select 1 from user_request_types where user_id = ? and request_type = ?)",
+                addedTypes);
+        jdbcTemplate.batchUpdate("insert into vendor_workers (vendor_id, worker_id) values (?, ?)", links);
+        jdbcTemplate.batchUpdate("update users set assigned_vendor_id = ? where id = ?", links);
+        return updatedVendors;
+    }
+
+    // The inserts bypassed Hibernate: drop this node's cached users and finder results right away,
+    // then update the indexes.
+    private void refresh(List<Row> rows, Set<Long> updatedVendors) {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        List<Long> ids = new ArrayList<>(updatedVendors);
+        rows.forEach(row -> ids.add(row.id));
+        // From the primary they were just written to
+        PrimaryReads.run(() -> readOnlyTransaction.execute(status -> {
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + batchSize));
+                for (User user : userRepository.findAllById(chunk)) {
+                    availabilityIndex.onUserSaved(user);
+                    locationGrid.onUserSaved(user);
+                }
+            }
+            return null;
+        }));
+    }
+
+    // Runs an "in (:names)" query in chunks of the batch size.
+    private <T> List<T> query(String sql, Set<String> names, RowMapper<T> mapper) {
+        List<String> all = new ArrayList<>(names);
+        List<T> results = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += batchSize) {
+            results.addAll(namedJdbcTemplate.query(sql,
+                    Map.of("names", all.subList(from, Math.min(all.size(), from + batchSize))), mapper));
+        }
+        return results;
+    }
+
+    private static Set<String> split(String value) {
+        if (value == null || value.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(value.split("[;|]"))
+                .map(String::trim)
+                .filter(part -> !part.isEmpty())
+                .map(part -> part.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Double coordinate(String value, double limit, String name) {
+        String trimmed = trimToNull(value);
+        if (trimmed == null) {
+            return null;
+        }
+        try {
+            double parsed = Double.parseDouble(trimmed);
+            if (Math.abs(parsed) > limit || Double.isNaN(parsed)) {
+                throw new IllegalArgumentException(name + " is out of range");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number");
+        }
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -1,17 +1,27 @@
 package com.innovation.service;
 
+import com.innovation.model.DocumentType;
+import com.innovation.model.LocationPing;
 import com.innovation.model.RequestStatus;
 import com.innovation.model.ServiceRequest;
 import com.innovation.model.User;
 import com.innovation.model.UserActivityStatus;
 import com.innovation.repository.ServiceRequestRepository;
+import com.innovation.repository.UserDocumentRepository;
 import com.innovation.repository.UserRepository;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -25,37 +35,66 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final ServiceRequestRepository serviceRequestRepository;
     private final UserStatusService userStatusService; // Inject UserStatusService
+    private final WorkerAvailabilityIndex availabilityIndex;
+    private final UserDocumentRepository documentRepository;
+    private final LocationGridIndex locationGrid;
+    private final UserDocumentService documentService;
 
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
-            UserStatusService userStatusService, ServiceRequestRepository serviceRequestRepository) {
+            UserStatusService userStatusService, ServiceRequestRepository serviceRequestRepository,
+            WorkerAvailabilityIndex availabilityIndex, UserDocumentRepository documentRepository,
+            LocationGridIndex locationGrid, UserDocumentService documentService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.userStatusService = userStatusService;
         this.serviceRequestRepository = serviceRequestRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.documentRepository = documentRepository;
+        this.locationGrid = locationGrid;
+        this.documentService = documentService;
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<User> getVendors() {
         return userRepository.findByRolesContaining("VENDOR");
     }
 
+    @Transactional(readOnly = true)
     public List<User> getUsersByRole(String role) {
         return userRepository.findByRolesContaining(role);
     }
 
+    @Transactional(readOnly = true)
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
 
+    /**
+     * Loads the user for a response tagged with its current ETag, from the
+     * primary: a lagging replica could return data older than the version.
+     */
+    public Optional<User> getVersionedUserById(Long id) {
+        return PrimaryReads.run(() -> userRepository.findById(id));
+    }
+
+    @Transactional(readOnly = true)
     public Optional<User> getUserByUsername(String username) {
         return userRepository.findByUsername(username);
     }
 
     @Transactional
     public User addUser(User user) {
+        return addUser(user, Map.of());
+    }
+
+    /** Adds the user with documents uploaded as multipart files, which are streamed into storage. */
+    @Transactional
+    public User addUser(User user, Map<DocumentType, MultipartFile> files) {
         // If the user is a VENDOR, derive their request types from their assigned
         // workers.
         if (user.getRoles().contains("VENDOR")) {
@@ -63,11 +102,21 @@ public class UserService {
             user.setRequestTypes(derivedRequestTypes);
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        // Documents need the generated ID, so they are stored after the user.
+        storeDocuments(savedUser, user, files);
+        availabilityIndex.onUserSaved(savedUser);
+        locationGrid.onUserSaved(savedUser);
+        return savedUser;
     }
 
     @Transactional
     public Optional<User> updateUser(Long id, User userDetails) {
+        return updateUser(id, userDetails, Map.of());
+    }
+
+    @Transactional
+    public Optional<User> updateUser(Long id, User userDetails, Map<DocumentType, MultipartFile> files) {
         return userRepository.findById(id)
                 .map(user -> {
                     // The original roles of the user before any updates
@@ -102,30 +151,8 @@ public class UserService {
                     // Update Vendor KYC details
                     user.setName(userDetails.getName()); // Always update name
 
-                    // Only update document if a new one is provided in the request
-                    if (userDetails.getDigitalSignature() != null) {
-                        user.setDigitalSignature(userDetails.getDigitalSignature());
-                    }
-                    if (userDetails.getAdhaarCard() != null) {
-                        user.setAdhaarCard(userDetails.getAdhaarCard());
-                    }
-                    if (userDetails.getVoterId() != null) {
-                        user.setVoterId(userDetails.getVoterId());
-                    }
-                    if (userDetails.getPanCard() != null) {
-                        user.setPanCard(userDetails.getPanCard());
-                    }
-                    // Note: shopRegistration is missing from the controller, but we'll add the
-                    // logic here
-                    if (userDetails.getShopRegistration() != null) {
-                        user.setShopRegistration(userDetails.getShopRegistration());
-                    }
-                    if (userDetails.getUserAgreement() != null) {
-                        user.setUserAgreement(userDetails.getUserAgreement());
-                    }
-                    if (userDetails.getPhoto() != null) {
-                        user.setPhoto(userDetails.getPhoto());
-                    }
+                    // Only update documents that are provided in the request
+                    storeDocuments(user, userDetails, files);
 
                     // Update location
                     user.setAddress(userDetails.getAddress());
@@ -137,14 +164,48 @@ public class UserService {
                         user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
                     }
 
-                    return userRepository.save(user);
+                    User savedUser = userRepository.save(user);
+                    availabilityIndex.onUserSaved(savedUser);
+                    locationGrid.onUserSaved(savedUser);
+                    return savedUser;
                 });
     }
 
+    /**
+     * Stores every document uploaded in {@code files} or on {@code uploads} for
+     * {@code user}, replacing any earlier version, and records it in the user's
+     * document mask. Files are streamed one at a time rather than read into memory.
+     */
+    private void storeDocuments(User user, User uploads, Map<DocumentType, MultipartFile> files) {
+        int mask = user.getDocumentMask();
+        for (DocumentType type : DocumentType.values()) {
+            MultipartFile file = files.get(type);
+            byte[] content = uploads.getUploadedDocument(type);
+            if (file != null && !file.isEmpty()) {
+                try {
+                    documentService.store(user.getId(), type, file.getInputStream(), file.getSize());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read uploaded " + type.getPathName(), e);
+                }
+            } else if (content != null && content.length > 0) {
+                documentService.store(user.getId(), type, new ByteArrayInputStream(content), content.length);
+            } else {
+                continue;
+            }
+            mask |= type.bit();
+        }
+        if (mask != user.getDocumentMask()) {
+            user.setDocumentMask(mask);
+            userRepository.save(user);
+        }
+    }
+
     private Set<String> deriveRequestTypesFromWorkers(Set<Long> workerIds) {
         if (workerIds == null || workerIds.isEmpty()) {
             return new HashSet<>();
         }
+        // One query for the workers; their request types are then fetched in batches
+        // (hibernate.default_batch_fetch_size) or from the collection cache.
         List<User> workers = userRepository.findAllById(workerIds);
         return workers.stream()
                 .flatMap(worker -> worker.getRequestTypes().stream())
@@ -194,7 +255,10 @@ public class UserService {
         }
 
         // 3. Proceed with deletion
+        documentRepository.deleteByUserId(userToDelete.getId());
         userRepository.delete(userToDelete);
+        availabilityIndex.onUserDeleted(userToDelete.getId());
+        locationGrid.onUserDeleted(userToDelete.getId());
         return true;
     }
 
@@ -204,18 +268,37 @@ public class UserService {
                 .map(user -> {
                     user.setLatitude(locationData.getLatitude());
                     user.setLongitude(locationData.getLongitude());
-                    return userRepository.save(user);
+                    User savedUser = userRepository.save(user);
+                    locationGrid.onUserSaved(savedUser);
+                    return savedUser;
                 });
     }
 
+    /** Applies a batch of position updates in one transaction; returns how many users were found. */
+    @Transactional
+    public int updateUserLocations(List<LocationPing> pings) {
+        Map<Long, LocationPing> latest = new HashMap<>();
+        pings.forEach(ping -> latest.put(ping.userId(), ping));
+        List<User> users = userRepository.findAllById(latest.keySet());
+        for (User user : users) {
+            LocationPing ping = latest.get(user.getId());
+            user.setLatitude(ping.latitude());
+            user.setLongitude(ping.longitude());
+        }
+        userRepository.saveAll(users).forEach(locationGrid::onUserSaved);
+        return users.size();
+    }
+
     @Transactional
     public void updateUserStatus(Long userId, UserActivityStatus status) {
         userRepository.findById(userId).ifPresent(user -> {
             user.setStatus(status);
             userRepository.save(user);
+            availabilityIndex.onStatusChanged(user);
         });
     }
 
+    @Transactional(readOnly = true)
     public List<User> getVendorsByRequestType(String requestType) {
         Objects.requireNonNull(requestType, "Request type cannot be null");
         return userRepository.findByRolesContainingAndRequestTypesContaining("VENDOR", requestType);
@@ -1,5 +1,6 @@
 package com.innovation.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.innovation.model.User;
 import com.innovation.model.UserActivityStatus;
 import com.innovation.repository.UserRepository;
@@ -9,10 +10,21 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserStatusService {
 
+    // Outbox topics; payload {"requesterId": ..., "workerId": ...}
+    public static final String TOPIC_REQUEST_ASSIGNED = "request.assigned";
+    public static final String TOPIC_REQUEST_COMPLETED = "request.completed";
+
     private final UserRepository userRepository;
+    private final WorkerAvailabilityIndex availabilityIndex;
 
-    public UserStatusService(UserRepository userRepository) {
+    public UserStatusService(UserRepository userRepository, WorkerAvailabilityIndex availabilityIndex,
+            DomainEventOutbox outbox) {
         this.userRepository = userRepository;
+        this.availabilityIndex = availabilityIndex;
+        outbox.subscribe(TOPIC_REQUEST_ASSIGNED, (messageId, payload) -> transitionToAssigned(
+                load(payload, "requesterId"), load(payload, "workerId")));
+        outbox.subscribe(TOPIC_REQUEST_COMPLETED, (messageId, payload) -> transitionToCompleted(
+                load(payload, "requesterId"), load(payload, "workerId")));
     }
 
     @Transactional
@@ -32,10 +44,16 @@ public class UserStatusService {
         updateStatus(worker, UserActivityStatus.COMPLETED);
     }
 
+    private User load(JsonNode payload, String field) {
+        JsonNode id = payload.get(field);
+        return id == null || id.isNull() ? null : userRepository.findById(id.asLong()).orElse(null);
+    }
+
     private void updateStatus(User user, UserActivityStatus newStatus) {
         if (user != null) {
             user.setStatus(newStatus);
             userRepository.save(user);
+            availabilityIndex.onStatusChanged(user);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.innovation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects vehicle-age lookups for a short window (or until the batch is full)
+ * and resolves them with a single multi-plate prompt. Concurrent lookups for the
+ * same plate share one future. Plates missing from the batch answer, or all of
+ * them if the answer cannot be parsed, fall back to single-plate prompts, run at
+ * most {@code fallbackThreads} at a time on their own pool so a batch that needs
+ * them does not hold up the batches behind it.
+ */
+public class VehicleAgeBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(VehicleAgeBatcher.class);
+
+    private final Function<List<String>, Map<String, String>> batchLookup;
+    private final Function<String, String> singleLookup;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ServiceMetrics metrics;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final ExecutorService fallbacks;
+
+    private final Object lock = new Object();
+    private Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * @param batchLookup  resolves several plates in one call; returns null if the
+     *                     response could not be parsed
+     * @param singleLookup resolves one plate; used for single-entry batches and
+     *                     as the per-plate fallback
+     */
+    public VehicleAgeBatcher(Function<List<String>, Map<String, String>> batchLookup,
+            Function<String, String> singleLookup, long windowMillis, int maxBatchSize, int workerThreads,
+            int fallbackThreads, ServiceMetrics metrics) {
+        this.batchLookup = batchLookup;
+        this.singleLookup = singleLookup;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("age-batch-timer"));
+        this.workers = Executors.newFixedThreadPool(workerThreads, daemon("age-batch-worker"));
+        this.fallbacks = Executors.newFixedThreadPool(Math.max(1, fallbackThreads), daemon("age-batch-fallback"));
+        metrics.gauge("gemini.age-batch.pending", this::pendingCount);
+    }
+
+    public CompletableFuture<String> submit(String vehicleNumber) {
+        Map<String, CompletableFuture<String>> fullBatch = null;
+        CompletableFuture<String> future;
+        synchronized (lock) {
+            future = pending.computeIfAbsent(vehicleNumber, k -> new CompletableFuture<>());
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flushWindow, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdown();
+        fallbacks.shutdown();
+    }
+
+    private void flushWindow() {
+        Map<String, CompletableFuture<String>> batch;
+        synchronized (lock) {
+            scheduledFlush = null;
+            batch = drain();
+        }
+        dispatch(batch);
+    }
+
+    private Map<String, CompletableFuture<String>> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        Map<String, CompletableFuture<String>> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void dispatch(Map<String, CompletableFuture<String>> batch) {
+        if (!batch.isEmpty()) {
+            workers.execute(() -> process(batch));
+        }
+    }
+
+    private void process(Map<String, CompletableFuture<String>> batch) {
+        metrics.increment("gemini.age-batch.batches");
+        metrics.increment("gemini.age-batch.plates", batch.size());
+        try {
+            if (batch.size() == 1) {
+                batch.forEach((plate, future) -> future.complete(singleLookup.apply(plate)));
+                return;
+            }
+            Map<String, String> answers = batchLookup.apply(new ArrayList<>(batch.keySet()));
+            if (answers == null) {
+                metrics.increment("gemini.age-batch.parse-failure");
+                logger.warn("Could not parse batched age response for {} plates; falling back per plate",
+                        batch.size());
+            }
+            batch.forEach((plate, future) -> {
+                String age = answers == null ? null : answers.get(plate);
+                if (age != null) {
+                    future.complete(age);
+                } else {
+                    metrics.increment("gemini.age-batch.fallback");
+                    fallbacks.execute(() -> fallBack(plate, future));
+                }
+            });
+        } catch (RuntimeException e) {
+            // The call itself failed (e.g. circuit open); waiting callers degrade to no age.
+            logger.warn("Batched age lookup failed for {} plates: {}", batch.size(), e.getMessage());
+            batch.values().forEach(future -> future.complete(null));
+        }
+    }
+
+    private void fallBack(String plate, CompletableFuture<String> future) {
+        try {
+            future.complete(singleLookup.apply(plate));
+        } catch (RuntimeException e) {
+            logger.warn("Age lookup failed for a plate of a batch: {}", e.getMessage());
+            future.complete(null);
+        }
+    }
+
+    private int pendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
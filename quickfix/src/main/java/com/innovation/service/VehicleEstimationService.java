@@ -1,43 +1,122 @@
 package com.innovation.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.stream.Collectors;
-import jakarta.annotation.PostConstruct;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class VehicleEstimationService {
 
     private static final Logger logger = LoggerFactory.getLogger(VehicleEstimationService.class);
     private static final Map<String, String> vehicleAgeCache = new ConcurrentHashMap<>();
-    private final WebClient webClient;
-    private final String apiKey;
+    private final GeminiClient geminiClient;
+    private final ObjectMapper objectMapper;
+    private final boolean modelDiscoveryEnabled;
+    private final VehicleAgeBatcher ageBatcher;
+    private final long ageWaitMillis;
+    private final RegistrationNumberDecoder registrationNumberDecoder;
+    private final ServiceMetrics metrics;
+    private final boolean decoderFirst;
+    private final double ageShadowSampleRate;
     private static final String GEMINI_TEXT_MODEL = "gemini-pro-latest";
     private static final String GEMINI_VISION_MODEL = "gemini-flash-latest";
+    private static final Pattern AGE_YEARS = Pattern.compile("(\\d+)\\s*year");
+
+    // Fields of the structured vision response, in the order the model is asked to emit them
+    private static final String FIELD_VEHICLE_TYPE = "vehicleType";
+    private static final String FIELD_VEHICLE_NUMBER = "vehicleNumber";
+    private static final String FIELD_MAKE_MODEL = "makeModel";
+    private static final String FIELD_GENERATION_YEAR = "generationYear";
+    private static final String FIELD_DAMAGE_DETECTION = "damageDetection";
+    private static final String FIELD_TIRE_WEAR = "tireWear";
+    private static final String FIELD_DAMAGE_SEVERITY = "damageSeverity";
+    private static final String FIELD_ESTIMATED_COST = "estimatedCost";
+
+    // Dispatch needs only the triage fields (type, number, severity), so they come first and
+    // are handed over as soon as they are streamed. The damage description precedes the
+    // severity so the model still describes the damage before rating it.
+    private static final Map<String, Object> VEHICLE_ANALYSIS_SCHEMA = Map.of(
+            "type", "OBJECT",
+            "properties", Map.of(
+                    FIELD_VEHICLE_TYPE, Map.of("type", "STRING",
+                            "enum", List.of("TWO_WHEELER", "FOUR_WHEELER", "UNKNOWN")),
+                    FIELD_VEHICLE_NUMBER, Map.of("type", "STRING"),
+                    FIELD_MAKE_MODEL, Map.of("type", "STRING"),
+                    FIELD_GENERATION_YEAR, Map.of("type", "STRING"),
+                    FIELD_DAMAGE_DETECTION, Map.of("type", "STRING"),
+                    FIELD_TIRE_WEAR, Map.of("type", "STRING"),
+                    FIELD_DAMAGE_SEVERITY, Map.of("type", "STRING",
+                            "enum", List.of("Low", "Medium", "High", "Critical", "UNKNOWN")),
+                    FIELD_ESTIMATED_COST, Map.of("type", "STRING")),
+            "required", List.of(FIELD_VEHICLE_TYPE, FIELD_VEHICLE_NUMBER, FIELD_DAMAGE_SEVERITY),
+            "propertyOrdering", List.of(FIELD_VEHICLE_TYPE, FIELD_VEHICLE_NUMBER, FIELD_DAMAGE_DETECTION,
+                    FIELD_DAMAGE_SEVERITY, FIELD_MAKE_MODEL, FIELD_GENERATION_YEAR, FIELD_TIRE_WEAR,
+                    FIELD_ESTIMATED_COST));
+
+    public VehicleEstimationService(GeminiClient geminiClient, ObjectMapper objectMapper, ServiceMetrics metrics,
+            RegistrationNumberDecoder registrationNumberDecoder,
+            @Value("${gemini.models.discovery.enabled:true}") boolean modelDiscoveryEnabled,
+            @Value("${gemini.age-batch.window-ms:50}") long ageBatchWindowMillis,
+            @Value("${gemini.age-batch.max-size:20}") int ageBatchMaxSize,
+            @Value("${gemini.age-batch.workers:2}") int ageBatchWorkers,
+            @Value("${gemini.age-batch.fallback-threads:4}") int ageFallbackThreads,
+            @Value("${gemini.age-batch.wait-ms:60000}") long ageWaitMillis,
+            @Value("${vehicle-age.decoder-first:false}") boolean decoderFirst,
+            @Value("${vehicle-age.shadow-sample-rate:0.05}") double ageShadowSampleRate) {
+        this.geminiClient = geminiClient;
+        this.registrationNumberDecoder = registrationNumberDecoder;
+        this.metrics = metrics;
+        this.decoderFirst = decoderFirst;
+        this.ageShadowSampleRate = ageShadowSampleRate;
+        this.objectMapper = objectMapper;
+        this.modelDiscoveryEnabled = modelDiscoveryEnabled;
+        this.ageWaitMillis = ageWaitMillis;
+        this.ageBatcher = new VehicleAgeBatcher(this::lookupVehicleAges, this::lookupVehicleAge,
+                ageBatchWindowMillis, ageBatchMaxSize, ageBatchWorkers, ageFallbackThreads, metrics);
+    }
 
-    public VehicleEstimationService(WebClient.Builder webClientBuilder,
-            @Value("${gemini.api.key}") String apiKey) {
-        this.apiKey = apiKey;
-        // Point to the Google Gemini API endpoint
-        this.webClient = webClientBuilder
-                .baseUrl("https://generativelanguage.googleapis.com")
-                .build();
+    @PreDestroy
+    public void shutdown() {
+        ageBatcher.shutdown();
     }
 
     // --- DTOs for Gemini API ---
-    private record GeminiRequest(List<Content> contents) {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record GeminiRequest(List<Content> contents, GenerationConfig generationConfig) {
+        GeminiRequest(List<Content> contents) {
+            this(contents, null);
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record GenerationConfig(String responseMimeType, Map<String, Object> responseSchema) {
+        GenerationConfig(String responseMimeType) {
+            this(responseMimeType, null);
+        }
     }
 
     private record Content(List<Part> parts) {
@@ -71,36 +150,91 @@ public class VehicleEstimationService {
             String damageDetection, String tireWear, String damageSeverity, String estimatedCostRange) {
     }
 
-    @PostConstruct
+    /** The fields dispatch depends on; the same values are repeated in the full result. */
+    public record VehicleTriage(String vehicleType, String vehicleNumber, String damageSeverity) {
+    }
+
+    /**
+     * A running vehicle analysis. {@code triage} completes as soon as the
+     * triage fields have been streamed, {@code info} once the whole analysis
+     * (including any age lookup) is done. Both always complete normally, with
+     * null if the analysis failed.
+     */
+    public record VehicleAnalysis(CompletableFuture<VehicleTriage> triage, CompletableFuture<VehicleInfoResult> info) {
+    }
+
+    private record VisionAnalysis(CompletableFuture<VehicleTriage> triage,
+            CompletableFuture<VehicleAnalysisResult> result) {
+    }
+
+    /**
+     * Logs the models available to the configured key. Runs once the application
+     * is ready and never blocks: offline or in CI the lookup simply times out in
+     * the background without delaying startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
     public void listAvailableModels() {
-        logger.info("Fetching available Gemini models on startup...");
-        try {
-            Mono<ModelListResponse> responseMono = this.webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/v1beta/models")
-                            .queryParam("key", this.apiKey)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(ModelListResponse.class);
-
-            ModelListResponse response = responseMono.block(Duration.ofSeconds(20));
-            logger.warn("Listing available Gemini models..");
-            if (response != null && response.models() != null && !response.models().isEmpty()) {
-                String availableModels = response.models().stream()
-                        .map(model -> model.name().replace("models/", ""))
-                        .collect(Collectors.joining(", "));
-                logger.info("Successfully fetched available models: {}", availableModels);
-            } else {
-                logger.warn("Could not fetch or no available models found.");
-            }
-        } catch (Exception e) {
-            logger.error(
-                    "Failed to fetch available Gemini models. This may indicate an API key or permission issue. Error: {}",
-                    e.getMessage());
+        if (!modelDiscoveryEnabled) {
+            logger.info("Gemini model discovery is disabled.");
+            return;
         }
+        logger.info("Fetching available Gemini models in the background...");
+        geminiClient.listModels(ModelListResponse.class)
+                .timeout(Duration.ofSeconds(20))
+                .subscribe(response -> {
+                    if (response.models() != null && !response.models().isEmpty()) {
+                        String availableModels = response.models().stream()
+                                .map(model -> model.name().replace("models/", ""))
+                                .collect(Collectors.joining(", "));
+                        logger.info("Successfully fetched available models: {}", availableModels);
+                    } else {
+                        logger.warn("Could not fetch or no available models found.");
+                    }
+                }, e -> logger.error(
+                        "Failed to fetch available Gemini models. This may indicate an API key or permission issue. Error: {}",
+                        e.getMessage()));
     }
 
     public VehicleInfoResult computeVehicleInfo(String vehicleNumber, MultipartFile imageFile) {
+        return analyzeVehicleAsync(vehicleNumber, imageFile).info().join();
+    }
+
+    /**
+     * Starts the vehicle analysis without blocking, so the caller can continue,
+     * e.g. with routing, while it runs. The image analysis is streamed: the triage
+     * fields are available before the rest is generated, and if the stream fails
+     * the fields produced so far are kept.
+     */
+    public VehicleAnalysis analyzeVehicleAsync(String vehicleNumber, MultipartFile imageFile) {
+        // 1. Analyze image if provided
+        VisionAnalysis vision = imageFile != null && !imageFile.isEmpty()
+                ? determineVehicleNature(imageFile)
+                : new VisionAnalysis(CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null));
+        CompletableFuture<VehicleTriage> triage = vision.triage()
+                .thenApply(streamed -> toTriage(vehicleNumber, streamed));
+        CompletableFuture<VehicleInfoResult> info = vision.result()
+                .thenApply(analysisResult -> toVehicleInfo(vehicleNumber, analysisResult))
+                .exceptionally(e -> {
+                    logger.error("Vehicle analysis failed unexpectedly.", e);
+                    return new VehicleInfoResult("UNKNOWN", vehicleNumber, null, null, null, null, null, null);
+                });
+        return new VehicleAnalysis(triage, info);
+    }
+
+    // Mirrors toVehicleInfo for the fields the triage carries
+    private static VehicleTriage toTriage(String vehicleNumber, VehicleTriage streamed) {
+        if (streamed == null) {
+            return new VehicleTriage("UNKNOWN", vehicleNumber, null);
+        }
+        String finalVehicleNumber = vehicleNumber;
+        if ((finalVehicleNumber == null || finalVehicleNumber.isBlank())
+                && !"UNKNOWN".equalsIgnoreCase(streamed.vehicleNumber())) {
+            finalVehicleNumber = streamed.vehicleNumber();
+        }
+        return new VehicleTriage(streamed.vehicleType(), finalVehicleNumber, streamed.damageSeverity());
+    }
+
+    private VehicleInfoResult toVehicleInfo(String vehicleNumber, VehicleAnalysisResult analysisResult) {
         String finalVehicleNumber = vehicleNumber;
         String vehicleType = "UNKNOWN";
         String estimatedAge = null;
@@ -110,28 +244,24 @@ public class VehicleEstimationService {
         String damageSeverity = null;
         String estimatedCostRange = null;
 
-        // 1. Analyze image if provided
-        if (imageFile != null && !imageFile.isEmpty()) {
-            VehicleAnalysisResult analysisResult = determineVehicleNature(imageFile);
-            if (analysisResult != null) {
-                if (analysisResult.vehicleType() != null) {
-                    vehicleType = analysisResult.vehicleType();
-                }
-                // If user didn't provide a number, use the one from the image
-                if ((finalVehicleNumber == null || finalVehicleNumber.isBlank())
-                        && !"UNKNOWN".equalsIgnoreCase(analysisResult.vehicleNumber())) {
-                    finalVehicleNumber = analysisResult.vehicleNumber();
-                }
-                if (analysisResult.generationYear() != null && !analysisResult.generationYear().isBlank()
-                        && !"UNKNOWN".equalsIgnoreCase(analysisResult.generationYear())) {
-                    estimatedAge = analysisResult.generationYear();
-                }
-                makeModel = analysisResult.makeModel();
-                damageDetection = analysisResult.damageDetection();
-                tireWear = analysisResult.tireWear();
-                damageSeverity = analysisResult.damageSeverity();
-                estimatedCostRange = analysisResult.estimatedCostRange();
+        if (analysisResult != null) {
+            if (analysisResult.vehicleType() != null) {
+                vehicleType = analysisResult.vehicleType();
             }
+            // If user didn't provide a number, use the one from the image
+            if ((finalVehicleNumber == null || finalVehicleNumber.isBlank())
+                    && !"UNKNOWN".equalsIgnoreCase(analysisResult.vehicleNumber())) {
+                finalVehicleNumber = analysisResult.vehicleNumber();
+            }
+            if (analysisResult.generationYear() != null && !analysisResult.generationYear().isBlank()
+                    && !"UNKNOWN".equalsIgnoreCase(analysisResult.generationYear())) {
+                estimatedAge = analysisResult.generationYear();
+            }
+            makeModel = analysisResult.makeModel();
+            damageDetection = analysisResult.damageDetection();
+            tireWear = analysisResult.tireWear();
+            damageSeverity = analysisResult.damageSeverity();
+            estimatedCostRange = analysisResult.estimatedCostRange();
         }
 
         // 2. Estimate age if a vehicle number is available and we don't already have an
@@ -152,7 +282,141 @@ public class VehicleEstimationService {
             return vehicleAgeCache.get(vehicleNumber);
         }
 
-        // If not in cache, call the API
+        if (decoderFirst) {
+            Optional<String> decodedAge = decode(vehicleNumber);
+            if (decodedAge.isPresent()) {
+                metrics.increment("vehicle-age.decoder.answered");
+                vehicleAgeCache.put(vehicleNumber, decodedAge.get());
+                if (sampled()) {
+                    // Keep measuring the table against Gemini, off the request path
+                    ageBatcher.submit(vehicleNumber).thenAccept(geminiAge -> {
+                        if (geminiAge != null) {
+                            logSample(vehicleNumber, geminiAge);
+                            compare(vehicleNumber, decodedAge.get(), geminiAge);
+                        }
+                    });
+                }
+                return decodedAge.get();
+            }
+        }
+
+        // Queue the plate; concurrent lookups are sent to Gemini as one prompt
+        try {
+            String estimatedAge = ageBatcher.submit(vehicleNumber).get(ageWaitMillis, TimeUnit.MILLISECONDS);
+            if (estimatedAge != null) {
+                // Store the result in the cache before returning
+                vehicleAgeCache.put(vehicleNumber, estimatedAge);
+                if (!decoderFirst && sampled()) {
+                    logSample(vehicleNumber, estimatedAge);
+                    decode(vehicleNumber).ifPresent(decodedAge -> compare(vehicleNumber, decodedAge, estimatedAge));
+                }
+            }
+            return estimatedAge;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            logger.warn("Timed out waiting for age estimation of vehicle number: {}", vehicleNumber);
+            return null;
+        }
+    }
+
+    private boolean sampled() {
+        return ageShadowSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < ageShadowSampleRate;
+    }
+
+    private Optional<String> decode(String vehicleNumber) {
+        long decodeStart = System.nanoTime();
+        Optional<String> decodedAge = registrationNumberDecoder.estimateAge(vehicleNumber);
+        metrics.recordNanos("vehicle-age.decoder.latency", System.nanoTime() - decodeStart);
+        metrics.increment(decodedAge.isPresent() ? "vehicle-age.decoder.hit" : "vehicle-age.decoder.miss");
+        return decodedAge;
+    }
+
+    // In the format of the test corpus gemini-age-answers.csv, so sampled answers can be added to it
+    private static void logSample(String vehicleNumber, String geminiAge) {
+        logger.info("Gemini vehicle age sample: {},{}", vehicleNumber, geminiAge.replace(',', ' '));
+    }
+
+    /** Records whether the decoder agrees with Gemini on a sampled plate to within a year. */
+    private void compare(String vehicleNumber, String decodedAge, String geminiAge) {
+        Integer decodedYears = parseAgeYears(decodedAge);
+        Integer geminiYears = parseAgeYears(geminiAge);
+        if (decodedYears == null || geminiYears == null) {
+            metrics.increment("vehicle-age.shadow.unknown");
+        } else if (Math.abs(decodedYears - geminiYears) <= 1) {
+            metrics.increment("vehicle-age.shadow.agree");
+        } else {
+            metrics.increment("vehicle-age.shadow.disagree");
+            logger.info("Decoder and Gemini disagree on {}: '{}' vs '{}'", vehicleNumber, decodedAge, geminiAge);
+        }
+    }
+
+    static Integer parseAgeYears(String age) {
+        if (age == null) {
+            return null;
+        }
+        if (age.toLowerCase().contains("less than a year")) {
+            return 0;
+        }
+        Matcher matcher = AGE_YEARS.matcher(age);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    /**
+     * Asks for the ages of several plates in one prompt. Returns null if the
+     * answer is not the expected JSON object, so the batcher falls back per plate.
+     */
+    private Map<String, String> lookupVehicleAges(List<String> vehicleNumbers) {
+        logger.info("Calling Gemini to estimate age for {} vehicle numbers in one batch", vehicleNumbers.size());
+
+        String prompt = "For each of the following Indian vehicle registration numbers, estimate the age of the vehicle. "
+                + "Respond with only a JSON object that maps each registration number, exactly as given, to a concise "
+                + "string like '5 year(s) old' or 'less than a year old'. Use 'unknown' if the age cannot be "
+                + "determined from the number.\nRegistration numbers:\n- " + String.join("\n- ", vehicleNumbers);
+
+        GeminiRequest request = new GeminiRequest(List.of(new Content(List.of(new Part(prompt, null)))),
+                new GenerationConfig("application/json"));
+        GeminiResponse response = geminiClient.generateContent(GEMINI_TEXT_MODEL, request, GeminiResponse.class);
+
+        try {
+            String responseText = response.candidates().get(0).content().parts().get(0).text().trim();
+            Map<String, String> parsed = objectMapper.readValue(stripCodeFence(responseText),
+                    new TypeReference<Map<String, String>>() {
+                    });
+            // Match answers back to the plates as submitted, tolerating case and spacing changes
+            Map<String, String> byNormalizedPlate = new HashMap<>();
+            parsed.forEach((plate, age) -> byNormalizedPlate.put(normalizePlate(plate), age.trim()));
+            Map<String, String> ages = new HashMap<>();
+            for (String vehicleNumber : vehicleNumbers) {
+                String age = byNormalizedPlate.get(normalizePlate(vehicleNumber));
+                if (age != null && !age.isEmpty()) {
+                    ages.put(vehicleNumber, age);
+                }
+            }
+            return ages;
+        } catch (Exception e) {
+            logger.warn("Unparseable batched age response from Gemini: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String stripCodeFence(String text) {
+        if (text.startsWith("```")) {
+            int firstNewline = text.indexOf('\n');
+            int lastFence = text.lastIndexOf("```");
+            if (firstNewline > 0 && lastFence > firstNewline) {
+                return text.substring(firstNewline + 1, lastFence).trim();
+            }
+        }
+        return text;
+    }
+
+    private static String normalizePlate(String vehicleNumber) {
+        return vehicleNumber.replaceAll("[\\s-]", "").toUpperCase();
+    }
+
+    private String lookupVehicleAge(String vehicleNumber) {
         logger.info("Calling Gemini to estimate age for vehicle number: {}", vehicleNumber);
 
         String prompt = String.format(
@@ -164,28 +428,22 @@ public class VehicleEstimationService {
         GeminiRequest request = new GeminiRequest(List.of(new Content(List.of(new Part(prompt, null)))));
 
         try {
-            Mono<GeminiResponse> responseMono = this.webClient.post() // Use the base webClient
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/v1beta/models/{model}:generateContent")
-                            .queryParam("key", this.apiKey)
-                            .build(GEMINI_TEXT_MODEL))
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(GeminiResponse.class);
-
-            // We block here to get the result synchronously.
-            GeminiResponse response = responseMono.block(Duration.ofSeconds(20));
+            // Blocks until the client returns; timeouts and retries are applied there.
+            GeminiResponse response = geminiClient.generateContent(GEMINI_TEXT_MODEL, request,
+                    GeminiResponse.class);
 
             if (response != null && response.candidates() != null && !response.candidates().isEmpty()) {
                 String estimatedAge = response.candidates().get(0).content().parts().get(0).text().trim();
                 logger.info("Successfully received age estimation from Gemini for {}: {}", vehicleNumber, estimatedAge);
-                // Store the result in the cache before returning
-                vehicleAgeCache.put(vehicleNumber, estimatedAge);
                 return estimatedAge;
             } else {
                 logger.warn("Received an empty or invalid response from Gemini for vehicle: {}", vehicleNumber);
                 return null;
             }
+        } catch (GeminiCallException e) {
+            logger.warn("Gemini age estimation unavailable for vehicle number: {} ({}): {}",
+                    vehicleNumber, e.getReason(), e.getMessage());
+            return null; // Degrade to an unknown age; the request proceeds without it
         } catch (Exception e) {
             logger.error("Failed to call Gemini API for vehicle number: {}. Error: {}",
                     vehicleNumber, e.getMessage());
@@ -193,107 +451,128 @@ public class VehicleEstimationService {
         }
     }
 
-    private VehicleAnalysisResult determineVehicleNature(MultipartFile imageFile) {
-        if (imageFile == null || imageFile.isEmpty()) {
-            return null;
-        }
-
+    private VisionAnalysis determineVehicleNature(MultipartFile imageFile) {
+        String base64Image;
         try {
-            String base64Image = java.util.Base64.getEncoder().encodeToString(imageFile.getBytes());
-            String mimeType = imageFile.getContentType();
-
-            String promptText = "Analyze this image with the following objectives. Respond with each item on a new line in 'Key: Value' format.\n"
-                    + "1. **Type**: Identify if it is a 'TWO_WHEELER' or 'FOUR_WHEELER'.\n"
-                    + "2. **Number**: Extract the vehicle license plate number. Use 'UNKNOWN' if not visible.\n"
-                    + "3. **Make & Model**: Identify the make and model (e.g., 'Maruti Suzuki Swift').\n"
-                    + "4. **Generation/Year**: Estimate the production year or generation based on design cues.\n"
-                    + "5. **Damage Detection**: List any visible damage like dents, scratches, or broken parts.\n"
-                    + "6. **Tire Wear**: Briefly assess tire condition if visible.\n"
-                    + "7. **Severity**: Assess damage severity as 'Low', 'Medium', 'High', or 'Critical'.\n"
-                    + "8. **Estimated Cost**: Estimate a repair cost range in INR (e.g., '2000-5000 INR') based on visible damage.";
-
-            Part textPart = new Part(promptText, null);
-            Part imagePart = new Part(null, new InlineData(mimeType, base64Image));
-
-            GeminiRequest request = new GeminiRequest(List.of(new Content(List.of(textPart, imagePart))));
-
-            Mono<GeminiResponse> responseMono = this.webClient.post()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/v1beta/models/{model}:generateContent")
-                            .queryParam("key", this.apiKey)
-                            .build(GEMINI_VISION_MODEL))
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(GeminiResponse.class);
-
-            GeminiResponse response = responseMono.block();
-
-            String responseText = response.candidates().get(0).content().parts().get(0).text().trim();
-
-            // Log the full raw response for debugging and analysis
-            logger.info("Full Gemini Vehicle Nature Analysis:\n---\n{}\n---", responseText);
-
-            String vehicleType = "UNKNOWN";
-            String vehicleNumber = "UNKNOWN";
-            String generationYear = null;
-            String makeModel = null;
-            String damageDetection = null;
-            String tireWear = null;
-            String damageSeverity = null;
-            String estimatedCostRange = null;
-
-            // Basic parsing to extract core information needed by the application for now
-            String[] parts = responseText.split("\\n");
-            for (String part : parts) {
-                String trimmed = part.trim();
-                // Handle potential markdown (e.g., "**Type**:")
-                String cleanPart = trimmed.replaceAll("\\*\\*", "");
-
-                if (cleanPart.startsWith("Type:")) {
-                    vehicleType = cleanPart.substring(5).trim();
-                } else if (cleanPart.startsWith("Number:")) {
-                    vehicleNumber = cleanPart.substring(7).trim();
-                } else if (cleanPart.startsWith("Generation/Year:")) {
-                    generationYear = cleanPart.substring(16).trim();
-                } else if (cleanPart.startsWith("Make & Model:")) {
-                    String val = cleanPart.substring(13).trim();
-                    if (!val.isEmpty() && !"UNKNOWN".equalsIgnoreCase(val)) {
-                        makeModel = val;
-                    }
-                } else if (cleanPart.startsWith("Damage Detection:")) {
-                    String val = cleanPart.substring(17).trim();
-                    if (!val.isEmpty() && !"UNKNOWN".equalsIgnoreCase(val)) {
-                        damageDetection = val;
-                    }
-                } else if (cleanPart.startsWith("Tire Wear:")) {
-                    String val = cleanPart.substring(10).trim();
-                    if (!val.isEmpty() && !"UNKNOWN".equalsIgnoreCase(val)) {
-                        tireWear = val;
+            base64Image = java.util.Base64.getEncoder().encodeToString(imageFile.getBytes());
+        } catch (IOException e) {
+            logger.error("Could not read uploaded image for vehicle nature analysis.", e);
+            return new VisionAnalysis(CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null));
+        }
+        String mimeType = imageFile.getContentType();
+
+        String promptText = "Analyze this image of a vehicle and fill in every field of the response schema.\n"
+                + "- vehicleType: 'TWO_WHEELER' or 'FOUR_WHEELER'.\n"
+                + "- vehicleNumber: the license plate number, or 'UNKNOWN' if not visible.\n"
+                + "- makeModel: the make and model (e.g., 'Maruti Suzuki Swift').\n"
+                + "- generationYear: the production year or generation based on design cues.\n"
+                + "- damageDetection: any visible damage like dents, scratches, or broken parts.\n"
+                + "- tireWear: a brief assessment of tire condition if visible.\n"
+                + "- damageSeverity: 'Low', 'Medium', 'High', or 'Critical'.\n"
+                + "- estimatedCost: a repair cost range in INR (e.g., '2000-5000 INR') based on visible damage.\n"
+                + "Use 'UNKNOWN' for anything that cannot be determined.";
+
+        Part textPart = new Part(promptText, null);
+        Part imagePart = new Part(null, new InlineData(mimeType, base64Image));
+
+        GeminiRequest request = new GeminiRequest(List.of(new Content(List.of(textPart, imagePart))),
+                new GenerationConfig("application/json", VEHICLE_ANALYSIS_SCHEMA));
+
+        Map<String, String> fields = new ConcurrentHashMap<>();
+        StringBuilder responseText = new StringBuilder();
+        CompletableFuture<VehicleTriage> triage = new CompletableFuture<>();
+        StreamingJsonFieldParser parser = new StreamingJsonFieldParser((field, value) -> {
+            fields.put(field, value);
+            if (FIELD_DAMAGE_SEVERITY.equals(field)) {
+                // Severity is the last triage field in the schema ordering
+                triage.complete(toAnalysisTriage(fields));
+            }
+        });
+        boolean[] parseFailed = new boolean[1];
+        CompletableFuture<VehicleAnalysisResult> result = new CompletableFuture<>();
+        // Whichever way the stream ends, the triage is what was streamed by then
+        result.whenComplete((analysis, e) -> triage.complete(fields.isEmpty() ? null : toAnalysisTriage(fields)));
+
+        geminiClient.streamGenerateContent(GEMINI_VISION_MODEL, request, GeminiResponse.class)
+                // The follow-up age lookup may block, so keep it off the I/O threads
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(chunk -> {
+                    String text = chunkText(chunk);
+                    responseText.append(text);
+                    if (!parseFailed[0]) {
+                        try {
+                            parser.feed(text);
+                        } catch (IllegalStateException e) {
+                            parseFailed[0] = true;
+                            logger.warn("Gemini Vision returned malformed JSON: {}", e.getMessage());
+                        }
                     }
-                } else if (cleanPart.startsWith("Severity:")) {
-                    String val = cleanPart.substring(9).trim();
-                    if (!val.isEmpty() && !"UNKNOWN".equalsIgnoreCase(val)) {
-                        damageSeverity = val;
+                }, error -> {
+                    if (error instanceof GeminiCallException callException) {
+                        // Fail fast to a degraded result: keep whatever fields were already streamed.
+                        logger.warn("Gemini Vision analysis unavailable ({}): {}", callException.getReason(),
+                                callException.getMessage());
+                    } else {
+                        logger.error("Failed to call Gemini Vision API for vehicle nature analysis.", error);
                     }
-                } else if (cleanPart.startsWith("Estimated Cost:")) {
-                    String val = cleanPart.substring(15).trim();
-                    if (!val.isEmpty() && !"UNKNOWN".equalsIgnoreCase(val)) {
-                        estimatedCostRange = val;
+                    result.complete(fields.isEmpty() ? null : toAnalysisResult(fields));
+                }, () -> {
+                    if (!parseFailed[0]) {
+                        try {
+                            parser.finish();
+                        } catch (IllegalStateException e) {
+                            logger.warn("Gemini Vision returned incomplete JSON: {}", e.getMessage());
+                        }
                     }
-                }
+                    // Log the full raw response for debugging and analysis
+                    logger.info("Full Gemini Vehicle Nature Analysis:\n---\n{}\n---", responseText);
+                    result.complete(toAnalysisResult(fields));
+                });
+        return new VisionAnalysis(triage, result);
+    }
+
+    private static String chunkText(GeminiResponse chunk) {
+        if (chunk == null || chunk.candidates() == null || chunk.candidates().isEmpty()
+                || chunk.candidates().get(0).content() == null
+                || chunk.candidates().get(0).content().parts() == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        for (Part part : chunk.candidates().get(0).content().parts()) {
+            if (part.text() != null) {
+                text.append(part.text());
             }
+        }
+        return text.toString();
+    }
+
+    private static VehicleTriage toAnalysisTriage(Map<String, String> fields) {
+        String vehicleType = knownOrNull(fields.get(FIELD_VEHICLE_TYPE));
+        String vehicleNumber = knownOrNull(fields.get(FIELD_VEHICLE_NUMBER));
+        return new VehicleTriage(vehicleType != null ? vehicleType.toUpperCase() : "UNKNOWN",
+                vehicleNumber != null ? vehicleNumber : "UNKNOWN",
+                knownOrNull(fields.get(FIELD_DAMAGE_SEVERITY)));
+    }
 
-            // Fallback if parsing failed but keywords are present
-            if ("UNKNOWN".equals(vehicleType) && responseText.contains("TWO_WHEELER"))
-                vehicleType = "TWO_WHEELER";
-            if ("UNKNOWN".equals(vehicleType) && responseText.contains("FOUR_WHEELER"))
-                vehicleType = "FOUR_WHEELER";
+    private static VehicleAnalysisResult toAnalysisResult(Map<String, String> fields) {
+        String vehicleType = knownOrNull(fields.get(FIELD_VEHICLE_TYPE));
+        String vehicleNumber = knownOrNull(fields.get(FIELD_VEHICLE_NUMBER));
+        return new VehicleAnalysisResult(
+                vehicleType != null ? vehicleType.toUpperCase() : "UNKNOWN",
+                vehicleNumber != null ? vehicleNumber : "UNKNOWN",
+                knownOrNull(fields.get(FIELD_GENERATION_YEAR)),
+                knownOrNull(fields.get(FIELD_MAKE_MODEL)),
+                knownOrNull(fields.get(FIELD_DAMAGE_DETECTION)),
+                knownOrNull(fields.get(FIELD_TIRE_WEAR)),
+                knownOrNull(fields.get(FIELD_DAMAGE_SEVERITY)),
+                knownOrNull(fields.get(FIELD_ESTIMATED_COST)));
+    }
 
-            return new VehicleAnalysisResult(vehicleType, vehicleNumber, generationYear, makeModel, damageDetection,
-                    tireWear, damageSeverity, estimatedCostRange);
-        } catch (Exception e) {
-            logger.error("Failed to call Gemini Vision API for vehicle nature analysis.", e);
+    private static String knownOrNull(String value) {
+        if (value == null) {
             return null;
         }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() || "UNKNOWN".equalsIgnoreCase(trimmed) ? null : trimmed;
     }
-}
\ No newline at end of file
+}
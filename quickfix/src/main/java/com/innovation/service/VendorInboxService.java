@@ -0,0 +1,254 @@
+package com.innovation.service;
+
+import com.innovation.model.RequestStatus;
+import com.innovation.repository.ServiceRequestRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory inbox of open request IDs per vendor, listed in dispatch priority
+ * order (see {@link DispatchPriority}). Inboxes are loaded on first use and then
+ * follow the {@link RequestProjector}, which reports requests changed on any node;
+ * their offers are re-read from the database. Each inbox carries a version and a
+ * bounded journal of recent changes, so dashboards can long-poll for deltas
+ * instead of reloading the full request list. The version is the ID of the last
+ * request event read when the inbox changed, so it means the same on every node
+ * and keeps increasing across restarts; a client whose version is unknown, or 0,
+ * gets a full snapshot flagged as a reset.
+ */
+@Service
+public class VendorInboxService {
+
+    public record InboxChanges(long version, boolean reset, List<Long> added, List<Long> removed) {
+    }
+
+    // Legacy rows without a priority sort first, as the oldest
+    private static final Comparator<Map.Entry<Long, LocalDateTime>> PRIORITY_ORDER = Comparator
+            .comparing((Map.Entry<Long, LocalDateTime> e) -> e.getValue(),
+                    Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Map.Entry::getKey);
+
+    private record Change(long version, long requestId, boolean added) {
+    }
+
+    private record Waiter(DeferredResult<InboxChanges> result, long since) {
+    }
+
+    // Requests per offer query, well under the database's limit on "in" list size
+    private static final int RELOAD_BATCH_SIZE = 500;
+
+    private final ServiceRequestRepository requestRepository;
+    private final RequestProjector projector;
+    private final ServiceMetrics metrics;
+    private final int journalSize;
+    private final long longPollTimeoutMillis;
+    private final Map<Long, Inbox> inboxes = new ConcurrentHashMap<>();
+    // Counts the projector's change reports, so a load can tell whether it may have missed one
+    private final AtomicLong changeReports = new AtomicLong();
+
+    public VendorInboxService(ServiceRequestRepository requestRepository, RequestProjector projector,
+            ServiceMetrics metrics,
+            @Value("${inbox.journal-size:256}") int journalSize,
+            @Value("${inbox.long-poll-timeout-ms:25000}") long longPollTimeoutMillis) {
+        this.requestRepository = requestRepository;
+        this.projector = projector;
+        this.metrics = metrics;
+        this.journalSize = journalSize;
+        this.longPollTimeoutMillis = longPollTimeoutMillis;
+        metrics.gauge("inbox.vendors", inboxes::size);
+        projector.subscribe(this::onRequestsChanged);
+    }
+
+    /**
+     * Answers immediately if the vendor's inbox has moved past {@code since};
+     * otherwise parks the request until the next change or the long-poll timeout,
+     * which answers with an empty delta at the unchanged version.
+     */
+    public DeferredResult<InboxChanges> awaitChanges(Long vendorId, long since) {
+        Inbox inbox = inbox(vendorId);
+        DeferredResult<InboxChanges> result = new DeferredResult<>(longPollTimeoutMillis);
+        Waiter waiter = new Waiter(result, since);
+        synchronized (inbox) {
+            if (inbox.version != since) {
+                metrics.increment("inbox.poll.immediate");
+                result.setResult(inbox.changesSince(since));
+                return result;
+            }
+            inbox.waiters.add(waiter);
+        }
+        metrics.increment("inbox.poll.parked");
+        result.onTimeout(() -> {
+            synchronized (inbox) {
+                inbox.waiters.remove(waiter);
+                result.setResult(inbox.changesSince(since));
+            }
+        });
+        result.onCompletion(() -> {
+            synchronized (inbox) {
+                inbox.waiters.remove(waiter);
+            }
+        });
+        return result;
+    }
+
+    // Loaded outside the map so the query never holds a map bin lock; if two
+    // threads load the same inbox, the first one stored wins.
+    private Inbox inbox(Long vendorId) {
+        Inbox inbox = inboxes.get(vendorId);
+        if (inbox != null) {
+            return inbox;
+        }
+        // Versions are read before the offers, so they never claim changes the offers lack
+        long reports = changeReports.get();
+        long eventId = projector.lastEventId();
+        Inbox loaded = new Inbox(loadOffers(vendorId), eventId);
+        Inbox existing = inboxes.putIfAbsent(vendorId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        if (changeReports.get() != reports) {
+            // A change reported during the load may have found the inbox not yet listed
+            metrics.increment("inbox.reconciled");
+            eventId = projector.lastEventId();
+            loaded.reconcile(loadOffers(vendorId), eventId);
+        }
+        return loaded;
+    }
+
+    private Map<Long, LocalDateTime> loadOffers(Long vendorId) {
+        Map<Long, LocalDateTime> offers = new HashMap<>();
+        PrimaryReads.run(() -> requestRepository.findOffersToVendor(RequestStatus.OPEN, vendorId))
+                .forEach(offer -> offers.put(offer.getId(), offer.getPriorityAt()));
+        return offers;
+    }
+
+    // Called on the projector thread for writes on any node, once their events have been read.
+    private void onRequestsChanged(Set<Long> requestIds) {
+        changeReports.incrementAndGet();
+        if (inboxes.isEmpty()) {
+            return;
+        }
+        long eventId = projector.lastEventId();
+        Map<Long, Map<Long, LocalDateTime>> openByVendor = new HashMap<>(); // Vendor to request to priorityAt
+        List<Long> ids = new ArrayList<>(requestIds);
+        for (int i = 0; i < ids.size(); i += RELOAD_BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(ids.size(), i + RELOAD_BATCH_SIZE));
+            for (ServiceRequestRepository.OfferTarget target : PrimaryReads.run(
+                    () -> requestRepository.findOfferTargets(RequestStatus.OPEN, batch))) {
+                for (Long vendorId : new Long[] {target.getIntendedVendorId(), target.getOfferedVendorId()}) {
+                    if (vendorId != null) {
+                        openByVendor.computeIfAbsent(vendorId, k -> new HashMap<>())
+                                .put(target.getId(), target.getPriorityAt());
+                    }
+                }
+            }
+        }
+        inboxes.forEach((vendorId, inbox) -> inbox.update(requestIds,
+                openByVendor.getOrDefault(vendorId, Map.of()), eventId));
+    }
+
+    private final class Inbox {
+        private long version;
+        // Oldest version the journal can replay from; versions are not consecutive
+        private long journalStart;
+        private final Map<Long, LocalDateTime> openRequests; // ID to priorityAt
+        private final Deque<Change> journal = new ArrayDeque<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+
+        Inbox(Map<Long, LocalDateTime> openRequests, long eventId) {
+            this.openRequests = openRequests;
+            this.version = Math.max(1, eventId);
+            this.journalStart = version;
+        }
+
+        synchronized void reconcile(Map<Long, LocalDateTime> open, long eventId) {
+            Set<Long> requestIds = new HashSet<>(openRequests.keySet());
+            requestIds.addAll(open.keySet());
+            update(requestIds, open, eventId);
+        }
+
+        /** Makes the given requests open in the inbox exactly if they are in {@code open}. */
+        synchronized void update(Collection<Long> requestIds, Map<Long, LocalDateTime> open, long eventId) {
+            // Normally the event ID; late events of an earlier ID still move the version on
+            long next = Math.max(version + 1, eventId);
+            int journaled = journal.size();
+            for (Long requestId : requestIds) {
+                if (open.containsKey(requestId)) {
+                    if (!openRequests.containsKey(requestId)) {
+                        journal.addLast(new Change(next, requestId, true));
+                    }
+                    openRequests.put(requestId, open.get(requestId));
+                } else if (openRequests.containsKey(requestId)) {
+                    openRequests.remove(requestId);
+                    journal.addLast(new Change(next, requestId, false));
+                }
+            }
+            int changes = journal.size() - journaled;
+            if (changes == 0) {
+                return;
+            }
+            version = next;
+            while (journal.size() > journalSize) {
+                journalStart = journal.removeFirst().version();
+            }
+            metrics.increment("inbox.changes", changes);
+            if (!waiters.isEmpty()) {
+                List<Waiter> parked = new ArrayList<>(waiters);
+                waiters.clear();
+                for (Waiter waiter : parked) {
+                    waiter.result().setResult(changesSince(waiter.since()));
+                }
+            }
+        }
+
+        /** Must be called while holding the inbox lock. */
+        InboxChanges changesSince(long since) {
+            if (since == version) {
+                return new InboxChanges(version, false, List.of(), List.of());
+            }
+            if (since <= 0 || since > version || since < journalStart) {
+                return new InboxChanges(version, true, byPriority(openRequests.keySet()), List.of());
+            }
+            // Replay the journal, keeping only the net effect per request.
+            Set<Long> added = new LinkedHashSet<>();
+            Set<Long> removed = new LinkedHashSet<>();
+            for (Change change : journal) {
+                if (change.version() <= since) {
+                    continue;
+                }
+                if (change.added()) {
+                    if (!removed.remove(change.requestId())) {
+                        added.add(change.requestId());
+                    }
+                } else if (!added.remove(change.requestId())) {
+                    removed.add(change.requestId());
+                }
+            }
+            return new InboxChanges(version, false, byPriority(added), new ArrayList<>(removed));
+        }
+
+        private List<Long> byPriority(Set<Long> requestIds) {
+            return openRequests.entrySet().stream()
+                    .filter(e -> requestIds.contains(e.getKey()))
+                    .sorted(PRIORITY_ORDER)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.innovation.service;
+
+import com.innovation.model.User;
+import com.innovation.model.UserActivityStatus;
+import com.innovation.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory count of idle workers per vendor and request type, so routing can
+ * tell whether a vendor can actually take a job without loading its workers.
+ * Built from the database once the application is ready, then kept current by
+ * reloading users from the primary: after a change on this node commits, and
+ * when the {@link ResourceChangeFeed} reports a change made on any node. Each
+ * user is applied with the {@link ResourceVersions} version read before it was
+ * loaded, so a slow reload never overwrites a newer one. Until it is loaded
+ * every vendor is reported as available.
+ */
+@Service
+public class WorkerAvailabilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerAvailabilityIndex.class);
+
+    private record WorkerEntry(Set<String> requestTypes, boolean idle) {
+    }
+
+    private final UserRepository userRepository;
+    private final ResourceVersions resourceVersions;
+    private final ServiceMetrics metrics;
+
+    // Guarded by "this"; the per-vendor counts below are immutable snapshots for lock-free reads.
+    private final Map<Long, WorkerEntry> workers = new HashMap<>();
+    private final Map<Long, Set<Long>> workersByVendor = new HashMap<>();
+    private final Map<Long, Set<Long>> vendorsByWorker = new HashMap<>();
+    private final Map<Long, Long> appliedVersions = new HashMap<>();
+    private final Map<Long, Map<String, Integer>> idleCounts = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public WorkerAvailabilityIndex(UserRepository userRepository, ResourceVersions resourceVersions,
+            ResourceChangeFeed changeFeed, ServiceMetrics metrics) {
+        this.userRepository = userRepository;
+        this.resourceVersions = resourceVersions;
+        this.metrics = metrics;
+        metrics.gauge("availability.vendors-with-capacity",
+                () -> idleCounts.values().stream().filter(counts -> !counts.isEmpty()).count());
+        changeFeed.subscribe(ResourceVersions.USER, changed -> refresh(changed.keySet()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            Map<Long, Long> versions = resourceVersions.versions(ResourceVersions.USER);
+            List<User> allWorkers = PrimaryReads.run(() -> userRepository.findByRolesContaining("WORKER"));
+            List<User> allVendors = PrimaryReads.run(() -> userRepository.findByRolesContaining("VENDOR"));
+            workers.clear();
+            workersByVendor.clear();
+            vendorsByWorker.clear();
+            idleCounts.clear();
+            appliedVersions.clear();
+            appliedVersions.putAll(versions);
+            allWorkers.forEach(this::putWorker);
+            allVendors.forEach(this::putVendor);
+            workersByVendor.keySet().forEach(this::recount);
+            loaded = true;
+            logger.info("Worker availability index built for {} vendors and {} workers",
+                    workersByVendor.size(), workers.size());
+        }
+    }
+
+    /**
+     * Returns whether the vendor has at least one idle worker qualified for the
+     * request type. Always true while the index is still loading.
+     */
+    public boolean hasCapacity(long vendorId, String requestType) {
+        return !loaded || idleWorkers(vendorId, requestType) > 0;
+    }
+
+    public int idleWorkers(long vendorId, String requestType) {
+        return idleCounts.getOrDefault(vendorId, Map.of()).getOrDefault(requestType, 0);
+    }
+
+    /** Call after a user's activity status changed; ignored for users who aren't workers. */
+    public void onStatusChanged(User user) {
+        if (user != null && user.getRoles().contains("WORKER")) {
+            TransactionCallbacks.afterCommit(() -> refresh(Set.of(user.getId())));
+        }
+    }
+
+    /** Call after a user's roles, request types or worker list were saved. */
+    public void onUserSaved(User user) {
+        if (user != null) {
+            TransactionCallbacks.afterCommit(() -> refresh(Set.of(user.getId())));
+        }
+    }
+
+    public void onUserDeleted(long userId) {
+        TransactionCallbacks.afterCommit(() -> refresh(Set.of(userId)));
+    }
+
+    /**
+     * Reloads the users and applies each one unless a newer version of it has
+     * been applied meanwhile; users no longer found are removed.
+     */
+    void refresh(Collection<Long> userIds) {
+        // Versions first, as for ETags: the users loaded next are at least this new
+        Map<Long, Long> versions = resourceVersions.versions(ResourceVersions.USER, userIds);
+        Map<Long, User> users = new HashMap<>();
+        PrimaryReads.run(() -> userRepository.findUncachedByIdIn(userIds))
+                .forEach(user -> users.put(user.getId(), user));
+        synchronized (this) {
+            Set<Long> affectedVendors = new HashSet<>();
+            for (Long userId : userIds) {
+                long version = versions.getOrDefault(userId, 0L);
+                if (version < appliedVersions.getOrDefault(userId, 0L)) {
+                    metrics.increment("availability.stale-reloads");
+                    continue;
+                }
+                appliedVersions.put(userId, version);
+                affectedVendors.addAll(removeUser(userId));
+                User user = users.get(userId);
+                if (user != null && user.getRoles().contains("WORKER")) {
+                    putWorker(user);
+                    affectedVendors.addAll(vendorsByWorker.getOrDefault(userId, Set.of()));
+                }
+                if (user != null && user.getRoles().contains("VENDOR")) {
+                    putVendor(user);
+                    affectedVendors.add(userId);
+                }
+            }
+            affectedVendors.forEach(this::recount);
+        }
+    }
+
+    // Forgets the user as a worker and as a vendor; returns the vendors whose counts may have changed.
+    private Set<Long> removeUser(long userId) {
+        Set<Long> affected = new HashSet<>();
+        if (workers.remove(userId) != null) {
+            affected.addAll(vendorsByWorker.getOrDefault(userId, Set.of()));
+        }
+        Set<Long> ownWorkers = workersByVendor.remove(userId);
+        if (ownWorkers != null) {
+            ownWorkers.forEach(workerId -> vendorsByWorker.getOrDefault(workerId, new HashSet<>())
+                    .remove(userId));
+            idleCounts.remove(userId);
+        }
+        return affected;
+    }
+
+    private void putWorker(User worker) {
+        UserActivityStatus status = worker.getStatus();
+        boolean idle = status == UserActivityStatus.IDLE || status == UserActivityStatus.COMPLETED;
+        workers.put(worker.getId(), new WorkerEntry(Set.copyOf(worker.getRequestTypes()), idle));
+    }
+
+    private void putVendor(User vendor) {
+        Set<Long> vendorWorkers = new HashSet<>(vendor.getWorkers());
+        workersByVendor.put(vendor.getId(), vendorWorkers);
+        vendorWorkers.forEach(workerId -> vendorsByWorker.computeIfAbsent(workerId, k -> new HashSet<>())
+                .add(vendor.getId()));
+    }
+
+    private void recount(long vendorId) {
+        if (!workersByVendor.containsKey(vendorId)) {
+            return;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (Long workerId : workersByVendor.get(vendorId)) {
+            WorkerEntry entry = workers.get(workerId);
+            if (entry != null && entry.idle()) {
+                entry.requestTypes().forEach(type -> counts.merge(type, 1, Integer::sum));
+            }
+        }
+        idleCounts.put(vendorId, Map.copyOf(counts));
+    }
+}
@@ -0,0 +1,92 @@
+package com.innovation.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.LocationPing;
+import com.innovation.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LocationProtobufConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void pingRoundTripsToSevenDecimals() {
+        LocationPing ping = new LocationPing(4711, 12.9715987, -77.5945627);
+
+        LocationPing decoded = LocationProtobufConverter.decodePing(LocationProtobufConverter.encodePing(ping));
+
+        assertThat(decoded.userId()).isEqualTo(4711);
+        assertThat(decoded.latitude()).isCloseTo(12.9715987, within(1e-7));
+        assertThat(decoded.longitude()).isCloseTo(-77.5945627, within(1e-7));
+    }
+
+    @Test
+    void batchRoundTripsSortedByUser() {
+        List<LocationPing> pings = List.of(new LocationPing(30, 12.97, 77.59), new LocationPing(7, -33.86, 151.2),
+                new LocationPing(8, 0, 0));
+
+        List<LocationPing> decoded = LocationProtobufConverter.decodeBatch(
+                LocationProtobufConverter.encodeBatch(new LocationPing.Batch(pings))).pings();
+
+        assertThat(decoded).extracting(LocationPing::userId).containsExactly(7L, 8L, 30L);
+        assertThat(decoded.get(0).longitude()).isCloseTo(151.2, within(1e-7));
+        assertThat(decoded.get(1).latitude()).isZero();
+        assertThat(decoded.get(2).latitude()).isCloseTo(12.97, within(1e-7));
+    }
+
+    @Test
+    void truncatedMessageIsRejected() {
+        byte[] encoded = LocationProtobufConverter.encodePing(new LocationPing(1, 12.97, 77.59));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+
+        assertThatThrownBy(() -> LocationProtobufConverter.decodePing(truncated))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /** Sizes compared with the JSON {@link User} the endpoints return today. */
+    @Test
+    void isMuchSmallerThanUserJson() throws Exception {
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>();
+        List<LocationPing> pings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            User user = vendor(1000 + i, 12.9 + random.nextDouble() * 0.2, 77.5 + random.nextDouble() * 0.2);
+            users.add(user);
+            pings.add(new LocationPing(user.getId(), user.getLatitude(), user.getLongitude()));
+        }
+
+        int jsonPing = objectMapper.writeValueAsBytes(users.get(0)).length;
+        int protobufPing = LocationProtobufConverter.encodePing(pings.get(0)).length;
+        int jsonList = objectMapper.writeValueAsBytes(users).length;
+        int protobufBatch = LocationProtobufConverter.encodeBatch(new LocationPing.Batch(pings)).length;
+
+        assertThat(protobufPing).isLessThan(jsonPing / 5);
+        assertThat(protobufBatch).isLessThan(jsonList / 10);
+    }
+
+    private static User vendor(long id, double latitude, double longitude) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("vendor" + id);
+        user.setEmail("vendor" + id + "@example.com");
+        user.setName("Garage " + id);
+        user.setAddress(id + " MG Road, Bengaluru");
+        user.setLatitude(latitude);
+        user.setLongitude(longitude);
+        user.setRoles(new HashSet<>(Set.of("VENDOR")));
+        user.setRequestTypes(new HashSet<>(Set.of("TOWING", "FLAT_TYRE")));
+        user.setWorkers(new HashSet<>(Set.of(id + 5000, id + 6000)));
+        return user;
+    }
+}
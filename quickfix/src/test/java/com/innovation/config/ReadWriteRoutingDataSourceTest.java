@@ -0,0 +1,144 @@
+package com.innovation.config;
+
+import com.innovation.service.ServiceMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private static final long STICKY_MILLIS = 10_000;
+
+    // Writes every replica had applied at the last lag check
+    private final AtomicLong replicasCaughtUpTo = new AtomicLong();
+    private final ServiceMetrics metrics = new ServiceMetrics();
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void aReadOnAnotherNodeWaitsForAReplicaThatHasTheClientsWrite() throws Exception {
+        Node nodeA = new Node(100);
+        Node nodeB = new Node(100);
+        replicasCaughtUpTo.set(System.currentTimeMillis() - 1000);
+
+        MockHttpServletResponse written = nodeA.serve(new MockHttpServletRequest(), false);
+        String lastWrite = written.getHeader(ReadYourWritesFilter.HEADER);
+        assertThat(lastWrite).isNotNull();
+        Cookie cookie = written.getCookie(ReadYourWritesFilter.COOKIE);
+        assertThat(cookie.getValue()).isEqualTo(lastWrite);
+        assertThat(cookie.isHttpOnly()).isTrue();
+
+        // The cookie comes back to node B, which never saw the write
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(cookie);
+        nodeB.serve(next, true);
+        assertThat(nodeB.route.get()).isEqualTo(ReadWriteRoutingDataSource.PRIMARY);
+
+        replicasCaughtUpTo.set(Long.parseLong(lastWrite));
+        next = new MockHttpServletRequest();
+        next.addHeader(ReadYourWritesFilter.HEADER, lastWrite);
+        nodeB.serve(next, true);
+        assertThat(nodeB.route.get()).isEqualTo("replica-0");
+    }
+
+    @Test
+    void ignoresLastWritesOutsideTheStickyWindowOrFromTheFuture() throws Exception {
+        Node node = new Node(100);
+        long now = System.currentTimeMillis();
+        for (long lastWrite : List.of(now - STICKY_MILLIS - 1, now + 60_000)) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addHeader(ReadYourWritesFilter.HEADER, Long.toString(lastWrite));
+            node.serve(request, true);
+            assertThat(node.route.get()).isEqualTo("replica-0");
+        }
+        MockHttpServletRequest garbled = new MockHttpServletRequest();
+        garbled.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, "soon"));
+        node.serve(garbled, true);
+        assertThat(node.route.get()).isEqualTo("replica-0");
+    }
+
+    @Test
+    void sendsTheLastWriteEvenWhenTheBodyCommitsTheResponse() throws Exception {
+        Node node = new Node(100);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            TransactionSynchronizationManager.setActualTransactionActive(true);
+            node.router.determineCurrentLookupKey();
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            res.getWriter().write("{}");
+            res.flushBuffer();
+        };
+        node.filter.doFilter(new MockHttpServletRequest(), response, chain);
+
+        assertThat(response.isCommitted()).isTrue();
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE)).isNotNull();
+        assertThat(response.getHeader(ReadYourWritesFilter.HEADER)).isNotNull();
+    }
+
+    @Test
+    void boundsThePerNodeRecordOfUsersWhoWrote() {
+        Node node = new Node(2);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        for (String user : List.of("ann", "bob", "cid")) {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(user, null, List.of()));
+            node.router.determineCurrentLookupKey();
+            assertThat(node.router.trackedUsers()).isLessThanOrEqualTo(2);
+        }
+
+        // The last writer, still recorded, reads from the primary without sending anything back
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(node.router.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.PRIMARY);
+        assertThat(metrics.count("datasource.read.sticky-primary")).isEqualTo(1);
+    }
+
+    private final class Node {
+        final ReadWriteRoutingDataSource router;
+        final ReadYourWritesFilter filter = new ReadYourWritesFilter(STICKY_MILLIS);
+        final AtomicReference<Object> route = new AtomicReference<>();
+
+        Node(int maxTrackedUsers) {
+            ReplicaLagMonitor lagMonitor = mock(ReplicaLagMonitor.class);
+            when(lagMonitor.healthyReplicas()).thenReturn(List.of("replica-0"));
+            when(lagMonitor.replicasCaughtUpTo(anyLong())).thenAnswer(call ->
+                    replicasCaughtUpTo.get() >= call.<Long>getArgument(0) ? List.of("replica-0") : List.of());
+            router = new ReadWriteRoutingDataSource(lagMonitor, STICKY_MILLIS, maxTrackedUsers, metrics);
+        }
+
+        // Runs one request that either reads or writes, and records where its transaction went
+        MockHttpServletResponse serve(MockHttpServletRequest request, boolean readOnly) throws Exception {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, (req, res) -> {
+                TransactionSynchronizationManager.setActualTransactionActive(true);
+                TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+                try {
+                    route.set(router.determineCurrentLookupKey());
+                } finally {
+                    TransactionSynchronizationManager.setActualTransactionActive(false);
+                    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+                }
+            });
+            return response;
+        }
+    }
+}
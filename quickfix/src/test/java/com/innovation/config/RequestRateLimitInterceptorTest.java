@@ -0,0 +1,89 @@
+package com.innovation.config;
+
+import com.innovation.service.ServiceMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestRateLimitInterceptorTest {
+
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    // Creation: 6 per minute with a burst of 3; other writes: 60 per minute with a burst of 2
+    private final RequestRateLimitInterceptor interceptor = new RequestRateLimitInterceptor(metrics, 6, 3, 60, 2);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void limitsRequestCreationPerUserAndSaysWhenToRetry() {
+        signIn("alice", "USER");
+        for (int i = 0; i < 3; i++) {
+            assertThat(post("/requests").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = post("/requests");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("10");
+        assertThat(metrics.count("requests.rate-limit.rejected.create")).isEqualTo(1);
+
+        signIn("bob", "USER");
+        assertThat(post("/requests").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void limitsOtherWritesPerVendorOrWorkerAccount() {
+        signIn("shop", "VENDOR");
+        assertThat(post("/requests/1/accept").getStatus()).isEqualTo(200);
+        assertThat(post("/requests/2/accept").getStatus()).isEqualTo(200);
+        assertThat(post("/requests/3/accept").getStatus()).isEqualTo(429);
+        // Creation has its own bucket
+        assertThat(post("/requests").getStatus()).isEqualTo(200);
+
+        signIn("fixer", "WORKER");
+        assertThat(post("/requests/1/complete").getStatus()).isEqualTo(200);
+        assertThat(metrics.count("requests.rate-limit.rejected.vendor")).isEqualTo(1);
+    }
+
+    @Test
+    void leavesReadsAdminsAndOtherUsersWritesAlone() {
+        signIn("alice", "USER");
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest read = new MockHttpServletRequest("GET", "/requests");
+            read.setServletPath("/requests");
+            assertThat(interceptor.preHandle(read, new MockHttpServletResponse(), null)).isTrue();
+            assertThat(post("/requests/1/rate").getStatus()).isEqualTo(200);
+        }
+
+        signIn("root", "ADMIN", "VENDOR");
+        for (int i = 0; i < 10; i++) {
+            assertThat(post("/requests").getStatus()).isEqualTo(200);
+            assertThat(post("/requests/1/accept").getStatus()).isEqualTo(200);
+        }
+
+        SecurityContextHolder.clearContext();
+        assertThat(post("/requests").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse post(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean proceed = interceptor.preHandle(request, response, null);
+        assertThat(proceed).isEqualTo(response.getStatus() == 200);
+        return response;
+    }
+
+    private static void signIn(String username, String... authorities) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username,
+                null, AuthorityUtils.createAuthorityList(authorities)));
+    }
+}
@@ -0,0 +1,44 @@
+package com.innovation.config;
+
+import com.innovation.model.User;
+import com.innovation.service.ResourceChangeFeed;
+import com.innovation.service.ResourceVersions;
+import com.innovation.service.ServiceMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheEvictionTest {
+
+    @Test
+    void evictsUsersReportedChangedWithTheirCollectionsAndTheCachedQueries() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Cache cache = mock(Cache.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        ResourceChangeFeed changeFeed = mock(ResourceChangeFeed.class);
+        ServiceMetrics metrics = new ServiceMetrics();
+
+        UserCacheEviction eviction = new UserCacheEviction(entityManagerFactory, changeFeed, metrics);
+        verify(changeFeed).subscribe(eq(ResourceVersions.USER), any());
+        eviction.evict(Map.of(7L, 3L));
+
+        verify(cache).evictEntityData(User.class, 7L);
+        verify(cache).evictCollectionData("com.innovation.model.User.roles", 7L);
+        verify(cache).evictCollectionData("com.innovation.model.User.requestTypes", 7L);
+        verify(cache).evictCollectionData("com.innovation.model.User.workers", 7L);
+        verify(cache).evictDefaultQueryRegion();
+        assertThat(metrics.count("hibernate.l2.remote-evictions")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,60 @@
+package com.innovation.controller;
+
+import com.innovation.model.ServiceRequest;
+import com.innovation.service.IdempotencyException;
+import com.innovation.service.IdempotencyService;
+import com.innovation.service.ServiceRequestService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ServiceRequestControllerTest {
+
+    private final ServiceRequestService requestService = mock(ServiceRequestService.class);
+    private final ServiceRequestController controller = new ServiceRequestController(requestService);
+
+    @Test
+    void answersIdempotencyFailuresWithTheirStatus() {
+        assertThat(statusFor(IdempotencyException.Reason.INVALID_KEY)).isEqualTo(400);
+        assertThat(statusFor(IdempotencyException.Reason.MISMATCH)).isEqualTo(422);
+        assertThat(statusFor(IdempotencyException.Reason.IN_PROGRESS)).isEqualTo(409);
+    }
+
+    @Test
+    void marksReplayedResponses() {
+        when(requestService.createRequest(eq("key-1"), any(), any()))
+                .thenReturn(new IdempotencyService.Outcome<>(null, "{\"id\":1}"));
+
+        ResponseEntity<?> response = controller.createRequest(new ServiceRequest(), null, "key-1");
+
+        assertThat(response.getStatusCode().value()).isEqualTo(201);
+        assertThat(response.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(response.getBody()).isEqualTo("{\"id\":1}");
+    }
+
+    @Test
+    void refusesTheHistoryToUsersWhoAreNotPartyToTheRequest() {
+        when(requestService.getRequestHistory(5L)).thenReturn(Optional.empty());
+        when(requestService.getRequestHistory(6L)).thenReturn(Optional.of(List.of()));
+
+        assertThat(controller.getRequestHistory(5L).getStatusCode().value()).isEqualTo(403);
+        assertThat(controller.getRequestHistory(6L).getStatusCode().value()).isEqualTo(200);
+    }
+
+    private int statusFor(IdempotencyException.Reason reason) {
+        when(requestService.createRequest(eq("key-1"), any(), any()))
+                .thenThrow(new IdempotencyException(reason, "rejected"));
+        ResponseEntity<?> response = controller.createRequest(new ServiceRequest(), null, "key-1");
+        assertThat(response.getBody()).isEqualTo(Map.of("error", "rejected"));
+        return response.getStatusCode().value();
+    }
+}
@@ -0,0 +1,111 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkExportServiceTest {
+
+    // id, username, email, name, roles, requestTypes, vendor, latitude, longitude, address, status
+    private static final List<List<Object>> USERS = List.of(
+            Arrays.asList(1L, "shop", "shop@example.com", "Shop, \"The\" Garage", "VENDOR", "TOWING;TYRES", null,
+                    12.5, 77.25, "1 Main St\r\nSuite 2", "IDLE"),
+            Arrays.asList(2L, "w1", null, null, "WORKER", null, "shop", null, null, null, "BUSY"));
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private BulkExportService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        doAnswer(call -> {
+            PreparedStatementCreator creator = call.getArgument(0);
+            RowCallbackHandler handler = call.getArgument(1);
+            creator.createPreparedStatement(connection);
+            for (List<Object> user : USERS) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getObject(anyInt())).thenAnswer(get -> user.get(get.<Integer>getArgument(0) - 1));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        service = new BulkExportService(jdbcTemplate, new TransactionTemplate(transactionManager),
+                new ObjectMapper(), new ServiceMetrics());
+    }
+
+    @Test
+    void streamsUsersFromTheCursorInsteadOfBufferingThem() throws Exception {
+        service.exportUsers(BulkFormat.CSV, new ByteArrayOutputStream());
+
+        verify(statement).setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @Test
+    void writesCsvThatReadsBackIntoTheSameValues() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.exportUsers(BulkFormat.CSV, out);
+
+        assertThat(rows).isEqualTo(2);
+        BufferedReader in = new BufferedReader(new StringReader(out.toString(StandardCharsets.UTF_8)));
+        assertThat(CsvRecords.read(in)).containsExactly("id", "username", "email", "name", "roles", "requestTypes",
+                "vendor", "latitude", "longitude", "address", "status");
+        assertThat(CsvRecords.read(in)).containsExactly("1", "shop", "shop@example.com", "Shop, \"The\" Garage",
+                "VENDOR", "TOWING;TYRES", "", "12.5", "77.25", "1 Main St\r\nSuite 2", "IDLE");
+        assertThat(CsvRecords.read(in)).containsExactly("2", "w1", "", "", "WORKER", "", "shop", "", "", "",
+                "BUSY");
+        assertThat(CsvRecords.read(in)).isNull();
+    }
+
+    @Test
+    void writesOneJsonObjectPerLineWithListsAsArrays() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.exportUsers(BulkFormat.NDJSON, out);
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(mapper.readTree(line));
+        }
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0).get("requestTypes")).containsExactly(mapper.valueToTree("TOWING"),
+                mapper.valueToTree("TYRES"));
+        assertThat(lines.get(0).get("address").asText()).isEqualTo("1 Main St\r\nSuite 2");
+        assertThat(lines.get(0).get("latitude").asDouble()).isEqualTo(12.5);
+        assertThat(lines.get(1).get("vendor").asText()).isEqualTo("shop");
+        assertThat(lines.get(1).get("requestTypes").isNull()).isTrue();
+    }
+}
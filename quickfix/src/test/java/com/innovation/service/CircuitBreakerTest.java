@@ -0,0 +1,116 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    // Opens at half of the last 4 calls failing, stays open 10 s, then lets 2 trial calls through
+    private final CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), 2, clock::get);
+
+    @Test
+    void staysClosedUntilTheWindowHasTheMinimumCalls() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void forgetsOutcomesThatLeftTheWindow() {
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        // The first failure has left the window: one failure in the last four
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void goesHalfOpenAfterTheOpenDurationAndClosesOnceEveryTrialSucceeds() {
+        open();
+        advance(9_999);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        advance(1);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        // The window starts empty again
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void reopensForAFullDurationWhenATrialFails() {
+        open();
+        advance(10_000);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        advance(9_999);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        advance(1);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void returnsUnusedTrialPermissions() {
+        open();
+        advance(10_000);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        // e.g. the call was then rejected by the bulkhead
+        breaker.releasePermission();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        // Never more than the configured trials
+        breaker.releasePermission();
+        breaker.releasePermission();
+        breaker.releasePermission();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,75 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvRecordsTest {
+
+    @Test
+    void readsQuotedFieldsWithCommasAndDoubledQuotes() throws IOException {
+        List<List<String>> records = readAll("a,\"b, c\",\"say \"\"hi\"\"\",\"\"\n");
+
+        assertThat(records).containsExactly(List.of("a", "b, c", "say \"hi\"", ""));
+    }
+
+    @Test
+    void splitsRecordsOnCrLfLfAndCr() throws IOException {
+        List<List<String>> records = readAll("a,b\r\nc,d\ne,f\rg,h");
+
+        assertThat(records).containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e", "f"),
+                List.of("g", "h"));
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotedFields() throws IOException {
+        List<List<String>> records = readAll("1,\"line one\r\nline two\nthree\",x\r\n2,y,z\r\n");
+
+        assertThat(records).containsExactly(List.of("1", "line one\r\nline two\nthree", "x"),
+                List.of("2", "y", "z"));
+    }
+
+    @Test
+    void skipsBlankLinesButKeepsEmptyFields() throws IOException {
+        List<List<String>> records = readAll("\r\na,,c\r\n\r\n\n,\r\n");
+
+        assertThat(records).containsExactly(List.of("a", "", "c"), List.of("", ""));
+    }
+
+    @Test
+    void quotesOnlyFieldsThatNeedIt() throws IOException {
+        StringWriter out = new StringWriter();
+
+        CsvRecords.write(out, Arrays.asList("plain", "a,b", "say \"hi\"", null, "two\nlines"));
+
+        assertThat(out.toString()).isEqualTo("plain,\"a,b\",\"say \"\"hi\"\"\",,\"two\nlines\"\r\n");
+    }
+
+    @Test
+    void readsBackWhatItWrites() throws IOException {
+        List<String> fields = List.of("x", "\"quoted\"", "comma, here", "cr\rlf\r\n", "", " padded ");
+        StringWriter out = new StringWriter();
+        CsvRecords.write(out, fields);
+        CsvRecords.write(out, fields);
+
+        assertThat(readAll(out.toString())).containsExactly(fields, fields);
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        BufferedReader in = new BufferedReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = CsvRecords.read(in)) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
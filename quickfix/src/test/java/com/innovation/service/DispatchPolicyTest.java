@@ -0,0 +1,72 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DispatchPolicyTest {
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("dispatch.fanout.k.default", "3")
+            .withProperty("dispatch.fanout.k.any.critical", "5")
+            .withProperty("dispatch.fanout.k.towing", "2")
+            .withProperty("dispatch.fanout.k.towing.high", "4")
+            .withProperty("dispatch.radius-km.default", "5")
+            .withProperty("dispatch.radius-km.any.critical", "10")
+            .withProperty("dispatch.radius-km.towing.critical", "20");
+
+    @Test
+    void looksUpKMostSpecificFirst() {
+        DispatchPolicy policy = policy("fanout", 100);
+
+        assertThat(policy.fanOut("towing", "High")).isEqualTo(4);
+        assertThat(policy.fanOut("towing", "Low")).isEqualTo(2);
+        assertThat(policy.fanOut("towing", null)).isEqualTo(2);
+        assertThat(policy.fanOut("battery", "Critical")).isEqualTo(5);
+        assertThat(policy.fanOut("battery", "Low")).isEqualTo(3);
+        assertThat(policy.fanOut(null, null)).isEqualTo(3);
+    }
+
+    @Test
+    void matchesSeveritiesIgnoringCaseAndSpaces() {
+        DispatchPolicy policy = policy("fanout", 100);
+
+        assertThat(policy.fanOut("towing", " HIGH ")).isEqualTo(4);
+        assertThat(policy.radiusKm("towing", "critical", 0)).isEqualTo(20);
+    }
+
+    @Test
+    void fallsBackToBuiltInDefaultsAndNeverOffersToNobody() {
+        DispatchPolicy policy = new DispatchPolicy(new MockEnvironment()
+                .withProperty("dispatch.fanout.k.any.low", "0"), "fanout", "downrank", 2.0, 100);
+
+        assertThat(policy.fanOut("towing", "High")).isEqualTo(3);
+        assertThat(policy.radiusKm("towing", "High", 0)).isEqualTo(5.0);
+        assertThat(policy.fanOut("towing", "Low")).isEqualTo(1);
+    }
+
+    @Test
+    void widensTheRadiusEveryWaveUpToTheMaximum() {
+        DispatchPolicy policy = policy("fanout", 35);
+
+        assertThat(policy.radiusKm("towing", "Critical", 0)).isEqualTo(20);
+        assertThat(policy.radiusKm("battery", "Critical", 1)).isEqualTo(20);
+        assertThat(policy.radiusKm("battery", "Low", 2)).isEqualTo(20);
+        assertThat(policy.radiusKm("battery", "Low", 3)).isEqualTo(35);
+        assertThat(policy.getMaxRadiusKm()).isEqualTo(35);
+    }
+
+    @Test
+    void hasNoRadiusLimitInSequentialMode() {
+        DispatchPolicy policy = policy("sequential", 35);
+
+        assertThat(policy.isFanOut()).isFalse();
+        assertThat(policy.getMode()).isEqualTo(DispatchPolicy.Mode.SEQUENTIAL);
+        assertThat(policy.getMaxRadiusKm()).isInfinite();
+    }
+
+    private DispatchPolicy policy(String mode, double maxRadiusKm) {
+        return new DispatchPolicy(environment, mode, "downrank", 2.0, maxRadiusKm);
+    }
+}
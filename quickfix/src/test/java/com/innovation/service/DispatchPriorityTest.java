@@ -0,0 +1,117 @@
+package com.innovation.service;
+
+import com.innovation.repository.ServiceRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DispatchPriorityTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private final ServiceRequestRepository requestRepository = mock(ServiceRequestRepository.class);
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private final DispatchPriority priority = new DispatchPriority(requestRepository, transactionTemplate(), metrics,
+            300);
+
+    @Test
+    void mapsSeveritiesToLevelsIgnoringCaseAndSurroundingSpaces() {
+        assertThat(DispatchPriority.Level.of("critical")).isEqualTo(DispatchPriority.Level.CRITICAL);
+        assertThat(DispatchPriority.Level.of(" High ")).isEqualTo(DispatchPriority.Level.HIGH);
+        assertThat(DispatchPriority.Level.of("LOW")).isEqualTo(DispatchPriority.Level.LOW);
+        assertThat(DispatchPriority.Level.of("medium")).isEqualTo(DispatchPriority.Level.MEDIUM);
+        assertThat(DispatchPriority.Level.of("severe")).isEqualTo(DispatchPriority.Level.MEDIUM);
+        assertThat(DispatchPriority.Level.of("")).isEqualTo(DispatchPriority.Level.MEDIUM);
+        assertThat(DispatchPriority.Level.of(null)).isEqualTo(DispatchPriority.Level.MEDIUM);
+    }
+
+    @Test
+    void agreesWithTheBackfillQuery() throws Exception {
+        String sql = ServiceRequestRepository.class.getMethod("backfillPriorityAt", long.class)
+                .getAnnotation(Query.class).value();
+        assertThat(sql).contains("case lower(trim(damage_severity))");
+        Map<String, Integer> steps = new HashMap<>();
+        Matcher when = Pattern.compile("when '([a-z]+)' then (\\d+)").matcher(sql);
+        while (when.find()) {
+            steps.put(when.group(1), Integer.parseInt(when.group(2)));
+        }
+        Matcher otherwise = Pattern.compile("else (\\d+) end").matcher(sql);
+        assertThat(otherwise.find()).isTrue();
+        int elseSteps = Integer.parseInt(otherwise.group(1));
+
+        // Every level but the default has its own branch, with the level's ordinal as its steps
+        assertThat(steps).hasSize(DispatchPriority.Level.values().length - 1);
+        steps.forEach((severity, step) -> {
+            assertThat(DispatchPriority.Level.of(severity).ordinal()).as(severity).isEqualTo(step);
+            assertThat(DispatchPriority.Level.of(" " + severity.toUpperCase(Locale.ROOT) + " ").ordinal())
+                    .as(severity).isEqualTo(step);
+        });
+        for (String unmatched : Arrays.asList(null, "", "medium", "moderate", "none")) {
+            assertThat(DispatchPriority.Level.of(unmatched).ordinal()).as(unmatched).isEqualTo(elseSteps);
+        }
+    }
+
+    @Test
+    void delaysEachLevelBelowCriticalByOneStep() {
+        assertThat(priority.priorityAt(CREATED, "critical")).isEqualTo(CREATED);
+        assertThat(priority.priorityAt(CREATED, "high")).isEqualTo(CREATED.plusMinutes(5));
+        assertThat(priority.priorityAt(CREATED, null)).isEqualTo(CREATED.plusMinutes(10));
+        assertThat(priority.priorityAt(CREATED, "low")).isEqualTo(CREATED.plusMinutes(15));
+        // A low request waiting three steps ranks with a critical one created now
+        assertThat(priority.priorityAt(CREATED, "low"))
+                .isEqualTo(priority.priorityAt(CREATED.plus(Duration.ofMinutes(15)), "critical"));
+    }
+
+    @Test
+    void sumsQueueStatsOfSeveritiesThatMapToTheSameLevel() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ServiceRequestRepository.OpenBySeverity> rows = List.of(
+                row("High", 2, now.minusMinutes(3)),
+                row("high ", 1, now.minusMinutes(9)),
+                row(null, 4, now.minusMinutes(1)),
+                row("low", 0, null));
+        when(requestRepository.countOpenBySeverity()).thenReturn(rows);
+
+        priority.refreshStats();
+
+        Map<String, Object> snapshot = metrics.snapshot();
+        assertThat(snapshot.get("dispatch.queue.depth.high")).isEqualTo(3L);
+        assertThat((Long) snapshot.get("dispatch.queue.oldest-wait-ms.high"))
+                .isBetween(Duration.ofMinutes(9).toMillis(), Duration.ofMinutes(10).toMillis());
+        assertThat(snapshot.get("dispatch.queue.depth.medium")).isEqualTo(4L);
+        assertThat(snapshot.get("dispatch.queue.depth.low")).isEqualTo(0L);
+        assertThat(snapshot.get("dispatch.queue.depth.critical")).isEqualTo(0L);
+    }
+
+    private static ServiceRequestRepository.OpenBySeverity row(String severity, long depth,
+            LocalDateTime oldestCreatedAt) {
+        ServiceRequestRepository.OpenBySeverity row = mock(ServiceRequestRepository.OpenBySeverity.class);
+        when(row.getSeverity()).thenReturn(severity);
+        when(row.getDepth()).thenReturn(depth);
+        when(row.getOldestCreatedAt()).thenReturn(oldestCreatedAt);
+        return row;
+    }
+
+    private static TransactionTemplate transactionTemplate() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        return new TransactionTemplate(transactionManager);
+    }
+}
@@ -0,0 +1,151 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentProcessorTest {
+
+    @Test
+    void recompressesUncompressedPngLosslessly() throws IOException {
+        BufferedImage image = gradient();
+        byte[] stored = png(image, false);
+
+        byte[] recompressed = DocumentProcessor.recompressPng(stored);
+
+        assertThat(recompressed).isNotNull();
+        assertThat(recompressed.length).isLessThan(stored.length);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(recompressed));
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertThat(decoded.getRGB(x, y)).isEqualTo(image.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void keepsGammaWhenRecompressing() throws IOException {
+        byte[] stored = png(gradient(), true);
+        assertThat(DocumentProcessor.pngChunkTypes(stored)).contains("gAMA");
+
+        byte[] recompressed = DocumentProcessor.recompressPng(stored);
+
+        assertThat(recompressed).isNotNull();
+        assertThat(DocumentProcessor.pngChunkTypes(recompressed)).contains("gAMA");
+    }
+
+    @Test
+    void keepsUnknownChunksWhenRecompressing() throws IOException {
+        byte[] stored = withChunkAfterHeader(png(gradient(), false), "prVt", new byte[] { 1, 2, 3 });
+        assertThat(DocumentProcessor.pngChunkTypes(stored)).containsSequence("IHDR", "prVt");
+
+        byte[] recompressed = DocumentProcessor.recompressPng(stored);
+
+        assertThat(recompressed).isNotNull();
+        assertThat(DocumentProcessor.pngChunkTypes(recompressed)).contains("prVt");
+    }
+
+    @Test
+    void findsTheFirstEmbeddedJpegOfAPdf() throws IOException {
+        byte[] jpeg = jpeg(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB));
+        byte[] pdf = concat(ascii("%PDF-1.4\n1 0 obj\n<< /Type /XObject /Subtype /Image /Filter /DCTDecode"
+                + " /Length " + jpeg.length + " >>\nstream\r\n"), jpeg, ascii("\nendstream\nendobj\n%%EOF\n"));
+
+        byte[] preview = DocumentProcessor.firstEmbeddedJpeg(pdf);
+
+        assertThat(preview).startsWith(jpeg);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(preview));
+        assertThat(decoded.getWidth()).isEqualTo(40);
+        assertThat(decoded.getHeight()).isEqualTo(30);
+    }
+
+    @Test
+    void pdfWithoutJpegHasNoPreview() {
+        assertThat(DocumentProcessor.firstEmbeddedJpeg(ascii("%PDF-1.4\n<< /Filter /FlateDecode >>\nstream\n"
+                + "xyz\nendstream\n"))).isNull();
+        assertThat(DocumentProcessor.firstEmbeddedJpeg(ascii("%PDF-1.4\n<< /Filter /DCTDecode >>\nstream\n"
+                + "not a jpeg\nendstream\n"))).isNull();
+    }
+
+    private static BufferedImage gradient() {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                image.setRGB(x, y, (x * 4) << 16 | (y * 4) << 8 | 128);
+            }
+        }
+        return image;
+    }
+
+    // Stored without compression, so maximum compression is always smaller
+    private static byte[] png(BufferedImage image, boolean withGamma) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(1f);
+        IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+                param);
+        if (withGamma) {
+            IIOMetadataNode gamma = new IIOMetadataNode("gAMA");
+            gamma.setAttribute("value", "45455");
+            IIOMetadataNode root = new IIOMetadataNode("javax_imageio_png_1.0");
+            root.appendChild(gamma);
+            metadata.mergeTree("javax_imageio_png_1.0", root);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    // Signature (8) and IHDR (4 + 4 + 13 + 4) come first in every PNG
+    private static byte[] withChunkAfterHeader(byte[] png, String type, byte[] data) {
+        int afterHeader = 8 + 25;
+        CRC32 crc = new CRC32();
+        crc.update(ascii(type));
+        crc.update(data);
+        ByteBuffer chunk = ByteBuffer.allocate(12 + data.length);
+        chunk.putInt(data.length).put(ascii(type)).put(data).putInt((int) crc.getValue());
+        return concat(Arrays.copyOfRange(png, 0, afterHeader), chunk.array(),
+                Arrays.copyOfRange(png, afterHeader, png.length));
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
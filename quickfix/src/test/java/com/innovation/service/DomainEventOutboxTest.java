@@ -0,0 +1,112 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.OutboxMessage;
+import com.innovation.repository.OutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DomainEventOutboxTest {
+
+    private final OutboxRepository repository = mock(OutboxRepository.class);
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+    private DomainEventOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        outbox = new DomainEventOutbox(repository, new TransactionTemplate(transactionManager), new ObjectMapper(),
+                new ServiceMetrics(), 10, 3, 24);
+        outbox.subscribe("topic", (messageId, payload) -> {
+            if (payload.path("fail").asBoolean()) {
+                throw new IllegalStateException("handler failed");
+            }
+            handled.add(payload.path("name").asText());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.shutdown();
+    }
+
+    @Test
+    void publishesTheClaimedHeadBatchInOrder() {
+        List<OutboxMessage> batch = List.of(message(1, "{\"name\":\"a\"}", 0), message(2, "{\"name\":\"b\"}", 0));
+        when(repository.lockPending(anyInt())).thenReturn(batch);
+        when(repository.findFirstPendingId()).thenReturn(1L);
+
+        outbox.poll();
+
+        verify(repository, timeout(5000)).markPublished(eq(List.of(1L, 2L)), any());
+        assertThat(handled).containsExactly("a", "b");
+    }
+
+    @Test
+    void leavesItsBatchAloneWhileAnotherNodeHoldsEarlierMessages() {
+        when(repository.lockPending(anyInt())).thenReturn(List.of(message(5, "{\"name\":\"e\"}", 0)));
+        when(repository.findFirstPendingId()).thenReturn(3L);
+
+        outbox.poll();
+
+        verify(repository, timeout(5000)).findFirstPendingId();
+        assertThat(handled).isEmpty();
+        verify(repository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void stopsAtAFailingMessageUntilItIsRetried() {
+        when(repository.lockPending(anyInt()))
+                .thenReturn(List.of(message(1, "{\"fail\":true}", 0), message(2, "{\"name\":\"b\"}", 0)));
+        when(repository.findFirstPendingId()).thenReturn(1L);
+
+        outbox.poll();
+
+        verify(repository, timeout(5000)).recordFailedAttempt(eq(1L), anyString());
+        assertThat(handled).isEmpty();
+        verify(repository, never()).markDeadLettered(anyLong(), anyString(), any());
+        verify(repository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void deadLettersAfterMaxAttemptsAndContinues() {
+        when(repository.lockPending(anyInt()))
+                .thenReturn(List.of(message(1, "{\"fail\":true}", 2), message(2, "{\"name\":\"b\"}", 0)));
+        when(repository.findFirstPendingId()).thenReturn(1L);
+
+        outbox.poll();
+
+        verify(repository, timeout(5000)).markPublished(eq(List.of(2L)), any());
+        verify(repository).markDeadLettered(eq(1L), anyString(), any());
+        await().untilAsserted(() -> assertThat(handled).containsExactly("b"));
+    }
+
+    private static OutboxMessage message(long id, String payload, int attempts) {
+        OutboxMessage message = new OutboxMessage("topic", id, payload);
+        ReflectionTestUtils.setField(message, "id", id);
+        ReflectionTestUtils.setField(message, "attempts", attempts);
+        return message;
+    }
+}
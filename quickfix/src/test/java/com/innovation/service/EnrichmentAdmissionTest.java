@@ -0,0 +1,65 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EnrichmentAdmissionTest {
+
+    private final GeminiClient geminiClient = mock(GeminiClient.class);
+    private final ServiceMetrics metrics = new ServiceMetrics();
+
+    @Test
+    void shedsWhileTheCircuitIsOpen() {
+        EnrichmentAdmission admission = new EnrichmentAdmission(geminiClient, metrics, 4, 15_000, 30_000);
+        when(geminiClient.getCircuitState()).thenReturn(CircuitBreaker.State.OPEN);
+
+        assertThat(admission.tryAdmit()).isFalse();
+        assertThat(metrics.count("requests.admission.shed.circuit")).isEqualTo(1);
+
+        when(geminiClient.getCircuitState()).thenReturn(CircuitBreaker.State.HALF_OPEN);
+        assertThat(admission.tryAdmit()).isTrue();
+    }
+
+    @Test
+    void admitsAtMostTheBacklogUntilEnrichmentsFinish() {
+        when(geminiClient.getCircuitState()).thenReturn(CircuitBreaker.State.CLOSED);
+        EnrichmentAdmission admission = new EnrichmentAdmission(geminiClient, metrics, 2, 15_000, 30_000);
+
+        assertThat(admission.tryAdmit()).isTrue();
+        assertThat(admission.tryAdmit()).isTrue();
+        assertThat(admission.tryAdmit()).isFalse();
+        assertThat(metrics.count("requests.admission.shed.backlog")).isEqualTo(1);
+
+        admission.finished(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(admission.tryAdmit()).isTrue();
+        assertThat(admission.tryAdmit()).isFalse();
+    }
+
+    @Test
+    void shedsForTheCooldownOnceTheAverageIsTooSlow() {
+        when(geminiClient.getCircuitState()).thenReturn(CircuitBreaker.State.CLOSED);
+        EnrichmentAdmission admission = new EnrichmentAdmission(geminiClient, metrics, 16, 100, 200);
+
+        // One slow call among fast ones stays under the moving average: 0.3 * 200 + 0.7 * 10 ms
+        admit(admission, 10);
+        admit(admission, 200);
+        assertThat(admission.tryAdmit()).isTrue();
+        admission.finished(TimeUnit.MILLISECONDS.toNanos(300));
+
+        assertThat(admission.tryAdmit()).isFalse();
+        assertThat(metrics.count("requests.admission.shed.latency")).isEqualTo(1);
+        await().atMost(Duration.ofSeconds(5)).until(admission::tryAdmit);
+    }
+
+    private static void admit(EnrichmentAdmission admission, long elapsedMillis) {
+        assertThat(admission.tryAdmit()).isTrue();
+        admission.finished(TimeUnit.MILLISECONDS.toNanos(elapsedMillis));
+    }
+}
@@ -0,0 +1,114 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class GeminiClientTest {
+
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("gemini.client.timeout-ms.default", "5000")
+            .withProperty("gemini.client.hedge.delay-ms.default", "100");
+    // Status and delay of each successive call; later calls repeat the last one
+    private final List<Response> responses = new ArrayList<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private record Response(HttpStatus status, long delayMillis) {
+    }
+
+    @Test
+    void hedgesASlowCallAndCountsTheWinningHedgeAsASuccess() {
+        responses.add(new Response(HttpStatus.OK, 2000));
+        responses.add(new Response(HttpStatus.OK, 0));
+        GeminiClient client = client(10, 2, 0.5);
+
+        assertThat(client.generateContent("m", Map.of(), Map.class)).containsEntry("call", 2);
+
+        assertThat(calls).hasValue(2);
+        assertThat(metrics.count("gemini.hedge.fired")).isEqualTo(1);
+        assertThat(metrics.count("gemini.hedge.won")).isEqualTo(1);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void skipsTheHedgeWhenTheRateLimiterHasNoToken() {
+        responses.add(new Response(HttpStatus.OK, 300));
+        // One token a second: the primary takes the only one
+        GeminiClient client = client(1, 2, 0.5);
+
+        assertThat(client.generateContent("m", Map.of(), Map.class)).containsEntry("call", 1);
+
+        assertThat(calls).hasValue(1);
+        assertThat(metrics.count("gemini.hedge.skipped")).isEqualTo(1);
+        assertThat(metrics.count("gemini.hedge.fired")).isZero();
+    }
+
+    @Test
+    void skipsTheHedgeUnlessTheCircuitIsClosed() {
+        responses.add(new Response(HttpStatus.SERVICE_UNAVAILABLE, 0));
+        responses.add(new Response(HttpStatus.SERVICE_UNAVAILABLE, 0));
+        responses.add(new Response(HttpStatus.OK, 300));
+        GeminiClient client = client(10, 2, 0.5);
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.generateContent("m", Map.of(), Map.class))
+                    .isInstanceOf(GeminiCallException.class);
+        }
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+        await().atMost(Duration.ofSeconds(2))
+                .until(() -> client.getCircuitState() == CircuitBreaker.State.HALF_OPEN);
+
+        // The half-open trial is slow, but the hedge must not add to the traffic
+        assertThat(client.generateContent("m", Map.of(), Map.class)).containsEntry("call", 3);
+
+        assertThat(calls).hasValue(3);
+        assertThat(metrics.count("gemini.hedge.skipped")).isEqualTo(1);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void countsAFailedHedgeAgainstTheCircuitWithoutFailingTheCall() {
+        responses.add(new Response(HttpStatus.OK, 400));
+        responses.add(new Response(HttpStatus.SERVICE_UNAVAILABLE, 0));
+        GeminiClient client = client(10, 3, 0.6);
+
+        assertThat(client.generateContent("m", Map.of(), Map.class)).containsEntry("call", 1);
+        assertThat(metrics.count("gemini.hedge.failure")).isEqualTo(1);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // Counting the hedge's failure, this one makes two failures out of the last three calls
+        assertThatThrownBy(() -> client.generateContent("m", Map.of(), Map.class))
+                .isInstanceOf(GeminiCallException.class);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private GeminiClient client(double permitsPerSecond, int circuitWindow, double failureRateThreshold) {
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            int call = calls.incrementAndGet();
+            Response response = responses.get(Math.min(call, responses.size()) - 1);
+            return Mono.delay(Duration.ofMillis(response.delayMillis()))
+                    .map(tick -> ClientResponse.create(response.status())
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"call\":" + call + "}")
+                            .build());
+        });
+        // No retries; once open, the circuit stays open for 200 ms and then lets one trial call through
+        return new GeminiClient(builder, environment, metrics, "key", 4, 1000, permitsPerSecond, 0, 0, 0,
+                circuitWindow, circuitWindow, failureRateThreshold, 200, 1, true);
+    }
+}
@@ -0,0 +1,296 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.IdempotencyRecord;
+import com.innovation.repository.IdempotencyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final String FINGERPRINT = "fingerprint-1";
+
+    // idempotency_record as the repository's statements see it, guarded by itself
+    private final Map<String, Stored> table = new HashMap<>();
+    private final IdempotencyRepository repository = mock(IdempotencyRepository.class);
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private final AtomicInteger writes = new AtomicInteger();
+    private TransactionTemplate transactionTemplate;
+
+    private static final class Stored {
+        IdempotencyRecord.Status status = IdempotencyRecord.Status.IN_PROGRESS;
+        String fingerprint;
+        String owner;
+        LocalDateTime leaseUntil;
+        LocalDateTime expiresAt;
+        String body;
+    }
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        fakeRecordTable();
+    }
+
+    @Test
+    void runsTheWriteOnceForConcurrentClaimsOfTheSameKey() throws Exception {
+        IdempotencyService service = service(120_000, 10_000);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<IdempotencyService.Outcome<Map<String, Integer>>>> outcomes = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                outcomes.add(pool.submit(() -> {
+                    start.await();
+                    return service.execute("alice", "key-1", FINGERPRINT, () -> {
+                        sleep(200);
+                        return Map.of("id", writes.incrementAndGet());
+                    });
+                }));
+            }
+            start.countDown();
+            int ran = 0;
+            for (Future<IdempotencyService.Outcome<Map<String, Integer>>> future : outcomes) {
+                IdempotencyService.Outcome<Map<String, Integer>> outcome = future.get(20, TimeUnit.SECONDS);
+                if (outcome.isReplay()) {
+                    assertThat(outcome.replayedBody()).isEqualTo("{\"id\":1}");
+                } else {
+                    assertThat(outcome.value()).containsEntry("id", 1);
+                    ran++;
+                }
+            }
+            assertThat(ran).isEqualTo(1);
+            assertThat(writes).hasValue(1);
+            assertThat(metrics.count("idempotency.claimed")).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequestAsMismatch() {
+        IdempotencyService service = service(120_000, 1_000);
+        service.execute("alice", "key-1", FINGERPRINT, this::write);
+
+        assertThatThrownBy(() -> service.execute("alice", "key-1", "fingerprint-2", this::write))
+                .isInstanceOfSatisfying(IdempotencyException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(IdempotencyException.Reason.MISMATCH));
+        assertThat(writes).hasValue(1);
+        // Keys are per user
+        assertThat(service.execute("bob", "key-1", "fingerprint-2", this::write).isReplay()).isFalse();
+    }
+
+    @Test
+    void rejectsBlankAndOverlongKeys() {
+        IdempotencyService service = service(120_000, 1_000);
+
+        for (String key : new String[] { null, " ", "k".repeat(256) }) {
+            assertThatThrownBy(() -> service.execute("alice", key, FINGERPRINT, this::write))
+                    .isInstanceOfSatisfying(IdempotencyException.class,
+                            e -> assertThat(e.getReason()).isEqualTo(IdempotencyException.Reason.INVALID_KEY));
+        }
+        assertThat(table).isEmpty();
+    }
+
+    @Test
+    void releasesTheKeyWhenTheWriteFailsSoARetryRunsIt() {
+        IdempotencyService service = service(120_000, 1_000);
+
+        assertThatThrownBy(() -> service.execute("alice", "key-1", FINGERPRINT, () -> {
+            throw new IllegalStateException("vendor lookup failed");
+        })).hasMessage("vendor lookup failed");
+        assertThat(table).isEmpty();
+
+        IdempotencyService.Outcome<Map<String, Integer>> retry = service.execute("alice", "key-1", FINGERPRINT,
+                this::write);
+        assertThat(retry.isReplay()).isFalse();
+        assertThat(retry.value()).containsEntry("id", 1);
+    }
+
+    @Test
+    void waitsForALiveOriginalThenTakesOverOnceItsLeaseRunsOut() throws Exception {
+        IdempotencyService service = service(120_000, 300);
+        Stored running = new Stored();
+        running.fingerprint = FINGERPRINT;
+        running.owner = "other-node";
+        running.leaseUntil = LocalDateTime.now().plusMinutes(1);
+        running.expiresAt = LocalDateTime.now().plusHours(1);
+        synchronized (table) {
+            table.put(idOf("alice", "key-1"), running);
+        }
+
+        assertThatThrownBy(() -> service.execute("alice", "key-1", FINGERPRINT, this::write))
+                .isInstanceOfSatisfying(IdempotencyException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(IdempotencyException.Reason.IN_PROGRESS));
+        assertThat(writes).hasValue(0);
+
+        // Once its lease runs out, the key is taken over and the write runs here
+        running.leaseUntil = LocalDateTime.now().minusSeconds(1);
+        IdempotencyService.Outcome<Map<String, Integer>> outcome = service.execute("alice", "key-1", FINGERPRINT,
+                this::write);
+        assertThat(outcome.isReplay()).isFalse();
+        assertThat(metrics.count("idempotency.taken-over")).isEqualTo(1);
+        assertThat(onlyRecord().status).isEqualTo(IdempotencyRecord.Status.COMPLETED);
+        assertThat(onlyRecord().body).isEqualTo("{\"id\":1}");
+    }
+
+    @Test
+    void rollsBackAWriteThatOutlivedItsLease() {
+        IdempotencyService service = service(120_000, 1_000);
+
+        assertThatThrownBy(() -> service.execute("alice", "key-1", FINGERPRINT, () -> {
+            // Another node took the key over while this write was still running
+            onlyRecord().owner = "other-node";
+            return write();
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("Lost the idempotency lease");
+        // The new owner's claim is left alone
+        assertThat(onlyRecord().owner).isEqualTo("other-node");
+        assertThat(onlyRecord().status).isEqualTo(IdempotencyRecord.Status.IN_PROGRESS);
+    }
+
+    private IdempotencyService service(long leaseMillis, long waitMillis) {
+        return new IdempotencyService(repository, transactionTemplate, new ObjectMapper(), metrics, 24, leaseMillis,
+                waitMillis, 1000);
+    }
+
+    private Map<String, Integer> write() {
+        return Map.of("id", writes.incrementAndGet());
+    }
+
+    private Stored onlyRecord() {
+        synchronized (table) {
+            assertThat(table).hasSize(1);
+            return table.values().iterator().next();
+        }
+    }
+
+    // The record ID of a key, as the service derives it
+    private static String idOf(String username, String key) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest((username + '\n' + key).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void fakeRecordTable() {
+        when(repository.insertInProgress(anyString(), anyString(), anyString(), anyString(), any(), any(), any()))
+                .thenAnswer(call -> {
+                    synchronized (table) {
+                        String id = call.getArgument(0);
+                        if (table.containsKey(id)) {
+                            throw new DataIntegrityViolationException("Duplicate entry " + id);
+                        }
+                        Stored stored = new Stored();
+                        stored.fingerprint = call.getArgument(2);
+                        stored.owner = call.getArgument(3);
+                        stored.leaseUntil = call.getArgument(4);
+                        stored.expiresAt = call.getArgument(6);
+                        table.put(id, stored);
+                        return 1;
+                    }
+                });
+        when(repository.takeOver(anyString(), anyString(), anyString(), any(), any(), any())).thenAnswer(call -> {
+            synchronized (table) {
+                Stored stored = table.get(call.<String>getArgument(0));
+                LocalDateTime now = call.getArgument(4);
+                if (stored == null || !(stored.expiresAt.isBefore(now)
+                        || (stored.status == IdempotencyRecord.Status.IN_PROGRESS && stored.leaseUntil.isBefore(now)))) {
+                    return 0;
+                }
+                stored.status = IdempotencyRecord.Status.IN_PROGRESS;
+                stored.fingerprint = call.getArgument(1);
+                stored.owner = call.getArgument(2);
+                stored.leaseUntil = call.getArgument(3);
+                stored.expiresAt = call.getArgument(5);
+                stored.body = null;
+                return 1;
+            }
+        });
+        when(repository.findSnapshot(anyString())).thenAnswer(call -> {
+            synchronized (table) {
+                Stored stored = table.get(call.<String>getArgument(0));
+                if (stored == null) {
+                    return Optional.empty();
+                }
+                IdempotencyRecord.Status status = stored.status;
+                String fingerprint = stored.fingerprint;
+                String body = stored.body;
+                return Optional.of(new IdempotencyRepository.Snapshot() {
+                    @Override
+                    public IdempotencyRecord.Status getStatus() {
+                        return status;
+                    }
+
+                    @Override
+                    public String getFingerprint() {
+                        return fingerprint;
+                    }
+
+                    @Override
+                    public String getResponseBody() {
+                        return body;
+                    }
+                });
+            }
+        });
+        when(repository.complete(anyString(), anyString(), any())).thenAnswer(call -> {
+            synchronized (table) {
+                Stored stored = table.get(call.<String>getArgument(0));
+                if (stored == null || !stored.owner.equals(call.getArgument(1))
+                        || stored.status != IdempotencyRecord.Status.IN_PROGRESS) {
+                    return 0;
+                }
+                stored.status = IdempotencyRecord.Status.COMPLETED;
+                stored.body = call.getArgument(2);
+                stored.leaseUntil = null;
+                return 1;
+            }
+        });
+        when(repository.release(anyString(), anyString())).thenAnswer(call -> {
+            synchronized (table) {
+                Stored stored = table.get(call.<String>getArgument(0));
+                if (stored == null || !stored.owner.equals(call.getArgument(1))
+                        || stored.status != IdempotencyRecord.Status.IN_PROGRESS) {
+                    return 0;
+                }
+                table.remove(call.<String>getArgument(0));
+                return 1;
+            }
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
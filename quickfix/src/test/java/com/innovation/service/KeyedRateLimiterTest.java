@@ -0,0 +1,101 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class KeyedRateLimiterTest {
+
+    @Test
+    void allowsABurstOfCapacityThenReportsTheWaitForTheNextToken() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(0.1, 3);
+
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        long wait = limiter.tryAcquire("alice");
+
+        // One token per ten seconds
+        assertThat(wait).isBetween(TimeUnit.SECONDS.toNanos(9), TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(0.1, 1);
+
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isPositive();
+        assertThat(limiter.tryAcquire("bob")).isZero();
+        assertThat(limiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(20, 1);
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isPositive().isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+
+        await().atMost(Duration.ofSeconds(2)).until(() -> limiter.tryAcquire("alice") == 0);
+    }
+
+    @Test
+    void dropsBucketsThatHaveBeenIdleLongEnoughToBeFull() throws InterruptedException {
+        // A full bucket after 1 ms; keys 1 and 65 share a stripe
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1000, 1);
+        limiter.tryAcquire(1);
+        assertThat(limiter.size()).isEqualTo(1);
+
+        Thread.sleep(20);
+        limiter.tryAcquire(65);
+
+        assertThat(limiter.size()).isEqualTo(1);
+        assertThat(limiter.tryAcquire(1)).isZero();
+    }
+
+    @Test
+    void handsOutExactlyTheBurstToConcurrentCallersOfOneKey() throws Exception {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(0.001, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int acquired = 0;
+                    for (int i = 0; i < 50; i++) {
+                        if (limiter.tryAcquire("shared") == 0) {
+                            acquired++;
+                        }
+                    }
+                    return acquired;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(total).isEqualTo(100);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveRatesAndCapacities() {
+        assertThatThrownBy(() -> new KeyedRateLimiter(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new KeyedRateLimiter(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
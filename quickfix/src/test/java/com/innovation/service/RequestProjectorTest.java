@@ -0,0 +1,195 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.model.RequestEvent;
+import com.innovation.model.RequestEventType;
+import com.innovation.model.RequestStatus;
+import com.innovation.repository.RequestEventRepository;
+import com.innovation.repository.ServiceRequestRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestProjectorTest {
+
+    private static final long REQUESTER = 7;
+    private static final long VENDOR = 40;
+
+    // The committed part of request_events, as every node would see it
+    private final List<RequestEvent> log = new CopyOnWriteArrayList<>();
+    private final RequestEventRepository eventRepository = mock(RequestEventRepository.class);
+    private final ServiceRequestRepository requestRepository = mock(ServiceRequestRepository.class);
+    private RequestProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        when(eventRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(call -> {
+            long afterId = call.getArgument(0);
+            Pageable page = call.getArgument(1);
+            return sorted().stream().filter(e -> e.getId() > afterId).limit(page.getPageSize()).toList();
+        });
+        when(eventRepository.findAllById(any())).thenAnswer(call -> {
+            Collection<Long> ids = call.getArgument(0);
+            return log.stream().filter(e -> ids.contains(e.getId())).toList();
+        });
+        when(eventRepository.findByRequestIdInAndIdLessThanOrderByIdAsc(any(), anyLong())).thenAnswer(call -> {
+            Collection<Long> requestIds = call.getArgument(0);
+            long beforeId = call.getArgument(1);
+            return sorted().stream()
+                    .filter(e -> requestIds.contains(e.getRequestId()) && e.getId() < beforeId)
+                    .toList();
+        });
+        when(eventRepository.findFirstByOccurredAtGreaterThanEqualOrderByIdAsc(any())).thenAnswer(call -> {
+            LocalDateTime since = call.getArgument(0);
+            return sorted().stream().filter(e -> !e.getOccurredAt().isBefore(since)).findFirst();
+        });
+        when(eventRepository.findMaxId()).thenAnswer(call -> log.stream().map(RequestEvent::getId)
+                .max(Comparator.naturalOrder()).orElse(null));
+        when(eventRepository.findRequestIdsFrom(anyLong())).thenAnswer(call -> {
+            long fromId = call.getArgument(0);
+            return log.stream().filter(e -> e.getId() >= fromId).map(RequestEvent::getRequestId).distinct()
+                    .toList();
+        });
+        when(requestRepository.findIdsByStatusNot(RequestStatus.COMPLETED)).thenReturn(List.of());
+        when(requestRepository.countByStatusWithoutEventsFrom(eq(RequestStatus.COMPLETED), anyLong()))
+                .thenReturn(0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        projector.shutdown();
+    }
+
+    @Test
+    void tailsEventsWrittenByAnyNode() {
+        start(Duration.ofDays(30));
+        append(1, 1, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        append(2, 1, RequestEventType.ROUTED, null, "{\"offeredVendorIds\":[" + VENDOR + "]}", 0);
+
+        projector.poll();
+
+        await().untilAsserted(() -> assertThat(projector.findByVendor(VENDOR)).hasSize(1));
+        assertThat(projector.findByRequester(REQUESTER)).extracting(RequestView::getRequestId).containsExactly(1L);
+    }
+
+    @Test
+    void appliesAnEventWhoseTransactionCommittedLate() {
+        start(Duration.ofDays(30));
+        append(1, 1, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        append(3, 2, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        projector.poll();
+        await().untilAsserted(() -> assertThat(projector.findByRequester(REQUESTER)).hasSize(2));
+
+        // ID 2 was taken before ID 3 but committed after it was read
+        append(2, 1, RequestEventType.ACCEPTED, VENDOR, "{\"vendorId\":" + VENDOR + "}", 0);
+        projector.poll();
+
+        await().untilAsserted(() -> assertThat(projector.adminDashboard(10).countsByStatus())
+                .containsEntry(RequestStatus.ASSIGNED, 1L));
+    }
+
+    @Test
+    void tellsSubscribersWhichRequestsChangedIncludingLateCommits() {
+        List<Set<Long>> notified = new CopyOnWriteArrayList<>();
+        start(Duration.ofDays(30));
+        projector.subscribe(notified::add);
+        append(1, 1, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        append(3, 2, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        append(4, 2, RequestEventType.ROUTED, null, "{\"offeredVendorIds\":[" + VENDOR + "]}", 0);
+        projector.poll();
+        await().untilAsserted(() -> assertThat(notified).containsExactly(Set.of(1L, 2L)));
+
+        append(2, 5, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        projector.poll();
+
+        await().untilAsserted(() -> assertThat(notified).containsExactly(Set.of(1L, 2L), Set.of(5L)));
+    }
+
+    @Test
+    void dashboardListsMostRecentlyChangedFirst() {
+        start(Duration.ofDays(30));
+        append(1, 1, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        append(2, 2, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        append(3, 3, RequestEventType.CREATED, REQUESTER, "{}", 0);
+        append(4, 1, RequestEventType.COMPLETED, REQUESTER, "{}", 0);
+        projector.poll();
+
+        await().untilAsserted(() -> assertThat(projector.adminDashboard(2).recent())
+                .extracting(RequestView::getRequestId).containsExactly(1L, 3L));
+    }
+
+    @Test
+    void startupReplaysOnlyLiveAndRecentRequestsButCountsTheRest() {
+        // Request 1 completed long ago, request 2 is still open, request 3 completed recently
+        append(1, 1, RequestEventType.CREATED, REQUESTER, "{}", 90);
+        append(2, 2, RequestEventType.CREATED, REQUESTER, "{}", 80);
+        append(3, 1, RequestEventType.COMPLETED, REQUESTER, "{}", 70);
+        append(4, 3, RequestEventType.CREATED, REQUESTER, "{}", 60);
+        append(5, 3, RequestEventType.COMPLETED, REQUESTER, "{}", 1);
+        when(requestRepository.findIdsByStatusNot(RequestStatus.COMPLETED)).thenReturn(List.of(2L));
+        when(requestRepository.countByStatusWithoutEventsFrom(RequestStatus.COMPLETED, 5L)).thenReturn(1L);
+
+        start(Duration.ofDays(30));
+
+        assertThat(projector.findByRequester(REQUESTER)).extracting(RequestView::getRequestId)
+                .containsExactlyInAnyOrder(2L, 3L);
+        assertThat(projector.adminDashboard(10).countsByStatus())
+                .containsEntry(RequestStatus.OPEN, 1L)
+                .containsEntry(RequestStatus.COMPLETED, 2L);
+    }
+
+    @Test
+    void evictsCompletedRequestsOnceTheyLeaveTheWindow() {
+        start(Duration.ofDays(30));
+        append(1, 1, RequestEventType.CREATED, REQUESTER, "{}", 40);
+        append(2, 1, RequestEventType.COMPLETED, REQUESTER, "{}", 31);
+        append(3, 2, RequestEventType.CREATED, REQUESTER, "{}", 31);
+        projector.poll();
+
+        await().untilAsserted(() -> assertThat(projector.findByRequester(REQUESTER))
+                .extracting(RequestView::getRequestId).containsExactly(2L));
+        assertThat(projector.adminDashboard(10).countsByStatus())
+                .containsEntry(RequestStatus.COMPLETED, 1L)
+                .containsEntry(RequestStatus.OPEN, 1L);
+    }
+
+    private void start(Duration retention) {
+        projector = new RequestProjector(eventRepository, requestRepository, new ObjectMapper(),
+                new ServiceMetrics(), 2, retention.toDays(), 60_000);
+        projector.rebuild();
+        await().until(projector::isReady);
+    }
+
+    private void append(long id, long requestId, RequestEventType type, Long actorId, String payload,
+            int daysAgo) {
+        RequestEvent event = new RequestEvent(requestId, type, actorId, payload);
+        ReflectionTestUtils.setField(event, "id", id);
+        ReflectionTestUtils.setField(event, "occurredAt", LocalDateTime.now().minusDays(daysAgo));
+        log.add(event);
+    }
+
+    private List<RequestEvent> sorted() {
+        List<RequestEvent> events = new ArrayList<>(log);
+        events.sort(Comparator.comparing(RequestEvent::getId));
+        return events;
+    }
+}
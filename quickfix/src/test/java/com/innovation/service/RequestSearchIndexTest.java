@@ -0,0 +1,217 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RequestSearchIndexTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    // service_request as every node sees it: one row of the index's select per request
+    private final Map<Long, Object[]> table = new TreeMap<>();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AtomicReference<Runnable> duringBuild = new AtomicReference<>();
+    private RequestSearchIndex index;
+    private Consumer<Set<Long>> projectorListener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        doAnswer(call -> {
+            PreparedStatementCreator creator = call.getArgument(0);
+            RowCallbackHandler handler = call.getArgument(1);
+            List<Object> ids = new ArrayList<>();
+            PreparedStatement statement = mock(PreparedStatement.class);
+            doAnswer(set -> ids.add(set.getArgument(1))).when(statement).setObject(anyInt(), any());
+            Connection connection = mock(Connection.class);
+            when(connection.prepareStatement(anyString())).thenReturn(statement);
+            when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+            creator.createPreparedStatement(connection);
+            boolean reload = creator instanceof SqlProvider provider && provider.getSql().contains("where r.id in");
+            for (Object[] row : new ArrayList<>(table.values())) {
+                if (!reload || ids.contains(row[0])) {
+                    handler.processRow(resultSet(row));
+                }
+            }
+            Runnable hook = duringBuild.getAndSet(null);
+            if (!reload && hook != null) {
+                hook.run();
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        RequestProjector projector = mock(RequestProjector.class);
+        index = new RequestSearchIndex(jdbcTemplate, projector, new ServiceMetrics());
+        ArgumentCaptor<Consumer<Set<Long>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(projector).subscribe(listener.capture());
+        projectorListener = listener.getValue();
+    }
+
+    @Test
+    void matchesWordsOfThreeOrMoreLettersAsPrefixes() {
+        request(1, "OPEN", "Honda Civic", "KA 01 AB 1234", 7);
+        request(2, "OPEN", "Honda City", "MH-12-XY-9", 7);
+        request(3, "OPEN", "Hyundai i20", "DL 3C 4567", 7);
+        index.rebuild();
+
+        assertThat(ids("hon civ")).containsExactly(1L);
+        assertThat(ids("HON")).containsExactly(2L, 1L);
+        assertThat(ids("ho")).isEmpty();
+        assertThat(ids("i2")).isEmpty();
+        assertThat(ids("i20")).containsExactly(3L);
+        assertThat(ids("ka01ab")).containsExactly(1L);
+        assertThat(ids("mh12")).containsExactly(2L);
+        assertThat(ids("honda civic city")).isEmpty();
+    }
+
+    @Test
+    void intersectsListsOfVeryDifferentLengthsLikeAFullScan() {
+        for (long id = 1; id <= 600; id++) {
+            String makeModel = "Maruti" + (id % 7 == 0 ? " Swift" : "") + (id % 50 == 0 ? " Dzire" : "");
+            Object[] row = request(id, id % 3 == 0 ? "ASSIGNED" : "OPEN", makeModel, "P" + id, 7);
+            row[6] = id % 5 == 0 ? "high" : "low";
+        }
+        index.rebuild();
+
+        RequestSearchIndex.Result result = index.search("maruti swift", Map.of("severity", "high"), null, 0, 1000);
+        List<Long> expected = new ArrayList<>();
+        for (long id = 600; id >= 1; id--) {
+            if (id % 7 == 0 && id % 5 == 0) {
+                expected.add(id);
+            }
+        }
+        assertThat(result.hits()).extracting(RequestSearchIndex.Hit::id).containsExactlyElementsOf(expected);
+        assertThat(result.total()).isEqualTo(expected.size());
+        // The one-element-per-50 list galloped through lists of 600 and 85
+        assertThat(ids("dzire swift maruti")).containsExactly(350L);
+        int assigned = (int) expected.stream().filter(id -> id % 3 == 0).count();
+        assertThat(result.facets().get("status")).containsOnly(Map.entry("OPEN", expected.size() - assigned),
+                Map.entry("ASSIGNED", assigned));
+
+        RequestSearchIndex.Result page = index.search("swift", Map.of(), null, 2, 10);
+        assertThat(page.total()).isEqualTo(85);
+        assertThat(page.hits()).extracting(RequestSearchIndex.Hit::id).startsWith(455L).hasSize(10);
+    }
+
+    @Test
+    void findsOnlyRequestsThePartyIsIn() {
+        request(1, "OPEN", "Tata Nexon", "A1", 7);
+        request(2, "OPEN", "Tata Punch", "A2", 8)[13] = "40,41";
+        request(3, "ASSIGNED", "Tata Tiago", "A3", 8)[12] = 50L;
+        request(4, "ASSIGNED", "Tata Harrier", "A4", 8)[11] = 41L;
+        table.get(4L)[10] = 42L;
+        index.rebuild();
+
+        assertThat(partyIds("tata", 7)).containsExactly(1L);
+        assertThat(partyIds("tata", 41)).containsExactly(4L, 2L);
+        assertThat(partyIds("tata", 40)).containsExactly(2L);
+        assertThat(partyIds("tata", 42)).containsExactly(4L);
+        assertThat(partyIds("tata", 50)).containsExactly(3L);
+        assertThat(partyIds("punch", 50)).isEmpty();
+        assertThat(partyIds("tata", 99)).isEmpty();
+        assertThat(ids("tata")).containsExactly(4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void reloadsRequestsWrittenOnAnyNodeAndUpdatesTheirPostings() {
+        request(1, "OPEN", "Honda Civic", "X1", 7)[2] = "flat tyre";
+        request(2, "OPEN", "Honda Jazz", "X2", 7);
+        request(3, "OPEN", "Honda Amaze", "X3", 7);
+        index.rebuild();
+
+        // Committed by other nodes and read from the event log by the projector
+        Object[] changed = request(1, "ASSIGNED", "Honda Civic", "X1", 7);
+        changed[2] = "engine smoke";
+        changed[12] = 50L;
+        table.remove(2L);
+        request(4, "OPEN", "Kia Seltos", "X4", 8);
+        projectorListener.accept(Set.of(1L, 2L, 4L));
+
+        assertThat(ids("tyre")).isEmpty();
+        assertThat(ids("smoke")).containsExactly(1L);
+        assertThat(ids("jazz")).isEmpty();
+        assertThat(ids("seltos")).containsExactly(4L);
+        assertThat(partyIds("honda", 50)).containsExactly(1L);
+        RequestSearchIndex.Result all = index.search("", Map.of(), null, 0, 10);
+        assertThat(all.hits()).extracting(RequestSearchIndex.Hit::id).containsExactly(4L, 3L, 1L);
+        assertThat(all.facets().get("status")).containsOnly(Map.entry("OPEN", 2), Map.entry("ASSIGNED", 1));
+        assertThat(index.search("", Map.of("status", "ASSIGNED"), null, 0, 10).hits())
+                .extracting(RequestSearchIndex.Hit::id).containsExactly(1L);
+    }
+
+    @Test
+    void reloadsRequestsWrittenWhileItWasBeingBuilt() {
+        request(1, "OPEN", "Honda Civic", "X1", 7)[2] = "flat tyre";
+        duringBuild.set(() -> {
+            // Committed after the scan read the row; the projector reports it before the index is ready
+            table.get(1L)[2] = "broken mirror";
+            projectorListener.accept(Set.of(1L));
+        });
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(ids("tyre")).isEmpty();
+        assertThat(ids("mirror")).containsExactly(1L);
+    }
+
+    private Object[] request(long id, String status, String makeModel, String plate, long requesterId) {
+        Object[] row = { id, status, "breakdown", plate, "car", makeModel, null,
+                Timestamp.valueOf(CREATED.plusMinutes(id)), null, requesterId, null, null, null, null };
+        table.put(id, row);
+        return row;
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, Map.of(), null, 0, 100).hits().stream().map(RequestSearchIndex.Hit::id).toList();
+    }
+
+    private List<Long> partyIds(String query, long partyId) {
+        return index.search(query, Map.of(), partyId, 0, 100).hits().stream().map(RequestSearchIndex.Hit::id)
+                .toList();
+    }
+
+    private static ResultSet resultSet(Object[] row) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        boolean[] wasNull = new boolean[1];
+        when(rs.getString(anyInt())).thenAnswer(call -> {
+            Object value = row[call.<Integer>getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? null : value.toString();
+        });
+        when(rs.getLong(anyInt())).thenAnswer(call -> {
+            Object value = row[call.<Integer>getArgument(0) - 1];
+            wasNull[0] = value == null;
+            return value == null ? 0L : ((Number) value).longValue();
+        });
+        when(rs.getTimestamp(anyInt())).thenAnswer(call -> row[call.<Integer>getArgument(0) - 1]);
+        when(rs.wasNull()).thenAnswer(call -> wasNull[0]);
+        return rs;
+    }
+}
@@ -0,0 +1,157 @@
+package com.innovation.service;
+
+import com.innovation.model.RequestStatus;
+import com.innovation.model.ServiceRequest;
+import com.innovation.model.User;
+import com.innovation.repository.ServiceRequestRepository;
+import com.innovation.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs one {@link RerouteSweeper} per simulated node against one MySQL database
+ * through the real {@link ServiceRequestRepository}, and checks that every due
+ * request is rerouted exactly once. Needs a scratch schema, whose tables it
+ * drops and recreates: {@code -Dquickfix.it.mysql-url=jdbc:mysql://localhost/scratch
+ * -Dquickfix.it.mysql-user=... -Dquickfix.it.mysql-password=...}.
+ */
+@EnabledIfSystemProperty(named = "quickfix.it.mysql-url", matches = ".+")
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RerouteLeaseConcurrencyTest {
+
+    private static final int REQUESTS = 400;
+    private static final int NODES = 4;
+    private static final int BATCH_SIZE = 20;
+    private static final long WORK_MILLIS = 5; // Stand-in for routing one request
+
+    @SpringBootConfiguration
+    @EntityScan(basePackages = "com.innovation.model")
+    @EnableJpaRepositories(basePackages = "com.innovation.repository")
+    static class Config {
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("quickfix.it.mysql-url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("quickfix.it.mysql-user", "root"));
+        registry.add("spring.datasource.password", () -> System.getProperty("quickfix.it.mysql-password", ""));
+    }
+
+    @Autowired
+    private ServiceRequestRepository requestRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Long, List<String>> reroutedBy = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void seed() {
+        User requester = new User();
+        requester.setUsername("requester");
+        requester = userRepository.save(requester);
+        LocalDateTime due = LocalDateTime.now().minusMinutes(1);
+        List<ServiceRequest> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            ServiceRequest request = new ServiceRequest();
+            request.setRequestingUser(requester);
+            request.setStatus(RequestStatus.OPEN);
+            request.setRerouteDueAt(due);
+            request.setPriorityAt(due.minusSeconds(i));
+            requests.add(request);
+        }
+        requestRepository.saveAll(requests);
+    }
+
+    @AfterEach
+    void clear() {
+        requestRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentSweepersRerouteEachRequestOnce() throws Exception {
+        List<RerouteSweeper> sweepers = new ArrayList<>();
+        List<Callable<Object>> sweeps = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            RerouteSweeper sweeper = sweeper("node-" + i);
+            sweepers.add(sweeper);
+            sweeps.add(Executors.callable(sweeper::sweep));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(NODES);
+        try {
+            for (Future<Object> sweep : executor.invokeAll(sweeps)) {
+                sweep.get();
+            }
+        } finally {
+            executor.shutdown();
+            sweepers.forEach(RerouteSweeper::shutdown);
+        }
+
+        assertThat(reroutedBy).hasSize(REQUESTS);
+        assertThat(reroutedBy.values()).allSatisfy(nodes -> assertThat(nodes).hasSize(1));
+        assertThat(requestRepository.findAll()).allSatisfy(request -> assertThat(request.getRerouteDueAt()).isNull());
+    }
+
+    // The service is mocked down to what rerouteLeased does with the lease: reroute only while holding it.
+    private RerouteSweeper sweeper(String node) {
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+        ServiceRequestService requestService = mock(ServiceRequestService.class);
+        when(requestService.rerouteLeased(anyLong())).thenAnswer(call -> {
+            Long id = call.getArgument(0);
+            return transactions.execute(status -> requestRepository.findByIdForUpdate(id).map(request -> {
+                if (node.equals(request.getLeaseOwner())) {
+                    sleep();
+                    reroutedBy.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>()).add(node);
+                    request.setRerouteDueAt(null);
+                    request.setLeaseOwner(null);
+                    request.setLeaseUntil(null);
+                }
+                return requestRepository.save(request);
+            }));
+        });
+        return new RerouteSweeper(requestRepository, requestService, new TransactionTemplate(transactionManager),
+                new ClusterNode(node), new ServiceMetrics(), true, BATCH_SIZE, 2, 30);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(WORK_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResourceChangeFeedTest {
+
+    private record Row(String key, long version, long changedAtMillis) {
+    }
+
+    // Committed resource_versions rows
+    private final List<Row> table = new ArrayList<>();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private final List<Map<Long, Long>> userChanges = new CopyOnWriteArrayList<>();
+    private ResourceChangeFeed feed;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(jdbcTemplate.queryForObject("select now(6)", Timestamp.class)).thenReturn(new Timestamp(100_000));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Timestamp.class))).thenAnswer(call -> {
+            RowMapper<Object> mapper = call.getArgument(1);
+            long from = ((Timestamp) call.getArgument(2)).getTime();
+            List<Object> rows = new ArrayList<>();
+            for (Row row : table) {
+                if (row.changedAtMillis() >= from) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString(1)).thenReturn(row.key());
+                    when(rs.getLong(2)).thenReturn(row.version());
+                    when(rs.getTimestamp(3)).thenReturn(new Timestamp(row.changedAtMillis()));
+                    rows.add(mapper.mapRow(rs, rows.size()));
+                }
+            }
+            return rows;
+        });
+        feed = new ResourceChangeFeed(jdbcTemplate, metrics, 10_000);
+        feed.subscribe(ResourceVersions.USER, userChanges::add);
+    }
+
+    @Test
+    void reportsEachVersionOnceAcrossOverlappingPolls() {
+        table.add(new Row("user:7", 3, 101_000));
+        table.add(new Row("request:9", 1, 101_500));
+        feed.pollOnce();
+        feed.pollOnce();
+        assertThat(userChanges).containsExactly(Map.of(7L, 3L));
+
+        table.removeIf(row -> row.key().equals("user:7"));
+        table.add(new Row("user:7", 4, 102_000));
+        feed.pollOnce();
+        assertThat(userChanges).containsExactly(Map.of(7L, 3L), Map.of(7L, 4L));
+    }
+
+    @Test
+    void picksUpAWriteThatCommitsAfterANewerOne() {
+        table.add(new Row("user:8", 1, 105_000));
+        feed.pollOnce();
+
+        // Stamped before user:8 but committed after the poll, within the overlap
+        table.add(new Row("user:7", 2, 103_000));
+        feed.pollOnce();
+
+        assertThat(userChanges).containsExactly(Map.of(8L, 1L), Map.of(7L, 2L));
+        assertThat(metrics.count("resource-changes.reported")).isEqualTo(2);
+    }
+
+    @Test
+    void keepsPollingWhenAListenerFails() {
+        feed.subscribe(ResourceVersions.USER, changes -> {
+            throw new IllegalStateException("boom");
+        });
+        table.add(new Row("user:7", 1, 101_000));
+        feed.poll();
+
+        assertThat(userChanges).containsExactly(Map.of(7L, 1L));
+        assertThat(metrics.count("resource-changes.listener-errors")).isEqualTo(1);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Timestamp.class)))
+                .thenThrow(new IllegalStateException("connection refused"));
+        feed.poll();
+        assertThat(metrics.count("resource-changes.errors")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoadGraphTest {
+
+    private static RoadGraph graphOf(double[][] coordinates) {
+        double[] lat = new double[coordinates.length];
+        double[] lon = new double[coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            lat[i] = coordinates[i][0];
+            lon[i] = coordinates[i][1];
+        }
+        return RoadGraph.fromEdges(lat, lon, new int[0], new int[0], new int[0], 0);
+    }
+
+    @Test
+    void snapsToNodeInOwnCell() {
+        RoadGraph graph = graphOf(new double[][] { { 12.9712, 77.5946 }, { 12.9790, 77.5990 } });
+
+        assertThat(graph.nearestNode(12.9715, 77.5945)).isEqualTo(0);
+    }
+
+    @Test
+    void scansTheNextRingAfterTheFirstHit() {
+        // Cells are 0.01 degrees. The point sits in cell (0, 0); node 0 is in the
+        // corner of the first ring, node 1 just inside the second ring but closer.
+        RoadGraph graph = graphOf(new double[][] { { 0.0199, 0.0199 }, { -0.0101, 0.0051 } });
+
+        assertThat(graph.nearestNode(0.0051, 0.0051)).isEqualTo(1);
+    }
+
+    @Test
+    void leavesPointsFarFromAnyRoadUnsnapped() {
+        RoadGraph graph = graphOf(new double[][] { { 12.97, 77.59 } });
+
+        assertThat(graph.nearestNode(13.10, 77.59)).isEqualTo(-1);
+        assertThat(graphOf(new double[0][]).nearestNode(12.97, 77.59)).isEqualTo(-1);
+    }
+
+    @Test
+    void reverseFlipsEveryEdge() {
+        RoadGraph graph = RoadGraph.fromEdges(new double[] { 0, 0, 0 }, new double[] { 0, 0.001, 0.002 },
+                new int[] { 0, 1, 0 }, new int[] { 1, 2, 2 }, new int[] { 10, 20, 50 }, 3);
+
+        RoadGraph reversed = graph.reverse();
+
+        assertThat(reversed.edgeCount()).isEqualTo(3);
+        assertThat(outgoing(reversed, 0)).isEmpty();
+        assertThat(outgoing(reversed, 1)).containsExactly("0:10");
+        assertThat(outgoing(reversed, 2)).containsExactlyInAnyOrder("1:20", "0:50");
+    }
+
+    @Test
+    void cacheRoundTrips(@TempDir Path dir) throws IOException {
+        RoadGraph graph = RoadGraph.fromEdges(new double[] { 12.97, 12.98 }, new double[] { 77.59, 77.60 },
+                new int[] { 0, 1 }, new int[] { 1, 0 }, new int[] { 123, 456 }, 2);
+        Path file = dir.resolve("graph/road-graph.bin");
+
+        graph.write(file);
+        RoadGraph read = RoadGraph.read(file);
+
+        assertThat(read.nodeCount()).isEqualTo(2);
+        assertThat(read.lat).containsExactly(graph.lat);
+        assertThat(read.lon).containsExactly(graph.lon);
+        assertThat(read.firstOut).containsExactly(graph.firstOut);
+        assertThat(read.head).containsExactly(graph.head);
+        assertThat(read.weight).containsExactly(graph.weight);
+        assertThat(read.nearestNode(12.9801, 77.6001)).isEqualTo(1);
+    }
+
+    private static String[] outgoing(RoadGraph graph, int node) {
+        String[] edges = new String[graph.firstOut[node + 1] - graph.firstOut[node]];
+        for (int e = graph.firstOut[node]; e < graph.firstOut[node + 1]; e++) {
+            edges[e - graph.firstOut[node]] = graph.head[e] + ":" + graph.weight[e];
+        }
+        return edges;
+    }
+}
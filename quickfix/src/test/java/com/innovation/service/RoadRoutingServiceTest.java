@@ -0,0 +1,136 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RoadRoutingServiceTest {
+
+    // Four road nodes 0.01 degrees apart going north: 1-2-3 is a two-way residential
+    // street (18 km/h), 3->4 a one-way primary road (35 km/h). The footway to node 5
+    // and the unattached node 6 are not part of the graph.
+    private static final String OSM = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <osm version="0.6">
+              <node id="1" lat="12.90" lon="77.60"/>
+              <node id="2" lat="12.91" lon="77.60"/>
+              <node id="3" lat="12.92" lon="77.60"/>
+              <node id="4" lat="12.93" lon="77.60"/>
+              <node id="5" lat="12.94" lon="77.60"/>
+              <node id="6" lat="12.95" lon="77.60"/>
+              <way id="10">
+                <nd ref="1"/><nd ref="2"/><nd ref="3"/>
+                <tag k="highway" v="residential"/>
+              </way>
+              <way id="11">
+                <nd ref="3"/><nd ref="4"/>
+                <tag k="highway" v="primary"/>
+                <tag k="oneway" v="yes"/>
+              </way>
+              <way id="12">
+                <nd ref="4"/><nd ref="5"/>
+                <tag k="highway" v="footway"/>
+              </way>
+            </osm>
+            """;
+
+    private static final int ACCESS_SPEED_KMH = 15;
+
+    @Test
+    void loaderKeepsDrivableWaysAndHonoursOneway() throws Exception {
+        RoadGraph graph = OsmRoadGraphLoader.load(new ByteArrayInputStream(OSM.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(graph.nodeCount()).isEqualTo(4);
+        assertThat(graph.edgeCount()).isEqualTo(5); // 1<->2, 2<->3, 3->4
+        int node3 = graph.nearestNode(12.92, 77.60);
+        int node4 = graph.nearestNode(12.93, 77.60);
+        assertThat(graph.lat[node4]).isEqualTo(12.93);
+        assertThat(graph.firstOut[node4 + 1] - graph.firstOut[node4]).isZero();
+        assertThat(graph.head[graph.firstOut[node3 + 1] - 1]).isEqualTo(node4);
+        assertThat(graph.weight[graph.firstOut[node3 + 1] - 1]).isEqualTo(tenths(12.92, 12.93, 35));
+    }
+
+    @Test
+    void maxspeedIsParsedAndCappedByRoadClass() {
+        assertThat(OsmRoadGraphLoader.parseMaxspeed("40", 35)).isEqualTo(40);
+        assertThat(OsmRoadGraphLoader.parseMaxspeed("30 km/h", 35)).isEqualTo(30);
+        assertThat(OsmRoadGraphLoader.parseMaxspeed("20 mph", 35)).isCloseTo(32.18, within(1e-9));
+        assertThat(OsmRoadGraphLoader.parseMaxspeed("100", 30)).isEqualTo(45);
+        assertThat(OsmRoadGraphLoader.parseMaxspeed("signals", 25)).isEqualTo(25);
+        assertThat(OsmRoadGraphLoader.parseMaxspeed(null, 25)).isEqualTo(25);
+    }
+
+    @Test
+    void etaFollowsRoadsAndAddsAccess(@TempDir Path dir) throws IOException {
+        RoadRoutingService routing = loadedService(dir);
+        assertThat(routing.ranksByEta()).isTrue();
+
+        double[] eta = routing.etaSecondsTo(12.93, 77.60,
+                new double[] { 12.90, 12.9005, 12.93, 13.20 },
+                new double[] { 77.60, 77.60, 77.60, 77.60 });
+
+        double road = (tenths(12.90, 12.91, 18) + tenths(12.91, 12.92, 18) + tenths(12.92, 12.93, 35)) / 10.0;
+        double access = GeoDistance.haversineKm(12.9005, 77.60, 12.90, 77.60) / ACCESS_SPEED_KMH * 3600;
+        assertThat(eta[0]).isCloseTo(road, within(1e-9));
+        assertThat(eta[1]).isCloseTo(road + access, within(1e-9));
+        assertThat(eta[2]).isZero();
+        assertThat(eta[3]).isNaN(); // Too far from any road to snap
+    }
+
+    @Test
+    void etaIsUnknownAgainstAOnewayRoad(@TempDir Path dir) throws IOException {
+        RoadRoutingService routing = loadedService(dir);
+
+        double[] eta = routing.etaSecondsTo(12.90, 77.60, new double[] { 12.93 }, new double[] { 77.60 });
+
+        assertThat(eta[0]).isNaN();
+    }
+
+    @Test
+    void reusesTheGraphCache(@TempDir Path dir) throws IOException {
+        loadedService(dir);
+        Path cache = dir.resolve("road-graph.bin");
+        assertThat(cache).exists();
+
+        // A second node loads the cache even after the extract is gone
+        Files.delete(dir.resolve("extract.osm"));
+        RoadRoutingService routing = loadedService(dir);
+
+        assertThat(routing.ranksByEta()).isTrue();
+        assertThat(routing.etaSecondsTo(12.93, 77.60, new double[] { 12.92 }, new double[] { 77.60 })[0])
+                .isCloseTo(tenths(12.92, 12.93, 35) / 10.0, within(1e-9));
+    }
+
+    @Test
+    void unloadedServiceAnswersNaN() {
+        RoadRoutingService routing = new RoadRoutingService(new ServiceMetrics(), "eta", "", "", 7200,
+                ACCESS_SPEED_KMH);
+
+        assertThat(routing.ranksByEta()).isFalse();
+        assertThat(routing.etaSecondsTo(12.93, 77.60, new double[] { 12.90 }, new double[] { 77.60 }))
+                .containsExactly(Double.NaN);
+    }
+
+    private static RoadRoutingService loadedService(Path dir) throws IOException {
+        Path osm = dir.resolve("extract.osm");
+        if (!Files.exists(dir.resolve("road-graph.bin"))) {
+            Files.writeString(osm, OSM);
+        }
+        RoadRoutingService routing = new RoadRoutingService(new ServiceMetrics(), "eta", osm.toString(),
+                dir.resolve("road-graph.bin").toString(), 7200, ACCESS_SPEED_KMH);
+        routing.loadGraph();
+        return routing;
+    }
+
+    private static int tenths(double fromLat, double toLat, double kmh) {
+        return (int) Math.round(GeoDistance.haversineKm(fromLat, 77.60, toLat, 77.60) / kmh * 36000);
+    }
+}
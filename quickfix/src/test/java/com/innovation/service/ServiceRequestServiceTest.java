@@ -0,0 +1,110 @@
+package com.innovation.service;
+
+import com.innovation.model.RequestEvent;
+import com.innovation.model.RequestEventType;
+import com.innovation.model.RequestStatus;
+import com.innovation.model.ServiceRequest;
+import com.innovation.model.User;
+import com.innovation.repository.ServiceRequestRepository;
+import com.innovation.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ServiceRequestServiceTest {
+
+    private static final long REQUEST = 40;
+
+    private final ServiceRequestRepository requestRepository = mock(ServiceRequestRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RequestEventLog eventLog = mock(RequestEventLog.class);
+    private final List<RequestEvent> history =
+            List.of(new RequestEvent(REQUEST, RequestEventType.CREATED, 1L, "{}"));
+    private ServiceRequestService service;
+    private ServiceRequest request;
+
+    @BeforeEach
+    void setUp() {
+        service = new ServiceRequestService(requestRepository, userRepository, mock(UserService.class),
+                mock(DomainEventOutbox.class), mock(VehicleEstimationService.class), mock(EnrichmentAdmission.class),
+                mock(IdempotencyService.class), mock(VendorInboxService.class), mock(DispatchPolicy.class),
+                mock(DispatchPriority.class), new ServiceMetrics(), mock(WorkerAvailabilityIndex.class),
+                mock(RoadRoutingService.class), eventLog, mock(RequestProjector.class),
+                mock(RequestStatsService.class), mock(RequestSearchIndex.class), mock(ResourceVersions.class),
+                mock(TransactionTemplate.class), mock(ClusterNode.class), 30);
+        request = new ServiceRequest();
+        request.setId(REQUEST);
+        request.setStatus(RequestStatus.OPEN);
+        request.setRequestingUser(user(1, "USER"));
+        request.setIntendedVendor(user(2, "VENDOR"));
+        request.setOfferedVendorIds(Set.of(2L, 3L));
+        when(requestRepository.findById(REQUEST)).thenReturn(Optional.of(request));
+        when(eventLog.history(REQUEST)).thenReturn(history);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void showsTheHistoryToTheRequesterAndTheVendorsItIsOfferedTo() {
+        assertThat(historyFor(user(1, "USER"))).contains(history);
+        assertThat(historyFor(user(3, "VENDOR"))).contains(history);
+    }
+
+    @Test
+    void refusesTheHistoryToAnUnrelatedUser() {
+        assertThat(historyFor(user(9, "USER"))).isEmpty();
+        assertThat(historyFor(user(9, "VENDOR"))).isEmpty();
+    }
+
+    @Test
+    void onlyTheAssigneesSeeTheHistoryOnceTheRequestIsAssigned() {
+        request.setStatus(RequestStatus.ASSIGNED);
+        request.setAssignedVendor(user(2, "VENDOR"));
+        request.setAssignedWorker(user(5, "WORKER"));
+
+        assertThat(historyFor(user(2, "VENDOR"))).contains(history);
+        assertThat(historyFor(user(5, "WORKER"))).contains(history);
+        // Offered earlier, but it went to another vendor
+        assertThat(historyFor(user(3, "VENDOR"))).isEmpty();
+    }
+
+    @Test
+    void showsAdminsAnyHistory() {
+        when(eventLog.history(77L)).thenReturn(List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("admin", null, List.of()));
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(user(8, "ADMIN")));
+
+        assertThat(service.getRequestHistory(REQUEST)).contains(history);
+        assertThat(service.getRequestHistory(77L)).contains(List.of());
+    }
+
+    private Optional<List<RequestEvent>> historyFor(User user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of()));
+        when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
+        return service.getRequestHistory(REQUEST);
+    }
+
+    private static User user(long id, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(role.toLowerCase() + "-" + id);
+        user.setRoles(Set.of(role));
+        return user;
+    }
+}
@@ -0,0 +1,82 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingJsonFieldParserTest {
+
+    private final Map<String, String> fields = new LinkedHashMap<>();
+    private final StreamingJsonFieldParser parser = new StreamingJsonFieldParser(fields::put);
+
+    @Test
+    void reportsEachFieldAsSoonAsItsValueIsComplete() {
+        parser.feed("{\"vehicleType\":\"TWO_");
+        assertThat(fields).isEmpty();
+
+        parser.feed("WHEELER\",\"vehicleNumber\":\"KA01");
+        assertThat(fields).containsExactly(Map.entry("vehicleType", "TWO_WHEELER"));
+
+        parser.feed("AB1234\",\"damageSeverity\":\"High\"");
+        assertThat(fields).containsOnlyKeys("vehicleType", "vehicleNumber", "damageSeverity");
+
+        parser.feed(",\"estimatedCost\":\"2000-5000 INR\"}");
+        parser.finish();
+        assertThat(fields).containsEntry("vehicleNumber", "KA01AB1234")
+                .containsEntry("estimatedCost", "2000-5000 INR");
+    }
+
+    @Test
+    void decodesEscapesAndNonAsciiTextSplitAtEveryCharacter() {
+        String document = "{\"damageDetection\":\"dent \\\"front\\\" \\u00e9 \\\\ bumper\\nand scratch\","
+                + "\"estimatedCost\":\"₹2000\"}";
+        for (char c : document.toCharArray()) {
+            parser.feed(String.valueOf(c));
+        }
+        parser.finish();
+
+        assertThat(fields).containsExactly(
+                Map.entry("damageDetection", "dent \"front\" é \\ bumper\nand scratch"),
+                Map.entry("estimatedCost", "₹2000"));
+    }
+
+    @Test
+    void reportsNumbersAndBooleansAsTextAndSkipsNulls() {
+        parser.feed("{\"year\":2019,\"ratio\":0.5,\"drivable\":true,\"tireWear\":null,\"makeModel\":\"Swift\"}");
+        parser.finish();
+
+        assertThat(fields).containsExactly(Map.entry("year", "2019"), Map.entry("ratio", "0.5"),
+                Map.entry("drivable", "true"), Map.entry("makeModel", "Swift"));
+    }
+
+    @Test
+    void skipsNestedObjectsAndArrays() {
+        parser.feed("{\"parts\":{\"vehicleType\":\"inner\",\"list\":[1,{\"a\":\"b\"}]},");
+        parser.feed("\"tags\":[\"x\",\"y\"],\"vehicleType\":\"FOUR_WHEELER\"}");
+        parser.finish();
+
+        assertThat(fields).containsExactly(Map.entry("vehicleType", "FOUR_WHEELER"));
+    }
+
+    @Test
+    void rejectsMalformedInputButKeepsTheFieldsBeforeIt() {
+        parser.feed("{\"vehicleType\":\"TWO_WHEELER\",");
+
+        assertThatThrownBy(() -> parser.feed("\"vehicleNumber\" \"KA01\"}"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Malformed JSON");
+        assertThat(fields).containsExactly(Map.entry("vehicleType", "TWO_WHEELER"));
+    }
+
+    @Test
+    void rejectsATruncatedDocumentOnFinish() {
+        parser.feed("{\"vehicleType\":\"TWO_WHEELER\",\"vehicleNumber\":\"KA0");
+
+        assertThatThrownBy(parser::finish).isInstanceOf(IllegalStateException.class);
+        assertThat(fields).containsOnlyKeys("vehicleType");
+    }
+}
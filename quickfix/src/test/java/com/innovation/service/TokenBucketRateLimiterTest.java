@@ -0,0 +1,70 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void allowsABurstOfCapacityThenRefillsContinuously() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 2, clock::get);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        // Half a token after 250 ms, a whole one after 500 ms
+        advance(250);
+        assertThat(limiter.tryAcquire()).isFalse();
+        advance(260);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void neverHoldsMoreThanItsCapacity() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 3, clock::get);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        advance(60_000);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void waitsForATokenOnlyWithinTheBoundAndReservesIt() throws InterruptedException {
+        // One token per 50 ms
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(20, 1, clock::get);
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        assertThat(limiter.tryAcquire(49)).isFalse();
+        assertThat(limiter.tryAcquire(60)).isTrue();
+
+        // The token it waited for was reserved, so the next one is a full interval later
+        advance(50);
+        assertThat(limiter.tryAcquire()).isFalse();
+        advance(60);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void rejectsANonPositiveRateOrCapacity() {
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,251 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.innovation.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceTest {
+
+    private static final String HEADER = "username,password,roles,requestTypes,vendor\r\n";
+
+    // The users table as the import's queries see it; usernames compare case-insensitively
+    private final Map<String, String> usernames = new HashMap<>();
+    private final Map<String, Long> ids = new HashMap<>();
+    private final Map<String, Long> vendors = new HashMap<>();
+    private final List<String> lookups = new ArrayList<>();
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ResourceVersions resourceVersions = mock(ResourceVersions.class);
+    private UserImportService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void rejectsUsernamesRepeatedInAnotherCase() {
+        start(500);
+
+        UserImportService.ImportReport report = importCsv(HEADER
+                + "bob,secret,USER,,\r\n"
+                + "BOB,secret,USER,,\r\n");
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.errors()).containsExactly(new UserImportService.RowError(2, "BOB", "username repeats row 1"));
+    }
+
+    @Test
+    void rejectsUsernamesTakenInAnotherCase() {
+        start(500);
+        existing("Alice", 1, false);
+
+        UserImportService.ImportReport report = importCsv(HEADER
+                + "alice,secret,USER,,\r\n"
+                + "carol,secret,user,,\r\n");
+
+        assertThat(report.created()).isEqualTo(1);
+        assertThat(report.errors())
+                .containsExactly(new UserImportService.RowError(1, "alice", "username is already taken"));
+    }
+
+    @Test
+    void reportsRowsThatAreIncompleteOrHaveUnknownRoles() {
+        start(500);
+
+        UserImportService.ImportReport report = importCsv(HEADER
+                + ",secret,USER,,\r\n"
+                + "dan,,USER,,\r\n"
+                + "erin,secret,,,\r\n"
+                + "fay,secret,USER;OWNER,,\r\n"
+                + "gus,secret,USER,,shop\r\n");
+
+        assertThat(report.rows()).isEqualTo(5);
+        assertThat(report.created()).isZero();
+        assertThat(report.errors()).extracting(UserImportService.RowError::message).containsExactly(
+                "username is required", "password is required", "at least one role is required",
+                "unknown role OWNER", "only workers can have a vendor");
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+
+    @Test
+    void linksWorkersToVendorsOfTheImportOrExistingOnes() {
+        start(500);
+        existing("OldShop", 99, true);
+        existing("plainuser", 98, false);
+
+        UserImportService.ImportReport report = importCsv(HEADER
+                + "shop,secret,VENDOR,,\r\n"
+                + "w1,secret,WORKER,TOWING,SHOP\r\n"
+                + "w2,secret,WORKER,TYRES,oldshop\r\n"
+                + "w3,secret,WORKER,,nobody\r\n"
+                + "w4,secret,WORKER,,plainuser\r\n"
+                + "w5,secret,WORKER,,bob\r\n"
+                + "bob,,VENDOR,,\r\n");
+
+        assertThat(report.created()).isEqualTo(3);
+        assertThat(report.errors()).extracting(UserImportService.RowError::message).containsExactly(
+                "vendor nobody does not exist", "vendor plainuser does not exist",
+                "vendor bob was rejected in row 7", "password is required");
+
+        List<Object[]> links = batch("insert into vendor_workers");
+        assertThat(links).extracting(link -> List.of(link))
+                .containsExactlyInAnyOrder(List.of(ids.get("shop"), ids.get("w1")), List.of(99L, ids.get("w2")));
+        // The existing vendor gains its new worker's request type without losing its own
+        assertThat(batch("insert into user_request_types (user_id, request_type) select"))
+                .extracting(row -> List.of(row)).containsExactly(List.of(99L, "TYRES", 99L, "TYRES"));
+        // New users and the updated vendor, so other nodes drop them from their caches
+        verify(resourceVersions).changed(ResourceVersions.USER,
+                Set.of(99L, ids.get("shop"), ids.get("w1"), ids.get("w2")));
+    }
+
+    @Test
+    void writesUsersAndLooksThemUpInBatchesOfTheConfiguredSize() {
+        start(2);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 5; i++) {
+            csv.append("user").append(i).append(",secret,USER,,\r\n");
+        }
+
+        UserImportService.ImportReport report = importCsv(csv.toString());
+
+        assertThat(report.created()).isEqualTo(5);
+        ArgumentCaptor<Collection<?>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into users"), rows.capture(), eq(2), any());
+        assertThat(rows.getValue()).hasSize(5);
+        assertThat(ids).containsOnlyKeys("user1", "user2", "user3", "user4", "user5");
+        assertThat(lookups).filteredOn(sql -> sql.startsWith("select username, id from users")).hasSize(3);
+        assertThat(lookups).filteredOn(sql -> sql.startsWith("select username from users")).hasSize(3);
+        assertThat(batch("insert into user_roles")).hasSize(5);
+    }
+
+    private void start(int batchSize) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(any())).thenAnswer(call -> "hash:" + call.getArgument(0));
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class))
+                .thenReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+        fakeUsersTable();
+        service = new UserImportService(mock(UserRepository.class), passwordEncoder, jdbcTemplate,
+                new TransactionTemplate(transactionManager), entityManagerFactory, new ObjectMapper(),
+                mock(WorkerAvailabilityIndex.class), mock(LocationGridIndex.class), resourceVersions,
+                new ServiceMetrics(), batchSize, 100, 2);
+    }
+
+    private void existing(String username, long id, boolean vendor) {
+        usernames.put(username.toLowerCase(Locale.ROOT), username);
+        ids.put(username, id);
+        if (vendor) {
+            vendors.put(username, id);
+        }
+    }
+
+    private UserImportService.ImportReport importCsv(String csv) {
+        return service.importUsers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), BulkFormat.CSV);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fakeUsersTable() {
+        // The users insert assigns IDs in row order
+        when(jdbcTemplate.batchUpdate(startsWith("insert into users"), anyCollection(), anyInt(), any()))
+                .thenAnswer(call -> {
+                    Collection<Object> rows = call.getArgument(1);
+                    ParameterizedPreparedStatementSetter<Object> setter = call.getArgument(3);
+                    for (Object row : rows) {
+                        Map<Integer, Object> values = new HashMap<>();
+                        setter.setValues(statement(values), row);
+                        String username = (String) values.get(1);
+                        usernames.put(username.toLowerCase(Locale.ROOT), username);
+                        ids.put(username, 1000L + ids.size());
+                    }
+                    return new int[0][];
+                });
+        // The "in (:names)" lookups, answered from the maps above
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(call -> {
+            PreparedStatementCreator creator = call.getArgument(0);
+            RowMapper<Object> mapper = call.getArgument(1);
+            String sql = ((SqlProvider) creator).getSql();
+            lookups.add(sql);
+            Map<Integer, Object> parameters = new HashMap<>();
+            creator.createPreparedStatement(connection(parameters));
+            List<Object> results = new ArrayList<>();
+            for (Object name : parameters.values()) {
+                String username = usernames.get(((String) name).toLowerCase(Locale.ROOT));
+                boolean matches = username != null
+                        && (!sql.contains("user_roles") || vendors.containsKey(username));
+                if (matches) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString(1)).thenReturn(username);
+                    when(rs.getLong(2)).thenReturn(ids.get(username));
+                    results.add(mapper.mapRow(rs, results.size()));
+                }
+            }
+            return results;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> batch(String sqlPrefix) {
+        ArgumentCaptor<List<Object[]>> arguments = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith(sqlPrefix), arguments.capture());
+        return arguments.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    private static Connection connection(Map<Integer, Object> parameters) throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = statement(parameters);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        return connection;
+    }
+
+    private static PreparedStatement statement(Map<Integer, Object> values) throws SQLException {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        doAnswer(call -> values.put(call.getArgument(0), call.getArgument(1))).when(statement)
+                .setString(anyInt(), any());
+        return statement;
+    }
+}
@@ -0,0 +1,157 @@
+package com.innovation.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VehicleAgeBatcherTest {
+
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final List<String> singles = new CopyOnWriteArrayList<>();
+    private VehicleAgeBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void flushesAsSoonAsTheBatchIsFull() throws Exception {
+        batcher = batcher(plates -> ages(plates), plate -> "single", 60_000, 3, 2);
+
+        CompletableFuture<String> first = batcher.submit("KA01AB1");
+        CompletableFuture<String> second = batcher.submit("KA01AB2");
+        assertThat(batcher.submit("KA01AB1")).isSameAs(first);
+        CompletableFuture<String> third = batcher.submit("KA01AB3");
+
+        // Well before the one-minute window
+        assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo("age of KA01AB3");
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("age of KA01AB1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("age of KA01AB2");
+        assertThat(batches).containsExactly(List.of("KA01AB1", "KA01AB2", "KA01AB3"));
+        assertThat(singles).isEmpty();
+    }
+
+    @Test
+    void flushesWhatArrivedWithinTheWindow() throws Exception {
+        batcher = batcher(plates -> ages(plates), plate -> "single", 100, 20, 2);
+
+        CompletableFuture<String> first = batcher.submit("KA01AB1");
+        CompletableFuture<String> second = batcher.submit("KA01AB2");
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("age of KA01AB1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("age of KA01AB2");
+        assertThat(batches).containsExactly(List.of("KA01AB1", "KA01AB2"));
+
+        // A lone plate after the flush gets its own window and a single-plate prompt
+        assertThat(batcher.submit("KA01AB3").get(5, TimeUnit.SECONDS)).isEqualTo("single");
+        assertThat(singles).containsExactly("KA01AB3");
+        assertThat(metrics.count("gemini.age-batch.batches")).isEqualTo(2);
+    }
+
+    @Test
+    void looksUpPlatesMissingFromTheAnswerInParallelWithoutHoldingUpLaterBatches() throws Exception {
+        CountDownLatch bothFallbacksRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        batcher = batcher(plates -> {
+            Map<String, String> answers = ages(plates);
+            answers.keySet().removeIf(plate -> plate.startsWith("MISS"));
+            return answers;
+        }, plate -> {
+            bothFallbacksRunning.countDown();
+            await(release);
+            if (plate.equals("MISS2")) {
+                throw new IllegalStateException("circuit open");
+            }
+            return "single " + plate;
+        }, 60_000, 3, 1, 2);
+
+        CompletableFuture<String> answered = batcher.submit("KA01AB1");
+        CompletableFuture<String> missing = batcher.submit("MISS1");
+        CompletableFuture<String> failing = batcher.submit("MISS2");
+
+        assertThat(answered.get(5, TimeUnit.SECONDS)).isEqualTo("age of KA01AB1");
+        // Both fallbacks run at once, and the single batch worker is free for the next batch
+        assertThat(bothFallbacksRunning.await(5, TimeUnit.SECONDS)).isTrue();
+        List<CompletableFuture<String>> next = new ArrayList<>();
+        for (String plate : List.of("KA02AB1", "KA02AB2", "KA02AB3")) {
+            next.add(batcher.submit(plate));
+        }
+        assertThat(next.get(2).get(5, TimeUnit.SECONDS)).isEqualTo("age of KA02AB3");
+        assertThat(missing).isNotDone();
+
+        release.countDown();
+        assertThat(missing.get(5, TimeUnit.SECONDS)).isEqualTo("single MISS1");
+        assertThat(failing.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(metrics.count("gemini.age-batch.fallback")).isEqualTo(2);
+    }
+
+    @Test
+    void fallsBackForEveryPlateWhenTheAnswerCannotBeParsed() throws Exception {
+        batcher = batcher(plates -> null, plate -> "single " + plate, 60_000, 2, 2);
+
+        CompletableFuture<String> first = batcher.submit("KA01AB1");
+        CompletableFuture<String> second = batcher.submit("KA01AB2");
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("single KA01AB1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("single KA01AB2");
+        assertThat(metrics.count("gemini.age-batch.parse-failure")).isEqualTo(1);
+    }
+
+    @Test
+    void answersNoAgeWhenTheBatchCallFails() throws Exception {
+        batcher = batcher(plates -> {
+            throw new GeminiCallException(GeminiCallException.Reason.CIRCUIT_OPEN, "open");
+        }, plate -> "single", 60_000, 2, 2);
+
+        CompletableFuture<String> first = batcher.submit("KA01AB1");
+        CompletableFuture<String> second = batcher.submit("KA01AB2");
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(singles).isEmpty();
+    }
+
+    private VehicleAgeBatcher batcher(Function<List<String>, Map<String, String>> batchLookup,
+            Function<String, String> singleLookup, long windowMillis, int maxBatchSize, int fallbackThreads) {
+        return batcher(batchLookup, singleLookup, windowMillis, maxBatchSize, 2, fallbackThreads);
+    }
+
+    private VehicleAgeBatcher batcher(Function<List<String>, Map<String, String>> batchLookup,
+            Function<String, String> singleLookup, long windowMillis, int maxBatchSize, int workerThreads,
+            int fallbackThreads) {
+        return new VehicleAgeBatcher(plates -> {
+            batches.add(List.copyOf(plates));
+            return batchLookup.apply(plates);
+        }, plate -> {
+            singles.add(plate);
+            return singleLookup.apply(plate);
+        }, windowMillis, maxBatchSize, workerThreads, fallbackThreads, metrics);
+    }
+
+    private static Map<String, String> ages(List<String> plates) {
+        Map<String, String> answers = new HashMap<>();
+        plates.forEach(plate -> answers.put(plate, "age of " + plate));
+        return answers;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
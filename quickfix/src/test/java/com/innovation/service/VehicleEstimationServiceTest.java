@@ -0,0 +1,101 @@
+package com.innovation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VehicleEstimationServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GeminiClient geminiClient = mock(GeminiClient.class);
+    private final Sinks.Many<String> chunks = Sinks.many().unicast().onBackpressureBuffer();
+    private final VehicleEstimationService service = new VehicleEstimationService(geminiClient, objectMapper,
+            new ServiceMetrics(), mock(RegistrationNumberDecoder.class), false, 50, 20, 1, 1, 1000, false, 0);
+    private final MockMultipartFile image = new MockMultipartFile("image", "car.jpg", "image/jpeg", new byte[] {1});
+
+    VehicleEstimationServiceTest() {
+        when(geminiClient.streamGenerateContent(anyString(), any(), any())).thenAnswer(call -> {
+            Class<?> chunkType = call.getArgument(2);
+            return chunks.asFlux().map(text -> chunk(text, chunkType));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void completesTheTriageAsSoonAsTheSeverityIsStreamed() throws Exception {
+        VehicleEstimationService.VehicleAnalysis analysis = service.analyzeVehicleAsync(null, image);
+
+        emit("{\"vehicleType\":\"two_wheeler\",\"vehicleNumber\":\"KA01AB1234\",");
+        emit("\"damageDetection\":\"dented tank\",\"damageSeverity\":\"High\",");
+        assertThat(analysis.triage().get(5, TimeUnit.SECONDS))
+                .isEqualTo(new VehicleEstimationService.VehicleTriage("TWO_WHEELER", "KA01AB1234", "High"));
+        assertThat(analysis.info()).isNotDone();
+
+        emit("\"makeModel\":\"Honda Activa\",\"generationYear\":\"2019\",\"tireWear\":\"UNKNOWN\",");
+        emit("\"estimatedCost\":\"2000-5000 INR\"}");
+        chunks.tryEmitComplete();
+        VehicleEstimationService.VehicleInfoResult info = analysis.info().get(5, TimeUnit.SECONDS);
+        assertThat(info.vehicleType()).isEqualTo("TWO_WHEELER");
+        assertThat(info.damageSeverity()).isEqualTo("High");
+        assertThat(info.estimatedAge()).isEqualTo("2019");
+        assertThat(info.tireWear()).isNull();
+        assertThat(info.estimatedCostRange()).isEqualTo("2000-5000 INR");
+    }
+
+    @Test
+    void keepsTheNumberTheUserEntered() throws Exception {
+        VehicleEstimationService.VehicleAnalysis analysis = service.analyzeVehicleAsync("MH12XY9876", image);
+
+        emit("{\"vehicleType\":\"FOUR_WHEELER\",\"vehicleNumber\":\"KA01AB1234\",\"damageSeverity\":\"Low\"}");
+
+        assertThat(analysis.triage().get(5, TimeUnit.SECONDS).vehicleNumber()).isEqualTo("MH12XY9876");
+    }
+
+    @Test
+    void completesTheTriageWithWhatWasStreamedWhenTheStreamFails() throws Exception {
+        VehicleEstimationService.VehicleAnalysis analysis = service.analyzeVehicleAsync("KA01AB1234", image);
+
+        emit("{\"vehicleType\":\"FOUR_WHEELER\",\"vehicleNumber\":\"UNKNOWN\",");
+        chunks.tryEmitError(new GeminiCallException(GeminiCallException.Reason.TIMEOUT, "slow"));
+
+        assertThat(analysis.triage().get(5, TimeUnit.SECONDS))
+                .isEqualTo(new VehicleEstimationService.VehicleTriage("FOUR_WHEELER", "KA01AB1234", null));
+        assertThat(analysis.info().get(5, TimeUnit.SECONDS).vehicleType()).isEqualTo("FOUR_WHEELER");
+    }
+
+    @Test
+    void hasAnUnknownTriageWithoutAnImage() throws Exception {
+        VehicleEstimationService.VehicleAnalysis analysis = service.analyzeVehicleAsync("", null);
+
+        assertThat(analysis.triage().get(5, TimeUnit.SECONDS))
+                .isEqualTo(new VehicleEstimationService.VehicleTriage("UNKNOWN", "", null));
+        assertThat(analysis.info().get(5, TimeUnit.SECONDS).vehicleType()).isEqualTo("UNKNOWN");
+    }
+
+    private void emit(String text) {
+        assertThat(chunks.tryEmitNext(text)).isEqualTo(Sinks.EmitResult.OK);
+    }
+
+    // One streamed response chunk carrying the given fragment of the JSON answer
+    private Object chunk(String text, Class<?> chunkType) {
+        Map<String, Object> body = Map.of("candidates",
+                List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))))));
+        return objectMapper.convertValue(body, chunkType);
+    }
+}
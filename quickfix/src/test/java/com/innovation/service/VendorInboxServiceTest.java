@@ -0,0 +1,235 @@
+package com.innovation.service;
+
+import com.innovation.model.RequestStatus;
+import com.innovation.repository.ServiceRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VendorInboxServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 9, 0);
+    private static final long VENDOR = 7;
+
+    private record Row(RequestStatus status, LocalDateTime priorityAt, Long intendedVendorId, Set<Long> offeredTo) {
+    }
+
+    // service_request as every node sees it
+    private final Map<Long, Row> table = new TreeMap<>();
+    // The event log's newest ID, as read by every node's projector
+    private final AtomicLong lastEventId = new AtomicLong(10);
+    private final AtomicReference<Runnable> duringLoad = new AtomicReference<>();
+
+    private final class Node {
+        final ServiceRequestRepository repository = mock(ServiceRequestRepository.class);
+        final RequestProjector projector = mock(RequestProjector.class);
+        final VendorInboxService inbox;
+        final Consumer<Set<Long>> projectorListener;
+
+        @SuppressWarnings("unchecked")
+        Node(int journalSize) {
+            when(repository.findOffersToVendor(any(), anyLong())).thenAnswer(call -> {
+                List<ServiceRequestRepository.Offer> offers = offersTo(call.getArgument(1));
+                Runnable hook = duringLoad.getAndSet(null);
+                if (hook != null) {
+                    hook.run();
+                }
+                return offers;
+            });
+            when(repository.findOfferTargets(any(), any()))
+                    .thenAnswer(call -> offerTargets(call.getArgument(1)));
+            when(projector.lastEventId()).thenAnswer(call -> lastEventId.get());
+            inbox = new VendorInboxService(repository, projector, new ServiceMetrics(), journalSize, 60_000);
+            ArgumentCaptor<Consumer<Set<Long>>> listener = ArgumentCaptor.forClass(Consumer.class);
+            verify(projector).subscribe(listener.capture());
+            projectorListener = listener.getValue();
+        }
+
+        VendorInboxService.InboxChanges poll(long since) {
+            return (VendorInboxService.InboxChanges) inbox.awaitChanges(VENDOR, since).getResult();
+        }
+    }
+
+    @Test
+    void startsWithASnapshotVersionedByTheLastEventRead() {
+        offer(1, T0.plusMinutes(5), VENDOR);
+        offer(2, T0, VENDOR);
+        offer(3, T0, 8L);
+
+        VendorInboxService.InboxChanges snapshot = new Node(16).poll(0);
+
+        assertThat(snapshot.version()).isEqualTo(10);
+        assertThat(snapshot.reset()).isTrue();
+        assertThat(snapshot.added()).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void followsChangesMadeOnAnyNodeAndVersionsThemByEventId() {
+        Node node = new Node(16);
+        offer(1, T0, VENDOR);
+        assertThat(node.poll(0).added()).containsExactly(1L);
+        DeferredResult<VendorInboxService.InboxChanges> parked = node.inbox.awaitChanges(VENDOR, 10);
+        assertThat(parked.hasResult()).isFalse();
+
+        // Another node offers request 2 and the claim of request 1 wins there
+        offer(2, T0, null, VENDOR);
+        changed(node, 12, 2L);
+
+        assertThat(parked.getResult()).isEqualTo(new VendorInboxService.InboxChanges(12, false, List.of(2L), List.of()));
+        table.put(1L, new Row(RequestStatus.ASSIGNED, T0, VENDOR, Set.of()));
+        changed(node, 15, 1L);
+        assertThat(node.poll(10)).isEqualTo(new VendorInboxService.InboxChanges(15, false, List.of(2L), List.of(1L)));
+    }
+
+    @Test
+    void ignoresChangesThatDoNotTouchTheInbox() {
+        Node node = new Node(16);
+        node.poll(0);
+        offer(3, T0, 8L);
+
+        changed(node, 11, 3L);
+
+        DeferredResult<VendorInboxService.InboxChanges> parked = node.inbox.awaitChanges(VENDOR, 10);
+        assertThat(parked.hasResult()).isFalse();
+    }
+
+    @Test
+    void aClientCanSwitchNodesWithoutAReset() {
+        Node first = new Node(16);
+        Node second = new Node(16);
+        offer(1, T0, VENDOR);
+        first.poll(0);
+        second.poll(0);
+
+        offer(2, T0, VENDOR);
+        changed(first, 12, 2L);
+        changed(second, 12, 2L);
+        long version = first.poll(10).version();
+
+        // The next poll lands on the other node, which knows the version
+        DeferredResult<VendorInboxService.InboxChanges> parked = second.inbox.awaitChanges(VENDOR, version);
+        assertThat(parked.hasResult()).isFalse();
+        offer(3, T0, VENDOR);
+        changed(first, 14, 3L);
+        changed(second, 14, 3L);
+        assertThat(parked.getResult()).isEqualTo(new VendorInboxService.InboxChanges(14, false, List.of(3L), List.of()));
+    }
+
+    @Test
+    void catchesUpOnAChangeReportedWhileTheInboxWasLoading() {
+        Node node = new Node(16);
+        offer(1, T0, VENDOR);
+        // The report arrives after the inbox was read but before it is listed
+        duringLoad.set(() -> {
+            offer(2, T0, VENDOR);
+            changed(node, 11, 2L);
+        });
+
+        node.poll(0);
+
+        VendorInboxService.InboxChanges changes = node.poll(10);
+        assertThat(changes.version()).isEqualTo(11);
+        assertThat(changes.added()).containsExactly(2L);
+    }
+
+    @Test
+    void resetsAClientOlderThanTheJournal() {
+        Node node = new Node(2);
+        node.poll(0);
+        for (long id = 1; id <= 3; id++) {
+            offer(id, T0, VENDOR);
+            changed(node, 10 + id * 2, id);
+        }
+
+        // The change at 12 was dropped from the journal
+        VendorInboxService.InboxChanges fromStart = node.poll(10);
+        assertThat(fromStart.reset()).isTrue();
+        assertThat(fromStart.added()).containsExactly(1L, 2L, 3L);
+        assertThat(node.poll(12)).isEqualTo(new VendorInboxService.InboxChanges(16, false, List.of(2L, 3L), List.of()));
+        // Versions from the future, e.g. from a node further ahead, also get a snapshot
+        assertThat(node.poll(20).reset()).isTrue();
+    }
+
+    private void changed(Node node, long eventId, Long... requestIds) {
+        lastEventId.set(eventId);
+        node.projectorListener.accept(Set.of(requestIds));
+    }
+
+    private void offer(long id, LocalDateTime priorityAt, Long intendedVendorId, Long... offeredTo) {
+        table.put(id, new Row(RequestStatus.OPEN, priorityAt, intendedVendorId, Set.of(offeredTo)));
+    }
+
+    private void offer(long id, LocalDateTime priorityAt, long vendorId) {
+        offer(id, priorityAt, vendorId, new Long[0]);
+    }
+
+    private List<ServiceRequestRepository.Offer> offersTo(long vendorId) {
+        List<ServiceRequestRepository.Offer> offers = new ArrayList<>();
+        table.forEach((id, row) -> {
+            if (row.status() == RequestStatus.OPEN
+                    && (Long.valueOf(vendorId).equals(row.intendedVendorId()) || row.offeredTo().contains(vendorId))) {
+                offers.add(new ServiceRequestRepository.Offer() {
+                    public Long getId() {
+                        return id;
+                    }
+
+                    public LocalDateTime getPriorityAt() {
+                        return row.priorityAt();
+                    }
+                });
+            }
+        });
+        return offers;
+    }
+
+    private List<ServiceRequestRepository.OfferTarget> offerTargets(Collection<Long> ids) {
+        List<ServiceRequestRepository.OfferTarget> targets = new ArrayList<>();
+        for (Long id : ids) {
+            Row row = table.get(id);
+            if (row == null || row.status() != RequestStatus.OPEN) {
+                continue;
+            }
+            List<Long> offered = row.offeredTo().isEmpty() ? Collections.singletonList(null)
+                    : new ArrayList<>(row.offeredTo());
+            for (Long vendorId : offered) {
+                targets.add(new ServiceRequestRepository.OfferTarget() {
+                    public Long getId() {
+                        return id;
+                    }
+
+                    public LocalDateTime getPriorityAt() {
+                        return row.priorityAt();
+                    }
+
+                    public Long getIntendedVendorId() {
+                        return row.intendedVendorId();
+                    }
+
+                    public Long getOfferedVendorId() {
+                        return vendorId;
+                    }
+                });
+            }
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,214 @@
+package com.innovation.service;
+
+import com.innovation.model.User;
+import com.innovation.model.UserActivityStatus;
+import com.innovation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WorkerAvailabilityIndexTest {
+
+    private static final long VENDOR = 1;
+    private static final long WORKER = 2;
+
+    private record Row(UserActivityStatus status, Set<String> roles, Set<Long> workers, long version) {
+    }
+
+    // users and resource_versions as every node sees them
+    private final Map<Long, Row> table = new HashMap<>();
+    private final AtomicReference<Runnable> afterLoad = new AtomicReference<>();
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ResourceVersions resourceVersions = mock(ResourceVersions.class);
+    private final ResourceChangeFeed changeFeed = mock(ResourceChangeFeed.class);
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private WorkerAvailabilityIndex index;
+    private Consumer<Map<Long, Long>> feedListener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(resourceVersions.versions(eq(ResourceVersions.USER), anyCollection()))
+                .thenAnswer(call -> versions(call.getArgument(1)));
+        when(resourceVersions.versions(ResourceVersions.USER)).thenAnswer(call -> versions(null));
+        when(userRepository.findByRolesContaining(any())).thenAnswer(call -> load(null, call.getArgument(0)));
+        when(userRepository.findUncachedByIdIn(anyCollection())).thenAnswer(call -> {
+            List<User> users = load(call.getArgument(0), null);
+            Runnable hook = afterLoad.getAndSet(null);
+            if (hook != null) {
+                hook.run();
+            }
+            return users;
+        });
+        index = new WorkerAvailabilityIndex(userRepository, resourceVersions, changeFeed, metrics);
+        ArgumentCaptor<Consumer<Map<Long, Long>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(changeFeed).subscribe(eq(ResourceVersions.USER), listener.capture());
+        feedListener = listener.getValue();
+
+        write(VENDOR, UserActivityStatus.IDLE, Set.of("VENDOR"), Set.of(WORKER));
+        write(WORKER, UserActivityStatus.IDLE, Set.of("WORKER"), Set.of());
+        index.rebuild();
+    }
+
+    @Test
+    void appliesChangesReportedFromAnotherNode() {
+        assertThat(index.idleWorkers(VENDOR, "TOWING")).isEqualTo(1);
+
+        long version = write(WORKER, UserActivityStatus.ASSIGNED, Set.of("WORKER"), Set.of());
+        feedListener.accept(Map.of(WORKER, version));
+
+        assertThat(index.hasCapacity(VENDOR, "TOWING")).isFalse();
+    }
+
+    @Test
+    void aSlowReloadDoesNotOverwriteANewerOne() {
+        write(WORKER, UserActivityStatus.ASSIGNED, Set.of("WORKER"), Set.of());
+        // The feed's reload has read the worker as assigned; before it applies it, the worker
+        // goes idle again and this node's own reload of that change finishes first
+        afterLoad.set(() -> {
+            write(WORKER, UserActivityStatus.IDLE, Set.of("WORKER"), Set.of());
+            index.onStatusChanged(user(WORKER));
+        });
+        feedListener.accept(Map.of(WORKER, 2L));
+
+        assertThat(index.idleWorkers(VENDOR, "TOWING")).isEqualTo(1);
+        assertThat(metrics.count("availability.stale-reloads")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentLocalAndFeedReloadsEndAtTheLatestState() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                boolean local = t % 2 == 0;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 200; i++) {
+                        UserActivityStatus status = ThreadLocalRandom.current().nextBoolean()
+                                ? UserActivityStatus.IDLE : UserActivityStatus.ASSIGNED;
+                        long version = write(WORKER, status, Set.of("WORKER"), Set.of());
+                        if (local) {
+                            index.onStatusChanged(user(WORKER));
+                        } else {
+                            feedListener.accept(Map.of(WORKER, version));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        boolean idle = user(WORKER).getStatus() == UserActivityStatus.IDLE;
+        assertThat(index.idleWorkers(VENDOR, "TOWING")).isEqualTo(idle ? 1 : 0);
+    }
+
+    @Test
+    void forgetsDeletedWorkersAndVendors() {
+        delete(WORKER);
+        index.onUserDeleted(WORKER);
+        assertThat(index.hasCapacity(VENDOR, "TOWING")).isFalse();
+
+        // A vendor deleted on another node; its worker list goes with it
+        write(WORKER, UserActivityStatus.IDLE, Set.of("WORKER"), Set.of());
+        index.onUserSaved(user(WORKER));
+        long vendorVersion = delete(VENDOR);
+        feedListener.accept(Map.of(VENDOR, vendorVersion));
+        assertThat(index.idleWorkers(VENDOR, "TOWING")).isZero();
+
+        // A new vendor picking the worker up is counted from its own change
+        write(VENDOR, UserActivityStatus.IDLE, Set.of("VENDOR"), Set.of(WORKER));
+        index.onUserSaved(user(VENDOR));
+        assertThat(index.idleWorkers(VENDOR, "TOWING")).isEqualTo(1);
+    }
+
+    private long write(long id, UserActivityStatus status, Set<String> roles, Set<Long> workers) {
+        synchronized (table) {
+            Row previous = table.get(id);
+            long version = previous == null ? 1 : previous.version() + 1;
+            table.put(id, new Row(status, roles, workers, version));
+            return version;
+        }
+    }
+
+    private long delete(long id) {
+        synchronized (table) {
+            // resource_versions keeps the row of a deleted user
+            long version = table.get(id).version() + 1;
+            table.put(id, new Row(null, null, null, version));
+            return version;
+        }
+    }
+
+    private Map<Long, Long> versions(Collection<Long> ids) {
+        synchronized (table) {
+            Map<Long, Long> versions = new HashMap<>();
+            table.forEach((id, row) -> {
+                if (ids == null || ids.contains(id)) {
+                    versions.put(id, row.version());
+                }
+            });
+            return versions;
+        }
+    }
+
+    private List<User> load(Collection<Long> ids, String role) {
+        synchronized (table) {
+            List<User> users = new ArrayList<>();
+            table.forEach((id, row) -> {
+                if (row.roles() != null && (ids == null || ids.contains(id))
+                        && (role == null || row.roles().contains(role))) {
+                    users.add(toUser(id, row));
+                }
+            });
+            return users;
+        }
+    }
+
+    private User user(long id) {
+        synchronized (table) {
+            return toUser(id, table.get(id));
+        }
+    }
+
+    private static User toUser(long id, Row row) {
+        User user = new User();
+        user.setId(id);
+        user.setStatus(row.status());
+        user.setRoles(row.roles());
+        user.setRequestTypes(Set.of("TOWING"));
+        user.setWorkers(row.workers());
+        return user;
+    }
+}